@@ -0,0 +1,186 @@
+/**
+ * Result of one iteration of a {@link Search}: the reached depth, the score of the position and the principal
+ * variation, i.e. the line of moves both sides are expected to play. AnalysisInfo objects are immutable and can
+ * therefore be handed from a background thread to the Event Dispatch Thread without synchronization.
+ */
+public final class AnalysisInfo {
+
+    private final int depth;
+    private final int score;
+    private final int sideToMove;
+    private final int[] principalVariation;
+    private final long nodes;
+    private final long elapsedMillis;
+    private final int line;
+
+    /**
+     * Creates a new AnalysisInfo for the best line of a search.
+     *
+     * @param depth              the depth of the completed iteration
+     * @param score              the score in centipawns from the view of the color to move
+     * @param sideToMove         the color to move in the analysed {@link Position}
+     * @param principalVariation the encoded moves of the best line
+     * @param nodes              the number of positions visited so far
+     * @param elapsedMillis      the time spent searching so far
+     */
+    public AnalysisInfo(int depth, int score, int sideToMove, int[] principalVariation, long nodes,
+                        long elapsedMillis) {
+        this(depth, score, sideToMove, principalVariation, nodes, elapsedMillis, 1);
+    }
+
+    /**
+     * Creates a new AnalysisInfo for one of several lines of a search.
+     *
+     * @param depth              the depth of the completed iteration
+     * @param score              the score in centipawns from the view of the color to move
+     * @param sideToMove         the color to move in the analysed {@link Position}
+     * @param principalVariation the encoded moves of the line
+     * @param nodes              the number of positions visited so far
+     * @param elapsedMillis      the time spent searching so far
+     * @param line               the rank of the line, starting with 1 for the best line
+     */
+    public AnalysisInfo(int depth, int score, int sideToMove, int[] principalVariation, long nodes,
+                        long elapsedMillis, int line) {
+        this.depth = depth;
+        this.score = score;
+        this.sideToMove = sideToMove;
+        this.principalVariation = principalVariation.clone();
+        this.nodes = nodes;
+        this.elapsedMillis = elapsedMillis;
+        this.line = line;
+    }
+
+    /**
+     * Returns the depth of the completed iteration.
+     *
+     * @return the search depth in half moves
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Returns the score of the position from the view of the color to move. Positive values are good for the color to
+     * move.
+     *
+     * @return the score in centipawns
+     */
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * Returns the color to move in the analysed Position.
+     *
+     * @return {@link Position#WHITE} or {@link Position#BLACK}
+     */
+    public int getSideToMove() {
+        return sideToMove;
+    }
+
+    /**
+     * Returns the rank of this line among the lines of the search. The best line has the rank 1.
+     *
+     * @return the rank of the line
+     */
+    public int getLine() {
+        return line;
+    }
+
+    /**
+     * Returns the score of the position from the view of white. Positive values are good for white.
+     *
+     * @return the score in centipawns
+     */
+    public int getWhiteScore() {
+        return sideToMove == Position.WHITE ? score : -score;
+    }
+
+    /**
+     * Returns whether the search found a forced checkmate.
+     *
+     * @return true if the score is a mate score
+     */
+    public boolean isMate() {
+        return Math.abs(score) >= Search.MATE - Search.MAX_PLY;
+    }
+
+    /**
+     * Returns the number of moves until checkmate from the view of the color to move. Negative values mean that the
+     * color to move gets checkmated.
+     *
+     * @return the number of full moves until checkmate or 0, if no mate was found
+     */
+    public int getMateDistance() {
+        if (!isMate()) {
+            return 0;
+        }
+        int plies = Search.MATE - Math.abs(score);
+        return score > 0 ? (plies + 1) / 2 : -(plies + 1) / 2;
+    }
+
+    /**
+     * Returns the encoded moves of the principal variation.
+     *
+     * @return a copy of the principal variation
+     */
+    public int[] getPrincipalVariation() {
+        return principalVariation.clone();
+    }
+
+    /**
+     * Returns the first move of the principal variation.
+     *
+     * @return the best move or {@link Move#NONE}
+     */
+    public int getBestMove() {
+        return principalVariation.length > 0 ? principalVariation[0] : Move.NONE;
+    }
+
+    /**
+     * Returns the number of positions visited so far.
+     *
+     * @return the node count
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Returns the time spent searching so far.
+     *
+     * @return the elapsed time in milliseconds
+     */
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    /**
+     * Returns the principal variation in long algebraic notation, e.g. 'e2e4 e7e5 g1f3'.
+     *
+     * @return the moves of the principal variation separated by spaces
+     */
+    public String getPrincipalVariationString() {
+        StringBuilder builder = new StringBuilder();
+        for (int move : principalVariation) {
+            if (builder.length() > 0) {
+                builder.append(' ');
+            }
+            builder.append(Move.toString(move));
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Returns the score from the view of white in a human readable form, e.g. '+0.35' or '#-3'.
+     *
+     * @return the formatted score
+     */
+    public String getFormattedScore() {
+        if (isMate()) {
+            int mate = sideToMove == Position.WHITE ? getMateDistance() : -getMateDistance();
+            return "#" + mate;
+        }
+        return String.format("%+.2f", getWhiteScore() / 100.0);
+    }
+}
@@ -0,0 +1,120 @@
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Background worker that continuously analyses a {@link Position} with a {@link Search}. The analysis runs in its own
+ * daemon thread, so the Event Dispatch Thread is never blocked. Every time a new Position is handed to the worker, the
+ * running search is cancelled and restarted for the new Position.
+ * <p>
+ * The worker does not push its results to the Gui. Instead, the latest {@link AnalysisInfo} is published and can be
+ * polled at a fixed rate with {@link #getLatestInfo()}. This way the number of Gui updates is independent of how fast
+ * the Search completes its iterations.
+ */
+public class AnalysisWorker implements Runnable, SearchListener {
+
+    private final Search search;
+    private final AtomicReference<AnalysisInfo> latestInfo;
+    private final Thread thread;
+    private Position pendingPosition;
+    private Position analysedPosition;
+    private boolean running;
+
+    /**
+     * Creates a new AnalysisWorker and starts its background thread. The thread waits until a Position is handed to
+     * the worker with {@link #analyze(Position)}.
+     */
+    public AnalysisWorker() {
+        this.search = new Search();
+        this.latestInfo = new AtomicReference<>();
+        this.running = true;
+        this.thread = new Thread(this, "Analysis");
+        this.thread.setDaemon(true);
+        this.thread.setPriority(Thread.MIN_PRIORITY);
+        this.thread.start();
+    }
+
+    /**
+     * Cancels the running analysis and starts to analyse the given Position. The worker takes ownership of the
+     * Position, it must not be altered by the caller afterwards.
+     *
+     * @param position the Position that will be analysed
+     */
+    public synchronized void analyze(Position position) {
+        pendingPosition = position;
+        latestInfo.set(null);
+        search.stop();
+        notifyAll();
+    }
+
+    /**
+     * Cancels the running analysis. The worker stays idle until a new Position is handed to it.
+     */
+    public synchronized void cancel() {
+        pendingPosition = null;
+        analysedPosition = null;
+        latestInfo.set(null);
+        search.stop();
+    }
+
+    /**
+     * Cancels the running analysis and terminates the background thread.
+     */
+    public synchronized void shutdown() {
+        running = false;
+        cancel();
+        notifyAll();
+    }
+
+    /**
+     * Returns the result of the latest completed iteration for the currently analysed Position.
+     *
+     * @return the latest analysis result or null, if there is none yet
+     */
+    public AnalysisInfo getLatestInfo() {
+        return latestInfo.get();
+    }
+
+    /**
+     * Main loop of the background thread: Waits for a Position and analyses it until it is replaced or the maximum
+     * depth is reached.
+     */
+    @Override
+    public void run() {
+        while (true) {
+            Position position;
+            synchronized (this) {
+                while (running && pendingPosition == null) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (!running) {
+                    return;
+                }
+                position = pendingPosition;
+                pendingPosition = null;
+                analysedPosition = position;
+            }
+            search.think(position, Search.MAX_PLY, 0, this);
+        }
+    }
+
+    /**
+     * Publishes the result of a completed iteration, unless the analysed Position has been replaced in the meantime.
+     *
+     * @param info the depth, score and principal variation of the completed iteration
+     */
+    @Override
+    public void iterationCompleted(AnalysisInfo info) {
+        synchronized (this) {
+            if (pendingPosition != null || analysedPosition == null || !running) {
+                // Result belongs to an outdated Position. Stopping again covers a replacement that arrived before
+                // the Search had started.
+                search.stop();
+                return;
+            }
+            latestInfo.set(info);
+        }
+    }
+}
@@ -0,0 +1,345 @@
+/**
+ * Precomputed attack tables, which return all squares attacked by a piece with a single lookup. Attack sets are
+ * bitboards: a long value, in which bit n stands for the square n of a {@link Position} (row * 8 + col, starting with
+ * A8). The attacks of Pawns, Knights and Kings only depend on their square. For Knights and Kings, the attacked
+ * squares are additionally available as arrays in ascending order (see {@link #knightTargets(int)}), so move
+ * generators can visit them without testing the edges of the board.
+ * <p>
+ * The attacks of a slider only depend on the pieces on its rays, the so called relevant occupancy. For every square,
+ * the relevant occupancy is multiplied by a magic number, which maps every possible occupancy to a distinct index in
+ * the attack table of the square ('magic bitboards'). The magic numbers below were found by a randomized search for
+ * the square numbering of this application, so only the tables have to be filled when the class is loaded. The time
+ * needed for this is reported by {@link #getInitializationNanos()}.
+ */
+public final class AttackTables {
+
+    private static final long[] ROOK_MAGICS = {
+            0x0080136080004000L, 0x00C0100040002000L, 0x0300104088A00300L, 0x0880080004801000L,
+            0x1200100804200200L, 0x2200080102001004L, 0x2080308002004100L, 0x0200051484002042L,
+            0x4808800887604000L, 0x10014000E01000C4L, 0x0053001300200140L, 0x1001808018001000L,
+            0x0022001006000820L, 0x0022000200108804L, 0x0001000100040200L, 0x0002000041008204L,
+            0x100C208000401080L, 0x4010004040002010L, 0x5030018020008011L, 0x0080090010002100L,
+            0x8010050008010090L, 0x0202010100080400L, 0x010124000F029018L, 0x0000020000841061L,
+            0x000080228002C002L, 0x0180400080200080L, 0x0E04401100200101L, 0x00A0080480100080L,
+            0x0028008280040008L, 0x0200020080040080L, 0x1101000100020004L, 0x2003004200040081L,
+            0x8040004028800087L, 0x0508401004402000L, 0x0410001880802000L, 0x0110004400400800L,
+            0x8014000800808004L, 0x0005020080800400L, 0x0C20900204000188L, 0x0401204402000881L,
+            0x0C80004100810022L, 0x1900402010004001L, 0x0C10080024002000L, 0x0000201001030009L,
+            0x0A20040008008080L, 0x0442000810020004L, 0x83D2100881040042L, 0x0C10158069020004L,
+            0x0100800100204100L, 0x0282200040100640L, 0x0090422001001900L, 0x8010002100091500L,
+            0x4040040008008280L, 0x4001001400080300L, 0x3040020128108400L, 0x2008040C80510200L,
+            0x820902E0D4800041L, 0x9420190040008021L, 0x010413082000C101L, 0x0004100005002109L,
+            0x1112000820100402L, 0x0441000208040001L, 0x0482009002410804L, 0x0002041240248102L
+    };
+
+    private static final long[] BISHOP_MAGICS = {
+            0x20E0040D22043200L, 0x0404100A08430000L, 0x0021020082012010L, 0x0102408100000800L,
+            0x8042121040008000L, 0x0060821040400D0AL, 0x4006580808188001L, 0x08A0D20610024815L,
+            0x0424400501022200L, 0x88411002A8010022L, 0xA100100102102420L, 0x9000292042000228L,
+            0x8021420210204205L, 0x0000011002104040L, 0x0000008804422200L, 0x00288200A6211000L,
+            0x0020A11020020090L, 0x0210A12004008080L, 0x0011001000520142L, 0x000800C40C10B022L,
+            0x008200240121000CL, 0x0400804808240200L, 0x1048842908D01002L, 0x9001100021081210L,
+            0x0C119000C8200100L, 0x08100800120A9C00L, 0x0004010010010020L, 0x0004040040410200L,
+            0x0020840280802000L, 0x0500820000221000L, 0x0402120400481A24L, 0x0020A02000820800L,
+            0x0021080814612040L, 0x014C044300200200L, 0x8200108800100050L, 0x20A0420280480080L,
+            0x00140840101C0100L, 0x0620042100002080L, 0x01020200400C0410L, 0x0088004043010108L,
+            0x2048013012000812L, 0x1000520220015020L, 0x1002218020801000L, 0x4002120202030423L,
+            0x200002020A012400L, 0x184010130240020AL, 0x0004010802040112L, 0x0C10040048801040L,
+            0x0000540220910081L, 0x0C82004218840000L, 0x00000C4200908000L, 0x2000020042020000L,
+            0x1001010460820000L, 0x4040400801810016L, 0xC008020808012200L, 0x2A42104200850200L,
+            0x0208210110012001L, 0xC000002101101080L, 0x0002028202016402L, 0x0200200231040900L,
+            0x0080000310020210L, 0x4704044184040C22L, 0x2020420408008100L, 0x0208812800850203L
+    };
+
+    // The first four directions lead to higher square indices, the last four to lower ones
+    private static final int[][] DIRECTIONS = {{1, 0}, {0, 1}, {1, 1}, {1, -1}, {-1, 0}, {0, -1}, {-1, -1}, {-1, 1}};
+    // Sliders move along two lines, each consisting of two opposite directions
+    private static final int[] ROOK_DIRECTIONS = {0, 4, 1, 5};
+    private static final int[] BISHOP_DIRECTIONS = {2, 6, 3, 7};
+
+    // All squares from a square to the edge of the board in one direction
+    private static final long[][] RAYS = new long[8][64];
+
+    private static final int[][] KNIGHT_OFFSETS = {
+            {1, 2}, {1, -2}, {-1, 2}, {-1, -2}, {2, 1}, {2, -1}, {-2, 1}, {-2, -1}
+    };
+
+    private static final long[][] PAWN_ATTACKS = new long[2][64];
+    private static final long[] KNIGHT_ATTACKS = new long[64];
+    private static final long[] KING_ATTACKS = new long[64];
+    private static final int[][] KNIGHT_TARGETS = new int[64][];
+    private static final int[][] KING_TARGETS = new int[64][];
+    private static final long[] ROOK_MASKS = new long[64];
+    private static final long[] BISHOP_MASKS = new long[64];
+    private static final int[] ROOK_SHIFTS = new int[64];
+    private static final int[] BISHOP_SHIFTS = new int[64];
+    private static final int[] ROOK_OFFSETS = new int[64];
+    private static final int[] BISHOP_OFFSETS = new int[64];
+    private static final long[] ROOK_ATTACKS;
+    private static final long[] BISHOP_ATTACKS;
+    private static final long INITIALIZATION_NANOS;
+
+    static {
+        long start = System.nanoTime();
+        for (int direction = 0; direction < 8; direction++) {
+            int rowStep = DIRECTIONS[direction][0];
+            int colStep = DIRECTIONS[direction][1];
+            long[] rays = RAYS[direction];
+            // A ray consists of the next square and the ray from there on, which has to be computed first
+            for (int i = 0; i < 64; i++) {
+                int square = direction < 4 ? 63 - i : i;
+                int row = (square >>> 3) + rowStep;
+                int col = (square & 7) + colStep;
+                if (isOnBoard(row, col)) {
+                    int next = row * 8 + col;
+                    rays[square] = 1L << next | rays[next];
+                }
+            }
+        }
+        for (int square = 0; square < 64; square++) {
+            int row = square >>> 3;
+            int col = square & 7;
+            for (int[] offset : KNIGHT_OFFSETS) {
+                KNIGHT_ATTACKS[square] |= squareBit(row + offset[0], col + offset[1]);
+            }
+            for (int[] direction : DIRECTIONS) {
+                KING_ATTACKS[square] |= squareBit(row + direction[0], col + direction[1]);
+            }
+            KNIGHT_TARGETS[square] = toSquares(KNIGHT_ATTACKS[square]);
+            KING_TARGETS[square] = toSquares(KING_ATTACKS[square]);
+            // White Pawns move towards row 0, black Pawns towards row 7
+            PAWN_ATTACKS[Position.WHITE][square] = squareBit(row - 1, col - 1) | squareBit(row - 1, col + 1);
+            PAWN_ATTACKS[Position.BLACK][square] = squareBit(row + 1, col - 1) | squareBit(row + 1, col + 1);
+        }
+        ROOK_ATTACKS = new long[initMasks(ROOK_DIRECTIONS, ROOK_MASKS, ROOK_SHIFTS, ROOK_OFFSETS)];
+        BISHOP_ATTACKS = new long[initMasks(BISHOP_DIRECTIONS, BISHOP_MASKS, BISHOP_SHIFTS, BISHOP_OFFSETS)];
+        for (int square = 0; square < 64; square++) {
+            fillTable(square, ROOK_DIRECTIONS, ROOK_MASKS, ROOK_MAGICS, ROOK_SHIFTS, ROOK_OFFSETS, ROOK_ATTACKS);
+            fillTable(square, BISHOP_DIRECTIONS, BISHOP_MASKS, BISHOP_MAGICS, BISHOP_SHIFTS, BISHOP_OFFSETS,
+                    BISHOP_ATTACKS);
+        }
+        INITIALIZATION_NANOS = System.nanoTime() - start;
+    }
+
+    private AttackTables() {
+    }
+
+    /**
+     * Returns the squares attacked by a Pawn of the given color on the given square. These are the squares diagonally
+     * in front of the Pawn.
+     *
+     * @param color  the color of the Pawn: {@link Position#WHITE} or {@link Position#BLACK}
+     * @param square the square of the Pawn
+     * @return bitboard of the attacked squares
+     */
+    public static long pawnAttacks(int color, int square) {
+        return PAWN_ATTACKS[color][square];
+    }
+
+    /**
+     * Returns the squares attacked by a Knight on the given square.
+     *
+     * @param square the square of the Knight
+     * @return bitboard of the attacked squares
+     */
+    public static long knightAttacks(int square) {
+        return KNIGHT_ATTACKS[square];
+    }
+
+    /**
+     * Returns the squares attacked by a King on the given square.
+     *
+     * @param square the square of the King
+     * @return bitboard of the attacked squares
+     */
+    public static long kingAttacks(int square) {
+        return KING_ATTACKS[square];
+    }
+
+    /**
+     * Returns the squares attacked by a Knight on the given square in ascending order. The returned array is shared
+     * and must not be modified.
+     *
+     * @param square the square of the Knight
+     * @return the attacked squares, between 2 and 8
+     */
+    public static int[] knightTargets(int square) {
+        return KNIGHT_TARGETS[square];
+    }
+
+    /**
+     * Returns the squares attacked by a King on the given square in ascending order. The returned array is shared and
+     * must not be modified.
+     *
+     * @param square the square of the King
+     * @return the attacked squares, between 3 and 8
+     */
+    public static int[] kingTargets(int square) {
+        return KING_TARGETS[square];
+    }
+
+    /**
+     * Returns all squares attacked by a Rook on the given square. The attack set includes the first occupied square
+     * on every ray, regardless of the color of the piece on it.
+     *
+     * @param square    the square of the Rook
+     * @param occupancy bitboard of all occupied squares
+     * @return bitboard of the attacked squares
+     */
+    public static long rookAttacks(int square, long occupancy) {
+        int index = (int) (((occupancy & ROOK_MASKS[square]) * ROOK_MAGICS[square]) >>> ROOK_SHIFTS[square]);
+        return ROOK_ATTACKS[ROOK_OFFSETS[square] + index];
+    }
+
+    /**
+     * Returns all squares attacked by a Bishop on the given square. The attack set includes the first occupied square
+     * on every ray, regardless of the color of the piece on it.
+     *
+     * @param square    the square of the Bishop
+     * @param occupancy bitboard of all occupied squares
+     * @return bitboard of the attacked squares
+     */
+    public static long bishopAttacks(int square, long occupancy) {
+        int index = (int) (((occupancy & BISHOP_MASKS[square]) * BISHOP_MAGICS[square]) >>> BISHOP_SHIFTS[square]);
+        return BISHOP_ATTACKS[BISHOP_OFFSETS[square] + index];
+    }
+
+    /**
+     * Returns all squares attacked by a Queen on the given square, i.e. the combined attacks of a Rook and a Bishop.
+     *
+     * @param square    the square of the Queen
+     * @param occupancy bitboard of all occupied squares
+     * @return bitboard of the attacked squares
+     */
+    public static long queenAttacks(int square, long occupancy) {
+        return rookAttacks(square, occupancy) | bishopAttacks(square, occupancy);
+    }
+
+    /**
+     * Returns the time that was needed to fill the attack tables when the class was loaded.
+     *
+     * @return the initialization time in nanoseconds
+     */
+    public static long getInitializationNanos() {
+        return INITIALIZATION_NANOS;
+    }
+
+    /**
+     * Computes the relevant occupancy masks, shifts and table offsets of all squares for one kind of slider.
+     *
+     * @return the total size of the attack table
+     */
+    private static int initMasks(int[] directions, long[] masks, int[] shifts, int[] offsets) {
+        int size = 0;
+        for (int square = 0; square < 64; square++) {
+            // The last square of a ray never blocks anything behind it -> it is not relevant
+            long mask = 0;
+            for (int direction : directions) {
+                long ray = RAYS[direction][square];
+                mask |= ray & ~(1L << lastSquare(direction, ray));
+            }
+            masks[square] = mask;
+            shifts[square] = 64 - Long.bitCount(mask);
+            offsets[square] = size;
+            size += 1 << Long.bitCount(mask);
+        }
+        return size;
+    }
+
+    /**
+     * Stores the attacks for every subset of the relevant occupancy of a square in its part of the attack table. The
+     * attacks along the two lines of a slider do not influence each other, so they are computed separately for the
+     * subsets of each line and then combined for all pairs of subsets.
+     */
+    private static void fillTable(int square, int[] directions, long[] masks, long[] magics, int[] shifts,
+                                  int[] offsets, long[] attacks) {
+        long[] firstOccupancies = new long[64];
+        long[] firstAttacks = new long[64];
+        long[] secondOccupancies = new long[64];
+        long[] secondAttacks = new long[64];
+        int firstCount = fillLine(square, directions[0], directions[1], masks[square], firstOccupancies,
+                firstAttacks);
+        int secondCount = fillLine(square, directions[2], directions[3], masks[square], secondOccupancies,
+                secondAttacks);
+
+        // The occupancies of the two lines have no common bits, so the product of their union with the magic is
+        // the sum of their products
+        long magic = magics[square];
+        for (int second = 0; second < secondCount; second++) {
+            secondOccupancies[second] *= magic;
+        }
+        int shift = shifts[square];
+        int offset = offsets[square];
+        for (int first = 0; first < firstCount; first++) {
+            long firstProduct = firstOccupancies[first] * magic;
+            long firstAttack = firstAttacks[first];
+            for (int second = 0; second < secondCount; second++) {
+                attacks[offset + (int) ((firstProduct + secondOccupancies[second]) >>> shift)] =
+                        firstAttack | secondAttacks[second];
+            }
+        }
+    }
+
+    /**
+     * Computes the attacks along one line for every subset of the relevant occupancy on this line.
+     *
+     * @return the number of subsets
+     */
+    private static int fillLine(int square, int direction, int opposite, long mask, long[] occupancies,
+                                long[] attacks) {
+        long lineMask = mask & (RAYS[direction][square] | RAYS[opposite][square]);
+        long occupancy = 0;
+        int count = 0;
+        do {
+            occupancies[count] = occupancy;
+            attacks[count] = rayAttacks(square, occupancy, direction) | rayAttacks(square, occupancy, opposite);
+            count++;
+            occupancy = (occupancy - lineMask) & lineMask; // Next subset of the mask (Carry-Rippler)
+        } while (occupancy != 0);
+        return count;
+    }
+
+    /**
+     * Computes the attacks of a slider in one direction: The ray ends at the first occupied square, so the part of
+     * the ray behind this blocker is removed.
+     */
+    private static long rayAttacks(int square, long occupancy, int direction) {
+        long ray = RAYS[direction][square];
+        long blockers = ray & occupancy;
+        if (blockers != 0) {
+            ray ^= RAYS[direction][firstSquare(direction, blockers)];
+        }
+        return ray;
+    }
+
+    /**
+     * Returns the square of the given bitboard, which is closest to the origin of a ray in the given direction.
+     */
+    private static int firstSquare(int direction, long squares) {
+        return direction < 4 ? Long.numberOfTrailingZeros(squares) : 63 - Long.numberOfLeadingZeros(squares);
+    }
+
+    /**
+     * Returns the square of the given bitboard, which is farthest from the origin of a ray in the given direction.
+     */
+    private static int lastSquare(int direction, long squares) {
+        return direction < 4 ? 63 - Long.numberOfLeadingZeros(squares) : Long.numberOfTrailingZeros(squares);
+    }
+
+    private static int[] toSquares(long bitboard) {
+        int[] squares = new int[Long.bitCount(bitboard)];
+        for (int i = 0; i < squares.length; i++) {
+            squares[i] = Long.numberOfTrailingZeros(bitboard);
+            bitboard &= bitboard - 1;
+        }
+        return squares;
+    }
+
+    private static long squareBit(int row, int col) {
+        return isOnBoard(row, col) ? 1L << (row * 8 + col) : 0;
+    }
+
+    private static boolean isOnBoard(int row, int col) {
+        return row >= 0 && row < 8 && col >= 0 && col < 8;
+    }
+}
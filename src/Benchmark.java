@@ -0,0 +1,475 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Command line benchmarks for the headless parts of the chess engine. The benchmarks run on a fixed set of
+ * {@link Position}s, which are created by playing random legal moves from the starting Position with a fixed seed, so
+ * results of different versions can be compared.
+ * <p>
+ * Usage: java Benchmark [name], where name is one of the benchmarks below or 'all' (default):
+ * <p>
+ * - eval: Evaluations per second of the {@link Evaluation} and hit rate of its {@link PawnHashTable}
+ * <p>
+ * - nnue: Evaluations per second of the classic Evaluation and of the {@link NnueEvaluation}, each evaluating the
+ * Positions after every legal move, which is made and taken back like in a {@link Search}
+ * <p>
+ * - attacks: Initialization time of the {@link AttackTables} and slider attack lookups per second
+ * <p>
+ * - see: Static exchange evaluations of captures per second
+ * <p>
+ * - rules: Clicks per second processed by a {@link Game}, replaying a short game with castling, en passant and a
+ * promotion. Run it with and without '-Dchess.metrics=true' to measure the overhead of the {@link Metrics}, which
+ * are printed after the benchmark when enabled.
+ * <p>
+ * - journal: Moves per second appended to a {@link GameJournal} by {@link #JOURNAL_THREADS} threads, each of which
+ * waits until its move is on the disk. Shows how many moves share one write.
+ * <p>
+ * - batch: Positions per second whose legal moves are enumerated by a {@link MoveEnumerator}, given as FEN and as
+ * {@link PositionSnapshot}, with one thread and with one thread per core.
+ * <p>
+ * - search: Nodes of a {@link Search} to a fixed depth of {@link #SEARCH_DEPTH} half moves on the first
+ * {@link #SEARCH_POSITIONS} Positions, without the selective techniques and move ordering heuristics, with each of
+ * them alone, with all but the move ordering heuristics and with all of them. Also counts how often the best move
+ * equals that of the full width search.
+ */
+public class Benchmark {
+
+    private static final int POSITION_COUNT = 1000;
+    private static final long SEED = 20210216L;
+    private static final long MEASURE_MILLIS = 2000;
+    private static final int JOURNAL_THREADS = 16;
+    private static final int SEARCH_DEPTH = 5;
+    private static final int SEARCH_POSITIONS = 50;
+
+    // Source and target Tiles of the moves replayed by the 'rules' benchmark
+    private static final String[] RULES_GAME = {"e2", "e4", "d7", "d5", "e4", "e5", "f7", "f5", "e5", "f6", "g8",
+            "h6", "f6", "g7", "b8", "c6", "g7", "h8", "c8", "d7", "f1", "e2", "e7", "e6", "g1", "f3", "d8", "e7", "e1",
+            "g1", "e8", "c8", "b2", "b3", "h6", "f5"};
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        String name = args.length > 0 ? args[0] : "all";
+        Position[] positions = createTestPositions(POSITION_COUNT, SEED);
+
+        if (name.equals("eval") || name.equals("all")) {
+            benchmarkEvaluation(positions);
+        }
+        if (name.equals("nnue") || name.equals("all")) {
+            benchmarkNnue(positions);
+        }
+        if (name.equals("attacks") || name.equals("all")) {
+            benchmarkAttacks(positions);
+        }
+        if (name.equals("see") || name.equals("all")) {
+            benchmarkStaticExchange(positions);
+        }
+        if (name.equals("rules") || name.equals("all")) {
+            benchmarkRules();
+        }
+        if (name.equals("journal") || name.equals("all")) {
+            benchmarkJournal();
+        }
+        if (name.equals("batch") || name.equals("all")) {
+            benchmarkBatch(positions);
+        }
+        if (name.equals("search") || name.equals("all")) {
+            benchmarkSearch(positions);
+        }
+    }
+
+    /**
+     * Compares the node counts of fixed depth searches with different features of the selective {@link Search}. The
+     * transposition table is cleared before every Position, so the counts do not depend on the order of the runs.
+     *
+     * @param positions the Positions whose first {@link #SEARCH_POSITIONS} are searched
+     */
+    private static void benchmarkSearch(Position[] positions) {
+        int[] featureSets = new int[Search.FEATURE_NAMES.length + 3];
+        String[] names = new String[featureSets.length];
+        names[0] = "none";
+        for (int i = 0; i < Search.FEATURE_NAMES.length; i++) {
+            featureSets[i + 1] = 1 << i;
+            names[i + 1] = Search.FEATURE_NAMES[i];
+        }
+        featureSets[featureSets.length - 2] = Search.ALL_FEATURES
+                & ~(Search.KILLER_MOVES | Search.COUNTER_MOVES | Search.HISTORY_HEURISTIC);
+        names[names.length - 2] = "all but ordering";
+        featureSets[featureSets.length - 1] = Search.ALL_FEATURES;
+        names[names.length - 1] = "all";
+
+        Search search = new Search(new TranspositionTable(16));
+        int[] baselineMoves = new int[SEARCH_POSITIONS];
+        long baselineNodes = 0;
+        for (int f = 0; f < featureSets.length; f++) {
+            search.setFeatures(featureSets[f]);
+            long nodes = 0;
+            int sameMoves = 0;
+            long start = System.nanoTime();
+            for (int i = 0; i < SEARCH_POSITIONS; i++) {
+                search.getTranspositionTable().clear();
+                int move = search.think(new Position(positions[i]), SEARCH_DEPTH, 0, null);
+                nodes += search.getNodes();
+                if (f == 0) {
+                    baselineMoves[i] = move;
+                } else if (move == baselineMoves[i]) {
+                    sameMoves++;
+                }
+            }
+            long nanos = System.nanoTime() - start;
+            if (f == 0) {
+                baselineNodes = nodes;
+                sameMoves = SEARCH_POSITIONS;
+            }
+            System.out.printf("%-18s %,12d nodes (%5.1f%%) in %,6d ms, same best move in %d of %d positions%n",
+                    names[f], nodes, nodes * 100.0 / baselineNodes, nanos / 1000000, sameMoves, SEARCH_POSITIONS);
+        }
+    }
+
+    /**
+     * Measures how many Positions per second a {@link MoveEnumerator} processes, with a single thread and with one
+     * thread per core. Every batch consists of all test Positions, repeated to get enough chunks for all threads.
+     *
+     * @param positions the Positions whose legal moves are enumerated
+     */
+    private static void benchmarkBatch(Position[] positions) {
+        int repetitions = 100;
+        String[] fens = new String[positions.length * repetitions];
+        PositionSnapshot[] snapshots = new PositionSnapshot[fens.length];
+        for (int i = 0; i < fens.length; i++) {
+            fens[i] = positions[i % positions.length].toFen();
+            snapshots[i] = PositionSnapshot.of(positions[i % positions.length]);
+        }
+        int cores = Runtime.getRuntime().availableProcessors();
+        for (int threads : cores > 1 ? new int[]{1, cores} : new int[]{1}) {
+            MoveEnumerator enumerator = new MoveEnumerator(threads);
+            for (int input = 0; input < 2; input++) {
+                String name = (input == 0 ? "fen" : "binary") + "/" + threads;
+                long checksum = 0;
+                for (int round = 0; round < 3; round++) { // Warm up
+                    checksum += input == 0 ? enumerator.enumerate(fens).getTotalMoveCount()
+                            : enumerator.enumerate(snapshots).getTotalMoveCount();
+                }
+                long processed = 0;
+                long start = System.nanoTime();
+                long end = start + MEASURE_MILLIS * 1000000L;
+                while (System.nanoTime() < end) {
+                    checksum += input == 0 ? enumerator.enumerate(fens).getTotalMoveCount()
+                            : enumerator.enumerate(snapshots).getTotalMoveCount();
+                    processed += fens.length;
+                }
+                report(name, processed, "positions", System.nanoTime() - start, checksum);
+            }
+            enumerator.close();
+        }
+    }
+
+    /**
+     * Measures how many moves per second can be made durable by a {@link GameJournal}, if many games wait for their
+     * moves at the same time. Every thread plays its own game and waits for each move before making the next one.
+     */
+    private static void benchmarkJournal() throws IOException, InterruptedException {
+        Path file = Files.createTempFile("journal", ".bin");
+        GameJournal journal = new GameJournal(file);
+        long end = System.nanoTime() + MEASURE_MILLIS * 1000000L;
+        Thread[] threads = new Thread[JOURNAL_THREADS];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    long id = journal.startGame();
+                    int ply = 0;
+                    while (System.nanoTime() < end) {
+                        journal.awaitDurable(journal.recordMove(id, ply, 52, 36));
+                        ply++;
+                    }
+                }
+            });
+        }
+        long start = System.nanoTime();
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long nanos = System.nanoTime() - start;
+        journal.close();
+        long records = journal.getRecordCount();
+        report("journal", records, "moves", nanos, journal.getSyncCount());
+        System.out.printf("         %,.1f moves per write, %,.1f us per move%n",
+                (double) records / journal.getSyncCount(), nanos / 1000.0 / records);
+        Files.delete(file);
+    }
+
+    /**
+     * Measures how many clicks on {@link Tile}s a {@link Game} can process per second. Every round takes back all
+     * moves and replays the same game, so the legal targets are computed again.
+     */
+    private static void benchmarkRules() {
+        Board board = new Board(45);
+        Game game = new Game(board);
+        long checksum = 0;
+        for (int round = 0; round < 50; round++) {
+            checksum += replayGame(board, game);
+        }
+        if (Metrics.ENABLED) {
+            Metrics.reset(); // Only report the measured rounds
+        }
+
+        long inputs = 0;
+        long start = System.nanoTime();
+        long end = start + MEASURE_MILLIS * 1000000L;
+        while (System.nanoTime() < end) {
+            checksum += replayGame(board, game);
+            inputs += RULES_GAME.length;
+        }
+        report("rules", inputs, "inputs", System.nanoTime() - start, checksum);
+        if (Metrics.ENABLED) {
+            System.out.print(Metrics.getReport());
+        }
+    }
+
+    private static long replayGame(Board board, Game game) {
+        game.jumpTo(0);
+        for (String tile : RULES_GAME) {
+            game.processInput(board.getTile('8' - tile.charAt(1), tile.charAt(0) - 'a'));
+        }
+        return game.getPly();
+    }
+
+    /**
+     * Creates Positions by playing a random number of random legal moves from the starting Position.
+     *
+     * @param count the number of Positions
+     * @param seed  the seed of the random number generator
+     * @return the created Positions
+     */
+    static Position[] createTestPositions(int count, long seed) {
+        Random random = new Random(seed);
+        Position[] positions = new Position[count];
+        int[] moves = new int[Position.MAX_MOVES];
+        for (int i = 0; i < count; i++) {
+            Position position = Position.createStartPosition();
+            int plies = random.nextInt(80);
+            for (int ply = 0; ply < plies; ply++) {
+                int legalMoves = position.generateLegalMoves(moves);
+                if (legalMoves == 0) {
+                    break;
+                }
+                position.makeMove(moves[random.nextInt(legalMoves)]);
+            }
+            positions[i] = new Position(position);
+        }
+        return positions;
+    }
+
+    /**
+     * Measures how many Positions the {@link Evaluation} can score per second.
+     *
+     * @param positions the evaluated Positions
+     */
+    private static void benchmarkEvaluation(Position[] positions) {
+        Evaluation evaluation = new Evaluation();
+        long checksum = 0;
+
+        // Warm up, so the measurement is not distorted by the JIT compiler
+        for (int round = 0; round < 200; round++) {
+            for (Position position : positions) {
+                checksum += evaluation.evaluate(position);
+            }
+        }
+
+        long evaluations = 0;
+        long start = System.nanoTime();
+        long end = start + MEASURE_MILLIS * 1000000L;
+        while (System.nanoTime() < end) {
+            for (Position position : positions) {
+                checksum += evaluation.evaluate(position);
+            }
+            evaluations += positions.length;
+        }
+        report("eval", evaluations, "evals", System.nanoTime() - start, checksum);
+        PawnHashTable pawnHashTable = evaluation.getPawnHashTable();
+        System.out.printf("         pawn hash: %,d probes, %.1f%% hits%n", pawnHashTable.getProbes(),
+                pawnHashTable.getHitRate() * 100);
+    }
+
+    /**
+     * Compares the classic Evaluation with the NnueEvaluation. Every legal move of the test Positions is made,
+     * evaluated and taken back, so the NNUE accumulator is updated incrementally like during a Search and the
+     * classic Evaluation pays for its incremental terms in the same way.
+     *
+     * @param positions the Positions whose moves are evaluated
+     */
+    private static void benchmarkNnue(Position[] positions) {
+        int[][] moves = new int[positions.length][Position.MAX_MOVES];
+        int[] moveCounts = new int[positions.length];
+        for (int i = 0; i < positions.length; i++) {
+            moveCounts[i] = positions[i].generateLegalMoves(moves[i]);
+        }
+        Evaluation[] evaluations = {new Evaluation(), new NnueEvaluation(Nnue.loadDefault())};
+        String[] names = {"classic", "nnue"};
+        for (int e = 0; e < evaluations.length; e++) {
+            // Every Evaluation works on its own copies, so the classic one does not update an accumulator
+            Position[] copies = new Position[positions.length];
+            for (int i = 0; i < positions.length; i++) {
+                copies[i] = new Position(positions[i]);
+            }
+            long checksum = 0;
+            for (int round = 0; round < 20; round++) { // Warm up
+                checksum += evaluateMoves(evaluations[e], copies, moves, moveCounts);
+            }
+            long evaluated = 0;
+            long start = System.nanoTime();
+            long end = start + MEASURE_MILLIS * 1000000L;
+            while (System.nanoTime() < end) {
+                checksum += evaluateMoves(evaluations[e], copies, moves, moveCounts);
+                for (int count : moveCounts) {
+                    evaluated += count;
+                }
+            }
+            report(names[e], evaluated, "evals", System.nanoTime() - start, checksum);
+        }
+    }
+
+    private static long evaluateMoves(Evaluation evaluation, Position[] positions, int[][] moves, int[] moveCounts) {
+        long sum = 0;
+        for (int i = 0; i < positions.length; i++) {
+            for (int j = 0; j < moveCounts[i]; j++) {
+                positions[i].makeMove(moves[i][j]);
+                sum += evaluation.evaluate(positions[i]);
+                positions[i].unmakeMove(moves[i][j]);
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Measures how many slider attack sets can be looked up per second. The lookups use the squares of all Bishops,
+     * Rooks and Queens in the given Positions.
+     *
+     * @param positions the Positions providing the sliders and occupancies
+     */
+    private static void benchmarkAttacks(Position[] positions) {
+        System.out.printf("attack tables initialized in %.2f ms%n", AttackTables.getInitializationNanos() / 1e6);
+
+        // Collect the squares of all sliders together with the occupancy of their Position
+        int sliderCount = 0;
+        for (Position position : positions) {
+            for (int color = Position.WHITE; color <= Position.BLACK; color++) {
+                for (int type = Position.BISHOP; type <= Position.QUEEN; type++) {
+                    sliderCount += Long.bitCount(position.getPieceBitboard(Position.makePiece(color, type)));
+                }
+            }
+        }
+        int[] squares = new int[sliderCount];
+        int[] types = new int[sliderCount];
+        long[] occupancies = new long[sliderCount];
+        int index = 0;
+        for (Position position : positions) {
+            for (int square = 0; square < 64; square++) {
+                int type = Position.pieceType(position.getPiece(square));
+                if (type >= Position.BISHOP && type <= Position.QUEEN) {
+                    squares[index] = square;
+                    types[index] = type;
+                    occupancies[index] = position.getOccupancy();
+                    index++;
+                }
+            }
+        }
+
+        long checksum = 0;
+        for (int round = 0; round < 200; round++) {
+            checksum += lookupAttacks(squares, types, occupancies);
+        }
+
+        long lookups = 0;
+        long start = System.nanoTime();
+        long end = start + MEASURE_MILLIS * 1000000L;
+        while (System.nanoTime() < end) {
+            checksum += lookupAttacks(squares, types, occupancies);
+            lookups += sliderCount;
+        }
+        report("attacks", lookups, "lookups", System.nanoTime() - start, checksum);
+    }
+
+    /**
+     * Measures how many captures can be rated per second by the static exchange evaluation of a {@link Position}.
+     *
+     * @param positions the Positions providing the captures
+     */
+    private static void benchmarkStaticExchange(Position[] positions) {
+        // Collect all pseudo legal captures of the Positions
+        int[] moves = new int[Position.MAX_MOVES];
+        int[] captureCounts = new int[positions.length];
+        int[][] captures = new int[positions.length][];
+        int totalCaptures = 0;
+        for (int i = 0; i < positions.length; i++) {
+            int count = positions[i].generateMoves(moves);
+            captures[i] = new int[count];
+            for (int j = 0; j < count; j++) {
+                if (positions[i].isCapture(moves[j])) {
+                    captures[i][captureCounts[i]++] = moves[j];
+                }
+            }
+            totalCaptures += captureCounts[i];
+        }
+
+        long checksum = 0;
+        for (int round = 0; round < 200; round++) {
+            checksum += exchangeCaptures(positions, captures, captureCounts);
+        }
+
+        long evaluations = 0;
+        long start = System.nanoTime();
+        long end = start + MEASURE_MILLIS * 1000000L;
+        while (System.nanoTime() < end) {
+            checksum += exchangeCaptures(positions, captures, captureCounts);
+            evaluations += totalCaptures;
+        }
+        long nanos = System.nanoTime() - start;
+        report("see", evaluations, "calls", nanos, checksum);
+        System.out.printf("         %.1f ns per call%n", (double) nanos / evaluations);
+    }
+
+    private static long exchangeCaptures(Position[] positions, int[][] captures, int[] captureCounts) {
+        long balance = 0;
+        for (int i = 0; i < positions.length; i++) {
+            for (int j = 0; j < captureCounts[i]; j++) {
+                balance += positions[i].staticExchange(captures[i][j]);
+            }
+        }
+        return balance;
+    }
+
+    private static long lookupAttacks(int[] squares, int[] types, long[] occupancies) {
+        long attackedSquares = 0;
+        for (int i = 0; i < squares.length; i++) {
+            long attacks;
+            if (types[i] == Position.BISHOP) {
+                attacks = AttackTables.bishopAttacks(squares[i], occupancies[i]);
+            } else if (types[i] == Position.ROOK) {
+                attacks = AttackTables.rookAttacks(squares[i], occupancies[i]);
+            } else {
+                attacks = AttackTables.queenAttacks(squares[i], occupancies[i]);
+            }
+            attackedSquares += Long.bitCount(attacks);
+        }
+        return attackedSquares;
+    }
+
+    /**
+     * Prints the result of a benchmark.
+     *
+     * @param name       the name of the benchmark
+     * @param operations the number of measured operations
+     * @param unit       the name of one operation
+     * @param nanos      the measured time in nanoseconds
+     * @param checksum   a value derived from the results, which prevents the JIT compiler from removing the work
+     */
+    private static void report(String name, long operations, String unit, long nanos, long checksum) {
+        System.out.printf("%-8s %,14d %s in %,6d ms = %,14.0f %s/s (checksum %d)%n", name, operations, unit,
+                nanos / 1000000, operations * 1e9 / nanos, unit, checksum);
+    }
+}
@@ -32,53 +32,10 @@ public class Bishop extends ChessPiece {
         if (target == null || board == null) {
             throw new NullPointerException("Arguments for the isValidMove method can not be null.");
         }
-        // current and target tiles have to be on a diagonal (delta between row and col index have to be identical)
-        int currentCol = this.getTile().getCol();
-        int currentRow = this.getTile().getRow();
-        int targetCol = target.getCol();
-        int targetRow = target.getRow();
-
-        int deltaRow = Math.abs(currentRow - targetRow);
-        int deltaCol = Math.abs(currentCol - targetCol);
-        int minDelta = Math.min(deltaCol, deltaRow);
-
-        boolean sameDiagonal = deltaCol == deltaRow;
-
-        // check if there are pieces between the tiles
-        boolean noPiecesBetween = true;
-        // Directions -- (Up and to the left) , -+ (Up and to the right), ++, +-
-            if (targetRow < currentRow && targetCol < currentCol) { // --
-                for (int delta = 1; delta < minDelta; delta++) {
-                    Tile tileInBetween = board.getTile(currentRow - delta, currentCol - delta);
-                    if (tileInBetween.hasChessPiece()) {
-                        noPiecesBetween = false;
-                    }
-                }
-
-            } else if (targetRow > currentRow && targetCol < currentCol) { // +-
-                for (int delta = 1; delta < minDelta; delta++) {
-                    Tile tileInBetween = board.getTile(currentRow + delta, currentCol - delta);
-                    if (tileInBetween.hasChessPiece()) {
-                        noPiecesBetween = false;
-                    }
-                }
-            } else if (targetRow > currentRow && targetCol > currentCol) { // ++
-                for (int delta = 1; delta < minDelta; delta++) {
-                    Tile tileInBetween = board.getTile(currentRow + delta, currentCol + delta);
-                    if (tileInBetween.hasChessPiece()) {
-                        noPiecesBetween = false;
-                    }
-                }
-            } else if (targetRow < currentRow && targetCol > currentCol) { // -+
-                for (int delta = 1; delta < minDelta; delta++) {
-                    Tile tileInBetween = board.getTile(currentRow - delta, currentCol + delta);
-                    if (tileInBetween.hasChessPiece()) {
-                        noPiecesBetween = false;
-                    }
-                }
-            }
-
-        return sameDiagonal && noPiecesBetween;
+        // The target has to be attacked: on the same diagonal and without pieces in between
+        int square = this.getTile().getRow() * 8 + this.getTile().getCol();
+        long attacks = AttackTables.bishopAttacks(square, board.getOccupancy());
+        return (attacks & (1L << (target.getRow() * 8 + target.getCol()))) != 0;
     }
 
     /**
@@ -91,6 +48,16 @@ public class Bishop extends ChessPiece {
         return "Bishop";
     }
 
+    /**
+     * Returns the type of the chess piece as defined by {@link Position}. In this case {@link Position#BISHOP}.
+     *
+     * @return the type of the chess piece
+     */
+    @Override
+    public int getType() {
+        return Position.BISHOP;
+    }
+
     /**
      * Creates a copy of this chess piece.
      *
@@ -99,7 +66,6 @@ public class Bishop extends ChessPiece {
     @Override
     public ChessPiece clone() {
         ChessPiece copy = new Bishop(this.owner);
-        this.owner.removeChessPiece(copy);
         copy.canCastle = this.canCastle;
         copy.icon = this.icon;
 
@@ -17,6 +17,7 @@ public class Board extends JPanel {
     private final ArrayList<Game> observers = new ArrayList<>();
     private Player playerWhite;
     private Player playerBlack;
+    private long occupancy;
 
     /**
      * Creates a new (Chess-) Board. It consists of 8 x 8 square of {@link Tile}s. The Tiles can be used to place
@@ -66,6 +67,77 @@ public class Board extends JPanel {
         return tiles[row][col];
     }
 
+    /**
+     * Returns a bitboard of all occupied {@link Tile}s of this Board. Bit row * 8 + col is set, if a
+     * {@link ChessPiece} is placed on the Tile (row, col). The bitboard is kept up to date by the Tiles and is used to
+     * look up the attacks of sliding pieces in the {@link AttackTables}.
+     *
+     * @return the occupied Tiles as bitboard
+     */
+    public long getOccupancy() {
+        return occupancy;
+    }
+
+    /**
+     * Marks the {@link Tile} with the given index as occupied or empty. This method is called by the Tiles whenever a
+     * {@link ChessPiece} is placed on or removed from them.
+     *
+     * @param row      the index of the row
+     * @param col      the index of the column
+     * @param occupied true if a ChessPiece is placed on the Tile
+     */
+    public void setOccupied(int row, int col, boolean occupied) {
+        long bit = 1L << (row * 8 + col);
+        if (occupied) {
+            occupancy |= bit;
+        } else {
+            occupancy &= ~bit;
+        }
+    }
+
+    /**
+     * Tests if any {@link ChessPiece} of the given color attacks the square with the given index, i.e. could capture a
+     * ChessPiece on it with its next move. The attack sets of the ChessPieces are looked up in the {@link AttackTables}
+     * for every entry of the {@link PieceList} of the attacking {@link Player}, so no ChessPiece and no Board has to
+     * be copied. Whether moving the attacker would expose its own King is not taken into account.
+     *
+     * @param square the index of the square (row * 8 + col)
+     * @param color  the color of the attacking ChessPieces
+     * @return true if the square is attacked
+     */
+    public boolean isSquareAttacked(int square, ChessColor color) {
+        PieceList attackers = (color == ChessColor.WHITE ? playerWhite : playerBlack).getPieceList();
+        long bit = 1L << square;
+        for (int i = 0; i < attackers.size(); i++) {
+            int from = attackers.getSquare(i);
+            long attacks;
+            switch (attackers.getType(i)) {
+                case Position.PAWN:
+                    attacks = AttackTables.pawnAttacks(color.ordinal(), from);
+                    break;
+                case Position.KNIGHT:
+                    attacks = AttackTables.knightAttacks(from);
+                    break;
+                case Position.BISHOP:
+                    attacks = AttackTables.bishopAttacks(from, occupancy);
+                    break;
+                case Position.ROOK:
+                    attacks = AttackTables.rookAttacks(from, occupancy);
+                    break;
+                case Position.QUEEN:
+                    attacks = AttackTables.queenAttacks(from, occupancy);
+                    break;
+                default:
+                    attacks = AttackTables.kingAttacks(from);
+                    break;
+            }
+            if ((attacks & bit) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Returns a two-dimensional array of the {@link Tile}s, which make up the board.
      *
@@ -0,0 +1,35 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Percentage;
+import jdk.jfr.StackTrace;
+
+/**
+ * Java Flight Recorder event with the statistics of the caches of a {@link Search}, emitted at the end of every
+ * search. Low hit rates hint at tables that are too small for the search time.
+ */
+@Name("chess.CacheStatistics")
+@Label("Cache Statistics")
+@Category({"Chess", "Search"})
+@Description("Statistics of the transposition table and the pawn hash table at the end of a search")
+@StackTrace(false)
+public class CacheStatisticsEvent extends jdk.jfr.Event {
+
+    @Label("Transposition Table Entries")
+    int transpositionTableSize;
+
+    @Label("Transposition Table Probes")
+    long transpositionTableProbes;
+
+    @Label("Transposition Table Hit Rate")
+    @Percentage
+    double transpositionTableHitRate;
+
+    @Label("Pawn Hash Probes")
+    long pawnHashProbes;
+
+    @Label("Pawn Hash Hit Rate")
+    @Percentage
+    double pawnHashHitRate;
+}
@@ -0,0 +1,315 @@
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * The chess clock of a single game. The clock measures the thinking time of both players with
+ * {@link System#nanoTime()} according to a {@link TimeControl}. Only the clock of the player to move is running;
+ * pressing the clock with {@link #press()} stops it, adds the increment or delay and starts the clock of the opponent.
+ * <p>
+ * A ChessClock does not own a thread. Instead, it registers the moment at which the running time will be used up at
+ * a {@link ClockScheduler}, which is shared by all clocks. When the time of a player has run out, the
+ * {@link ClockListener}s are notified exactly once, either by the scheduler or by a late call of {@link #press()}.
+ * <p>
+ * All methods are thread safe.
+ */
+public class ChessClock {
+
+    private static final int NONE = -1;
+
+    private final TimeControl timeControl;
+    private final ClockScheduler scheduler;
+    private final CopyOnWriteArrayList<ClockListener> listeners;
+    private final long[] remainingNanos;
+    private final int[] movesMade;
+    private int runningColor;
+    private long turnStartNanos;
+    private ChessColor expiredColor;
+    private volatile long generation;
+
+    /**
+     * Creates a new ChessClock that uses the shared {@link ClockScheduler}. The clock is stopped until
+     * {@link #start(ChessColor)} is called.
+     *
+     * @param timeControl the time control of the game
+     */
+    public ChessClock(TimeControl timeControl) {
+        this(timeControl, ClockScheduler.getShared());
+    }
+
+    /**
+     * Creates a new ChessClock. The clock is stopped until {@link #start(ChessColor)} is called.
+     *
+     * @param timeControl the time control of the game
+     * @param scheduler   the scheduler that detects time losses
+     */
+    public ChessClock(TimeControl timeControl, ClockScheduler scheduler) {
+        if (timeControl == null || scheduler == null) {
+            throw new NullPointerException("Arguments for the ChessClock() constructor must not be null.");
+        }
+        this.timeControl = timeControl;
+        this.scheduler = scheduler;
+        this.listeners = new CopyOnWriteArrayList<>();
+        this.remainingNanos = new long[]{timeControl.getInitialNanos(), timeControl.getInitialNanos()};
+        this.movesMade = new int[2];
+        this.runningColor = NONE;
+    }
+
+    /**
+     * Sets the remaining times and the completed moves of a stopped clock, e.g. to continue a game from a
+     * {@link GameSnapshot}.
+     *
+     * @param remainingWhite the remaining time of white in nanoseconds
+     * @param remainingBlack the remaining time of black in nanoseconds
+     * @param movesWhite     the number of moves white has completed
+     * @param movesBlack     the number of moves black has completed
+     * @param expired        the color of the player whose time has run out or null
+     */
+    synchronized void restore(long remainingWhite, long remainingBlack, int movesWhite, int movesBlack,
+                              ChessColor expired) {
+        if (runningColor != NONE) {
+            throw new IllegalStateException("Error: Only a stopped clock can be restored.");
+        }
+        remainingNanos[ChessColor.WHITE.ordinal()] = remainingWhite;
+        remainingNanos[ChessColor.BLACK.ordinal()] = remainingBlack;
+        movesMade[ChessColor.WHITE.ordinal()] = movesWhite;
+        movesMade[ChessColor.BLACK.ordinal()] = movesBlack;
+        expiredColor = expired;
+    }
+
+    /**
+     * Registers a listener that is notified when the time of a player runs out.
+     *
+     * @param listener the listener
+     */
+    public void addListener(ClockListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Removes a previously registered listener.
+     *
+     * @param listener the listener
+     */
+    public void removeListener(ClockListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Starts or resumes the clock of the given player. A running clock of the opponent is stopped without counting
+     * a move.
+     *
+     * @param color the player whose time is running from now on
+     */
+    public void start(ChessColor color) {
+        ChessColor expired;
+        synchronized (this) {
+            if (expiredColor != null) {
+                throw new IllegalStateException("Error: The time of " + expiredColor + " has already run out.");
+            }
+            long now = System.nanoTime();
+            expired = runningColor != NONE ? stopRunningClock(now) : null;
+            if (expired == null) {
+                runningColor = color.ordinal();
+                turnStartNanos = now;
+                scheduleExpiration();
+            }
+        }
+        if (expired != null) {
+            fireTimeExpired(expired);
+        }
+    }
+
+    /**
+     * Ends the move of the player whose clock is running. The time of the move is subtracted, the bonus of the time
+     * control is added and the clock of the opponent is started. With a Bronstein delay, the used time is given back
+     * up to the length of the delay.
+     *
+     * @return true if the move was made in time, false if the time of the player had already run out
+     */
+    public boolean press() {
+        ChessColor expired;
+        synchronized (this) {
+            if (expiredColor != null) {
+                return false;
+            }
+            if (runningColor == NONE) {
+                throw new IllegalStateException("Error: The clock has to be started before it can be pressed.");
+            }
+            int color = runningColor;
+            long now = System.nanoTime();
+            long elapsed = now - turnStartNanos;
+            expired = stopRunningClock(now);
+            if (expired == null) {
+                movesMade[color]++;
+                remainingNanos[color] += Math.min(elapsed, timeControl.getDelayNanos())
+                        + timeControl.getIncrementNanos() + timeControl.getPeriodBonusNanos(movesMade[color]);
+                runningColor = 1 - color;
+                turnStartNanos = now;
+                scheduleExpiration();
+            }
+        }
+        if (expired != null) {
+            fireTimeExpired(expired);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Stops the clock, e.g. because the game has ended. The used time of the running player is subtracted, but no
+     * bonus is added. The clock can be resumed with {@link #start(ChessColor)}.
+     */
+    public void stop() {
+        ChessColor expired;
+        synchronized (this) {
+            if (runningColor == NONE) {
+                return;
+            }
+            expired = stopRunningClock(System.nanoTime());
+        }
+        if (expired != null) {
+            fireTimeExpired(expired);
+        }
+    }
+
+    /**
+     * Stops the running clock and subtracts the used time. The clock runs down from the start of the move, so the
+     * player loses on time as soon as the remaining time is used up; a Bronstein delay is only given back by
+     * {@link #press()}.
+     *
+     * @param now the current time as given by {@link System#nanoTime()}
+     * @return the color of the player whose time has run out or null, if there was time left
+     */
+    private ChessColor stopRunningClock(long now) {
+        int color = runningColor;
+        remainingNanos[color] -= now - turnStartNanos;
+        runningColor = NONE;
+        generation++; // Outdates the expiration registered at the scheduler
+        if (remainingNanos[color] <= 0) {
+            remainingNanos[color] = 0;
+            expiredColor = ChessColor.values()[color];
+            return expiredColor;
+        }
+        return null;
+    }
+
+    /**
+     * Registers the moment at which the time of the running player is used up at the scheduler.
+     */
+    private void scheduleExpiration() {
+        long deadline = turnStartNanos + remainingNanos[runningColor];
+        scheduler.schedule(this, deadline, generation);
+    }
+
+    /**
+     * Called by the {@link ClockScheduler} when the registered moment has been reached. Registrations that have been
+     * outdated by a move in the meantime are ignored.
+     *
+     * @param registeredGeneration the state of the clock at the time of the registration
+     */
+    void checkExpiration(long registeredGeneration) {
+        ChessColor expired = null;
+        synchronized (this) {
+            if (registeredGeneration != generation || runningColor == NONE) {
+                return;
+            }
+            long now = System.nanoTime();
+            if (now - turnStartNanos >= remainingNanos[runningColor]) {
+                expired = stopRunningClock(now);
+            } else {
+                scheduleExpiration(); // Reached too early, e.g. because the scheduler ticks coarser than the clock
+            }
+        }
+        if (expired != null) {
+            fireTimeExpired(expired);
+        }
+    }
+
+    /**
+     * Returns whether the given registration at the scheduler is still valid. Used by the {@link ClockScheduler} to
+     * drop outdated registrations without locking the clock.
+     *
+     * @param registeredGeneration the state of the clock at the time of the registration
+     * @return true if no move has been made since the registration
+     */
+    boolean isCurrent(long registeredGeneration) {
+        return registeredGeneration == generation;
+    }
+
+    private void fireTimeExpired(ChessColor color) {
+        for (ClockListener listener : listeners) {
+            listener.timeExpired(this, color);
+        }
+    }
+
+    /**
+     * Returns the time the given player has left, including the time that has passed since the start of the
+     * running move.
+     *
+     * @param color the color of the player
+     * @return the remaining time in nanoseconds, never negative
+     */
+    public synchronized long getRemainingNanos(ChessColor color) {
+        long remaining = remainingNanos[color.ordinal()];
+        if (runningColor == color.ordinal()) {
+            remaining -= System.nanoTime() - turnStartNanos;
+        }
+        return Math.max(0, remaining);
+    }
+
+    /**
+     * Returns the time the given player has left, including the time that has passed since the start of the
+     * running move.
+     *
+     * @param color the color of the player
+     * @return the remaining time in milliseconds, never negative
+     */
+    public long getRemainingMillis(ChessColor color) {
+        return getRemainingNanos(color) / 1000000L;
+    }
+
+    /**
+     * Returns the number of moves the given player has completed on this clock.
+     *
+     * @param color the color of the player
+     * @return the number of moves
+     */
+    public synchronized int getMovesMade(ChessColor color) {
+        return movesMade[color.ordinal()];
+    }
+
+    /**
+     * Returns the player whose clock is running.
+     *
+     * @return the color of the running player or null, if the clock is stopped
+     */
+    public synchronized ChessColor getRunningColor() {
+        return runningColor == NONE ? null : ChessColor.values()[runningColor];
+    }
+
+    /**
+     * Returns the player whose time has run out.
+     *
+     * @return the color of the player or null, if both players have time left
+     */
+    public synchronized ChessColor getExpiredColor() {
+        return expiredColor;
+    }
+
+    /**
+     * Returns whether the time of one of the players has run out.
+     *
+     * @return true if a player has lost on time
+     */
+    public synchronized boolean isExpired() {
+        return expiredColor != null;
+    }
+
+    /**
+     * Returns the time control of this clock.
+     *
+     * @return the time control
+     */
+    public TimeControl getTimeControl() {
+        return timeControl;
+    }
+}
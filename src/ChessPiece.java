@@ -23,7 +23,6 @@ public abstract class ChessPiece{
             throw new NullPointerException("The owner of a chess piece, has to be a valid player, it can not be null.");
         }
         this.owner = owner;
-        this.owner.addChessPiece(this);
         this.canCastle = false;
     }
 
@@ -46,7 +45,8 @@ public abstract class ChessPiece{
     }
 
     /**
-     * Sets the owning player of this chess piece to the given value
+     * Sets the owning player of this chess piece to the given value. This must not be called while the chess piece is
+     * placed on a Tile, because the Tile has added it to the piece list of the previous owner.
      *
      * @param owner the player that will own this chess piece
      */
@@ -118,6 +118,13 @@ public abstract class ChessPiece{
      */
     public abstract String getName();
 
+    /**
+     * Returns the type of the chess piece as defined by {@link Position}, e.g. {@link Position#PAWN}.
+     *
+     * @return the type of the chess piece
+     */
+    public abstract int getType();
+
     /**
      * Creates a copy of this chess piece.
      *
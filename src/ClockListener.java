@@ -0,0 +1,15 @@
+/**
+ * Receives the time losses of a {@link ChessClock}. Listeners are called from the thread of the
+ * {@link ClockScheduler} or from the thread that pressed the clock, so they must return quickly and must not touch
+ * Swing components directly.
+ */
+public interface ClockListener {
+
+    /**
+     * Called once when the time of a player has run out.
+     *
+     * @param clock the clock of the game
+     * @param color the color of the player without time
+     */
+    void timeExpired(ChessClock clock, ChessColor color);
+}
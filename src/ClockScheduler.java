@@ -0,0 +1,205 @@
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Detects time losses for any number of {@link ChessClock}s with a single thread. The scheduler is a hashed timer
+ * wheel: The time is divided into ticks of a fixed length and the wheel has one bucket per tick. A registration is put
+ * into the bucket of the tick at which its time runs out, together with the number of full rotations of the wheel
+ * that have to pass first. The thread of the scheduler wakes up once per tick and only visits the bucket of the
+ * current tick. Registering and cancelling are O(1), so thousands of games can share one scheduler.
+ * <p>
+ * Clocks register themselves whenever a player starts to think. Registrations are not removed when the player moves
+ * in time; the clock simply outdates them, and they are dropped the next time their bucket is visited. Time losses
+ * are reported at most one tick late. Moves that are made after the time has run out are detected by the clock
+ * itself, independent of the tick.
+ */
+public final class ClockScheduler implements Runnable {
+
+    /**
+     * Default length of a tick in milliseconds.
+     */
+    public static final long DEFAULT_TICK_MILLIS = 10;
+
+    /**
+     * Default number of buckets of the wheel. With the default tick, one rotation takes about 5 seconds.
+     */
+    public static final int DEFAULT_WHEEL_SIZE = 512;
+
+    private static ClockScheduler shared;
+
+    private final long tickNanos;
+    private final Registration[] wheel;
+    private final int mask;
+    private final ConcurrentLinkedQueue<Registration> pending;
+    private final AtomicLong registrations;
+    private final long startNanos;
+    private final Thread thread;
+    private volatile boolean running;
+    private long tick;
+
+    /**
+     * Registration of a ChessClock in a bucket of the wheel. The buckets are singly linked lists, which are only
+     * accessed by the thread of the scheduler.
+     */
+    private static final class Registration {
+
+        private final ChessClock clock;
+        private final long deadlineNanos;
+        private final long generation;
+        private long rounds;
+        private Registration next;
+
+        private Registration(ChessClock clock, long deadlineNanos, long generation) {
+            this.clock = clock;
+            this.deadlineNanos = deadlineNanos;
+            this.generation = generation;
+        }
+    }
+
+    /**
+     * Creates a new ClockScheduler and starts its daemon thread.
+     *
+     * @param tickMillis the length of a tick in milliseconds, which is the maximum delay of a reported time loss
+     * @param wheelSize  the number of buckets, rounded up to a power of two
+     */
+    public ClockScheduler(long tickMillis, int wheelSize) {
+        if (tickMillis <= 0 || wheelSize <= 0) {
+            throw new IllegalArgumentException("Error: The tick and the wheel size have to be positive.");
+        }
+        this.tickNanos = tickMillis * 1000000L;
+        int buckets = 1;
+        while (buckets < wheelSize) {
+            buckets <<= 1;
+        }
+        this.wheel = new Registration[buckets];
+        this.mask = wheel.length - 1;
+        this.pending = new ConcurrentLinkedQueue<>();
+        this.registrations = new AtomicLong();
+        this.startNanos = System.nanoTime();
+        this.running = true;
+        this.thread = new Thread(this, "Chess clocks");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Returns the scheduler shared by all {@link ChessClock}s that are created without their own scheduler. It is
+     * created with the default settings on first use.
+     *
+     * @return the shared scheduler
+     */
+    public static synchronized ClockScheduler getShared() {
+        if (shared == null) {
+            shared = new ClockScheduler(DEFAULT_TICK_MILLIS, DEFAULT_WHEEL_SIZE);
+        }
+        return shared;
+    }
+
+    /**
+     * Registers the moment at which the running time of a clock is used up. Called by the clock whenever a player
+     * starts to think; can be called from any thread.
+     *
+     * @param clock         the clock
+     * @param deadlineNanos the moment as given by {@link System#nanoTime()}
+     * @param generation    the state of the clock, which is outdated by the next move
+     */
+    void schedule(ChessClock clock, long deadlineNanos, long generation) {
+        if (!running) {
+            throw new IllegalStateException("Error: The ClockScheduler has been shut down.");
+        }
+        pending.add(new Registration(clock, deadlineNanos, generation));
+        registrations.incrementAndGet();
+    }
+
+    /**
+     * Terminates the thread of the scheduler. Clocks that use it can no longer be started.
+     */
+    public void shutdown() {
+        running = false;
+        LockSupport.unpark(thread);
+    }
+
+    /**
+     * Returns the total number of registrations since the scheduler was created.
+     *
+     * @return the number of registrations
+     */
+    public long getRegistrationCount() {
+        return registrations.get();
+    }
+
+    /**
+     * Main loop of the thread: Waits for the next tick, moves new registrations into the wheel and processes the
+     * bucket of the tick.
+     */
+    @Override
+    public void run() {
+        while (running) {
+            long tickTime = startNanos + (tick + 1) * tickNanos;
+            long wait;
+            while (running && (wait = tickTime - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(this, wait);
+            }
+            if (!running) {
+                return;
+            }
+            tick++;
+            transferPending();
+            processBucket();
+        }
+    }
+
+    /**
+     * Moves the registrations of the queue into the bucket of the tick at which their time runs out. Registrations
+     * that are already due are put into the bucket of the current tick.
+     */
+    private void transferPending() {
+        Registration registration;
+        while ((registration = pending.poll()) != null) {
+            if (!registration.clock.isCurrent(registration.generation)) {
+                continue; // The player has moved before the registration reached the wheel
+            }
+            long due = registration.deadlineNanos - startNanos;
+            long dueTick = Math.max(tick, (due + tickNanos - 1) / tickNanos);
+            registration.rounds = (dueTick - tick) / wheel.length;
+            int index = (int) (dueTick & mask);
+            registration.next = wheel[index];
+            wheel[index] = registration;
+        }
+    }
+
+    /**
+     * Checks the registrations in the bucket of the current tick. Outdated registrations are dropped, due ones are
+     * handed to their clock and all others wait for another rotation.
+     */
+    private void processBucket() {
+        int index = (int) (tick & mask);
+        Registration previous = null;
+        Registration registration = wheel[index];
+        while (registration != null) {
+            Registration next = registration.next;
+            boolean current = registration.clock.isCurrent(registration.generation);
+            if (current && registration.rounds > 0) {
+                registration.rounds--;
+                previous = registration;
+            } else {
+                // Unlink the registration from the bucket
+                if (previous == null) {
+                    wheel[index] = next;
+                } else {
+                    previous.next = next;
+                }
+                if (current) {
+                    try {
+                        registration.clock.checkExpiration(registration.generation);
+                    } catch (RuntimeException e) {
+                        // A failing listener must not stop the detection of time losses in other games
+                        thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+                    }
+                }
+            }
+            registration = next;
+        }
+    }
+}
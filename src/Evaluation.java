@@ -0,0 +1,442 @@
+import java.util.Arrays;
+
+/**
+ * Static evaluation of a {@link Position}. The evaluation estimates how good a Position is without looking ahead. It
+ * consists of the following terms:
+ * <p>
+ * - Material and piece-square tables: Every piece has a value, which depends on its type and the square it is
+ * located on. These terms are updated incrementally by the Position whenever a piece is placed or removed, so they
+ * never have to be recomputed from all 64 squares.
+ * <p>
+ * - Pawn structure: Doubled and isolated Pawns are penalized, passed Pawns get a bonus depending on how far they
+ * have advanced. These terms only depend on the Pawns and are cached in a {@link PawnHashTable}.
+ * <p>
+ * - King safety: Pawns in front of the own King are rewarded, open files next to it are penalized.
+ * <p>
+ * - Mobility: Knights, Bishops, Rooks and Queens get a bonus for every square they can move to.
+ * <p>
+ * Every term has a middlegame and an endgame value. The final score is interpolated between both, depending on the
+ * material left on the board ('tapered evaluation').
+ * <p>
+ * An Evaluation object reuses internal buffers and must only be used by one thread at a time, e.g. one per
+ * {@link Search}.
+ */
+public class Evaluation {
+
+    /**
+     * Phase value of a position with the full set of Knights, Bishops, Rooks and Queens.
+     */
+    public static final int MAX_PHASE = 24;
+
+    private static final int[] PHASE_WEIGHTS = {0, 0, 1, 1, 2, 4, 0};
+    private static final int[] MIDDLEGAME_VALUES = {0, 82, 337, 365, 477, 1025, 0};
+    private static final int[] ENDGAME_VALUES = {0, 94, 281, 297, 512, 936, 0};
+
+    // Piece-square tables from the view of white, the first entry is A8, the last entry H1
+    private static final int[] PAWN_MIDDLEGAME_TABLE = {
+            0, 0, 0, 0, 0, 0, 0, 0,
+            50, 50, 50, 50, 50, 50, 50, 50,
+            10, 10, 20, 30, 30, 20, 10, 10,
+            5, 5, 10, 25, 25, 10, 5, 5,
+            0, 0, 0, 20, 20, 0, 0, 0,
+            5, -5, -10, 0, 0, -10, -5, 5,
+            5, 10, 10, -20, -20, 10, 10, 5,
+            0, 0, 0, 0, 0, 0, 0, 0};
+    private static final int[] PAWN_ENDGAME_TABLE = {
+            0, 0, 0, 0, 0, 0, 0, 0,
+            80, 80, 80, 80, 80, 80, 80, 80,
+            50, 50, 50, 50, 50, 50, 50, 50,
+            30, 30, 30, 30, 30, 30, 30, 30,
+            20, 20, 20, 20, 20, 20, 20, 20,
+            10, 10, 10, 10, 10, 10, 10, 10,
+            10, 10, 10, 10, 10, 10, 10, 10,
+            0, 0, 0, 0, 0, 0, 0, 0};
+    private static final int[] KNIGHT_TABLE = {
+            -50, -40, -30, -30, -30, -30, -40, -50,
+            -40, -20, 0, 0, 0, 0, -20, -40,
+            -30, 0, 10, 15, 15, 10, 0, -30,
+            -30, 5, 15, 20, 20, 15, 5, -30,
+            -30, 0, 15, 20, 20, 15, 0, -30,
+            -30, 5, 10, 15, 15, 10, 5, -30,
+            -40, -20, 0, 5, 5, 0, -20, -40,
+            -50, -40, -30, -30, -30, -30, -40, -50};
+    private static final int[] BISHOP_TABLE = {
+            -20, -10, -10, -10, -10, -10, -10, -20,
+            -10, 0, 0, 0, 0, 0, 0, -10,
+            -10, 0, 5, 10, 10, 5, 0, -10,
+            -10, 5, 5, 10, 10, 5, 5, -10,
+            -10, 0, 10, 10, 10, 10, 0, -10,
+            -10, 10, 10, 10, 10, 10, 10, -10,
+            -10, 5, 0, 0, 0, 0, 5, -10,
+            -20, -10, -10, -10, -10, -10, -10, -20};
+    private static final int[] ROOK_TABLE = {
+            0, 0, 0, 0, 0, 0, 0, 0,
+            5, 10, 10, 10, 10, 10, 10, 5,
+            -5, 0, 0, 0, 0, 0, 0, -5,
+            -5, 0, 0, 0, 0, 0, 0, -5,
+            -5, 0, 0, 0, 0, 0, 0, -5,
+            -5, 0, 0, 0, 0, 0, 0, -5,
+            -5, 0, 0, 0, 0, 0, 0, -5,
+            0, 0, 0, 5, 5, 0, 0, 0};
+    private static final int[] QUEEN_TABLE = {
+            -20, -10, -10, -5, -5, -10, -10, -20,
+            -10, 0, 0, 0, 0, 0, 0, -10,
+            -10, 0, 5, 5, 5, 5, 0, -10,
+            -5, 0, 5, 5, 5, 5, 0, -5,
+            0, 0, 5, 5, 5, 5, 0, -5,
+            -10, 5, 5, 5, 5, 5, 0, -10,
+            -10, 0, 5, 0, 0, 0, 0, -10,
+            -20, -10, -10, -5, -5, -10, -10, -20};
+    private static final int[] KING_MIDDLEGAME_TABLE = {
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -20, -30, -30, -40, -40, -30, -30, -20,
+            -10, -20, -20, -20, -20, -20, -20, -10,
+            20, 20, 0, 0, 0, 0, 20, 20,
+            20, 30, 10, 0, 0, 10, 30, 20};
+    private static final int[] KING_ENDGAME_TABLE = {
+            -50, -40, -30, -20, -20, -30, -40, -50,
+            -30, -20, -10, 0, 0, -10, -20, -30,
+            -30, -10, 20, 30, 30, 20, -10, -30,
+            -30, -10, 30, 40, 40, 30, -10, -30,
+            -30, -10, 30, 40, 40, 30, -10, -30,
+            -30, -10, 20, 30, 30, 20, -10, -30,
+            -30, -30, 0, 0, 0, 0, -30, -30,
+            -50, -30, -30, -30, -30, -30, -30, -50};
+
+    // Combined material and piece-square values, indexed by piece code and square
+    private static final int[][] MIDDLEGAME_SCORES = new int[16][64];
+    private static final int[][] ENDGAME_SCORES = new int[16][64];
+
+    private static final int DOUBLED_PAWN_MIDDLEGAME = -10;
+    private static final int DOUBLED_PAWN_ENDGAME = -20;
+    private static final int ISOLATED_PAWN_MIDDLEGAME = -10;
+    private static final int ISOLATED_PAWN_ENDGAME = -15;
+    private static final int[] PASSED_PAWN_MIDDLEGAME = {0, 5, 10, 15, 25, 40, 60, 0};
+    private static final int[] PASSED_PAWN_ENDGAME = {0, 10, 20, 35, 55, 85, 120, 0};
+    private static final int FREE_PASSED_PAWN_ENDGAME = 5;
+    private static final int PAWN_SHIELD_BONUS = 10;
+    private static final int OPEN_FILE_NEAR_KING = -15;
+    private static final int HALF_OPEN_FILE_NEAR_KING = -8;
+    private static final int[] MOBILITY_MIDDLEGAME = {0, 0, 4, 5, 2, 1, 0};
+    private static final int[] MOBILITY_ENDGAME = {0, 0, 4, 5, 4, 2, 0};
+    private static final int[] MOBILITY_BASELINE = {0, 0, 4, 7, 7, 14, 0};
+
+    static {
+        int[][] middlegameTables = {null, PAWN_MIDDLEGAME_TABLE, KNIGHT_TABLE, BISHOP_TABLE, ROOK_TABLE, QUEEN_TABLE,
+                KING_MIDDLEGAME_TABLE};
+        int[][] endgameTables = {null, PAWN_ENDGAME_TABLE, KNIGHT_TABLE, BISHOP_TABLE, ROOK_TABLE, QUEEN_TABLE,
+                KING_ENDGAME_TABLE};
+        for (int type = Position.PAWN; type <= Position.KING; type++) {
+            for (int square = 0; square < 64; square++) {
+                // Black uses the tables of white, mirrored vertically
+                int white = Position.makePiece(Position.WHITE, type);
+                int black = Position.makePiece(Position.BLACK, type);
+                MIDDLEGAME_SCORES[white][square] = MIDDLEGAME_VALUES[type] + middlegameTables[type][square];
+                MIDDLEGAME_SCORES[black][square] = MIDDLEGAME_VALUES[type] + middlegameTables[type][square ^ 56];
+                ENDGAME_SCORES[white][square] = ENDGAME_VALUES[type] + endgameTables[type][square];
+                ENDGAME_SCORES[black][square] = ENDGAME_VALUES[type] + endgameTables[type][square ^ 56];
+            }
+        }
+    }
+
+    private final int[] squares;
+    private final int[] pawnFiles;
+    private final int[] terms;
+    private final PawnHashTable pawnHashTable;
+    private long evaluations;
+
+    /**
+     * Creates a new Evaluation with a pawn hash table of the default size.
+     */
+    public Evaluation() {
+        this(PawnHashTable.DEFAULT_SIZE);
+    }
+
+    /**
+     * Creates a new Evaluation with a pawn hash table of the given size.
+     *
+     * @param pawnHashSize the number of entries of the pawn hash table
+     */
+    public Evaluation(int pawnHashSize) {
+        this.squares = new int[64];
+        this.pawnFiles = new int[16];
+        this.terms = new int[2];
+        this.pawnHashTable = new PawnHashTable(pawnHashSize);
+    }
+
+    /**
+     * Returns the material and piece-square value of a piece on the given square in the middlegame.
+     *
+     * @param piece  the piece code
+     * @param square the square of the piece
+     * @return the middlegame value from the view of the piece's color
+     */
+    public static int middlegameScore(int piece, int square) {
+        return MIDDLEGAME_SCORES[piece][square];
+    }
+
+    /**
+     * Returns the material and piece-square value of a piece on the given square in the endgame.
+     *
+     * @param piece  the piece code
+     * @param square the square of the piece
+     * @return the endgame value from the view of the piece's color
+     */
+    public static int endgameScore(int piece, int square) {
+        return ENDGAME_SCORES[piece][square];
+    }
+
+    /**
+     * Returns how much a piece contributes to the game phase. Only Knights, Bishops, Rooks and Queens count.
+     *
+     * @param piece the piece code
+     * @return the phase weight of the piece
+     */
+    public static int phaseWeight(int piece) {
+        return PHASE_WEIGHTS[Position.pieceType(piece)];
+    }
+
+    /**
+     * Evaluates the given Position.
+     *
+     * @param position the investigated Position
+     * @return the score in centipawns from the view of the color to move
+     */
+    public int evaluate(Position position) {
+        evaluations++;
+        for (int square = 0; square < 64; square++) {
+            squares[square] = position.getPiece(square);
+        }
+
+        // Material and piece-square tables are maintained incrementally by the Position
+        int middlegame = position.getMiddlegameScore(Position.WHITE) - position.getMiddlegameScore(Position.BLACK);
+        int endgame = position.getEndgameScore(Position.WHITE) - position.getEndgameScore(Position.BLACK);
+
+        // Pawn structure terms are only computed once for every pawn structure
+        int entry = pawnHashTable.probe(position.getPawnKey());
+        if (entry < 0) {
+            entry = evaluatePawnStructure(position.getPawnKey());
+        }
+        middlegame += pawnHashTable.getMiddlegameScore(entry);
+        endgame += pawnHashTable.getEndgameScore(entry);
+        endgame += evaluateFreePassedPawns(pawnHashTable.getPassedPawns(entry));
+
+        int pawnFileMask = pawnHashTable.getPawnFiles(entry);
+        middlegame += evaluateKingSafety(position, Position.WHITE, pawnFileMask)
+                - evaluateKingSafety(position, Position.BLACK, pawnFileMask);
+
+        terms[0] = 0;
+        terms[1] = 0;
+        evaluateMobility(position, squares, terms);
+        middlegame += terms[0];
+        endgame += terms[1];
+
+        int phase = Math.min(position.getPhase(), MAX_PHASE);
+        int score = (middlegame * phase + endgame * (MAX_PHASE - phase)) / MAX_PHASE;
+        return position.getSideToMove() == Position.WHITE ? score : -score;
+    }
+
+    /**
+     * Returns the cache for pawn structure terms used by this Evaluation, e.g. to inspect its hit rate.
+     *
+     * @return the pawn hash table
+     */
+    public PawnHashTable getPawnHashTable() {
+        return pawnHashTable;
+    }
+
+    /**
+     * Returns the number of evaluations carried out by this object.
+     *
+     * @return the evaluation count
+     */
+    public long getEvaluations() {
+        return evaluations;
+    }
+
+    /**
+     * Counts the Pawns of both colors on every file. Index 0-7 receive the white Pawns, index 8-15 the black Pawns.
+     */
+    private static void countPawnsPerFile(int[] squares, int[] pawnFiles) {
+        Arrays.fill(pawnFiles, 0);
+        for (int square = 0; square < 64; square++) {
+            int piece = squares[square];
+            if (Position.pieceType(piece) == Position.PAWN) {
+                pawnFiles[Position.pieceColor(piece) * 8 + (square & 7)]++;
+            }
+        }
+    }
+
+    /**
+     * Computes the scores of doubled, isolated and passed Pawns from the view of white, the squares of the passed
+     * Pawns and the files occupied by Pawns, and stores them in the pawn hash table.
+     *
+     * @param pawnKey the pawn key of the evaluated Position
+     * @return the index of the new entry in the pawn hash table
+     */
+    private int evaluatePawnStructure(long pawnKey) {
+        countPawnsPerFile(squares, pawnFiles);
+        int middlegame = 0;
+        int endgame = 0;
+        long passedPawns = 0;
+        for (int square = 0; square < 64; square++) {
+            int piece = squares[square];
+            if (Position.pieceType(piece) != Position.PAWN) {
+                continue;
+            }
+            int color = Position.pieceColor(piece);
+            int sign = color == Position.WHITE ? 1 : -1;
+            int col = square & 7;
+            int own = color * 8;
+
+            if (pawnFiles[own + col] > 1) {
+                middlegame += sign * DOUBLED_PAWN_MIDDLEGAME;
+                endgame += sign * DOUBLED_PAWN_ENDGAME;
+            }
+            boolean leftNeighbour = col > 0 && pawnFiles[own + col - 1] > 0;
+            boolean rightNeighbour = col < 7 && pawnFiles[own + col + 1] > 0;
+            if (!leftNeighbour && !rightNeighbour) {
+                middlegame += sign * ISOLATED_PAWN_MIDDLEGAME;
+                endgame += sign * ISOLATED_PAWN_ENDGAME;
+            }
+            if (isPassedPawn(squares, square, color)) {
+                int rank = relativeRank(square, color);
+                middlegame += sign * PASSED_PAWN_MIDDLEGAME[rank];
+                endgame += sign * PASSED_PAWN_ENDGAME[rank];
+                passedPawns |= 1L << square;
+            }
+        }
+
+        int pawnFileMask = 0;
+        for (int file = 0; file < 16; file++) {
+            if (pawnFiles[file] > 0) {
+                pawnFileMask |= 1 << file;
+            }
+        }
+        return pawnHashTable.store(pawnKey, middlegame, endgame, passedPawns, pawnFileMask);
+    }
+
+    /**
+     * Rewards passed Pawns whose next square is empty. This depends on all pieces and can therefore not be cached in
+     * the pawn hash table, but only the cached passed Pawns have to be investigated.
+     *
+     * @param passedPawns the squares of all passed Pawns as bit mask
+     * @return the endgame score from the view of white
+     */
+    private int evaluateFreePassedPawns(long passedPawns) {
+        int score = 0;
+        while (passedPawns != 0) {
+            int square = Long.numberOfTrailingZeros(passedPawns);
+            passedPawns &= passedPawns - 1;
+            int color = Position.pieceColor(squares[square]);
+            int next = color == Position.WHITE ? square - 8 : square + 8;
+            if (next >= 0 && next < 64 && squares[next] == Position.EMPTY) {
+                int bonus = FREE_PASSED_PAWN_ENDGAME * relativeRank(square, color);
+                score += color == Position.WHITE ? bonus : -bonus;
+            }
+        }
+        return score;
+    }
+
+    /**
+     * Returns the rank of a square from the view of the given color: 0 is the own back rank, 7 the opposite one.
+     */
+    private static int relativeRank(int square, int color) {
+        return color == Position.WHITE ? 7 - (square >>> 3) : square >>> 3;
+    }
+
+    /**
+     * Tests if no enemy Pawn can stop the Pawn on the given square on its way to the opposite side of the board.
+     */
+    private static boolean isPassedPawn(int[] squares, int square, int color) {
+        int enemyPawn = Position.makePiece(color ^ 1, Position.PAWN);
+        int direction = color == Position.WHITE ? -1 : 1;
+        int col = square & 7;
+        for (int row = (square >>> 3) + direction; row >= 0 && row < 8; row += direction) {
+            for (int c = Math.max(0, col - 1); c <= Math.min(7, col + 1); c++) {
+                if (squares[row * 8 + c] == enemyPawn) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Evaluates the Pawn shield and open files around the King of the given color. Only relevant in the middlegame.
+     */
+    private static int evaluateKingSafety(Position position, int color, int pawnFileMask) {
+        int kingSquare = position.getKingSquare(color);
+        if (kingSquare < 0) {
+            return 0;
+        }
+        int kingRow = kingSquare >>> 3;
+        int kingCol = kingSquare & 7;
+        int direction = color == Position.WHITE ? -1 : 1;
+        int ownPawn = Position.makePiece(color, Position.PAWN);
+
+        int score = 0;
+        for (int col = Math.max(0, kingCol - 1); col <= Math.min(7, kingCol + 1); col++) {
+            // Pawns one or two rows in front of the King protect it
+            for (int distance = 1; distance <= 2; distance++) {
+                int row = kingRow + direction * distance;
+                if (row >= 0 && row < 8 && position.getPiece(row * 8 + col) == ownPawn) {
+                    score += PAWN_SHIELD_BONUS / distance;
+                    break;
+                }
+            }
+            // Files without own Pawns give enemy Rooks and Queens access to the King
+            if ((pawnFileMask & (1 << (color * 8 + col))) == 0) {
+                boolean enemyPawn = (pawnFileMask & (1 << ((color ^ 1) * 8 + col))) != 0;
+                score += enemyPawn ? HALF_OPEN_FILE_NEAR_KING : OPEN_FILE_NEAR_KING;
+            }
+        }
+        return score;
+    }
+
+    /**
+     * Adds the middlegame (index 0) and endgame (index 1) mobility scores from the view of white to the given terms.
+     */
+    private static void evaluateMobility(Position position, int[] squares, int[] terms) {
+        long occupancy = position.getOccupancy();
+        for (int square = 0; square < 64; square++) {
+            int piece = squares[square];
+            int type = Position.pieceType(piece);
+            if (type < Position.KNIGHT || type > Position.QUEEN) {
+                continue;
+            }
+            int color = Position.pieceColor(piece);
+            int mobility;
+            if (type == Position.KNIGHT) {
+                mobility = countLeaperMoves(squares, square, color);
+            } else {
+                long attacks;
+                if (type == Position.BISHOP) {
+                    attacks = AttackTables.bishopAttacks(square, occupancy);
+                } else if (type == Position.ROOK) {
+                    attacks = AttackTables.rookAttacks(square, occupancy);
+                } else {
+                    attacks = AttackTables.queenAttacks(square, occupancy);
+                }
+                mobility = Long.bitCount(attacks & ~position.getColorBitboard(color));
+            }
+            int sign = color == Position.WHITE ? 1 : -1;
+            terms[0] += sign * (mobility - MOBILITY_BASELINE[type]) * MOBILITY_MIDDLEGAME[type];
+            terms[1] += sign * (mobility - MOBILITY_BASELINE[type]) * MOBILITY_ENDGAME[type];
+        }
+    }
+
+    private static int countLeaperMoves(int[] squares, int square, int color) {
+        int count = 0;
+        for (int target : AttackTables.knightTargets(square)) {
+            int piece = squares[target];
+            if (piece == Position.EMPTY || Position.pieceColor(piece) != color) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,85 @@
+import javax.swing.*;
+import javax.swing.border.EmptyBorder;
+import java.awt.*;
+
+/**
+ * Side panel widget that displays the result of a background analysis. It consists of a bar, which is split into a
+ * white and a black part according to the evaluation of the current position, and two labels with the score, the
+ * search depth and the best line of moves.
+ */
+public class EvaluationBar extends JPanel {
+
+    private final JPanel bar;
+    private final JLabel scoreLabel;
+    private final JLabel lineLabel;
+    private double whiteShare;
+
+    /**
+     * Creates a new EvaluationBar with the given width. Initially, the bar shows a balanced position without any
+     * analysis data.
+     *
+     * @param width the width of the widget in px
+     */
+    public EvaluationBar(int width) {
+        this.setLayout(new BoxLayout(this, BoxLayout.Y_AXIS));
+        this.setBorder(new EmptyBorder(5, 0, 5, 0));
+        this.whiteShare = 0.5;
+
+        // Bar that is painted in white and black proportionally to the winning chances
+        bar = new JPanel() {
+            @Override
+            protected void paintComponent(Graphics g) {
+                super.paintComponent(g);
+                int whiteWidth = (int) Math.round(getWidth() * whiteShare);
+                g.setColor(Color.WHITE);
+                g.fillRect(0, 0, whiteWidth, getHeight());
+                g.setColor(Color.DARK_GRAY);
+                g.fillRect(whiteWidth, 0, getWidth() - whiteWidth, getHeight());
+                g.setColor(Color.GRAY);
+                g.drawLine(getWidth() / 2, 0, getWidth() / 2, getHeight());
+                g.drawRect(0, 0, getWidth() - 1, getHeight() - 1);
+            }
+        };
+        Dimension barSize = new Dimension(width, 16);
+        bar.setPreferredSize(barSize);
+        bar.setMaximumSize(barSize);
+        bar.setAlignmentX(Component.LEFT_ALIGNMENT);
+
+        scoreLabel = new JLabel(" ");
+        scoreLabel.setAlignmentX(Component.LEFT_ALIGNMENT);
+        lineLabel = new JLabel(" ");
+        lineLabel.setAlignmentX(Component.LEFT_ALIGNMENT);
+        lineLabel.setPreferredSize(new Dimension(width, 16));
+
+        this.add(bar);
+        this.add(scoreLabel);
+        this.add(lineLabel);
+    }
+
+    /**
+     * Displays the given analysis result. Passing null resets the widget to a balanced position without any analysis
+     * data. This method must be called on the Event Dispatch Thread.
+     *
+     * @param info the analysis result that will be displayed or null
+     */
+    public void setAnalysis(AnalysisInfo info) {
+        if (info == null) {
+            whiteShare = 0.5;
+            scoreLabel.setText(" ");
+            lineLabel.setText(" ");
+            lineLabel.setToolTipText(null);
+        } else {
+            if (info.isMate()) {
+                whiteShare = info.getWhiteScore() > 0 ? 1.0 : 0.0;
+            } else {
+                // Transform the score into an expected result between 0 and 1
+                whiteShare = 1.0 / (1.0 + Math.pow(10, -info.getWhiteScore() / 400.0));
+            }
+            scoreLabel.setText(String.format("%s  (depth %d)", info.getFormattedScore(), info.getDepth()));
+            String line = info.getPrincipalVariationString();
+            lineLabel.setText(line.isEmpty() ? " " : line);
+            lineLabel.setToolTipText(line.isEmpty() ? null : line);
+        }
+        bar.repaint();
+    }
+}
@@ -1,4 +1,12 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Observable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Abstraction of a chess game. A Game consists of two {@link Player}s and a (Chess-) {@link Board}. Each Player has a
@@ -13,6 +21,9 @@ import java.util.Observable;
  */
 public class Game extends Observable {
 
+    private static final AtomicLong NEXT_ID = new AtomicLong(1);
+
+    private final long id;
     private final Board board;
     private final Player playerWhite;
     private final Player playerBlack;
@@ -24,6 +35,15 @@ public class Game extends Observable {
     private Tile lastSourceTile;
     private Tile lastTargetTile;
     private int moveNum;
+    private final Map<Tile, Map<Tile, MoveType>> legalTargetCache;
+    private Map<Tile, MoveType> chosenTargets;
+    private final ArrayList<MoveRecord> history;
+    private int historyIndex;
+    private ChessClock clock;
+    private ClockListener clockListener;
+    private final AtomicReference<PositionSnapshot> snapshot;
+    private GameJournal journal;
+    private long journalId;
 
     /**
      * Abstraction of the Phases of a chess move. Every move consists of two parts. First the currently active
@@ -43,6 +63,26 @@ public class Game extends Observable {
         Moving
     }
 
+    /**
+     * Abstraction of the different kinds of moves a {@link ChessPiece} can carry out. Besides the move set of every
+     * ChessPiece, there are two special moves: 'castling' for {@link King}s and 'en passant' for {@link Pawn}s. They
+     * involve more than one ChessPiece and therefore have to be carried out differently.
+     */
+    enum MoveType {
+        /**
+         * A move that follows the normal move set of a ChessPiece
+         */
+        Normal,
+        /**
+         * A castling move of a King and a Rook
+         */
+        Castling,
+        /**
+         * An en passant capture of a Pawn
+         */
+        EnPassant
+    }
+
 
     /**
      * Creates a new chess game. A Game consists of two {@link Player}s and a (Chess-) {@link Board}. Each Player has a
@@ -59,11 +99,14 @@ public class Game extends Observable {
      */
     public Game(Board board) {
         // Initialize the board, players and ChessPieces
+        this.id = NEXT_ID.getAndIncrement();
         this.board = board;
         this.board.addObserver(this);
 
         playerWhite = new Player(ChessColor.WHITE);
         playerBlack = new Player(ChessColor.BLACK);
+        board.setPlayerWhite(playerWhite);
+        board.setPlayerBlack(playerBlack);
 
         Rook rook1 = new Rook(playerBlack);
         board.getTile(0, 0).setChessPiece(rook1);
@@ -73,7 +116,8 @@ public class Game extends Observable {
         board.getTile(0, 2).setChessPiece(bishop1);
         Queen queen = new Queen(playerBlack);
         board.getTile(0, 3).setChessPiece(queen);
-        King king = playerBlack.getKing();
+        King king = new King(playerBlack);
+        playerBlack.setKing(king);
         board.getTile(0, 4).setChessPiece(king);
         Bishop bishop2 = new Bishop(playerBlack);
         board.getTile(0, 5).setChessPiece(bishop2);
@@ -106,7 +150,8 @@ public class Game extends Observable {
         board.getTile(7, 2).setChessPiece(bishop1);
         queen = new Queen(playerWhite);
         board.getTile(7, 3).setChessPiece(queen);
-        king = playerWhite.getKing();
+        king = new King(playerWhite);
+        playerWhite.setKing(king);
         board.getTile(7, 4).setChessPiece(king);
         bishop2 = new Bishop(playerWhite);
         board.getTile(7, 5).setChessPiece(bishop2);
@@ -134,6 +179,120 @@ public class Game extends Observable {
         this.currentPlayer = playerWhite;
         this.currentPhase = Phase.Choosing;
         this.moveNum = 1;
+        this.legalTargetCache = new HashMap<>();
+        this.history = new ArrayList<>();
+        this.historyIndex = 0;
+        this.snapshot = new AtomicReference<>(createSnapshot());
+
+        GameStartedEvent event = new GameStartedEvent();
+        if (event.isEnabled()) {
+            event.gameId = id;
+            event.commit();
+        }
+    }
+
+    /**
+     * Attaches a {@link ChessClock} to this {@link Game}. The clock of the currently active {@link Player} is started
+     * immediately and the clock is pressed at the end of every turn. Once the time of a Player has run out, all further
+     * input is ignored and the observers of the Game are notified with the clock. Time losses are detected on the
+     * thread of the {@link ClockScheduler}, so their handling is passed to the given executor, which has to run it on
+     * the thread that makes the moves of this Game, e.g. the Swing event dispatch thread. A previously attached clock
+     * is stopped. A clock whose time has already run out is attached without being started.
+     * <p>
+     * The clock is not turned back when moves are taken back: It only switches to the Player who is active afterwards.
+     *
+     * @param clock    the clock of this Game or null, to play without a clock
+     * @param executor runs the handling of a time loss on the thread of this Game
+     */
+    public void setClock(ChessClock clock, final Executor executor) {
+        if (executor == null) {
+            throw new NullPointerException("Arguments for the setClock() method must not be null.");
+        }
+        if (this.clock != null) {
+            this.clock.removeListener(clockListener);
+            this.clock.stop();
+        }
+        this.clock = clock;
+        if (clock != null) {
+            clockListener = new ClockListener() {
+                @Override
+                public void timeExpired(final ChessClock expiredClock, final ChessColor color) {
+                    executor.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            // The clock may have been replaced before this runs
+                            if (expiredClock == Game.this.clock) {
+                                recordTimeLoss(color);
+                            }
+                        }
+                    });
+                }
+            };
+            clock.addListener(clockListener);
+            if (!clock.isExpired()) {
+                clock.start(currentPlayer.getColor());
+            }
+        }
+    }
+
+    /**
+     * Returns the {@link ChessClock} attached to this {@link Game}.
+     *
+     * @return the clock or null, if the Game is played without a clock
+     */
+    public ChessClock getClock() {
+        return clock;
+    }
+
+    /**
+     * Attaches a {@link GameJournal} to this {@link Game}. The Game is started in the journal with a
+     * {@link GameSnapshot} of its current state, and every following move, jump through the history and the end of
+     * the Game are appended to it, together with a snapshot every {@link GameJournal#SNAPSHOT_INTERVAL} half moves.
+     * Records are forced to the disk in the background, so the moves are not slowed down by the disk. A previously
+     * attached journal records the Game as ended.
+     *
+     * @param journal the journal of this Game or null, to stop journaling
+     */
+    public void setJournal(GameJournal journal) {
+        if (this.journal != null) {
+            this.journal.recordEnd(journalId);
+        }
+        this.journal = journal;
+        if (journal != null) {
+            journalId = journal.startGame();
+            if (!history.isEmpty() && journal.recordSnapshot(journalId, GameSnapshot.write(this)) < 0) {
+                // Too long for a snapshot -> record the moves one by one
+                for (int i = 0; i < history.size(); i++) {
+                    MoveRecord record = history.get(i);
+                    journal.recordMove(journalId, i, getSquare(record.getSource()), getSquare(record.getTarget()));
+                }
+                if (historyIndex != history.size()) {
+                    journal.recordJump(journalId, historyIndex);
+                }
+            }
+        }
+    }
+
+    /**
+     * Continues to use a journal that already contains all moves of this {@link Game}. Used by
+     * {@link GameJournal#restore(GameJournal.RecoveredGame, Board)} after the moves have been replayed.
+     *
+     * @param journal   the journal
+     * @param journalId the id of this Game in the journal
+     */
+    void resumeJournal(GameJournal journal, long journalId) {
+        this.journal = journal;
+        this.journalId = journalId;
+    }
+
+    /**
+     * Returns the index of a Tile as used by {@link Position} and {@link GameJournal}.
+     *
+     * @param tile the Tile
+     * @return row * 8 + col
+     */
+    private static int getSquare(Tile tile) {
+        return tile.getRow() * 8 + tile.getCol();
     }
 
     /**
@@ -142,34 +301,49 @@ public class Game extends Observable {
      * <p>
      * - Choosing Phase:
      * In this phase the currently active {@link Player} has to choose a {@link Tile}, on which one of his own
-     * {@link ChessPiece}s is located. This phase will not end until a valid Tile is clicked.
+     * {@link ChessPiece}s is located. This phase will not end until a valid Tile is clicked. All Tiles the chosen
+     * ChessPiece can legally move to are calculated once and highlighted immediately.
      * <p>
      * - Moving Phase:
      * In this phase the currently active Player has to choose another Tile. This time, it has to be valid target for
      * the previously chosen ChessPiece. This means that the ChessPiece's move set must be compatible with the current
      * location of the ChessPiece and the clicked Tile. Also, carrying out the move must not result in a check for the
-     * current player. If an invalid Tile is clicked, the Game is reset to the Choosing phase. A valid Tile ends the
+     * current player. The clicked Tile is validated against the legal targets calculated in the Choosing phase. If
+     * an invalid Tile is clicked, the Game is reset to the Choosing phase. A valid Tile ends the
      * current turn, starts the detection of check, checkmate and remis conditions and toggles the active player to the
      * opponent.
      *
      * @param clickedTile the Tile that was clicked
      */
     public void processInput(Tile clickedTile) {
+        if (clock != null && clock.isExpired()) {
+            return; // The Game has been lost on time
+        }
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        if (Metrics.ENABLED) {
+            Metrics.INPUTS.increment();
+        }
 
         switch (currentPhase) {
             case Choosing: // Check if the clicked Tile is valid option for the currently active player
 
                 if (!clickedTile.hasChessPiece()) {
+                    rejectInput(clickedTile, "no ChessPiece");
                     break; // Tile has no ChessPiece
                 }
                 chosenPiece = clickedTile.getChessPiece();
 
                 if (chosenPiece.getColor() != currentPlayer.getColor()) {
+                    rejectInput(clickedTile, "ChessPiece of the opponent");
                     break; // The Tile has a ChessPiece, but it does NOT belong to the active Player
                 } else {
                     // The chosen Tile is a valid option -> Entering Moving phase
                     chosenTile = clickedTile;
                     chosenTile.markAsActive();
+                    chosenTargets = getLegalTargets(chosenTile);
+                    for (Tile target : chosenTargets.keySet()) {
+                        target.markAsTarget();
+                    }
                     currentPhase = Phase.Moving;
                 }
 
@@ -183,53 +357,44 @@ public class Game extends Observable {
                     break;
                 }
 
-                // Targeting a ChessPiece that belongs to the same player -> Reset to choosing phase
-                if (clickedTile.hasChessPiece()) {
-                    ChessPiece targetedPiece = clickedTile.getChessPiece();
-                    if (targetedPiece.getColor() == chosenPiece.getColor()) {
-                        resetToChoosingPhase(clickedTile);
-                        break;
-                    }
-                }
-
-                // Check if the targeted Tile and the chosen ChessPiece's move set are compatible
-                boolean validNormalMove = chosenPiece.isValidMove(clickedTile, board);
-                boolean validCastlingMove = false;
-                boolean validEnPassantMove = false;
-
-                if (chosenPiece instanceof King) {
-                    validCastlingMove = ((King) chosenPiece).isValidCastlingMove(clickedTile, board);
-                } else if (chosenPiece instanceof Pawn && isEnPassantPossible(clickedTile, chosenPiece)) {
-                    validEnPassantMove = ((Pawn) chosenPiece).isValidEnPassantMove(clickedTile, board);
-                }
-
-                // Combination of start and end Tiles is not compatible with the chosen ChessPiece
-                if (!validNormalMove && !validCastlingMove && !validEnPassantMove) {
+                // Look up the move in the legal targets that were computed when the ChessPiece was chosen
+                MoveType moveType = chosenTargets.get(clickedTile);
+                if (moveType == null) {
+                    rejectInput(clickedTile, "illegal target");
                     resetToChoosingPhase(clickedTile);
                     break;
                 }
 
-                boolean kingExposed = moveLeavesKingExposed(chosenTile, clickedTile, validCastlingMove, validEnPassantMove, currentPlayer);
+                // VALID MOVE -> carry it out
+                MoveAppliedEvent event = new MoveAppliedEvent();
+                event.begin();
+                MoveRecord record = createMoveRecord(chosenTile, clickedTile, moveType);
+                record.make();
+                setLastMove(chosenTile, clickedTile, record.getPlacedPiece());
 
-                if (!kingExposed) { // VALID MOVE
-                    chosenTile.removeChessPiece(); // Remove from original tile
-                    ChessPiece targetedPiece;
-                    if (clickedTile.hasChessPiece()) {
-                        targetedPiece = clickedTile.getChessPiece();
-                        targetedPiece.setTile(null); // Remove currently occupying chess piece
-                    }
-                    clickedTile.setChessPiece(chosenPiece); // Place on new tile
-                    chosenPiece.canCastle = false;
-                    if (chosenPiece instanceof Pawn) {
-                        chosenPiece = transformPawn((Pawn) chosenPiece);
-                    }
-                    if (validCastlingMove) {
-                        ((King) chosenPiece).castle(clickedTile, board);
-                    } else if (validEnPassantMove) {
-                        lastMovedPiece.getTile().removeChessPiece(); // Remove enemy pawn
-                    }
-                    setLastMove(chosenTile, clickedTile, chosenPiece);
-                    endTurn();
+                // Moves that have been taken back can not be repeated after a new move
+                while (history.size() > historyIndex) {
+                    history.remove(history.size() - 1);
+                }
+                history.add(record);
+                historyIndex++;
+                if (journal != null) {
+                    journal.recordMove(journalId, historyIndex - 1, getSquare(chosenTile), getSquare(clickedTile));
+                }
+                if (Metrics.ENABLED) {
+                    Metrics.MOVES.increment();
+                }
+                endTurn(record);
+                if (journal != null && historyIndex % GameJournal.SNAPSHOT_INTERVAL == 0) {
+                    journal.recordSnapshot(journalId, GameSnapshot.write(this));
+                }
+                event.end();
+                if (event.shouldCommit()) {
+                    event.gameId = id;
+                    event.ply = historyIndex;
+                    event.piece = record.getPlacedPiece().getName();
+                    event.move = record.getSource().getName() + "-" + record.getTarget().getName();
+                    event.commit();
                 }
                 resetToChoosingPhase(clickedTile);
                 break;
@@ -237,6 +402,58 @@ public class Game extends Observable {
             default:
                 throw new IllegalStateException("Error: Game is in a unknown Phase.");
         }
+        if (Metrics.ENABLED) {
+            Metrics.PROCESS_INPUT.recordSince(start);
+        }
+    }
+
+    /**
+     * Counts an input that has been rejected and reports it to the Java Flight Recorder.
+     *
+     * @param clickedTile the Tile that was clicked
+     * @param reason      why the input has been rejected
+     */
+    private void rejectInput(Tile clickedTile, String reason) {
+        if (Metrics.ENABLED) {
+            Metrics.REJECTED_INPUTS.increment();
+        }
+        MoveRejectedEvent event = new MoveRejectedEvent();
+        if (event.isEnabled()) {
+            event.gameId = id;
+            event.tile = clickedTile.getName();
+            event.reason = reason;
+            event.commit();
+        }
+    }
+
+    /**
+     * Reports the end of this {@link Game} to the Java Flight Recorder.
+     *
+     * @param result the winner and the reason
+     */
+    private void recordGameEnd(String result) {
+        GameEndedEvent event = new GameEndedEvent();
+        if (event.isEnabled()) {
+            event.gameId = id;
+            event.result = result;
+            event.plies = historyIndex;
+            event.commit();
+        }
+    }
+
+    /**
+     * Records the end of this {@link Game}, because the time of a {@link Player} has run out, and notifies the
+     * observers with the clock.
+     *
+     * @param color the color of the Player without time
+     */
+    private void recordTimeLoss(ChessColor color) {
+        recordGameEnd(String.format("%s wins on time", color == ChessColor.WHITE ? ChessColor.BLACK
+                : ChessColor.WHITE));
+        if (journal != null) {
+            journal.recordEnd(journalId);
+        }
+        dispatch(clock);
     }
 
     /**
@@ -248,40 +465,551 @@ public class Game extends Observable {
     private void resetToChoosingPhase(Tile clickedTile) {
         this.chosenTile.markAsInactive();
         clickedTile.markAsInactive();
+        for (Tile target : chosenTargets.keySet()) {
+            target.markAsInactive();
+        }
+        this.chosenTargets = null;
         this.currentPhase = Phase.Choosing;
     }
 
+    /**
+     * Returns all {@link Tile}s the {@link ChessPiece} on the given source Tile can legally move to, together with the
+     * {@link MoveType} of each of those moves. The targets are only calculated once per position: Choosing the same
+     * ChessPiece again before the turn has ended returns the cached result. The cache is cleared at the end of every
+     * turn.
+     *
+     * @param source the Tile containing the ChessPiece of the currently active {@link Player}
+     * @return the legal target Tiles of the ChessPiece mapped to the corresponding type of move
+     */
+    private Map<Tile, MoveType> getLegalTargets(Tile source) {
+        Map<Tile, MoveType> targets = legalTargetCache.get(source);
+        if (targets != null) {
+            if (Metrics.ENABLED) {
+                Metrics.TARGET_CACHE_HITS.increment();
+            }
+        } else {
+            long start = Metrics.ENABLED ? System.nanoTime() : 0;
+            targets = new LinkedHashMap<>();
+            ChessPiece piece = source.getChessPiece();
+            for (Tile target : getCandidateTargets(piece, board)) {
+                addLegalTarget(piece, target, targets);
+            }
+            legalTargetCache.put(source, targets);
+            if (Metrics.ENABLED) {
+                Metrics.TARGET_CACHE_MISSES.increment();
+                Metrics.MOVE_VALIDATION.recordSince(start);
+            }
+        }
+        return targets;
+    }
+
+    /**
+     * Returns the {@link Tile}s that the given {@link ChessPiece} may be able to reach, before its move set and the
+     * safety of the own King are tested. Knights and Kings can only reach the precomputed targets of their square,
+     * Kings also the two castling targets. All other ChessPieces are tested against every Tile.
+     *
+     * @param piece the ChessPiece whose targets are investigated
+     * @param board the board that is investigated
+     * @return the Tiles that have to be tested
+     */
+    private List<Tile> getCandidateTargets(ChessPiece piece, Board board) {
+        Tile[][] tiles = board.getTiles();
+        Tile source = piece.getTile();
+        int type = piece.getType();
+        List<Tile> candidates = new ArrayList<>();
+        if (type == Position.KNIGHT || type == Position.KING) {
+            int square = source.getRow() * 8 + source.getCol();
+            int[] squares = type == Position.KNIGHT
+                    ? AttackTables.knightTargets(square) : AttackTables.kingTargets(square);
+            for (int target : squares) {
+                candidates.add(tiles[target >>> 3][target & 7]);
+            }
+            if (type == Position.KING) {
+                for (int col = source.getCol() - 2; col <= source.getCol() + 2; col += 4) {
+                    if (col >= 0 && col < 8) {
+                        candidates.add(tiles[source.getRow()][col]);
+                    }
+                }
+            }
+        } else {
+            for (Tile[] row : tiles) {
+                for (Tile tile : row) {
+                    candidates.add(tile);
+                }
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Adds the targeted {@link Tile} to the given map, if the {@link ChessPiece} can legally move there.
+     *
+     * @param piece   the ChessPiece of the currently active {@link Player}
+     * @param target  the targeted Tile of the move
+     * @param targets the legal targets found so far, mapped to the corresponding type of move
+     */
+    private void addLegalTarget(ChessPiece piece, Tile target, Map<Tile, MoveType> targets) {
+        MoveType moveType = getLegalMoveType(piece, target, piece.getOwner(), board);
+        if (moveType != null) {
+            targets.put(target, moveType);
+        }
+    }
+
+    /**
+     * Tests if the given {@link ChessPiece} can legally move to the targeted {@link Tile} and determines what type of
+     * move this would be. All normal moves, but also special moves like 'en passant' or 'castling' are tested. A move
+     * is only legal if it does not leave the own {@link King} checked.
+     *
+     * @param piece  the ChessPiece that would be moved
+     * @param target the targeted Tile of the move
+     * @param player the player who owns the ChessPiece
+     * @param board  the board that is investigated
+     * @return the type of the move or null, if the move is not legal
+     */
+    private MoveType getLegalMoveType(ChessPiece piece, Tile target, Player player, Board board) {
+        Tile source = piece.getTile();
+
+        // Skip if source and target tile are identical
+        if (source == target) {
+            return null;
+        }
+
+        // Skip if the targeted Tile is occupied by a chess piece of the same player
+        if (target.hasChessPiece() && target.getChessPiece().getOwner() == player) {
+            return null;
+        }
+
+        // Check if the ChessPiece can use a normal move, 'en Passant' or 'castling' to reach the targeted Tile
+        MoveType moveType = null;
+        if (piece.isValidMove(target, board)) {
+            moveType = MoveType.Normal;
+        } else if (piece instanceof Pawn && isEnPassantPossible(target, piece)
+                && ((Pawn) piece).isValidEnPassantMove(target, board)) {
+            moveType = MoveType.EnPassant;
+        } else if (piece instanceof King && ((King) piece).isValidCastlingMove(target, board)) {
+            moveType = MoveType.Castling;
+        }
+
+        // Check if the move leaves the own King exposed and is therefore invalid. A castling move has already been
+        // tested by square-attacked queries: the King neither starts on, passes nor reaches an attacked Tile.
+        if (moveType == null || (moveType != MoveType.Castling && moveLeavesKingExposed(source, target, false,
+                moveType == MoveType.EnPassant, player))) {
+            return null;
+        }
+        return moveType;
+    }
+
     /**
      * Ends the current turn, by testing if any check, checkmate or remis conditions are met and toggling the currently
-     * active {@link Player}.
+     * active {@link Player}. The outcome is stored in the given move and added to its log entry.
+     *
+     * @param record the move that ended the turn
      */
-    private void endTurn() {
-        String moveSummary = String.format("#%d: %s %s %s > %s", moveNum, currentPlayer.getColor(), lastMovedPiece.getName(), lastSourceTile.getName(), lastTargetTile.getName());
-        setChanged();
-        notifyObservers(moveSummary);
-        if (isCheckMate(playerWhite, board)) {
-            setChanged();
-            notifyObservers(" WHITE is checkmate. BLACK wins.");
-        } else if (isChecked(playerWhite, board)) {
-            setChanged();
-            notifyObservers(" WHITE is checked.");
-        }
-        if (isCheckMate(playerBlack, board)) {
-            setChanged();
-            notifyObservers(" BLACK is checkmate. WHITE wins.");
-        } else if (isChecked(playerBlack, board)) {
-            setChanged();
-            notifyObservers(" BLACK is checked.");
+    private void endTurn(MoveRecord record) {
+        legalTargetCache.clear(); // The position has changed -> previously calculated targets are outdated
+        ChessColor color = currentPlayer.getColor();
+        int outcome = 0;
+        String result = null;
+        // A move made after the time has run out can not end the Game anymore: The clock listener records the time
+        // loss as its end
+        boolean timeLoss = clock != null && !clock.press();
+        if (timeLoss) {
+            outcome |= MoveRecord.TIME_LOSS;
+        } else if (isCheckMate(playerWhite, board)) {
+            outcome |= MoveRecord.WHITE_CHECKMATE;
+            result = "BLACK wins by checkmate";
+        } else if (isCheckMate(playerBlack, board)) {
+            outcome |= MoveRecord.BLACK_CHECKMATE;
+            result = "WHITE wins by checkmate";
+        }
+        if (result == null && isChecked(playerWhite, board)) {
+            outcome |= MoveRecord.WHITE_CHECKED;
+        }
+        if (result == null && isChecked(playerBlack, board)) {
+            outcome |= MoveRecord.BLACK_CHECKED;
         }
         currentPlayer = (currentPlayer == playerWhite) ? playerBlack : playerWhite;
-        setChanged();
-        notifyObservers(currentPlayer.getColor());
         moveNum++;
+        snapshot.set(createSnapshot());
+
+        if (!timeLoss && isRemis(currentPlayer, board)) {
+            outcome |= MoveRecord.STALEMATE;
+            result = "Remis by stalemate";
+        } else if (!timeLoss && snapshot.get().isInsufficientMaterial()) {
+            outcome |= MoveRecord.INSUFFICIENT_MATERIAL;
+            result = "Remis by insufficient material";
+        }
+        if (result != null) {
+            if (clock != null) {
+                clock.stop();
+            }
+            recordGameEnd(result);
+            if (journal != null) {
+                journal.recordEnd(journalId);
+            }
+        }
+        record.setOutcome(outcome);
+        record.setLogEntry(createLogEntry(moveNum - 1, color, record));
+        dispatch(record.getLogEntry());
+        dispatch(currentPlayer.getColor());
+    }
+
+    /**
+     * Describes a move and its outcome for the game log, e.g. '#3: WHITE Queen D1 > H5 BLACK is checked.'.
+     *
+     * @param moveNum the number of the move, starting at 1
+     * @param color   the color of the moving Player
+     * @param record  the move, including its outcome
+     * @return the log entry
+     */
+    private static String createLogEntry(int moveNum, ChessColor color, MoveRecord record) {
+        ChessColor opponent = color == ChessColor.WHITE ? ChessColor.BLACK : ChessColor.WHITE;
+        int outcome = record.getOutcome();
+        StringBuilder logEntry = new StringBuilder(String.format("#%d: %s %s %s > %s", moveNum, color,
+                record.getPlacedPiece().getName(), record.getSource().getName(), record.getTarget().getName()));
+        if ((outcome & MoveRecord.TIME_LOSS) != 0) {
+            logEntry.append(String.format(" %s has no time left. %s wins.", color, opponent));
+        }
+        if ((outcome & MoveRecord.WHITE_CHECKMATE) != 0) {
+            logEntry.append(" WHITE is checkmate. BLACK wins.");
+        } else if ((outcome & MoveRecord.WHITE_CHECKED) != 0) {
+            logEntry.append(" WHITE is checked.");
+        }
+        if ((outcome & MoveRecord.BLACK_CHECKMATE) != 0) {
+            logEntry.append(" BLACK is checkmate. WHITE wins.");
+        } else if ((outcome & MoveRecord.BLACK_CHECKED) != 0) {
+            logEntry.append(" BLACK is checked.");
+        }
+        if ((outcome & MoveRecord.STALEMATE) != 0) {
+            logEntry.append(String.format(" %s can not move. Remis.", opponent));
+        } else if ((outcome & MoveRecord.INSUFFICIENT_MATERIAL) != 0) {
+            logEntry.append(" No player can checkmate anymore. Remis.");
+        }
+        return logEntry.toString();
+    }
+
+    /**
+     * Notifies the observers of this {@link Game} about a change.
+     *
+     * @param event the change, which is passed to the observers
+     */
+    private void dispatch(Object event) {
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        setChanged();
+        notifyObservers(event);
+        if (Metrics.ENABLED) {
+            Metrics.EVENT_DISPATCH.recordSince(start);
+        }
+    }
+
+    /**
+     * Creates a {@link MoveRecord} for a legal move from the given source {@link Tile} to the given target Tile. The
+     * record determines the ChessPieces that are captured, castled or promoted by the move, but does not carry it
+     * out.
+     *
+     * @param source   the Tile containing the moved ChessPiece
+     * @param target   the targeted Tile of the move
+     * @param moveType the type of the move
+     * @return the record of the move
+     */
+    private MoveRecord createMoveRecord(Tile source, Tile target, MoveType moveType) {
+        ChessPiece piece = source.getChessPiece();
+
+        Tile capturedTile = null;
+        if (moveType == MoveType.EnPassant) {
+            capturedTile = lastMovedPiece.getTile(); // The enemy pawn is located next to the source Tile
+        } else if (target.hasChessPiece()) {
+            capturedTile = target;
+        }
+
+        Tile rookSource = null;
+        Tile rookTarget = null;
+        if (moveType == MoveType.Castling) {
+            boolean longCastle = target.getCol() == 2;
+            rookSource = board.getTile(target.getRow(), longCastle ? 0 : 7);
+            rookTarget = board.getTile(target.getRow(), longCastle ? 3 : 5);
+        }
+
+        // Pawns are transformed into a Queen when they reach the opposite side of the board
+        ChessPiece placedPiece = piece;
+        if (piece instanceof Pawn && (target.getRow() == 0 || target.getRow() == 7)) {
+            placedPiece = new Queen(piece.getOwner());
+        }
+
+        return new MoveRecord(source, target, placedPiece, capturedTile, rookSource, rookTarget, lastMovedPiece,
+                lastSourceTile, lastTargetTile);
+    }
+
+    /**
+     * Takes back the last move of this {@link Game}. The move can be repeated with {@link #redo()} until a new move is
+     * carried out.
+     *
+     * @return true if a move has been taken back, false if there was no move to take back
+     */
+    public boolean undo() {
+        return jumpTo(historyIndex - 1);
+    }
+
+    /**
+     * Repeats the last move that has been taken back with {@link #undo()}.
+     *
+     * @return true if a move has been repeated, false if there was no move to repeat
+     */
+    public boolean redo() {
+        return jumpTo(historyIndex + 1);
+    }
+
+    /**
+     * Restores the state of this {@link Game} after the given number of half moves. Moves are taken back or repeated
+     * one by one, starting from the current state. Each step only touches the Tiles involved in the move, so jumping
+     * through long games is fast. Observers are notified once with the new ply (Integer) and the now active
+     * {@link ChessColor}.
+     *
+     * @param ply the number of half moves from the start of the game, between 0 and {@link #getHistorySize()}
+     * @return true if the state has changed, false if the ply is out of range or already reached
+     */
+    public boolean jumpTo(int ply) {
+        if (ply < 0 || ply > history.size() || ply == historyIndex) {
+            return false;
+        }
+        if (currentPhase == Phase.Moving) {
+            resetToChoosingPhase(chosenTile);
+        }
+
+        while (historyIndex > ply) {
+            MoveRecord record = history.get(--historyIndex);
+            record.unmake();
+            setLastMove(record.getPreviousSourceTile(), record.getPreviousTargetTile(),
+                    record.getPreviousMovedPiece());
+        }
+        while (historyIndex < ply) {
+            MoveRecord record = history.get(historyIndex++);
+            record.make();
+            setLastMove(record.getSource(), record.getTarget(), record.getPlacedPiece());
+        }
+
+        legalTargetCache.clear();
+        moveNum = historyIndex + 1;
+        currentPlayer = historyIndex % 2 == 0 ? playerWhite : playerBlack;
+        snapshot.set(createSnapshot());
+        if (journal != null) {
+            journal.recordJump(journalId, historyIndex);
+        }
+        if (clock != null && !clock.isExpired()) {
+            clock.start(currentPlayer.getColor());
+        }
+        dispatch(historyIndex);
+        dispatch(currentPlayer.getColor());
+        return true;
+    }
+
+    /**
+     * Returns the number of half moves that lead to the current state of this {@link Game}. This is smaller than
+     * {@link #getHistorySize()}, if moves have been taken back.
+     *
+     * @return the current ply
+     */
+    public int getPly() {
+        return historyIndex;
+    }
+
+    /**
+     * Returns the number of half moves that have been recorded in this {@link Game}, including moves that have been
+     * taken back.
+     *
+     * @return the number of recorded moves
+     */
+    public int getHistorySize() {
+        return history.size();
+    }
 
-        if (isRemis(currentPlayer, board)) {
-            //System.out.println("  No possible moves left for unchecked " + currentPlayer.getColor() + ". Remis");
-            notifyObservers(String.format(" %s can not move. Remis.", currentPlayer.getColor()));
+    /**
+     * Returns the log entry of a recorded move, e.g. '#1: WHITE Pawn E2 > E4'.
+     *
+     * @param index the index of the move, starting at 0
+     * @return the log entry of the move
+     */
+    public String getLogEntry(int index) {
+        return history.get(index).getLogEntry();
+    }
+
+    /**
+     * Returns a recorded move.
+     *
+     * @param index the index of the move, starting at 0
+     * @return the record of the move
+     */
+    MoveRecord getMoveRecord(int index) {
+        return history.get(index);
+    }
+
+    /**
+     * Carries out the given moves in a new {@link Game} without validating them and without detecting check, mate or
+     * remis. Instead, the outcome of every move is taken from the given flags. Used by {@link GameSnapshot} to
+     * restore a Game much faster than by replaying the moves through {@link #processInput(Tile)}. Observers are not
+     * notified.
+     *
+     * @param sources  the index of the source square of every move (row * 8 + col)
+     * @param targets  the index of the target square of every move
+     * @param outcomes the outcome flags of every move as defined by {@link MoveRecord}
+     * @param count    the number of moves
+     */
+    void restoreHistory(int[] sources, int[] targets, int[] outcomes, int count) {
+        if (!history.isEmpty()) {
+            throw new IllegalStateException("Error: The history can only be restored in a new Game.");
+        }
+        for (int i = 0; i < count; i++) {
+            Tile source = board.getTile(sources[i] / 8, sources[i] % 8);
+            Tile target = board.getTile(targets[i] / 8, targets[i] % 8);
+            if (!source.hasChessPiece() || source.getChessPiece().getOwner() != currentPlayer
+                    || (target.hasChessPiece() && target.getChessPiece().getOwner() == currentPlayer)) {
+                throw new IllegalArgumentException("Error: Move " + (i + 1) + " of the history is not possible.");
+            }
+
+            // The type of the move follows from the moved ChessPiece and the Tiles
+            ChessPiece piece = source.getChessPiece();
+            MoveType moveType = MoveType.Normal;
+            if (piece instanceof King && Math.abs(source.getCol() - target.getCol()) == 2) {
+                moveType = MoveType.Castling;
+            } else if (source.getCol() != target.getCol() && !target.hasChessPiece()
+                    && isEnPassantPossible(target, piece)) {
+                moveType = MoveType.EnPassant;
+            }
+
+            MoveRecord record = createMoveRecord(source, target, moveType);
+            record.make();
+            setLastMove(source, target, record.getPlacedPiece());
+            record.setOutcome(outcomes[i]);
+            record.setLogEntry(createLogEntry(i + 1, currentPlayer.getColor(), record));
+            history.add(record);
+            historyIndex++;
+            currentPlayer = (currentPlayer == playerWhite) ? playerBlack : playerWhite;
         }
+        legalTargetCache.clear();
+        moveNum = historyIndex + 1;
+        snapshot.set(createSnapshot());
+    }
+
+    /**
+     * Creates a {@link Position} that represents the current state of this {@link Game}: the ChessPieces on the
+     * {@link Board}, the currently active {@link Player}, the remaining castling options and a possible en passant
+     * capture. The Position is created from the latest {@link PositionSnapshot}, does not reference any Swing
+     * components and can be handed to other threads.
+     *
+     * @return a Position representing the current state of the Game
+     */
+    public Position createPosition() {
+        return snapshot.get().toPosition();
+    }
+
+    /**
+     * Returns the {@link PositionSnapshot} of the current state of this {@link Game}. A new snapshot is published
+     * after every move and every jump through the history, so this method can be called from any thread without
+     * locking. While a move is carried out, the snapshot of the state before the move is returned.
+     *
+     * @return the latest snapshot
+     */
+    public PositionSnapshot getSnapshot() {
+        return snapshot.get();
+    }
+
+    /**
+     * Creates a {@link PositionSnapshot} of the current state from the {@link PieceList}s of the Players.
+     *
+     * @return a snapshot of the current state
+     */
+    private PositionSnapshot createSnapshot() {
+        // Castling is possible as long as both the King and the involved Rook have not moved yet
+        int castlingRights = 0;
+        if (canCastleWith(7, 4, 7, 7)) {
+            castlingRights |= Position.WHITE_KINGSIDE;
+        }
+        if (canCastleWith(7, 4, 7, 0)) {
+            castlingRights |= Position.WHITE_QUEENSIDE;
+        }
+        if (canCastleWith(0, 4, 0, 7)) {
+            castlingRights |= Position.BLACK_KINGSIDE;
+        }
+        if (canCastleWith(0, 4, 0, 0)) {
+            castlingRights |= Position.BLACK_QUEENSIDE;
+        }
+
+        // En passant is only possible directly after a two-tile forward move of a Pawn
+        int enPassantSquare = -1;
+        if (lastMovedPiece instanceof Pawn && Math.abs(lastSourceTile.getRow() - lastTargetTile.getRow()) == 2) {
+            int row = (lastSourceTile.getRow() + lastTargetTile.getRow()) / 2;
+            enPassantSquare = row * 8 + lastTargetTile.getCol();
+        }
+
+        int sideToMove = currentPlayer.getColor() == ChessColor.WHITE ? Position.WHITE : Position.BLACK;
+        return PositionSnapshot.of(playerWhite.getPieceList(), playerBlack.getPieceList(), sideToMove,
+                castlingRights, enPassantSquare, 0, (moveNum + 1) / 2);
+    }
+
+    /**
+     * Evaluates the current state of this {@link Game} without looking ahead, using an {@link Evaluation}. Positive
+     * values are good for the white {@link Player}, negative values for the black Player.
+     *
+     * @return the score of the current position in centipawns from the view of white
+     */
+    public int evaluatePosition() {
+        Position position = createPosition();
+        int score = new Evaluation().evaluate(position);
+        return position.getSideToMove() == Position.WHITE ? score : -score;
+    }
+
+    /**
+     * Calculates how much material the owner of the {@link ChessPiece} on the source {@link Tile} wins or loses by
+     * moving it to the target Tile, if both players keep capturing on the target Tile as long as this is profitable.
+     * The move itself is not checked for legality.
+     *
+     * @param source the Tile of the moved ChessPiece
+     * @param target the targeted Tile
+     * @return the material balance of the exchange in centipawns from the view of the moving Player
+     */
+    public int evaluateExchange(Tile source, Tile target) {
+        if (source == null || target == null) {
+            throw new NullPointerException("Arguments for the evaluateExchange() method must not be null.");
+        } else if (!source.hasChessPiece()) {
+            throw new IllegalArgumentException("Error: There is no ChessPiece on the source Tile.");
+        }
+        ChessPiece piece = source.getChessPiece();
+        Position position = createPosition();
+        position.setSideToMove(piece.getOwner().getColor() == ChessColor.WHITE ? Position.WHITE : Position.BLACK);
+
+        // Pawns capture en passant if they move diagonally to an empty Tile and are promoted to a Queen
+        int flags = 0;
+        int promotion = 0;
+        if (piece instanceof Pawn) {
+            if (source.getCol() != target.getCol() && !target.hasChessPiece()) {
+                flags = Move.EN_PASSANT;
+            }
+            if (target.getRow() == 0 || target.getRow() == 7) {
+                promotion = Position.QUEEN;
+            }
+        }
+        int from = source.getRow() * 8 + source.getCol();
+        int to = target.getRow() * 8 + target.getCol();
+        return position.staticExchange(Move.create(from, to, promotion, flags));
+    }
+
+    /**
+     * Tests if the ChessPieces on the given King and Rook positions are both still able to castle.
+     *
+     * @param kingRow the row of the King
+     * @param kingCol the column of the King
+     * @param rookRow the row of the Rook
+     * @param rookCol the column of the Rook
+     * @return true if both ChessPieces are in place and have not moved yet
+     */
+    private boolean canCastleWith(int kingRow, int kingCol, int rookRow, int rookCol) {
+        Tile kingTile = board.getTile(kingRow, kingCol);
+        Tile rookTile = board.getTile(rookRow, rookCol);
+        return kingTile.hasChessPiece() && kingTile.getChessPiece() instanceof King
+                && kingTile.getChessPiece().canCastle()
+                && rookTile.hasChessPiece() && rookTile.getChessPiece() instanceof Rook
+                && rookTile.getChessPiece().canCastle()
+                && rookTile.getChessPiece().getOwner() == kingTile.getChessPiece().getOwner();
     }
 
     /**
@@ -329,33 +1057,25 @@ public class Game extends Observable {
      * @return true if the Player is checked
      */
     private boolean isChecked(Player player, Board board) {
-
-        // Loop through all opposing chess pieces and test if they check the players king
-        Tile[][] tiles = board.getTiles();
-        for (int row = 0; row < tiles.length; row++) {
-            for (int col = 0; col < tiles[row].length; col++) {
-
-                if (!tiles[row][col].hasChessPiece()) {
-                    continue; // Skip this tile, it has no ChessPiece
-                }
-
-                ChessPiece potentialAttacker = tiles[row][col].getChessPiece();
-
-                if (potentialAttacker.getOwner() == player) {
-                    continue; // Skip this piece, it does not belong to the opponent
-                }
-
-                King playerKing = player.getKing();
-
-                // Test if the ChessPiece could capture the players King with its next move
-                if (potentialAttacker.isValidMove(playerKing.getTile(), board)) {
-                    return true;
-                }
-
-            }
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        boolean checked = isKingAttacked(player, board);
+        if (Metrics.ENABLED) {
+            Metrics.CHECK_DETECTION.recordSince(start);
         }
+        return checked;
+    }
 
-        return false;
+    /**
+     * Tests if any {@link ChessPiece} of the opponent of the given {@link Player} could capture the Players
+     * {@link King} with its next move. The attacks are looked up with {@link Board#isSquareAttacked(int, ChessColor)}.
+     *
+     * @param player the player whose King is investigated
+     * @param board  the board containing the Players ChessPieces
+     * @return true if the King is attacked
+     */
+    private boolean isKingAttacked(Player player, Board board) {
+        ChessColor opponent = player.getColor() == ChessColor.WHITE ? ChessColor.BLACK : ChessColor.WHITE;
+        return board.isSquareAttacked(player.getPieceList().getKingSquare(), opponent);
     }
 
     /**
@@ -370,6 +1090,26 @@ public class Game extends Observable {
      * @return true if the move leaves the players king checked (illegal move)
      */
     private boolean moveLeavesKingExposed(Tile source, Tile target, boolean castling, boolean enPassant, Player player) {
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        boolean exposed = isKingExposedAfter(source, target, castling, enPassant, player);
+        if (Metrics.ENABLED) {
+            Metrics.KING_EXPOSURE.recordSince(start);
+        }
+        return exposed;
+    }
+
+    /**
+     * Carries out the given move on a copy of the {@link Board} and tests if the own {@link King} is checked
+     * afterwards.
+     *
+     * @param source    the Tile containing the ChessPiece which will be moved
+     * @param target    the targeted Tile of the move
+     * @param castling  whether the move is a castling move
+     * @param enPassant whether the move is an en passant move
+     * @param player    the player who owns the ChessPiece on the source Tile
+     * @return true if the move leaves the players king checked
+     */
+    private boolean isKingExposedAfter(Tile source, Tile target, boolean castling, boolean enPassant, Player player) {
 
         // Copy the board and determine the involved Tiles and Players on it -> The 'real' board will NOT be altered.
         Board boardCopy = copyBoard();
@@ -459,11 +1199,14 @@ public class Game extends Observable {
      * @return true if the given Player is checkmate
      */
     private boolean isCheckMate(Player player, Board board) {
-        if (!isChecked(player, board)) { // Can not be check mate if not checked
-            return false;
-        }
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
 
-        return !canMove(player, board);
+        // Can not be check mate if not checked
+        boolean checkMate = isChecked(player, board) && !canMove(player, board);
+        if (Metrics.ENABLED) {
+            Metrics.MATE_DETECTION.recordSince(start);
+        }
+        return checkMate;
     }
 
     /**
@@ -475,18 +1218,21 @@ public class Game extends Observable {
      * @return true if there are no valid moves left for the specified player
      */
     private boolean isRemis(Player player, Board board) {
-        if (isChecked(player, board)) { // Can not be Remis if checked
-            return false;
-        }
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
 
-        return !canMove(player, board);
+        // Can not be Remis if checked
+        boolean remis = !isChecked(player, board) && !canMove(player, board);
+        if (Metrics.ENABLED) {
+            Metrics.MATE_DETECTION.recordSince(start);
+        }
+        return remis;
     }
 
     /**
-     * Iterates over all {@link Tile}s and all corresponding {@link ChessPiece}s on the Board to test if the specified
-     * {@link Player} has any valid moves left. Any legal move that results in the investigated Players {@link King} not
-     * being checked is considered a valid option. All normal moves, but also special moves like 'en passant' or
-     * 'castling' are tested by this method.
+     * Iterates over the {@link PieceList} of the specified {@link Player} and the candidate {@link Tile}s of every
+     * piece (see {@link #getCandidateTargets(ChessPiece, Board)}) to test if the Player has any valid moves left. Any
+     * legal move that results in the investigated Players {@link King} not being checked is considered a valid option.
+     * All normal moves, but also special moves like 'en passant' or 'castling' are tested by this method.
      *
      * @param player the player who's move options are investigated
      * @param board  the board that is investigated
@@ -494,68 +1240,18 @@ public class Game extends Observable {
      */
     private boolean canMove(Player player, Board board) {
 
-        // Loop through all Tiles to find all chess pieces
+        // Loop through the chess pieces of the player. Moves are tested on a copy of the board, so the piece list
+        // does not change meanwhile.
         Tile[][] tiles = board.getTiles();
-        for (int row = 0; row < tiles.length; row++) {
-            for (int col = 0; col < tiles[row].length; col++) {
-                Tile currentTile = tiles[row][col];
-
-                // Skip if there is no chess piece on the tile
-                if (!currentTile.hasChessPiece()) {
-                    continue;
-                }
-
-                ChessPiece currentPiece = currentTile.getChessPiece();
-
-                // Skip if the chess piece belongs to the enemy
-                if (currentPiece.getColor() != player.getColor()) {
-                    continue;
-                }
-
-                // Loop through all Tiles to check if they are valid targets for a move
-                for (int row2 = 0; row2 < tiles.length; row2++) {
-                    for (int col2 = 0; col2 < tiles[row2].length; col2++) {
-
-                        // Skip if source and target tile are identical
-                        if (row2 == row && col2 == col) {
-                            continue;
-                        }
-
-                        Tile targetTile = tiles[row2][col2];
-
-                        // Skip if the targeted Tile is occupied by a chess piece of the same player
-                        if (targetTile.hasChessPiece()) {
-                            if (targetTile.getChessPiece().getOwner() == player) {
-                                continue;
-                            }
-                        }
-
-                        // Check if the currently investigated Piece can use a normal move to reach the targeted Tile
-                        boolean validMove = currentPiece.isValidMove(targetTile, board);
-
-                        // Check if the currently investigated Piece can use 'en Passant' to reach the targeted Tile
-                        boolean enPassant = false;
-                        if (currentPiece instanceof Pawn && isEnPassantPossible(targetTile, currentPiece)) {
-                            if (((Pawn) currentPiece).isValidEnPassantMove(targetTile, board)) {
-                                enPassant = true;
-                            }
-                        }
-
-                        // Check if the currently investigated Piece can 'castle' to reach the targeted Tile
-                        boolean castling = false;
-                        if (currentPiece instanceof King) {
-                            if (((King) currentPiece).isValidCastlingMove(targetTile, board)) {
-                                castling = true;
-                            }
-                        }
-
-                        // Check if the move leaves the own King exposed and is therefore invalid
-                        if (validMove || enPassant || castling) {
-                            if (!moveLeavesKingExposed(currentTile, targetTile, castling, enPassant, player)) {
-                                return true;
-                            }
-                        }
-                    }
+        PieceList pieces = player.getPieceList();
+        for (int i = 0; i < pieces.size(); i++) {
+            int square = pieces.getSquare(i);
+            ChessPiece currentPiece = tiles[square / 8][square % 8].getChessPiece();
+
+            // Check if any of the Tiles the piece may reach is a valid target for a move
+            for (Tile target : getCandidateTargets(currentPiece, board)) {
+                if (getLegalMoveType(currentPiece, target, player, board) != null) {
+                    return true;
                 }
             }
         }
@@ -580,7 +1276,6 @@ public class Game extends Observable {
             occupiedTile.removeChessPiece();
             Queen newQueen = new Queen(pawn.getOwner());
             occupiedTile.setChessPiece(newQueen);
-            pawn.getOwner().removeChessPiece(pawn);
 
             return newQueen;
         }
@@ -0,0 +1,27 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Java Flight Recorder event that is emitted when a {@link Game} has been decided by checkmate, remis or a time loss.
+ */
+@Name("chess.GameEnded")
+@Label("Game Ended")
+@Category({"Chess", "Game"})
+@Description("A game has been decided")
+@StackTrace(false)
+public class GameEndedEvent extends jdk.jfr.Event {
+
+    @Label("Game Id")
+    long gameId;
+
+    @Label("Result")
+    @Description("The winner and the reason, e.g. 'WHITE wins by checkmate'")
+    String result;
+
+    @Label("Plies")
+    @Description("The number of half moves of the game")
+    int plies;
+}
@@ -0,0 +1,685 @@
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32C;
+
+/**
+ * Write-ahead journal of the moves of all {@link Game}s of one process. A Game with a journal (see
+ * {@link Game#setJournal(GameJournal)}) appends a record for every move, every jump through its history and its end.
+ * After a crash, the Games that were still running are read from the journal and rebuilt by replaying their moves.
+ * <p>
+ * Every {@link #SNAPSHOT_INTERVAL} half moves, a Game additionally appends a {@link GameSnapshot} of its complete
+ * state. A Game is rebuilt from its last snapshot, and only the moves after it are replayed through
+ * {@link Game#processInput(Tile)}, so the recovery time does not depend on the length of the Game.
+ * <p>
+ * Records are a few bytes long: a type, the id of the Game as variable length number, the payload and a CRC32C
+ * checksum. Appending a record only copies it into a buffer, which is written by a single thread. This thread writes
+ * and forces all records that have been appended since the last write at once, while the players continue to append
+ * to a second buffer (group commit). Under load, many moves share one call of {@link FileChannel#force(boolean)}, so
+ * the cost of a move stays in the range of microseconds. A move is durable as soon as the write that follows it has
+ * completed; {@link #awaitDurable(long)} and {@link #flush()} wait for that.
+ * <p>
+ * A damaged record at the end of the file, e.g. from a write that was interrupted by the crash, and everything after
+ * it is discarded when the journal is opened. The journal is then rewritten with only the running Games, so it does
+ * not grow across restarts.
+ */
+public final class GameJournal implements Closeable {
+
+    /**
+     * Size of each of the two buffers in bytes.
+     */
+    public static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Number of half moves after which a Game appends a snapshot of its state.
+     */
+    public static final int SNAPSHOT_INTERVAL = 32;
+
+    /**
+     * Size of the largest snapshot that is accepted in bytes. Larger snapshots are only possible for games of several
+     * thousand moves; those games are recovered from their moves.
+     */
+    public static final int MAX_SNAPSHOT_SIZE = BUFFER_SIZE / 2;
+
+    private static final int MAGIC = 0x43484a31; // "CHJ1"
+    private static final int MAX_RECORD_SIZE = 32;
+
+    private static final byte START = 1;
+    private static final byte MOVE = 2;
+    private static final byte JUMP = 3;
+    private static final byte END = 4;
+    private static final byte SNAPSHOT = 5;
+
+    private static final int JUMP_FLAG = 1 << 12;
+
+    private final Path file;
+    private final FileChannel channel;
+    private final List<RecoveredGame> recoveredGames;
+    private final ReentrantLock lock;
+    private final Condition recordsAppended;
+    private final Condition bufferSwapped;
+    private final Condition recordsDurable;
+    private final CRC32C checksum;
+    private final Thread writer;
+    private ByteBuffer buffer;
+    private ByteBuffer spare;
+    private long nextGameId;
+    private long appendedRecords;
+    private long durableRecords;
+    private long syncs;
+    private IOException failure;
+    private boolean closed;
+
+    /**
+     * Recovered state of a {@link Game} that was still running when the journal was last used: its last snapshot and
+     * the moves and jumps through its history that followed the snapshot.
+     */
+    public static final class RecoveredGame {
+
+        private final long id;
+        private byte[] snapshot;
+        private int[] changes;
+        private int changeCount;
+        private boolean ended;
+
+        private RecoveredGame(long id) {
+            this.id = id;
+            this.changes = new int[SNAPSHOT_INTERVAL];
+        }
+
+        /**
+         * Adds a move or a jump, packed as ply * 8192 + jump flag + source * 64 + target.
+         */
+        private void addChange(int change) {
+            if (changeCount == changes.length) {
+                changes = Arrays.copyOf(changes, changes.length * 2);
+            }
+            changes[changeCount++] = change;
+            ended = false;
+        }
+
+        private void setSnapshot(byte[] snapshot) {
+            this.snapshot = snapshot;
+            changeCount = 0;
+            ended = false;
+        }
+
+        /**
+         * Returns the id of the Game in the journal.
+         *
+         * @return the id
+         */
+        public long getId() {
+            return id;
+        }
+
+        /**
+         * Returns whether the Game is restored from a snapshot.
+         *
+         * @return true if the journal contains a snapshot of the Game
+         */
+        public boolean hasSnapshot() {
+            return snapshot != null;
+        }
+
+        /**
+         * Returns the number of moves and jumps that are replayed after the snapshot, or from the start of the Game if
+         * there is no snapshot.
+         *
+         * @return the number of moves and jumps
+         */
+        public int getReplayCount() {
+            return changeCount;
+        }
+    }
+
+    /**
+     * Opens a journal. The running Games of an existing journal are recovered (see {@link #getRecoveredGames()}) and
+     * the file is rewritten with only their records. A new file is created if it does not exist yet or is empty.
+     * The thread writing the records is started immediately.
+     *
+     * @param file the journal file
+     * @throws IOException if the file can not be read or written
+     */
+    public GameJournal(Path file) throws IOException {
+        if (file == null) {
+            throw new NullPointerException("Arguments for the GameJournal() constructor must not be null.");
+        }
+        this.file = file;
+        this.checksum = new CRC32C();
+        this.buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        this.spare = ByteBuffer.allocate(BUFFER_SIZE);
+        this.nextGameId = 1;
+
+        Map<Long, RecoveredGame> games = new LinkedHashMap<>();
+        if (Files.exists(file) && Files.size(file) > 0) {
+            read(games);
+        }
+        List<RecoveredGame> running = new ArrayList<>();
+        for (RecoveredGame game : games.values()) {
+            nextGameId = Math.max(nextGameId, game.id + 1);
+            if (!game.ended) {
+                running.add(game);
+            }
+        }
+        this.recoveredGames = Collections.unmodifiableList(running);
+        compact();
+        this.channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+
+        this.lock = new ReentrantLock();
+        this.recordsAppended = lock.newCondition();
+        this.bufferSwapped = lock.newCondition();
+        this.recordsDurable = lock.newCondition();
+        this.writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                writeRecords();
+            }
+        }, "Game journal");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Reads all intact records of the journal file. Reading stops at the end of the file or at the first damaged
+     * record.
+     *
+     * @param games the Games found in the journal, mapped by id
+     * @throws IOException if the file can not be read or is not a journal
+     */
+    private void read(Map<Long, RecoveredGame> games) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Error: " + file + " is not a game journal.");
+            }
+            byte[] record = new byte[MAX_RECORD_SIZE];
+            while (true) {
+                int type = in.read();
+                if (type < 0) {
+                    return;
+                } else if (type < START || type > SNAPSHOT) {
+                    return; // Damaged record
+                }
+                record[0] = (byte) type;
+                int length = 1;
+                try {
+                    length = readVarLong(in, record, length);
+                    long id = decodeVarLong(record, 1);
+                    int value = 0;
+                    byte[] data = null;
+                    if (type == MOVE || type == JUMP || type == SNAPSHOT) {
+                        int start = length;
+                        length = readVarLong(in, record, length);
+                        value = (int) decodeVarLong(record, start);
+                    }
+                    if (type == MOVE) {
+                        record[length++] = (byte) in.readUnsignedByte();
+                        record[length++] = (byte) in.readUnsignedByte();
+                        value = value << 13 | (record[length - 2] & 63) << 6 | record[length - 1] & 63;
+                    } else if (type == JUMP) {
+                        value = value << 13 | JUMP_FLAG;
+                    } else if (type == SNAPSHOT) {
+                        if (value < 0 || value > MAX_SNAPSHOT_SIZE) {
+                            return; // Damaged record
+                        }
+                        data = new byte[value];
+                        in.readFully(data);
+                    }
+                    checksum.reset();
+                    checksum.update(record, 0, length);
+                    if (data != null) {
+                        checksum.update(data);
+                    }
+                    if (in.readInt() != (int) checksum.getValue()) {
+                        return; // Damaged record
+                    }
+                    apply(games, type, id, value, data);
+                } catch (EOFException e) {
+                    return; // Incomplete record at the end of the file
+                }
+            }
+        }
+    }
+
+    /**
+     * Applies a record to the recovered Games. Moves and jumps continue a Game that has ended before, since moves can
+     * be taken back after the end.
+     */
+    private static void apply(Map<Long, RecoveredGame> games, int type, long id, int change, byte[] snapshot) {
+        RecoveredGame game = games.get(id);
+        if (game == null) {
+            game = new RecoveredGame(id);
+            games.put(id, game);
+        }
+        if (type == MOVE || type == JUMP) {
+            game.addChange(change);
+        } else if (type == SNAPSHOT) {
+            game.setSnapshot(snapshot);
+        } else if (type == END) {
+            game.ended = true;
+        }
+    }
+
+    /**
+     * Replaces the journal file with one that only contains the recovered Games. The new file is written completely
+     * before it replaces the old one, so a crash during the compaction does not lose any Game.
+     *
+     * @throws IOException if the file can not be written
+     */
+    private void compact() throws IOException {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(4);
+            header.putInt(MAGIC).flip();
+            out.write(header);
+            for (RecoveredGame game : recoveredGames) {
+                compactRecord(out, START, game.id, 0, null);
+                if (game.snapshot != null) {
+                    compactRecord(out, SNAPSHOT, game.id, 0, game.snapshot);
+                }
+                for (int i = 0; i < game.changeCount; i++) {
+                    int change = game.changes[i];
+                    compactRecord(out, (change & JUMP_FLAG) != 0 ? JUMP : MOVE, game.id, change, null);
+                }
+            }
+            writeBuffer(out);
+            out.force(true);
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void compactRecord(FileChannel out, byte type, long id, int change, byte[] snapshot)
+            throws IOException {
+        if (buffer.remaining() < MAX_RECORD_SIZE + (snapshot != null ? snapshot.length : 0)) {
+            writeBuffer(out);
+        }
+        encode(type, id, change, snapshot);
+    }
+
+    private void writeBuffer(FileChannel out) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Returns the Games that were still running when the journal was last used, in the order they were started.
+     *
+     * @return an unmodifiable list of the Games
+     */
+    public List<RecoveredGame> getRecoveredGames() {
+        return recoveredGames;
+    }
+
+    /**
+     * Rebuilds a recovered Game on the given Board from its last snapshot and the moves after it. The Game continues
+     * to use this journal under its previous id. A clock continues with the times of the snapshot, plus the bonus of
+     * the replayed moves.
+     *
+     * @param recovered one of the {@link #getRecoveredGames()}
+     * @param board     an empty Board for the Game
+     * @param executor  runs the handling of a time loss on the thread of the Game (see
+     *                  {@link Game#setClock(ChessClock, Executor)})
+     * @return the rebuilt Game
+     */
+    public Game restore(RecoveredGame recovered, Board board, Executor executor) {
+        if (recovered == null || board == null || executor == null) {
+            throw new NullPointerException("Arguments for the restore() method must not be null.");
+        }
+        Game game = recovered.snapshot != null ? GameSnapshot.read(recovered.snapshot, board, executor)
+                : new Game(board);
+        for (int i = 0; i < recovered.changeCount; i++) {
+            int change = recovered.changes[i];
+            int ply = change >>> 13;
+            if (ply > game.getHistorySize()) {
+                throw new IllegalStateException("Error: Game " + recovered.id + " in the journal has no ply " + ply
+                        + ".");
+            }
+            game.jumpTo(ply);
+            if ((change & JUMP_FLAG) == 0) {
+                int source = (change >>> 6) & 63;
+                int target = change & 63;
+                game.processInput(board.getTile(source / 8, source % 8));
+                game.processInput(board.getTile(target / 8, target % 8));
+                if (game.getPly() != ply + 1) {
+                    throw new IllegalStateException("Error: Move " + (ply + 1) + " of game " + recovered.id
+                            + " in the journal is illegal.");
+                }
+            }
+        }
+        game.resumeJournal(this, recovered.id);
+        return game;
+    }
+
+    /**
+     * Appends the start of a new Game.
+     *
+     * @return the id of the Game in this journal
+     */
+    long startGame() {
+        lock.lock();
+        try {
+            long id = nextGameId++;
+            append(START, id, 0, null);
+            return id;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Appends a move. All moves of the Game from the given ply on are replaced by it.
+     *
+     * @param id     the id of the Game
+     * @param ply    the number of half moves before the move
+     * @param source the index of the source square (row * 8 + col)
+     * @param target the index of the target square
+     * @return the sequence number of the record
+     */
+    long recordMove(long id, int ply, int source, int target) {
+        lock.lock();
+        try {
+            return append(MOVE, id, ply << 13 | source << 6 | target, null);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Appends a jump through the history of a Game, e.g. after moves have been taken back.
+     *
+     * @param id  the id of the Game
+     * @param ply the number of half moves the Game is showing now
+     * @return the sequence number of the record
+     */
+    long recordJump(long id, int ply) {
+        lock.lock();
+        try {
+            return append(JUMP, id, ply << 13 | JUMP_FLAG, null);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Appends the end of a Game. The Game is not recovered anymore, unless further moves or jumps follow.
+     *
+     * @param id the id of the Game
+     * @return the sequence number of the record
+     */
+    long recordEnd(long id) {
+        lock.lock();
+        try {
+            return append(END, id, 0, null);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Appends a snapshot of the complete state of a Game. Recovering the Game starts from the last snapshot.
+     *
+     * @param id       the id of the Game
+     * @param snapshot the snapshot created by {@link GameSnapshot#write(Game)}
+     * @return the sequence number of the record or -1, if the snapshot is larger than {@link #MAX_SNAPSHOT_SIZE}
+     */
+    long recordSnapshot(long id, byte[] snapshot) {
+        if (snapshot.length > MAX_SNAPSHOT_SIZE) {
+            return -1;
+        }
+        lock.lock();
+        try {
+            return append(SNAPSHOT, id, snapshot.length, snapshot);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Copies a record into the current buffer. Waits for the writing thread if the buffer is full. The lock has to be
+     * held by the caller.
+     *
+     * @return the sequence number of the record, starting at 1
+     */
+    private long append(byte type, long id, int change, byte[] snapshot) {
+        checkUsable();
+        int size = MAX_RECORD_SIZE + (snapshot != null ? snapshot.length : 0);
+        while (buffer.remaining() < size) {
+            bufferSwapped.awaitUninterruptibly();
+            checkUsable();
+        }
+        encode(type, id, change, snapshot);
+        if (Metrics.ENABLED) {
+            Metrics.JOURNAL_RECORDS.increment();
+        }
+        recordsAppended.signal();
+        return ++appendedRecords;
+    }
+
+    private void checkUsable() {
+        if (closed) {
+            throw new IllegalStateException("Error: The GameJournal has been closed.");
+        } else if (failure != null) {
+            throw new IllegalStateException("Error: The GameJournal could not be written.", failure);
+        }
+    }
+
+    /**
+     * Writes a record into the current buffer. Moves and jumps are given as ply * 8192 + jump flag + source * 64 +
+     * target.
+     */
+    private void encode(byte type, long id, int change, byte[] snapshot) {
+        int start = buffer.position();
+        buffer.put(type);
+        GameSnapshot.putVarLong(buffer, id);
+        if (type == MOVE || type == JUMP) {
+            GameSnapshot.putVarLong(buffer, change >>> 13);
+        }
+        if (type == MOVE) {
+            buffer.put((byte) ((change >>> 6) & 63));
+            buffer.put((byte) (change & 63));
+        } else if (type == SNAPSHOT) {
+            GameSnapshot.putVarLong(buffer, snapshot.length);
+            buffer.put(snapshot);
+        }
+        checksum.reset();
+        checksum.update(buffer.array(), start, buffer.position() - start);
+        buffer.putInt((int) checksum.getValue());
+    }
+
+    private static int readVarLong(DataInputStream in, byte[] record, int length) throws IOException {
+        int b;
+        do {
+            if (length == record.length) {
+                throw new EOFException(); // Longer than any valid number
+            }
+            b = in.readUnsignedByte();
+            record[length++] = (byte) b;
+        } while ((b & 0x80) != 0);
+        return length;
+    }
+
+    private static long decodeVarLong(byte[] record, int offset) {
+        long value = 0;
+        int shift = 0;
+        int b;
+        do {
+            b = record[offset++];
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    /**
+     * Main loop of the writing thread: Waits for records, swaps the buffers and writes and forces the full one while
+     * new records are appended to the other.
+     */
+    private void writeRecords() {
+        while (true) {
+            ByteBuffer full;
+            long records;
+            lock.lock();
+            try {
+                while (buffer.position() == 0 && !closed) {
+                    recordsAppended.awaitUninterruptibly();
+                }
+                if (buffer.position() == 0) {
+                    recordsDurable.signalAll();
+                    return; // Closed and everything has been written
+                }
+                full = buffer;
+                buffer = spare;
+                spare = null;
+                records = appendedRecords;
+                bufferSwapped.signalAll();
+            } finally {
+                lock.unlock();
+            }
+
+            long start = System.nanoTime();
+            IOException error = null;
+            try {
+                full.flip();
+                while (full.hasRemaining()) {
+                    channel.write(full);
+                }
+                channel.force(false);
+            } catch (IOException e) {
+                error = e;
+            }
+            full.clear();
+            if (Metrics.ENABLED) {
+                Metrics.JOURNAL_SYNC.recordSince(start);
+            }
+
+            lock.lock();
+            try {
+                spare = full;
+                if (error != null) {
+                    failure = error;
+                    bufferSwapped.signalAll();
+                    recordsDurable.signalAll();
+                    return;
+                }
+                durableRecords = records;
+                syncs++;
+                recordsDurable.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Waits until the record with the given sequence number and all records before it have been forced to the disk.
+     *
+     * @param sequence the sequence number returned when the record was appended
+     */
+    public void awaitDurable(long sequence) {
+        lock.lock();
+        try {
+            while (durableRecords < sequence) {
+                if (failure != null) {
+                    throw new IllegalStateException("Error: The GameJournal could not be written.", failure);
+                } else if (!writer.isAlive()) {
+                    throw new IllegalStateException("Error: The GameJournal has been closed.");
+                }
+                recordsDurable.awaitUninterruptibly();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until all records that have been appended so far have been forced to the disk.
+     */
+    public void flush() {
+        long sequence;
+        lock.lock();
+        try {
+            sequence = appendedRecords;
+        } finally {
+            lock.unlock();
+        }
+        awaitDurable(sequence);
+    }
+
+    /**
+     * Returns the number of records that have been appended since the journal was opened.
+     *
+     * @return the number of records
+     */
+    public long getRecordCount() {
+        lock.lock();
+        try {
+            return appendedRecords;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns how often records have been forced to the disk since the journal was opened. Together with
+     * {@link #getRecordCount()}, this shows how many records share one write.
+     *
+     * @return the number of writes
+     */
+    public long getSyncCount() {
+        lock.lock();
+        try {
+            return syncs;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes all appended records and closes the file. Further records are rejected.
+     *
+     * @throws IOException if the records could not be written or the file could not be closed
+     */
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            recordsAppended.signal();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
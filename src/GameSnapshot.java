@@ -0,0 +1,259 @@
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.Executor;
+import java.util.zip.CRC32C;
+
+/**
+ * Compact binary snapshot of the complete state of a {@link Game}: the current position with the color to move,
+ * castling rights and en passant square, the move history with the outcome of every move, the number of half moves
+ * the Game is showing and the {@link ChessClock}. A snapshot of a game of 80 moves takes about 0.5 KB.
+ * <p>
+ * A snapshot is written and read field by field, without Java object serialization or reflection. Restoring a Game
+ * carries out the recorded moves on the Tiles without testing their legality or looking for check and mate again
+ * (see {@link Game#restoreHistory(int[], int[], int[], int)}), which is several hundred times faster than replaying
+ * them through {@link Game#processInput(Tile)}. The restored position is compared with the position in the snapshot,
+ * and a CRC32C checksum protects the whole snapshot, so damaged snapshots are rejected.
+ * <p>
+ * Layout (all numbers big-endian, 'var' = variable length number with 7 bits per byte):
+ * <pre>
+ *     int     magic "CHS1"
+ *     long    occupied squares
+ *     byte[]  one nibble per occupied square: the piece as encoded by Position
+ *     byte    color to move, castling rights, en passant square (-1 for none)
+ *     var     fullmove number, number of recorded moves, current ply
+ *     3 byte  per move: source * 64 + target, outcome flags of MoveRecord
+ *     byte    1 if a clock follows, 0 otherwise
+ *     var     clock: number of periods, time and moves of every period, increment, delay,
+ *             remaining nanoseconds and completed moves of white and black
+ *     byte    clock: running color and expired color (-1 for none)
+ *     int     CRC32C of everything before
+ * </pre>
+ */
+public final class GameSnapshot {
+
+    private static final int MAGIC = 0x43485331; // "CHS1"
+
+    private GameSnapshot() {
+    }
+
+    /**
+     * Creates a snapshot of the given Game. Should be called from the thread that processes the input of the Game.
+     *
+     * @param game the Game
+     * @return the snapshot
+     */
+    public static byte[] write(Game game) {
+        if (game == null) {
+            throw new NullPointerException("Arguments for the write() method must not be null.");
+        }
+        int moveCount = game.getHistorySize();
+        ChessClock clock = game.getClock();
+        int clockSize = clock == null ? 0 : 64 + 20 * clock.getTimeControl().getPeriodMillis().length;
+        ByteBuffer buffer = ByteBuffer.allocate(64 + 3 * moveCount + clockSize);
+        buffer.putInt(MAGIC);
+
+        // Position: Only occupied squares are stored
+        PositionSnapshot position = game.getSnapshot();
+        long occupied = position.getOccupancy();
+        buffer.putLong(occupied);
+        int nibble = -1;
+        while (occupied != 0) {
+            int square = Long.numberOfTrailingZeros(occupied);
+            occupied &= occupied - 1;
+            int piece = position.getPiece(square);
+            if (nibble < 0) {
+                nibble = piece;
+            } else {
+                buffer.put((byte) (nibble << 4 | piece));
+                nibble = -1;
+            }
+        }
+        if (nibble >= 0) {
+            buffer.put((byte) (nibble << 4));
+        }
+        buffer.put((byte) position.getSideToMove());
+        buffer.put((byte) position.getCastlingRights());
+        buffer.put((byte) position.getEnPassantSquare());
+        putVarLong(buffer, position.getFullmoveNumber());
+
+        // History
+        putVarLong(buffer, moveCount);
+        putVarLong(buffer, game.getPly());
+        for (int i = 0; i < moveCount; i++) {
+            MoveRecord record = game.getMoveRecord(i);
+            Tile source = record.getSource();
+            Tile target = record.getTarget();
+            buffer.putShort((short) ((source.getRow() * 8 + source.getCol()) << 6
+                    | target.getRow() * 8 + target.getCol()));
+            buffer.put((byte) record.getOutcome());
+        }
+
+        // Clock
+        if (clock == null) {
+            buffer.put((byte) 0);
+        } else {
+            buffer.put((byte) 1);
+            TimeControl timeControl = clock.getTimeControl();
+            long[] periodMillis = timeControl.getPeriodMillis();
+            int[] periodMoves = timeControl.getPeriodMoves();
+            putVarLong(buffer, periodMillis.length);
+            for (int i = 0; i < periodMillis.length; i++) {
+                putVarLong(buffer, periodMillis[i]);
+                if (i < periodMoves.length) {
+                    putVarLong(buffer, periodMoves[i]);
+                }
+            }
+            putVarLong(buffer, timeControl.getIncrementMillis());
+            putVarLong(buffer, timeControl.getDelayMillis());
+            for (ChessColor color : ChessColor.values()) {
+                putVarLong(buffer, clock.getRemainingNanos(color));
+                putVarLong(buffer, clock.getMovesMade(color));
+            }
+            ChessColor running = clock.getRunningColor();
+            ChessColor expired = clock.getExpiredColor();
+            buffer.put((byte) (running == null ? -1 : running.ordinal()));
+            buffer.put((byte) (expired == null ? -1 : expired.ordinal()));
+        }
+
+        CRC32C checksum = new CRC32C();
+        checksum.update(buffer.array(), 0, buffer.position());
+        buffer.putInt((int) checksum.getValue());
+        byte[] data = new byte[buffer.position()];
+        System.arraycopy(buffer.array(), 0, data, 0, data.length);
+        return data;
+    }
+
+    /**
+     * Restores a Game from a snapshot. The Game shows the same ply as when the snapshot was taken, and a clock is
+     * continued with the remaining times of the snapshot: The time between taking and restoring the snapshot is not
+     * counted.
+     *
+     * @param data     the snapshot created by {@link #write(Game)}
+     * @param board    an empty Board for the Game
+     * @param executor runs the handling of a time loss on the thread of the Game (see
+     *                 {@link Game#setClock(ChessClock, Executor)})
+     * @return the restored Game
+     * @throws IllegalArgumentException if the data is not a valid snapshot
+     */
+    public static Game read(byte[] data, Board board, Executor executor) {
+        if (data == null || board == null || executor == null) {
+            throw new NullPointerException("Arguments for the read() method must not be null.");
+        }
+        CRC32C checksum = new CRC32C();
+        checksum.update(data, 0, Math.max(0, data.length - 4));
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        try {
+            if (data.length < 8 || buffer.getInt() != MAGIC
+                    || buffer.getInt(data.length - 4) != (int) checksum.getValue()) {
+                throw new IllegalArgumentException("Error: The data is not a valid game snapshot.");
+            }
+
+            Position position = new Position();
+            long occupied = buffer.getLong();
+            int pieces = 0;
+            while (occupied != 0) {
+                int square = Long.numberOfTrailingZeros(occupied);
+                occupied &= occupied - 1;
+                int piece = pieces % 2 == 0 ? (buffer.get(buffer.position()) >> 4) & 15 : buffer.get() & 15;
+                position.setPiece(square, piece);
+                pieces++;
+            }
+            if (pieces % 2 == 1) {
+                buffer.get();
+            }
+            position.setSideToMove(buffer.get());
+            position.setCastlingRights(buffer.get());
+            position.setEnPassantSquare(buffer.get());
+            position.setFullmoveNumber((int) getVarLong(buffer));
+
+            int moveCount = (int) getVarLong(buffer);
+            int ply = (int) getVarLong(buffer);
+            int[] sources = new int[moveCount];
+            int[] targets = new int[moveCount];
+            int[] outcomes = new int[moveCount];
+            for (int i = 0; i < moveCount; i++) {
+                int move = buffer.getShort() & 0xFFF;
+                sources[i] = move >>> 6;
+                targets[i] = move & 63;
+                outcomes[i] = buffer.get() & 0xFF;
+            }
+
+            ChessClock clock = null;
+            ChessColor running = null;
+            if (buffer.get() != 0) {
+                long[] periodMillis = new long[(int) getVarLong(buffer)];
+                int[] periodMoves = new int[Math.max(0, periodMillis.length - 1)];
+                for (int i = 0; i < periodMillis.length; i++) {
+                    periodMillis[i] = getVarLong(buffer);
+                    if (i < periodMoves.length) {
+                        periodMoves[i] = (int) getVarLong(buffer);
+                    }
+                }
+                long incrementMillis = getVarLong(buffer);
+                long delayMillis = getVarLong(buffer);
+                clock = new ChessClock(TimeControl.create(periodMillis, periodMoves, incrementMillis, delayMillis));
+                long remainingWhite = getVarLong(buffer);
+                int movesWhite = (int) getVarLong(buffer);
+                long remainingBlack = getVarLong(buffer);
+                int movesBlack = (int) getVarLong(buffer);
+                running = toColor(buffer.get());
+                clock.restore(remainingWhite, remainingBlack, movesWhite, movesBlack, toColor(buffer.get()));
+            }
+
+            Game game = new Game(board);
+            game.restoreHistory(sources, targets, outcomes, moveCount);
+            if (ply != moveCount && !game.jumpTo(ply)) {
+                throw new IllegalArgumentException("Error: The ply of the game snapshot is out of range.");
+            }
+            if (!game.getSnapshot().equals(PositionSnapshot.of(position))) {
+                throw new IllegalArgumentException("Error: The moves of the game snapshot do not lead to its "
+                        + "position.");
+            }
+            if (clock != null) {
+                game.setClock(clock, executor);
+                if (running == null) {
+                    clock.stop(); // The clock had been stopped, e.g. because the game has ended
+                }
+            }
+            return game;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Error: The game snapshot is incomplete.", e);
+        }
+    }
+
+    private static ChessColor toColor(byte ordinal) {
+        return ordinal < 0 ? null : ChessColor.values()[ordinal];
+    }
+
+    /**
+     * Writes a non-negative number with 7 bits per byte. The highest bit of a byte is set if more bytes follow.
+     *
+     * @param buffer the buffer
+     * @param value  the number
+     */
+    static void putVarLong(ByteBuffer buffer, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    /**
+     * Reads a number written by {@link #putVarLong(ByteBuffer, long)}.
+     *
+     * @param buffer the buffer
+     * @return the number
+     */
+    static long getVarLong(ByteBuffer buffer) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+}
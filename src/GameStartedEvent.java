@@ -0,0 +1,20 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Java Flight Recorder event that is emitted when a {@link Game} is created. Together with the
+ * {@link GameEndedEvent} it marks the lifecycle of a Game in a recording.
+ */
+@Name("chess.GameStarted")
+@Label("Game Started")
+@Category({"Chess", "Game"})
+@Description("A new game has been created")
+@StackTrace(false)
+public class GameStartedEvent extends jdk.jfr.Event {
+
+    @Label("Game Id")
+    long gameId;
+}
@@ -1,10 +1,16 @@
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
+import javax.swing.event.ListSelectionEvent;
+import javax.swing.event.ListSelectionListener;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.List;
 import java.util.Observable;
 import java.util.Observer;
+import java.util.concurrent.Executor;
 
 /**
  * This GUI class acts as the graphical representation of the chess game. It consists of a Window at the center of the
@@ -12,16 +18,43 @@ import java.util.Observer;
  * information and a reset button. The {@link Tile}s of the Board serve as the input sources of the chess match. The
  * events generated by clicking on them is forwarded to a {@link Game} object, which transforms it into moves for the
  * {@link ChessPiece}s located on the {@link Board}.
+ * <p>
+ * Optionally, the current position is analysed by an {@link AnalysisWorker} in the background. Its results are polled
+ * at a fixed rate and displayed by an {@link EvaluationBar} in the side panel.
+ * <p>
+ * With the system property 'chess.journal' set to a file, all moves are written to a {@link GameJournal}. If the
+ * application has not been closed properly, the last running game is restored from the journal on start.
  */
 public class Gui implements Observer {
 
-    private final JTextArea gameLog;
+    private final DefaultListModel<String> gameLog;
+    private final JList<String> moveList;
     private final JLabel activeColorLabel;
     private final ImageIcon whiteIcon;
     private final ImageIcon blackIcon;
     private Game game;
     private Board board;
     private final JPanel contentContainer;
+    private final EvaluationBar evaluationBar;
+    private final Timer analysisTimer;
+    private AnalysisWorker analysisWorker;
+    private AnalysisInfo displayedAnalysis;
+    private GameJournal journal;
+
+    /**
+     * Number of times per second the EvaluationBar is refreshed while the analysis is running.
+     */
+    private static final int ANALYSIS_UPDATES_PER_SECOND = 10;
+
+    /**
+     * Runs the handling of time losses on the event dispatch thread, which also handles the clicks on the Tiles.
+     */
+    private static final Executor EVENT_DISPATCH_EXECUTOR = new Executor() {
+        @Override
+        public void execute(Runnable task) {
+            SwingUtilities.invokeLater(task);
+        }
+    };
 
     public static void main(String[] args) {
         Gui gui = new Gui();
@@ -56,10 +89,41 @@ public class Gui implements Observer {
         activeColorLabel.setHorizontalTextPosition(JLabel.RIGHT);
         activeColorLabel.setPreferredSize(new Dimension(150, 50));
 
-        // Game Log
-        gameLog = new JTextArea(10, 8);
-        gameLog.setEditable(false);
-        JScrollPane scrollPane = new JScrollPane(gameLog);
+        // Game Log: one entry per move. Clicking an entry restores the game state after this move.
+        gameLog = new DefaultListModel<>();
+        moveList = new JList<>(gameLog);
+        moveList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        moveList.setVisibleRowCount(10);
+        moveList.addListSelectionListener(new ListSelectionListener() {
+            @Override
+            public void valueChanged(ListSelectionEvent e) {
+                int index = moveList.getSelectedIndex();
+                if (!e.getValueIsAdjusting() && index >= 0 && index + 1 != game.getPly()) {
+                    game.jumpTo(index + 1);
+                }
+            }
+        });
+        JScrollPane scrollPane = new JScrollPane(moveList);
+        scrollPane.setPreferredSize(new Dimension(150, 180));
+
+        // Buttons to take back and repeat moves
+        JButton undoBtn = new JButton("Undo");
+        undoBtn.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                game.undo();
+            }
+        });
+        JButton redoBtn = new JButton("Redo");
+        redoBtn.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                game.redo();
+            }
+        });
+        JPanel historyPanel = new JPanel(new GridLayout(1, 2));
+        historyPanel.add(undoBtn);
+        historyPanel.add(redoBtn);
 
         // Button to reset the board, game and gui
         JButton restartBtn = new JButton("Restart");
@@ -70,13 +134,51 @@ public class Gui implements Observer {
             }
         });
 
+        // Optional background analysis of the current position
+        evaluationBar = new EvaluationBar(150);
+        evaluationBar.setVisible(false);
+        JCheckBox analysisBox = new JCheckBox("Analysis");
+        analysisBox.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                setAnalysisEnabled(analysisBox.isSelected());
+            }
+        });
+
+        // Polls the analysis results at a fixed rate, so the Gui is never flooded with updates
+        analysisTimer = new Timer(1000 / ANALYSIS_UPDATES_PER_SECOND, new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                AnalysisInfo info = analysisWorker.getLatestInfo();
+                if (info != displayedAnalysis) {
+                    displayedAnalysis = info;
+                    evaluationBar.setAnalysis(info);
+                }
+            }
+        });
+
         sidePanel.add(activeColorLabel);
         sidePanel.add(scrollPane, BorderLayout.CENTER);
+        sidePanel.add(historyPanel);
+        sidePanel.add(analysisBox);
+        sidePanel.add(evaluationBar);
         sidePanel.add(restartBtn);
 
-        // Initialize the board and game
+        // Initialize the board and game, either a new one or the last one that was running before a crash
+        openJournal();
         board = new Board(45);
-        game = new Game(board);
+        List<GameJournal.RecoveredGame> recoveredGames = journal != null ? journal.getRecoveredGames() : null;
+        if (recoveredGames != null && !recoveredGames.isEmpty()) {
+            game = journal.restore(recoveredGames.get(recoveredGames.size() - 1), board, EVENT_DISPATCH_EXECUTOR);
+            for (int i = 0; i < game.getHistorySize(); i++) {
+                gameLog.addElement(game.getLogEntry(i));
+            }
+            selectLogEntry(game.getPly());
+            setActiveColor(game.getPly() % 2 == 0 ? ChessColor.WHITE : ChessColor.BLACK);
+        } else {
+            game = new Game(board);
+            game.setJournal(journal);
+        }
         game.addObserver(this);
         contentContainer.add(board);
         contentContainer.add(sidePanel);
@@ -90,18 +192,96 @@ public class Gui implements Observer {
 
     }
 
+    /**
+     * Opens the {@link GameJournal} given by the system property 'chess.journal', if it is set. The journal is closed
+     * when the application exits, so no moves are lost.
+     */
+    private void openJournal() {
+        String file = System.getProperty("chess.journal");
+        if (file == null) {
+            return;
+        }
+        try {
+            journal = new GameJournal(Paths.get(file));
+        } catch (IOException e) {
+            System.err.println("Error: The journal could not be opened: " + e.getMessage());
+            return;
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    journal.close();
+                } catch (IOException e) {
+                    System.err.println("Error: The journal could not be closed: " + e.getMessage());
+                }
+            }
+        }));
+    }
+
     /**
      * Resets the {@link Game}, {@link Board} and log data to their initial state.
      */
     private void restartGame() {
         contentContainer.remove(board);
+        game.setJournal(null); // The old game is not continued
         board = new Board(45);
         game = new Game(board);
+        game.setJournal(journal);
         game.addObserver(this);
-        gameLog.setText("");
+        gameLog.clear();
         setActiveColor(ChessColor.WHITE);
         contentContainer.add(board, 0);
         contentContainer.revalidate();
+        restartAnalysis();
+    }
+
+    /**
+     * Starts or stops the background analysis of the current position. While the analysis is running, its results
+     * are displayed by the {@link EvaluationBar} in the side panel.
+     *
+     * @param enabled whether the analysis should be running
+     */
+    private void setAnalysisEnabled(boolean enabled) {
+        if (enabled) {
+            if (analysisWorker == null) {
+                analysisWorker = new AnalysisWorker();
+            }
+            evaluationBar.setVisible(true);
+            analysisTimer.start();
+            restartAnalysis();
+        } else if (analysisWorker != null) {
+            analysisTimer.stop();
+            analysisWorker.cancel();
+            displayedAnalysis = null;
+            evaluationBar.setAnalysis(null);
+            evaluationBar.setVisible(false);
+        }
+    }
+
+    /**
+     * Hands the current position of the {@link Game} to the background analysis, if it is running. A previously
+     * running analysis is cancelled.
+     */
+    private void restartAnalysis() {
+        if (analysisTimer.isRunning()) {
+            analysisWorker.analyze(game.createPosition());
+        }
+    }
+
+    /**
+     * Highlights the entry of the game log that corresponds to the given number of half moves. Entries after this one
+     * belong to moves that have been taken back.
+     *
+     * @param ply the number of half moves from the start of the game
+     */
+    private void selectLogEntry(int ply) {
+        if (ply == 0) {
+            moveList.clearSelection();
+        } else {
+            moveList.setSelectedIndex(ply - 1);
+            moveList.ensureIndexIsVisible(ply - 1);
+        }
     }
 
     /**
@@ -122,19 +302,28 @@ public class Gui implements Observer {
 
     /**
      * Updates the gui with new information from the corresponding {@link Game}. The Game notifies observing gui's every
-     * time a move has ended. The included data is either a String with move information (e.g. "WHITE is checkmate") or
-     * the {@link ChessColor} of the now active {@link Player}. This information is used to update the game log or the
-     * panel that displays the active Color.
+     * time a move has ended or moves have been taken back or repeated. The included data is either a String with move
+     * information (e.g. "#3: WHITE Queen D1 > H5 BLACK is checked."), the number of half moves (Integer) the Game has
+     * jumped to or the {@link ChessColor} of the now active {@link Player}. This information is used to update the
+     * game log or the panel that displays the active Color.
      *
      * @param o the observed Game
-     * @param arg either a log entry (String) or the color of an active player (ChessColor)
+     * @param arg either a log entry (String), the current ply (Integer) or the color of an active player (ChessColor)
      */
     @Override
     public void update(Observable o, Object arg) {
         if (arg instanceof String) {
-            gameLog.append(arg + "\n");
+            // A new move discards all moves that have been taken back before
+            while (gameLog.size() >= game.getPly()) {
+                gameLog.remove(gameLog.size() - 1);
+            }
+            gameLog.addElement((String) arg);
+            selectLogEntry(game.getPly());
+        } else if (arg instanceof Integer) {
+            selectLogEntry((Integer) arg);
         } else if (arg instanceof ChessColor){
             setActiveColor((ChessColor) arg);
+            restartAnalysis();
         }
     }
 }
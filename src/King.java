@@ -4,7 +4,8 @@ import javax.swing.*;
  * Representation of a king chess piece. A king can move one {@link Tile} in any direction. If it has not moved before,
  * a king can cooperate with a rook to carry out a castling move. It has to be the first move for both pieces and no
  * other pieces can be positioned between them. Then, the king and rook move towards each other and the king leaps over
- * the rook. A castling move can not be carried out, while the king is checked.
+ * the rook. A castling move can not be carried out, while the king is checked, and the king must not pass or end on
+ * a Tile that is attacked by the opponent.
  *
  * Whenever, a players king is checked, it has to break the check. This can be done in multiple ways, e.g. by moving out
  * of the attackers range, capturing the attacker or moving another piece between attacker and king. If the check can
@@ -43,21 +44,10 @@ public class King extends ChessPiece {
      */
     @Override
     public boolean isValidMove(Tile target, Board board) {
-        // King can move one tile into every direction -> 8 possible targets:
-
-        int currentCol = this.getTile().getCol();
-        int currentRow = this.getTile().getRow();
-        int targetCol = target.getCol();
-        int targetRow = target.getRow();
-
-        return (currentRow + 1 == targetRow && currentCol == targetCol) ||
-                (currentRow + 1 == targetRow && currentCol + 1 == targetCol) ||
-                (currentRow + 1 == targetRow && currentCol - 1 == targetCol) ||
-                (currentRow - 1 == targetRow && currentCol == targetCol) ||
-                (currentRow - 1 == targetRow && currentCol + 1 == targetCol) ||
-                (currentRow - 1 == targetRow && currentCol - 1 == targetCol) ||
-                (currentRow == targetRow && currentCol + 1 == targetCol) ||
-                (currentRow == targetRow && currentCol - 1 == targetCol);
+        // King can move one tile into every direction -> 8 possible targets, precomputed for every square
+        Tile current = this.getTile();
+        long targets = AttackTables.kingAttacks(current.getRow() * 8 + current.getCol());
+        return (targets & 1L << (target.getRow() * 8 + target.getCol())) != 0;
     }
 
     /**
@@ -71,13 +61,36 @@ public class King extends ChessPiece {
     }
 
     /**
-     * Checks if the move is a valid castling move, from the viewpoint of the King.
+     * Returns the type of the chess piece as defined by {@link Position}. In this case {@link Position#KING}.
+     *
+     * @return the type of the chess piece
+     */
+    @Override
+    public int getType() {
+        return Position.KING;
+    }
+
+    /**
+     * Checks if the move is a valid castling move. Both the King and the Rook must not have moved, the Tiles between
+     * them have to be empty and the King must neither be checked nor pass or reach a Tile that is attacked by a
+     * ChessPiece of the opponent.
      *
      * @param target the targeted Tile
      * @param board the board containing the target and the current Tile of this chess piece
      * @return true if the move is a valid castling move, else false
      */
     public boolean isValidCastlingMove(Tile target, Board board) {
+        return isCastlingPathFree(target, board) && !isCastlingPathAttacked(target, board);
+    }
+
+    /**
+     * Tests if the King and the Rook of a castling move have not moved yet and if the Tiles between them are empty.
+     *
+     * @param target the targeted Tile
+     * @param board the board containing the target and the current Tile of this chess piece
+     * @return true if the pieces are in place for castling
+     */
+    private boolean isCastlingPathFree(Tile target, Board board) {
         int targetCol = target.getCol();
         int targetRow = target.getRow();
 
@@ -121,6 +134,23 @@ public class King extends ChessPiece {
         return false;
     }
 
+    /**
+     * Tests if the opponent attacks the Tile of the King, the Tile the King passes or the targeted Tile of a castling
+     * move. The Tile next to the Rook in a long castling move may be attacked, since the King does not pass it.
+     *
+     * @param target the targeted Tile, which is two Tiles away from the King in the same row
+     * @param board the board containing the target and the current Tile of this chess piece
+     * @return true if the King would castle out of, through or into check
+     */
+    private boolean isCastlingPathAttacked(Tile target, Board board) {
+        ChessColor opponent = getColor() == ChessColor.WHITE ? ChessColor.BLACK : ChessColor.WHITE;
+        int kingSquare = this.tile.getRow() * 8 + this.tile.getCol();
+        int targetSquare = target.getRow() * 8 + target.getCol();
+        int passedSquare = (kingSquare + targetSquare) / 2;
+        return board.isSquareAttacked(kingSquare, opponent) || board.isSquareAttacked(passedSquare, opponent)
+                || board.isSquareAttacked(targetSquare, opponent);
+    }
+
     /**
      * Carries out a castling move. This does NOT check if castling would be valid move in the current situation. Use
      * the isValidCastlingMove() method beforehand to check.
@@ -132,6 +162,7 @@ public class King extends ChessPiece {
         int targetCol = target.getCol();
         int targetRow = target.getRow();
         Rook involvedRook;
+        this.tile.removeChessPiece();
 
         if (targetRow == 0 && targetCol == 2) { // long castle for black
             involvedRook = (Rook) board.getTile(0, 0).getChessPiece();
@@ -164,7 +195,6 @@ public class King extends ChessPiece {
     @Override
     public ChessPiece clone() {
         ChessPiece copy = new King(this.owner);
-        this.owner.removeChessPiece(copy);
         copy.canCastle = this.canCastle;
         copy.icon = this.icon;
 
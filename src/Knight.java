@@ -37,20 +37,10 @@ public class Knight extends ChessPiece{
             throw new NullPointerException("Arguments for the isValidMove method can not be null.");
         }
         // Moves in L Shapes: 8 possible targets: x+1/y+2, x+1/y-2, x+2/y-1, x+2/y+1, x-1/y+2, x-1/y-2, x-2/y-1, x-2/y+1
-
-        int currentCol = this.getTile().getCol();
-        int currentRow = this.getTile().getRow();
-        int targetCol = target.getCol();
-        int targetRow = target.getRow();
-
-        return (currentRow + 1 == targetRow && currentCol + 2 == targetCol) ||
-                (currentRow + 1 == targetRow && currentCol - 2 == targetCol) ||
-                (currentRow - 1 == targetRow && currentCol + 2 == targetCol) ||
-                (currentRow - 1 == targetRow && currentCol - 2 == targetCol) ||
-                (currentRow + 2 == targetRow && currentCol + 1 == targetCol) ||
-                (currentRow + 2 == targetRow && currentCol - 1 == targetCol) ||
-                (currentRow - 2 == targetRow && currentCol + 1 == targetCol) ||
-                (currentRow - 2 == targetRow && currentCol - 1 == targetCol);
+        // The targets of every square are precomputed, so a single lookup answers the question
+        Tile current = this.getTile();
+        long targets = AttackTables.knightAttacks(current.getRow() * 8 + current.getCol());
+        return (targets & 1L << (target.getRow() * 8 + target.getCol())) != 0;
     }
 
     /**
@@ -63,6 +53,16 @@ public class Knight extends ChessPiece{
         return "Knight";
     }
 
+    /**
+     * Returns the type of the chess piece as defined by {@link Position}. In this case {@link Position#KNIGHT}.
+     *
+     * @return the type of the chess piece
+     */
+    @Override
+    public int getType() {
+        return Position.KNIGHT;
+    }
+
     /**
      * Creates a copy of this chess piece.
      *
@@ -71,7 +71,6 @@ public class Knight extends ChessPiece{
     @Override
     public ChessPiece clone() {
         ChessPiece copy = new Knight(this.owner);
-        this.owner.removeChessPiece(copy);
         copy.canCastle = this.canCastle;
         copy.icon = this.icon;
 
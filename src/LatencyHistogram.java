@@ -0,0 +1,186 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of latencies in nanoseconds, which can be recorded from any number of threads without locks. Like an
+ * HdrHistogram, the buckets grow logarithmically: Every power of two is divided into {@link #SUB_BUCKETS} buckets of
+ * equal width, so every recorded value is known with a relative error of at most about 6%, from single nanoseconds up
+ * to hours. Recording a value costs one bit scan and two atomic additions.
+ * <p>
+ * The statistics are read without stopping the recording threads, so they may not include values that are recorded
+ * at the same time.
+ */
+public final class LatencyHistogram {
+
+    /**
+     * Number of buckets per power of two.
+     */
+    public static final int SUB_BUCKETS = 16;
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int BUCKET_COUNT = (63 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final String name;
+    private final AtomicLongArray counts;
+    private final LongAdder total;
+    private final AtomicLong max;
+
+    /**
+     * Creates a new, empty LatencyHistogram.
+     *
+     * @param name the name of the histogram in reports
+     */
+    public LatencyHistogram(String name) {
+        this.name = name;
+        this.counts = new AtomicLongArray(BUCKET_COUNT);
+        this.total = new LongAdder();
+        this.max = new AtomicLong();
+    }
+
+    /**
+     * Records a latency.
+     *
+     * @param nanos the latency in nanoseconds, negative values are recorded as 0
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.getAndIncrement(bucketIndex(value));
+        total.add(value);
+        long currentMax = max.get();
+        while (value > currentMax && !max.compareAndSet(currentMax, value)) {
+            currentMax = max.get();
+        }
+    }
+
+    /**
+     * Records the time that has passed since the given start.
+     *
+     * @param startNanos the start as given by {@link System#nanoTime()}
+     */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Determines the bucket of a value. Values below {@link #SUB_BUCKETS} have their own bucket, larger values are
+     * identified by their highest bit and the {@link #SUB_BUCKET_BITS} bits below it.
+     *
+     * @param value the non-negative value
+     * @return the index of the bucket
+     */
+    private static int bucketIndex(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int highestBit = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (highestBit - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (highestBit - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * Returns the smallest value of a bucket.
+     *
+     * @param index the index of the bucket
+     * @return the smallest value that is recorded in the bucket
+     */
+    private static long bucketStart(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int highestBit = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        return (long) (SUB_BUCKETS + index % SUB_BUCKETS) << (highestBit - SUB_BUCKET_BITS);
+    }
+
+    /**
+     * Returns the name of this histogram.
+     *
+     * @return the name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the number of recorded values.
+     *
+     * @return the number of values
+     */
+    public long getCount() {
+        long count = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            count += counts.get(i);
+        }
+        return count;
+    }
+
+    /**
+     * Returns the mean of the recorded values.
+     *
+     * @return the mean in nanoseconds, 0 if nothing has been recorded
+     */
+    public double getMean() {
+        long count = getCount();
+        return count == 0 ? 0 : (double) total.sum() / count;
+    }
+
+    /**
+     * Returns the largest recorded value.
+     *
+     * @return the maximum in nanoseconds
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Returns the value below which the given percentage of the recorded values lies. The result is the middle of the
+     * bucket that contains the percentile, but never more than the maximum.
+     *
+     * @param percentile the percentage between 0 and 100
+     * @return the percentile in nanoseconds, 0 if nothing has been recorded
+     */
+    public long getPercentile(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("Error: A percentile has to be between 0 and 100.");
+        }
+        long[] snapshot = new long[BUCKET_COUNT];
+        long count = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            snapshot[i] = counts.get(i);
+            count += snapshot[i];
+        }
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                long start = bucketStart(i);
+                long end = i + 1 < BUCKET_COUNT ? bucketStart(i + 1) : Long.MAX_VALUE;
+                return Math.min(start + (end - start - 1) / 2, getMax());
+            }
+        }
+        return getMax();
+    }
+
+    /**
+     * Removes all recorded values.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts.set(i, 0);
+        }
+        total.reset();
+        max.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%-22s %,12d  mean %,10.1f us  p50 %,10.1f us  p99 %,10.1f us  max %,10.1f us", name,
+                getCount(), getMean() / 1000, getPercentile(50) / 1000.0, getPercentile(99) / 1000.0,
+                getMax() / 1000.0);
+    }
+}
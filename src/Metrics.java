@@ -0,0 +1,260 @@
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Counters and {@link LatencyHistogram}s for the hot paths of the rules engine in {@link Game}: input processing,
+ * move validation, check detection, mate and stalemate detection and the dispatch of events to the observers.
+ * <p>
+ * The metrics are disabled by default and enabled with the system property 'chess.metrics=true'. Since
+ * {@link #ENABLED} is a static final field, the JIT compiler removes the instrumentation completely when they are
+ * disabled. Instrumented code follows this pattern:
+ * <pre>
+ *     long start = Metrics.ENABLED ? System.nanoTime() : 0;
+ *     ...
+ *     if (Metrics.ENABLED) {
+ *         Metrics.CHECK_DETECTION.recordSince(start);
+ *     }
+ * </pre>
+ * When enabled, the metrics are published as the MBean 'Chess:type=Metrics' (see {@link MetricsMXBean}). With the
+ * system property 'chess.metrics.interval' set to a number of seconds, a text report is additionally written to the
+ * standard error stream in this interval, so it does not interfere with protocols on the standard output like
+ * {@link Uci}.
+ */
+public final class Metrics {
+
+    /**
+     * Whether the metrics are recorded.
+     */
+    public static final boolean ENABLED = Boolean.getBoolean("chess.metrics");
+
+    private static final List<LatencyHistogram> HISTOGRAMS = new ArrayList<>();
+    private static final Map<String, LongAdder> COUNTERS = new LinkedHashMap<>();
+
+    /**
+     * Time of a complete click on a Tile, including everything below.
+     */
+    public static final LatencyHistogram PROCESS_INPUT = histogram("processInput");
+
+    /**
+     * Time to determine the legal targets of a chosen ChessPiece.
+     */
+    public static final LatencyHistogram MOVE_VALIDATION = histogram("moveValidation");
+
+    /**
+     * Time of a single test whether a Player is checked.
+     */
+    public static final LatencyHistogram CHECK_DETECTION = histogram("checkDetection");
+
+    /**
+     * Time to test whether a move leaves the own King checked, including the copy of the Board.
+     */
+    public static final LatencyHistogram KING_EXPOSURE = histogram("kingExposure");
+
+    /**
+     * Time of a checkmate or stalemate test.
+     */
+    public static final LatencyHistogram MATE_DETECTION = histogram("mateDetection");
+
+    /**
+     * Time the observers of a Game need to handle an event.
+     */
+    public static final LatencyHistogram EVENT_DISPATCH = histogram("eventDispatch");
+
+    /**
+     * Time of a write of the {@link GameJournal}, including forcing it to the disk.
+     */
+    public static final LatencyHistogram JOURNAL_SYNC = histogram("journalSync");
+
+    /**
+     * Number of clicks on Tiles.
+     */
+    public static final LongAdder INPUTS = counter("inputs");
+
+    /**
+     * Number of moves that have been carried out.
+     */
+    public static final LongAdder MOVES = counter("moves");
+
+    /**
+     * Number of clicks that did not choose a ChessPiece of the active Player or a legal target.
+     */
+    public static final LongAdder REJECTED_INPUTS = counter("rejectedInputs");
+
+    /**
+     * Number of legal target lookups that were answered by the cache of the Game.
+     */
+    public static final LongAdder TARGET_CACHE_HITS = counter("targetCacheHits");
+
+    /**
+     * Number of legal target lookups that had to be computed.
+     */
+    public static final LongAdder TARGET_CACHE_MISSES = counter("targetCacheMisses");
+
+    /**
+     * Number of records appended to a GameJournal.
+     */
+    public static final LongAdder JOURNAL_RECORDS = counter("journalRecords");
+
+    static {
+        if (ENABLED) {
+            registerMBean();
+            long interval = Long.getLong("chess.metrics.interval", 0);
+            if (interval > 0) {
+                startReporter(interval);
+            }
+        }
+    }
+
+    private Metrics() {
+    }
+
+    private static LatencyHistogram histogram(String name) {
+        LatencyHistogram histogram = new LatencyHistogram(name);
+        HISTOGRAMS.add(histogram);
+        return histogram;
+    }
+
+    private static LongAdder counter(String name) {
+        LongAdder counter = new LongAdder();
+        COUNTERS.put(name, counter);
+        return counter;
+    }
+
+    /**
+     * Returns all histograms.
+     *
+     * @return an unmodifiable list of the histograms
+     */
+    public static List<LatencyHistogram> getHistograms() {
+        return Collections.unmodifiableList(HISTOGRAMS);
+    }
+
+    /**
+     * Returns the current values of all counters.
+     *
+     * @return the counters mapped by name
+     */
+    public static Map<String, Long> getCounters() {
+        Map<String, Long> values = new LinkedHashMap<>();
+        for (Map.Entry<String, LongAdder> counter : COUNTERS.entrySet()) {
+            values.put(counter.getKey(), counter.getValue().sum());
+        }
+        return values;
+    }
+
+    /**
+     * Creates a text report of all counters and histograms.
+     *
+     * @return the report, one line per counter or histogram
+     */
+    public static String getReport() {
+        StringBuilder report = new StringBuilder();
+        for (Map.Entry<String, Long> counter : getCounters().entrySet()) {
+            report.append(String.format("%-22s %,12d%n", counter.getKey(), counter.getValue()));
+        }
+        for (LatencyHistogram histogram : HISTOGRAMS) {
+            report.append(histogram).append(System.lineSeparator());
+        }
+        return report.toString();
+    }
+
+    /**
+     * Resets all counters and histograms.
+     */
+    public static void reset() {
+        for (LongAdder counter : COUNTERS.values()) {
+            counter.reset();
+        }
+        for (LatencyHistogram histogram : HISTOGRAMS) {
+            histogram.reset();
+        }
+    }
+
+    private static void registerMBean() {
+        MetricsMXBean bean = new MetricsMXBean() {
+            @Override
+            public Map<String, Long> getCounters() {
+                return Metrics.getCounters();
+            }
+
+            @Override
+            public Map<String, Long> getLatencyCounts() {
+                Map<String, Long> values = new LinkedHashMap<>();
+                for (LatencyHistogram histogram : HISTOGRAMS) {
+                    values.put(histogram.getName(), histogram.getCount());
+                }
+                return values;
+            }
+
+            @Override
+            public Map<String, Double> getMeanLatencies() {
+                Map<String, Double> values = new LinkedHashMap<>();
+                for (LatencyHistogram histogram : HISTOGRAMS) {
+                    values.put(histogram.getName(), histogram.getMean() / 1000);
+                }
+                return values;
+            }
+
+            @Override
+            public Map<String, Double> getP99Latencies() {
+                Map<String, Double> values = new LinkedHashMap<>();
+                for (LatencyHistogram histogram : HISTOGRAMS) {
+                    values.put(histogram.getName(), histogram.getPercentile(99) / 1000.0);
+                }
+                return values;
+            }
+
+            @Override
+            public Map<String, Double> getMaxLatencies() {
+                Map<String, Double> values = new LinkedHashMap<>();
+                for (LatencyHistogram histogram : HISTOGRAMS) {
+                    values.put(histogram.getName(), histogram.getMax() / 1000.0);
+                }
+                return values;
+            }
+
+            @Override
+            public String getReport() {
+                return Metrics.getReport();
+            }
+
+            @Override
+            public void reset() {
+                Metrics.reset();
+            }
+        };
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(bean, new ObjectName("Chess:type=Metrics"));
+        } catch (JMException e) {
+            throw new IllegalStateException("Error: The metrics could not be registered.", e);
+        }
+    }
+
+    private static void startReporter(long intervalSeconds) {
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "Metrics report");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        executor.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                System.err.print(getReport());
+            }
+        }, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,55 @@
+import java.util.Map;
+
+/**
+ * Management interface of the {@link Metrics}, which is registered at the platform MBean server as
+ * 'Chess:type=Metrics' when the metrics are enabled. All latencies are given in microseconds.
+ */
+public interface MetricsMXBean {
+
+    /**
+     * Returns the current values of all counters.
+     *
+     * @return the counters mapped by name
+     */
+    Map<String, Long> getCounters();
+
+    /**
+     * Returns the number of recorded values of every histogram.
+     *
+     * @return the counts mapped by histogram name
+     */
+    Map<String, Long> getLatencyCounts();
+
+    /**
+     * Returns the mean latency of every histogram.
+     *
+     * @return the means in microseconds mapped by histogram name
+     */
+    Map<String, Double> getMeanLatencies();
+
+    /**
+     * Returns the 99th percentile of every histogram.
+     *
+     * @return the percentiles in microseconds mapped by histogram name
+     */
+    Map<String, Double> getP99Latencies();
+
+    /**
+     * Returns the largest recorded latency of every histogram.
+     *
+     * @return the maxima in microseconds mapped by histogram name
+     */
+    Map<String, Double> getMaxLatencies();
+
+    /**
+     * Returns a text report of all counters and histograms.
+     *
+     * @return the report
+     */
+    String getReport();
+
+    /**
+     * Resets all counters and histograms.
+     */
+    void reset();
+}
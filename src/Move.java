@@ -0,0 +1,168 @@
+/**
+ * Utility class to encode and decode moves of a {@link Position} as primitive integers. Encoding moves this way avoids
+ * creating objects while searching through thousands of positions per second.
+ * <p>
+ * Squares are numbered from 0 to 63 in the same order as the {@link Tile}s of a {@link Board}: Square 0 is the upper
+ * left corner (A8) and square 63 the bottom right corner (H1). The square index of a Tile is therefore row * 8 + col.
+ * <p>
+ * Bits 0-5 of a move hold the source square, bits 6-11 the target square, bits 12-14 the type of the ChessPiece a
+ * {@link Pawn} is promoted to (or 0) and bits 15-17 hold flags for special moves.
+ */
+public final class Move {
+
+    /**
+     * Placeholder for 'no move'. No legal move starts and ends on the same square.
+     */
+    public static final int NONE = 0;
+
+    /**
+     * Flag for a castling move. The source and target squares belong to the King.
+     */
+    public static final int CASTLING = 1 << 15;
+
+    /**
+     * Flag for an en passant capture.
+     */
+    public static final int EN_PASSANT = 1 << 16;
+
+    /**
+     * Flag for the two-tile forward move of a Pawn from its starting row.
+     */
+    public static final int DOUBLE_PUSH = 1 << 17;
+
+    private static final String PROMOTION_NAMES = " pnbrqk";
+
+    private Move() {
+    }
+
+    /**
+     * Creates a normal move from the given source square to the given target square.
+     *
+     * @param from the source square
+     * @param to   the target square
+     * @return the encoded move
+     */
+    public static int create(int from, int to) {
+        return from | (to << 6);
+    }
+
+    /**
+     * Creates a move from the given source square to the given target square, with the given promotion piece type
+     * and flags.
+     *
+     * @param from      the source square
+     * @param to        the target square
+     * @param promotion the piece type a Pawn is promoted to or 0
+     * @param flags     a combination of {@link #CASTLING}, {@link #EN_PASSANT} and {@link #DOUBLE_PUSH} or 0
+     * @return the encoded move
+     */
+    public static int create(int from, int to, int promotion, int flags) {
+        return from | (to << 6) | (promotion << 12) | flags;
+    }
+
+    /**
+     * Returns the source square of the given move.
+     *
+     * @param move the encoded move
+     * @return the source square
+     */
+    public static int from(int move) {
+        return move & 63;
+    }
+
+    /**
+     * Returns the target square of the given move.
+     *
+     * @param move the encoded move
+     * @return the target square
+     */
+    public static int to(int move) {
+        return (move >>> 6) & 63;
+    }
+
+    /**
+     * Returns the piece type a Pawn is promoted to by the given move.
+     *
+     * @param move the encoded move
+     * @return the promotion piece type or 0, if the move is not a promotion
+     */
+    public static int promotion(int move) {
+        return (move >>> 12) & 7;
+    }
+
+    /**
+     * Returns whether the given move is a castling move.
+     *
+     * @param move the encoded move
+     * @return true if the move is a castling move
+     */
+    public static boolean isCastling(int move) {
+        return (move & CASTLING) != 0;
+    }
+
+    /**
+     * Returns whether the given move is an en passant capture.
+     *
+     * @param move the encoded move
+     * @return true if the move is an en passant capture
+     */
+    public static boolean isEnPassant(int move) {
+        return (move & EN_PASSANT) != 0;
+    }
+
+    /**
+     * Returns whether the given move is the two-tile forward move of a Pawn.
+     *
+     * @param move the encoded move
+     * @return true if the move is a double push
+     */
+    public static boolean isDoublePush(int move) {
+        return (move & DOUBLE_PUSH) != 0;
+    }
+
+    /**
+     * Returns the name of a square, e.g. 'e4'. In contrast to {@link Tile#getName()} the lower case notation of the
+     * UCI protocol is used.
+     *
+     * @param square the square index between 0 and 63
+     * @return the name of the square
+     */
+    public static String squareName(int square) {
+        return "" + (char) ('a' + (square & 7)) + (char) ('8' - (square >>> 3));
+    }
+
+    /**
+     * Returns the square index for a square name like 'e4'.
+     *
+     * @param name the name of the square
+     * @return the square index between 0 and 63
+     */
+    public static int parseSquare(String name) {
+        if (name.length() != 2) {
+            throw new IllegalArgumentException("Error: '" + name + "' is not a valid square.");
+        }
+        int col = name.charAt(0) - 'a';
+        int row = '8' - name.charAt(1);
+        if (col < 0 || col > 7 || row < 0 || row > 7) {
+            throw new IllegalArgumentException("Error: '" + name + "' is not a valid square.");
+        }
+        return row * 8 + col;
+    }
+
+    /**
+     * Returns the move in long algebraic notation, e.g. 'e2e4' or 'e7e8q'.
+     *
+     * @param move the encoded move
+     * @return the move as a String
+     */
+    public static String toString(int move) {
+        if (move == NONE) {
+            return "0000";
+        }
+        String name = squareName(from(move)) + squareName(to(move));
+        if (promotion(move) != 0) {
+            name += PROMOTION_NAMES.charAt(promotion(move));
+        }
+        return name;
+    }
+}
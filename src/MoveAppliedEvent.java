@@ -0,0 +1,34 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Java Flight Recorder event for a move that has been carried out in a {@link Game}. The duration covers the move
+ * itself and the detection of check, checkmate and remis afterwards. By default only moves that take longer than the
+ * threshold are recorded.
+ */
+@Name("chess.MoveApplied")
+@Label("Move Applied")
+@Category({"Chess", "Game"})
+@Description("A move has been carried out, including the check, checkmate and remis detection")
+@Threshold("20 ms")
+@StackTrace(false)
+public class MoveAppliedEvent extends jdk.jfr.Event {
+
+    @Label("Game Id")
+    long gameId;
+
+    @Label("Ply")
+    @Description("The number of half moves after the move")
+    int ply;
+
+    @Label("Piece")
+    String piece;
+
+    @Label("Move")
+    @Description("The source and the target Tile, e.g. 'E2-E4'")
+    String move;
+}
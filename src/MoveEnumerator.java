@@ -0,0 +1,266 @@
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Headless enumeration of the legal moves of many positions at once, e.g. for analytics jobs that process millions of
+ * positions. The positions are given as FEN descriptions or as {@link PositionSnapshot}s and are split into chunks of
+ * {@link #CHUNK_SIZE} positions, which are processed in parallel by a fixed pool of threads.
+ * <p>
+ * Every thread keeps its own scratch state: one {@link Position} that is overwritten with every input position (see
+ * {@link Position#loadFen(String)} and {@link PositionSnapshot#copyTo(Position)}), a move list and a buffer for the
+ * moves of its current chunk. Nothing is allocated per position besides what parsing a FEN needs, so the throughput
+ * scales with the number of cores.
+ * <p>
+ * The legal moves of all positions are returned packed into a single int array (see {@link Result}), encoded as
+ * defined by {@link Move} and in the order of {@link Position#generateLegalMoves(int[])}.
+ */
+public final class MoveEnumerator implements Closeable {
+
+    /**
+     * Number of positions processed by one task.
+     */
+    public static final int CHUNK_SIZE = 256;
+
+    private final ExecutorService executor;
+    private final ThreadLocal<Scratch> scratch;
+
+    /**
+     * Creates a new MoveEnumerator.
+     *
+     * @param threads the number of threads that process positions in parallel
+     */
+    public MoveEnumerator(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Error: The number of threads has to be positive.");
+        }
+        this.executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "Move enumeration");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        this.scratch = new ThreadLocal<Scratch>() {
+            @Override
+            protected Scratch initialValue() {
+                return new Scratch();
+            }
+        };
+    }
+
+    /**
+     * Enumerates the legal moves of the given positions.
+     *
+     * @param fens the positions in Forsyth-Edwards Notation
+     * @return the legal moves of every position
+     * @throws IllegalArgumentException if a description is not valid
+     */
+    public Result enumerate(final String[] fens) {
+        if (fens == null) {
+            throw new NullPointerException("Arguments for the enumerate() method must not be null.");
+        }
+        return enumerate(fens.length, new PositionSource() {
+            @Override
+            public void load(int index, Position position) {
+                position.loadFen(fens[index]);
+            }
+        });
+    }
+
+    /**
+     * Enumerates the legal moves of the given positions.
+     *
+     * @param positions the positions
+     * @return the legal moves of every position
+     */
+    public Result enumerate(final PositionSnapshot[] positions) {
+        if (positions == null) {
+            throw new NullPointerException("Arguments for the enumerate() method must not be null.");
+        }
+        return enumerate(positions.length, new PositionSource() {
+            @Override
+            public void load(int index, Position position) {
+                positions[index].copyTo(position);
+            }
+        });
+    }
+
+    private Result enumerate(final int count, final PositionSource source) {
+        List<Future<int[]>> chunks = new ArrayList<>();
+        for (int first = 0; first < count; first += CHUNK_SIZE) {
+            final int start = first;
+            final int end = Math.min(count, first + CHUNK_SIZE);
+            chunks.add(executor.submit(new Callable<int[]>() {
+                @Override
+                public int[] call() {
+                    return scratch.get().enumerate(source, start, end);
+                }
+            }));
+        }
+
+        // Every chunk starts with the move counts of its positions, followed by their moves
+        int[] offsets = new int[count + 1];
+        int[][] results = new int[chunks.size()][];
+        try {
+            for (int chunk = 0; chunk < results.length; chunk++) {
+                results[chunk] = chunks.get(chunk).get();
+                int start = chunk * CHUNK_SIZE;
+                int end = Math.min(count, start + CHUNK_SIZE);
+                for (int i = start; i < end; i++) {
+                    offsets[i + 1] = offsets[i] + results[chunk][i - start];
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Error: The move enumeration was interrupted.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Error: The move enumeration failed.", e.getCause());
+        } finally {
+            for (Future<int[]> chunk : chunks) {
+                chunk.cancel(false);
+            }
+        }
+
+        int[] moves = new int[offsets[count]];
+        for (int chunk = 0; chunk < results.length; chunk++) {
+            int start = chunk * CHUNK_SIZE;
+            int size = Math.min(count, start + CHUNK_SIZE) - start;
+            System.arraycopy(results[chunk], size, moves, offsets[start], results[chunk].length - size);
+        }
+        return new Result(offsets, moves);
+    }
+
+    /**
+     * Stops the threads. Enumerations that are still running are completed.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    /**
+     * Loads the input position with the given index into a Position.
+     */
+    private interface PositionSource {
+        void load(int index, Position position);
+    }
+
+    /**
+     * The scratch state of one thread.
+     */
+    private static final class Scratch {
+
+        private final Position position = new Position();
+        private final int[] moves = new int[Position.MAX_MOVES];
+        private int[] buffer = new int[CHUNK_SIZE * 40];
+
+        private int[] enumerate(PositionSource source, int start, int end) {
+            int size = end - start;
+            int length = size;
+            for (int i = start; i < end; i++) {
+                try {
+                    source.load(i, position);
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException("Error: The position " + i + " is not valid.", e);
+                }
+                int count = position.generateLegalMoves(moves);
+                if (buffer.length < length + count) {
+                    buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + count));
+                }
+                buffer[i - start] = count;
+                System.arraycopy(moves, 0, buffer, length, count);
+                length += count;
+            }
+            return Arrays.copyOf(buffer, length);
+        }
+    }
+
+    /**
+     * The legal moves of a batch of positions. The moves of position i are stored in {@link #getMoves()} from index
+     * getOffset(i) up to, but not including, getOffset(i + 1).
+     */
+    public static final class Result {
+
+        private final int[] offsets;
+        private final int[] moves;
+
+        private Result(int[] offsets, int[] moves) {
+            this.offsets = offsets;
+            this.moves = moves;
+        }
+
+        /**
+         * Returns the number of positions.
+         *
+         * @return the number of positions
+         */
+        public int getPositionCount() {
+            return offsets.length - 1;
+        }
+
+        /**
+         * Returns the number of legal moves of all positions together.
+         *
+         * @return the total number of moves
+         */
+        public int getTotalMoveCount() {
+            return moves.length;
+        }
+
+        /**
+         * Returns the number of legal moves of a position. A position without legal moves is a checkmate or a
+         * stalemate.
+         *
+         * @param position the index of the position
+         * @return the number of legal moves
+         */
+        public int getMoveCount(int position) {
+            return offsets[position + 1] - offsets[position];
+        }
+
+        /**
+         * Returns a legal move of a position.
+         *
+         * @param position the index of the position
+         * @param index    the index of the move between 0 and {@link #getMoveCount(int)} - 1
+         * @return the move as encoded by {@link Move}
+         */
+        public int getMove(int position, int index) {
+            if (index < 0 || index >= getMoveCount(position)) {
+                throw new IndexOutOfBoundsException("Error: Position " + position + " has no move " + index);
+            }
+            return moves[offsets[position] + index];
+        }
+
+        /**
+         * Returns the index of the first move of a position in {@link #getMoves()}.
+         *
+         * @param position the index of the position, or the number of positions for the end of the last one
+         * @return the offset of the moves of the position
+         */
+        public int getOffset(int position) {
+            return offsets[position];
+        }
+
+        /**
+         * Returns the packed moves of all positions. The array is not copied and must not be modified.
+         *
+         * @return the moves as encoded by {@link Move}
+         */
+        public int[] getMoves() {
+            return moves;
+        }
+    }
+}
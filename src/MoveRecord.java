@@ -0,0 +1,215 @@
+/**
+ * Record of a move that has been carried out in a {@link Game}. It contains everything that is needed to take the move
+ * back and to carry it out again: the involved {@link Tile}s and {@link ChessPiece}s, a captured ChessPiece, the Rook
+ * of a castling move, a promotion and the state of the Game before the move. Taking back and repeating moves this way
+ * only touches the few involved Tiles, independent of how long the Game is.
+ */
+public class MoveRecord {
+
+    /**
+     * Outcome flag: The white King is checked after the move.
+     */
+    public static final int WHITE_CHECKED = 1;
+
+    /**
+     * Outcome flag: The white Player is checkmate after the move.
+     */
+    public static final int WHITE_CHECKMATE = 2;
+
+    /**
+     * Outcome flag: The black King is checked after the move.
+     */
+    public static final int BLACK_CHECKED = 4;
+
+    /**
+     * Outcome flag: The black Player is checkmate after the move.
+     */
+    public static final int BLACK_CHECKMATE = 8;
+
+    /**
+     * Outcome flag: The opponent of the moving Player can not move, but is not checked.
+     */
+    public static final int STALEMATE = 16;
+
+    /**
+     * Outcome flag: No Player has enough material left to checkmate.
+     */
+    public static final int INSUFFICIENT_MATERIAL = 32;
+
+    /**
+     * Outcome flag: The move was made after the time of the moving Player had run out.
+     */
+    public static final int TIME_LOSS = 64;
+
+    private final Tile source;
+    private final Tile target;
+    private final ChessPiece piece;
+    private final ChessPiece placedPiece;
+    private final boolean pieceCouldCastle;
+    private final ChessPiece capturedPiece;
+    private final Tile capturedTile;
+    private final ChessPiece rook;
+    private final Tile rookSource;
+    private final Tile rookTarget;
+    private final ChessPiece previousMovedPiece;
+    private final Tile previousSourceTile;
+    private final Tile previousTargetTile;
+    private String logEntry;
+    private int outcome;
+
+    /**
+     * Creates a new MoveRecord. All ChessPieces have to be on their original Tiles, i.e. the move has not been carried
+     * out yet.
+     *
+     * @param source             the Tile the moved ChessPiece starts on
+     * @param target             the Tile the moved ChessPiece ends on
+     * @param placedPiece        the ChessPiece that ends on the target Tile. This is a new {@link Queen} for a
+     *                           promotion and the moved ChessPiece otherwise.
+     * @param capturedTile       the Tile of a captured ChessPiece or null. For an en passant capture this is not the
+     *                           target Tile.
+     * @param rookSource         the Tile of the Rook involved in a castling move or null
+     * @param rookTarget         the Tile the Rook of a castling move ends on or null
+     * @param previousMovedPiece the ChessPiece that moved before this move or null
+     * @param previousSourceTile the source Tile of the move before this move or null
+     * @param previousTargetTile the target Tile of the move before this move or null
+     */
+    public MoveRecord(Tile source, Tile target, ChessPiece placedPiece, Tile capturedTile, Tile rookSource,
+                      Tile rookTarget, ChessPiece previousMovedPiece, Tile previousSourceTile,
+                      Tile previousTargetTile) {
+        this.source = source;
+        this.target = target;
+        this.piece = source.getChessPiece();
+        this.placedPiece = placedPiece;
+        this.pieceCouldCastle = piece.canCastle();
+        this.capturedTile = capturedTile;
+        this.capturedPiece = capturedTile != null ? capturedTile.getChessPiece() : null;
+        this.rookSource = rookSource;
+        this.rookTarget = rookTarget;
+        this.rook = rookSource != null ? rookSource.getChessPiece() : null;
+        this.previousMovedPiece = previousMovedPiece;
+        this.previousSourceTile = previousSourceTile;
+        this.previousTargetTile = previousTargetTile;
+    }
+
+    /**
+     * Carries out the recorded move on the Tiles. The ChessPieces have to be in the state before the move.
+     */
+    public void make() {
+        source.removeChessPiece();
+        if (capturedPiece != null) {
+            capturedTile.removeChessPiece();
+        }
+        target.setChessPiece(placedPiece);
+        placedPiece.canCastle = false;
+        if (rook != null) {
+            rookSource.removeChessPiece();
+            rookTarget.setChessPiece(rook);
+        }
+    }
+
+    /**
+     * Takes back the recorded move on the Tiles. The ChessPieces have to be in the state after the move.
+     */
+    public void unmake() {
+        target.removeChessPiece();
+        source.setChessPiece(piece);
+        piece.canCastle = pieceCouldCastle;
+        if (capturedPiece != null) {
+            capturedTile.setChessPiece(capturedPiece);
+        }
+        if (rook != null) {
+            rookTarget.removeChessPiece();
+            rookSource.setChessPiece(rook);
+        }
+    }
+
+    /**
+     * Returns the Tile the moved ChessPiece started on.
+     *
+     * @return the source Tile
+     */
+    public Tile getSource() {
+        return source;
+    }
+
+    /**
+     * Returns the Tile the moved ChessPiece ended on.
+     *
+     * @return the target Tile
+     */
+    public Tile getTarget() {
+        return target;
+    }
+
+    /**
+     * Returns the ChessPiece that is located on the target Tile after the move.
+     *
+     * @return the moved ChessPiece or the new Queen of a promotion
+     */
+    public ChessPiece getPlacedPiece() {
+        return placedPiece;
+    }
+
+    /**
+     * Returns the ChessPiece that moved before this move.
+     *
+     * @return the previously moved ChessPiece or null
+     */
+    public ChessPiece getPreviousMovedPiece() {
+        return previousMovedPiece;
+    }
+
+    /**
+     * Returns the source Tile of the move before this move.
+     *
+     * @return the previous source Tile or null
+     */
+    public Tile getPreviousSourceTile() {
+        return previousSourceTile;
+    }
+
+    /**
+     * Returns the target Tile of the move before this move.
+     *
+     * @return the previous target Tile or null
+     */
+    public Tile getPreviousTargetTile() {
+        return previousTargetTile;
+    }
+
+    /**
+     * Returns the entry of the move in the game log, e.g. '#1: WHITE Pawn E2 > E4'.
+     *
+     * @return the log entry of this move
+     */
+    public String getLogEntry() {
+        return logEntry;
+    }
+
+    /**
+     * Sets the entry of the move in the game log.
+     *
+     * @param logEntry the log entry of this move
+     */
+    public void setLogEntry(String logEntry) {
+        this.logEntry = logEntry;
+    }
+
+    /**
+     * Returns what the move has caused, as combination of the outcome flags of this class, e.g. {@link #BLACK_CHECKED}.
+     *
+     * @return the outcome flags, 0 if the move had no special consequences
+     */
+    public int getOutcome() {
+        return outcome;
+    }
+
+    /**
+     * Sets what the move has caused.
+     *
+     * @param outcome a combination of the outcome flags of this class
+     */
+    public void setOutcome(int outcome) {
+        this.outcome = outcome;
+    }
+}
@@ -0,0 +1,26 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Java Flight Recorder event for a click on a {@link Tile} that has been rejected by a {@link Game}, because it does
+ * not choose a ChessPiece of the active Player or a legal target of the chosen ChessPiece.
+ */
+@Name("chess.MoveRejected")
+@Label("Move Rejected")
+@Category({"Chess", "Game"})
+@Description("An input has been rejected by the legality checks")
+@StackTrace(false)
+public class MoveRejectedEvent extends jdk.jfr.Event {
+
+    @Label("Game Id")
+    long gameId;
+
+    @Label("Tile")
+    String tile;
+
+    @Label("Reason")
+    String reason;
+}
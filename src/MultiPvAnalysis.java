@@ -0,0 +1,94 @@
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Headless analysis that returns the best lines of a position instead of only the best move, e.g. to show a player
+ * the alternatives to a move. The position can be given as FEN, as {@link Position} or as the current state of a
+ * {@link Game}. All lines of one call share the {@link TranspositionTable} of the {@link Search}, so results of the
+ * first line speed up the search of the others.
+ * <p>
+ * The analysis methods can be called from several threads at the same time. Every calling thread gets its own
+ * Search with its own TranspositionTable, which it reuses for all later calls, so concurrent calls neither block each
+ * other nor share any mutable state.
+ */
+public class MultiPvAnalysis {
+
+    private final ThreadLocal<Search> searches;
+
+    /**
+     * Creates a new MultiPvAnalysis with a {@link TranspositionTable} of the default size for every calling thread.
+     */
+    public MultiPvAnalysis() {
+        this(TranspositionTable.DEFAULT_SIZE_MB);
+    }
+
+    /**
+     * Creates a new MultiPvAnalysis with a {@link TranspositionTable} of the given size for every calling thread.
+     *
+     * @param hashSizeMegabytes the size of the TranspositionTable of every thread in megabytes
+     */
+    public MultiPvAnalysis(final int hashSizeMegabytes) {
+        if (hashSizeMegabytes < 1) {
+            throw new IllegalArgumentException("Error: The hash size of a MultiPvAnalysis has to be positive.");
+        }
+        this.searches = new ThreadLocal<Search>() {
+            @Override
+            protected Search initialValue() {
+                return new Search(new TranspositionTable(hashSizeMegabytes));
+            }
+        };
+    }
+
+    /**
+     * Searches the best lines of the position described in Forsyth-Edwards Notation.
+     *
+     * @param fen             the FEN description of the position
+     * @param lineCount       the number of requested lines
+     * @param maxDepth        the maximum search depth in half moves
+     * @param timeLimitMillis the maximum search time in milliseconds or 0 for no time limit
+     * @return the best lines sorted from best to worst
+     * @throws IllegalArgumentException if the FEN description is not valid
+     */
+    public List<AnalysisInfo> analyze(String fen, int lineCount, int maxDepth, long timeLimitMillis) {
+        return analyze(Position.fromFen(fen), lineCount, maxDepth, timeLimitMillis);
+    }
+
+    /**
+     * Searches the best lines of the current state of the given {@link Game}. Since the Game is not thread-safe, this
+     * method must be called on the Event Dispatch Thread or while the Game is not altered otherwise.
+     *
+     * @param game            the Game that will be analysed
+     * @param lineCount       the number of requested lines
+     * @param maxDepth        the maximum search depth in half moves
+     * @param timeLimitMillis the maximum search time in milliseconds or 0 for no time limit
+     * @return the best lines sorted from best to worst
+     */
+    public List<AnalysisInfo> analyze(Game game, int lineCount, int maxDepth, long timeLimitMillis) {
+        if (game == null) {
+            throw new NullPointerException("Arguments for the analyze() method must not be null.");
+        }
+        return analyze(game.createPosition(), lineCount, maxDepth, timeLimitMillis);
+    }
+
+    /**
+     * Searches the best lines of the given {@link Position}. The Position is not altered, the search works on a copy.
+     *
+     * @param position        the Position that will be analysed
+     * @param lineCount       the number of requested lines
+     * @param maxDepth        the maximum search depth in half moves
+     * @param timeLimitMillis the maximum search time in milliseconds or 0 for no time limit
+     * @return the best lines sorted from best to worst. Fewer lines are returned, if there are fewer legal moves. If
+     * there are no legal moves at all, the result consists of a single line without moves.
+     */
+    public List<AnalysisInfo> analyze(Position position, int lineCount, int maxDepth, long timeLimitMillis) {
+        if (position == null) {
+            throw new NullPointerException("Arguments for the analyze() method must not be null.");
+        } else if (lineCount < 1 || maxDepth < 1) {
+            throw new IllegalArgumentException("Error: The line count and the depth have to be positive.");
+        }
+        AnalysisInfo[] lines = searches.get().analyze(new Position(position), lineCount, maxDepth, timeLimitMillis,
+                null);
+        return Collections.unmodifiableList(Arrays.asList(lines));
+    }
+}
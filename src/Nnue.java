@@ -0,0 +1,321 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Neural network for the evaluation of a {@link Position} in the style of NNUE ('efficiently updatable neural
+ * network'). The network has two layers:
+ * <p>
+ * - Feature transformer: Every combination of piece and square is an input feature, which is either present or
+ * absent, seen from the view of each color ({@link #INPUTS} features per view). The first layer sums up the int16
+ * weights of all present features and the biases into an accumulator of {@link #getHiddenSize()} values per view.
+ * Since a move only adds and removes two or three features, the accumulator is not recomputed but updated by the
+ * Position whenever a piece is placed or removed (see {@link NnueAccumulator}).
+ * <p>
+ * - Output layer: The accumulator values of the color to move and of its opponent are clipped to 0..127 ('clipped
+ * ReLU') and multiplied with the output weights. The sum is divided by a scale stored with the network.
+ * <p>
+ * All arithmetic uses primitive short and int arrays in plain counted loops, which the JIT compiler turns into SIMD
+ * instructions on processors that support them and runs as scalar code otherwise. The network runs on the CPU only.
+ * <p>
+ * The weights are read from a file (see {@link #load(Path)}), which is compressed with GZIP. Layout, all numbers
+ * big-endian:
+ * <pre>
+ *     int      magic "CHN1"
+ *     int      number of input features (768) and hidden size
+ *     short[]  feature weights, hidden size values per feature
+ *     short[]  feature biases, hidden size values
+ *     short[]  output weights, hidden size values for the color to move and for the opponent
+ *     int      output bias and output scale
+ * </pre>
+ * The application contains a network that reproduces the material and piece-square values of the {@link Evaluation}
+ * (see {@link #createFromEvaluation()}), so the file format can be used without a trained network. Networks trained
+ * with other tools are loaded the same way.
+ */
+public final class Nnue {
+
+    /**
+     * Number of input features of one view: 2 colors * 6 piece types * 64 squares.
+     */
+    public static final int INPUTS = 768;
+
+    /**
+     * Maximum value of the clipped accumulator values.
+     */
+    public static final int CLIP = 127;
+
+    private static final int MAGIC = 0x43484E31; // "CHN1"
+    private static final String DEFAULT_RESOURCE = "/resources/network.nnue";
+
+    // Parameters of the network derived from the Evaluation
+    private static final int BOOTSTRAP_HIDDEN_SIZE = 128;
+    private static final int BOOTSTRAP_UNIT_VALUE = 9;
+    private static final int BOOTSTRAP_BIAS = 8;
+
+    private final int hiddenSize;
+    private final short[] featureWeights;
+    private final short[] featureBiases;
+    private final short[] outputWeights;
+    private final int outputBias;
+    private final int outputScale;
+
+    private Nnue(int hiddenSize, short[] featureWeights, short[] featureBiases, short[] outputWeights,
+                 int outputBias, int outputScale) {
+        this.hiddenSize = hiddenSize;
+        this.featureWeights = featureWeights;
+        this.featureBiases = featureBiases;
+        this.outputWeights = outputWeights;
+        this.outputBias = outputBias;
+        this.outputScale = outputScale;
+    }
+
+    /**
+     * Writes the network derived from the Evaluation to a file.
+     * <p>
+     * Usage: java Nnue file
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Usage: java Nnue file");
+            return;
+        }
+        createFromEvaluation().save(Paths.get(args[0]));
+    }
+
+    /**
+     * Loads a network from a file.
+     *
+     * @param file the file with the weights
+     * @return the network
+     * @throws IOException              if the file can not be read
+     * @throws IllegalArgumentException if the file does not contain a valid network
+     */
+    public static Nnue load(Path file) throws IOException {
+        if (file == null) {
+            throw new NullPointerException("Arguments for the load() method must not be null.");
+        }
+        try (InputStream stream = Files.newInputStream(file)) {
+            return read(stream);
+        }
+    }
+
+    /**
+     * Loads the network that is contained in the application.
+     *
+     * @return the network
+     */
+    public static Nnue loadDefault() {
+        try (InputStream stream = Nnue.class.getResourceAsStream(DEFAULT_RESOURCE)) {
+            if (stream == null) {
+                throw new IllegalStateException("Error: The network " + DEFAULT_RESOURCE + " is missing.");
+            }
+            return read(stream);
+        } catch (IOException e) {
+            throw new IllegalStateException("Error: The network " + DEFAULT_RESOURCE + " can not be read.", e);
+        }
+    }
+
+    /**
+     * Reads a network from a stream in the format described above. The stream is not closed.
+     *
+     * @param stream the compressed network
+     * @return the network
+     * @throws IOException              if the stream can not be read
+     * @throws IllegalArgumentException if the stream does not contain a valid network
+     */
+    public static Nnue read(InputStream stream) throws IOException {
+        DataInputStream input = new DataInputStream(new BufferedInputStream(new GZIPInputStream(stream)));
+        if (input.readInt() != MAGIC) {
+            throw new IllegalArgumentException("Error: The data is not a network.");
+        }
+        int inputs = input.readInt();
+        int hiddenSize = input.readInt();
+        if (inputs != INPUTS || hiddenSize < 1 || hiddenSize > 4096) {
+            throw new IllegalArgumentException("Error: Unsupported network size " + inputs + "x" + hiddenSize);
+        }
+        short[] featureWeights = readShorts(input, INPUTS * hiddenSize);
+        short[] featureBiases = readShorts(input, hiddenSize);
+        short[] outputWeights = readShorts(input, 2 * hiddenSize);
+        int outputBias = input.readInt();
+        int outputScale = input.readInt();
+        if (outputScale < 1) {
+            throw new IllegalArgumentException("Error: The output scale of the network has to be positive.");
+        }
+        return new Nnue(hiddenSize, featureWeights, featureBiases, outputWeights, outputBias, outputScale);
+    }
+
+    private static short[] readShorts(DataInputStream input, int count) throws IOException {
+        short[] values = new short[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = input.readShort();
+        }
+        return values;
+    }
+
+    /**
+     * Writes this network to a file in the format described above.
+     *
+     * @param file the file
+     * @throws IOException if the file can not be written
+     */
+    public void save(Path file) throws IOException {
+        try (OutputStream stream = Files.newOutputStream(file)) {
+            write(stream);
+        }
+    }
+
+    /**
+     * Writes this network to a stream in the format described above. The stream is not closed.
+     *
+     * @param stream the stream receiving the compressed network
+     * @throws IOException if the stream can not be written
+     */
+    public void write(OutputStream stream) throws IOException {
+        GZIPOutputStream compressed = new GZIPOutputStream(stream);
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(compressed));
+        output.writeInt(MAGIC);
+        output.writeInt(INPUTS);
+        output.writeInt(hiddenSize);
+        for (short[] values : new short[][]{featureWeights, featureBiases, outputWeights}) {
+            for (short value : values) {
+                output.writeShort(value);
+            }
+        }
+        output.writeInt(outputBias);
+        output.writeInt(outputScale);
+        output.flush();
+        compressed.finish();
+    }
+
+    /**
+     * Creates a network that computes the material and piece-square values of the {@link Evaluation}, averaged over
+     * middlegame and endgame, in steps of {@value #BOOTSTRAP_UNIT_VALUE} centipawns.
+     * <p>
+     * Every view has one hidden unit for an own piece and one for an enemy piece on every square. A square holds at
+     * most one piece, so a unit only receives the value of that piece plus a bias, which keeps it within the linear
+     * range of the clipped ReLU. The output layer adds the units of own pieces and subtracts those of enemy pieces.
+     *
+     * @return the network
+     */
+    public static Nnue createFromEvaluation() {
+        int hiddenSize = BOOTSTRAP_HIDDEN_SIZE;
+        short[] featureWeights = new short[INPUTS * hiddenSize];
+        short[] featureBiases = new short[hiddenSize];
+        short[] outputWeights = new short[2 * hiddenSize];
+        for (int color = Position.WHITE; color <= Position.BLACK; color++) {
+            for (int type = Position.PAWN; type <= Position.KING; type++) {
+                int piece = Position.makePiece(color, type);
+                for (int square = 0; square < 64; square++) {
+                    // Features are seen from the view of white, so color and square are already relative
+                    int value = (Evaluation.middlegameScore(piece, square)
+                            + Evaluation.endgameScore(piece, square)) / 2;
+                    int unit = (color == Position.WHITE ? 0 : 64) + square;
+                    featureWeights[featureIndex(Position.WHITE, piece, square) * hiddenSize + unit] =
+                            (short) Math.round((float) value / BOOTSTRAP_UNIT_VALUE);
+                }
+            }
+        }
+        for (int unit = 0; unit < hiddenSize; unit++) {
+            featureBiases[unit] = BOOTSTRAP_BIAS;
+            int sign = unit < 64 ? 1 : -1;
+            outputWeights[unit] = (short) (sign * BOOTSTRAP_UNIT_VALUE);
+            outputWeights[hiddenSize + unit] = (short) (-sign * BOOTSTRAP_UNIT_VALUE);
+        }
+        // Both views contain the full position, so the sum counts every piece twice
+        return new Nnue(hiddenSize, featureWeights, featureBiases, outputWeights, 0, 2);
+    }
+
+    /**
+     * Returns the index of the input feature of a piece on a square, seen from the view of the given color. The view
+     * of black is mirrored vertically and swaps the colors, so both colors see the same features for the same
+     * situation.
+     *
+     * @param view   the color whose view is used, {@link Position#WHITE} or {@link Position#BLACK}
+     * @param piece  the piece code
+     * @param square the square of the piece
+     * @return the feature index between 0 and {@link #INPUTS} - 1
+     */
+    public static int featureIndex(int view, int piece, int square) {
+        int own = Position.pieceColor(piece) == view ? 0 : 1;
+        int relativeSquare = view == Position.WHITE ? square : square ^ 56;
+        return (own * 6 + Position.pieceType(piece) - 1) * 64 + relativeSquare;
+    }
+
+    /**
+     * Returns the number of accumulator values of one view.
+     *
+     * @return the hidden size
+     */
+    public int getHiddenSize() {
+        return hiddenSize;
+    }
+
+    /**
+     * Sets the accumulator values of one view to the biases.
+     *
+     * @param accumulator the accumulator values
+     */
+    void reset(short[] accumulator) {
+        System.arraycopy(featureBiases, 0, accumulator, 0, hiddenSize);
+    }
+
+    /**
+     * Adds the weights of a feature to the accumulator values of one view.
+     *
+     * @param accumulator the accumulator values
+     * @param feature     the feature index
+     */
+    void addFeature(short[] accumulator, int feature) {
+        short[] weights = featureWeights;
+        int offset = feature * hiddenSize;
+        for (int i = 0; i < hiddenSize; i++) {
+            accumulator[i] = (short) (accumulator[i] + weights[offset + i]);
+        }
+    }
+
+    /**
+     * Subtracts the weights of a feature from the accumulator values of one view.
+     *
+     * @param accumulator the accumulator values
+     * @param feature     the feature index
+     */
+    void subtractFeature(short[] accumulator, int feature) {
+        short[] weights = featureWeights;
+        int offset = feature * hiddenSize;
+        for (int i = 0; i < hiddenSize; i++) {
+            accumulator[i] = (short) (accumulator[i] - weights[offset + i]);
+        }
+    }
+
+    /**
+     * Computes the output of the network from an up to date accumulator.
+     *
+     * @param accumulator the accumulator of the evaluated Position
+     * @param sideToMove  the color to move
+     * @return the score in centipawns from the view of the color to move
+     */
+    public int evaluate(NnueAccumulator accumulator, int sideToMove) {
+        int sum = outputBias;
+        sum += dotClipped(accumulator.getValues(sideToMove), 0);
+        sum += dotClipped(accumulator.getValues(sideToMove ^ 1), hiddenSize);
+        return sum / outputScale;
+    }
+
+    private int dotClipped(short[] values, int offset) {
+        short[] weights = outputWeights;
+        int sum = 0;
+        for (int i = 0; i < hiddenSize; i++) {
+            sum += Math.min(Math.max(values[i], 0), CLIP) * weights[offset + i];
+        }
+        return sum;
+    }
+}
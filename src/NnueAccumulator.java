@@ -0,0 +1,78 @@
+/**
+ * First layer output of a {@link Nnue} network for one {@link Position}: the sum of the feature weights of all pieces
+ * and the biases, kept separately for the view of white and of black.
+ * <p>
+ * A Position with an accumulator (see {@link Position#setAccumulator(NnueAccumulator)}) adds the weights of every
+ * piece it places and subtracts the weights of every piece it removes. Making or unmaking a move therefore costs two
+ * to four updates of {@link Nnue#getHiddenSize()} int16 values per view, instead of summing up the weights of all
+ * pieces again. Since int16 additions and subtractions are exact inverses, even with overflow, unmaking a move
+ * restores the previous values exactly.
+ */
+public final class NnueAccumulator {
+
+    private final Nnue network;
+    private final short[][] values;
+
+    /**
+     * Creates a new accumulator for an empty board.
+     *
+     * @param network the network whose weights are accumulated
+     */
+    public NnueAccumulator(Nnue network) {
+        if (network == null) {
+            throw new NullPointerException("Arguments for the NnueAccumulator() constructor must not be null.");
+        }
+        this.network = network;
+        this.values = new short[2][network.getHiddenSize()];
+        reset();
+    }
+
+    /**
+     * Returns the network whose weights are accumulated.
+     *
+     * @return the network
+     */
+    public Nnue getNetwork() {
+        return network;
+    }
+
+    /**
+     * Sets the values to those of an empty board.
+     */
+    void reset() {
+        network.reset(values[Position.WHITE]);
+        network.reset(values[Position.BLACK]);
+    }
+
+    /**
+     * Adds a piece that has been placed on a square.
+     *
+     * @param piece  the piece code
+     * @param square the square of the piece
+     */
+    void add(int piece, int square) {
+        network.addFeature(values[Position.WHITE], Nnue.featureIndex(Position.WHITE, piece, square));
+        network.addFeature(values[Position.BLACK], Nnue.featureIndex(Position.BLACK, piece, square));
+    }
+
+    /**
+     * Removes a piece that has been taken from a square.
+     *
+     * @param piece  the piece code
+     * @param square the former square of the piece
+     */
+    void remove(int piece, int square) {
+        network.subtractFeature(values[Position.WHITE], Nnue.featureIndex(Position.WHITE, piece, square));
+        network.subtractFeature(values[Position.BLACK], Nnue.featureIndex(Position.BLACK, piece, square));
+    }
+
+    /**
+     * Returns the values of one view. The array is not copied and must not be modified.
+     *
+     * @param view {@link Position#WHITE} or {@link Position#BLACK}
+     * @return the accumulator values
+     */
+    short[] getValues(int view) {
+        return values[view];
+    }
+}
@@ -0,0 +1,62 @@
+/**
+ * {@link Evaluation} with a {@link Nnue} network instead of the handcrafted terms. The first evaluation of a
+ * {@link Position} attaches an {@link NnueAccumulator} to it; from then on the Position keeps the accumulator up to
+ * date while a {@link Search} makes and unmakes moves, so an evaluation only computes the output layer.
+ * <p>
+ * The network is immutable and can be shared by any number of NnueEvaluations, but like every Evaluation, an
+ * NnueEvaluation must only be used by one thread at a time.
+ */
+public class NnueEvaluation extends Evaluation {
+
+    private final Nnue network;
+    private long evaluations;
+
+    /**
+     * Creates a new NnueEvaluation.
+     *
+     * @param network the network
+     */
+    public NnueEvaluation(Nnue network) {
+        super(1); // The pawn structure terms are not used
+        if (network == null) {
+            throw new NullPointerException("Arguments for the NnueEvaluation() constructor must not be null.");
+        }
+        this.network = network;
+    }
+
+    /**
+     * Evaluates the given Position with the network.
+     *
+     * @param position the investigated Position
+     * @return the score in centipawns from the view of the color to move
+     */
+    @Override
+    public int evaluate(Position position) {
+        evaluations++;
+        NnueAccumulator accumulator = position.getAccumulator();
+        if (accumulator == null || accumulator.getNetwork() != network) {
+            accumulator = new NnueAccumulator(network);
+            position.setAccumulator(accumulator);
+        }
+        return network.evaluate(accumulator, position.getSideToMove());
+    }
+
+    /**
+     * Returns the number of evaluations carried out by this object.
+     *
+     * @return the evaluation count
+     */
+    @Override
+    public long getEvaluations() {
+        return evaluations;
+    }
+
+    /**
+     * Returns the network of this evaluation.
+     *
+     * @return the network
+     */
+    public Nnue getNetwork() {
+        return network;
+    }
+}
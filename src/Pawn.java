@@ -93,6 +93,16 @@ public class Pawn extends ChessPiece {
         return "Pawn";
     }
 
+    /**
+     * Returns the type of the chess piece as defined by {@link Position}. In this case {@link Position#PAWN}.
+     *
+     * @return the type of the chess piece
+     */
+    @Override
+    public int getType() {
+        return Position.PAWN;
+    }
+
     /**
      * Checks if the move is a valid en passant move, from the viewpoint of the pawn.
      *
@@ -120,7 +130,6 @@ public class Pawn extends ChessPiece {
     @Override
     public ChessPiece clone() {
         ChessPiece copy = new Pawn(this.owner);
-        this.owner.removeChessPiece(copy);
         copy.canCastle = this.canCastle;
         copy.icon = this.icon;
 
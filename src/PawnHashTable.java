@@ -0,0 +1,161 @@
+/**
+ * Cache for the pawn structure terms of an {@link Evaluation}. Doubled, isolated and passed Pawns only depend on the
+ * placement of the Pawns, which changes far less often than the rest of a {@link Position}. The table stores the
+ * pawn structure scores, the passed Pawns and the files occupied by Pawns for a pawn-only Zobrist key, so they are
+ * only computed once for every pawn structure.
+ * <p>
+ * The table has a fixed number of entries. Every key maps to exactly one entry and newer results replace older ones.
+ * The number of probes and hits is counted to monitor the effectiveness of the cache. A PawnHashTable is not
+ * thread-safe, every Evaluation has its own table.
+ */
+public class PawnHashTable {
+
+    /**
+     * Default number of entries.
+     */
+    public static final int DEFAULT_SIZE = 1 << 14;
+
+    private final long[] keys;
+    private final int[] middlegameScores;
+    private final int[] endgameScores;
+    private final long[] passedPawns;
+    private final int[] pawnFiles;
+    private final int mask;
+    private long probes;
+    private long hits;
+
+    /**
+     * Creates a new PawnHashTable.
+     *
+     * @param size the number of entries, it is rounded down to a power of two
+     */
+    public PawnHashTable(int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Error: The size of a PawnHashTable has to be positive.");
+        }
+        int entries = Integer.highestOneBit(size);
+        this.keys = new long[entries];
+        this.middlegameScores = new int[entries];
+        this.endgameScores = new int[entries];
+        this.passedPawns = new long[entries];
+        this.pawnFiles = new int[entries];
+        this.mask = entries - 1;
+
+        // An empty entry must not match the key of a position without Pawns, which is 0
+        for (int i = 0; i < entries; i++) {
+            keys[i] = ~(long) i;
+        }
+    }
+
+    /**
+     * Looks up the entry for the given pawn key.
+     *
+     * @param pawnKey the pawn-only Zobrist key of a Position
+     * @return the index of the entry or -1, if the table contains no entry for the key
+     */
+    public int probe(long pawnKey) {
+        probes++;
+        int index = (int) pawnKey & mask;
+        if (keys[index] == pawnKey) {
+            hits++;
+            return index;
+        }
+        return -1;
+    }
+
+    /**
+     * Stores the pawn structure terms for the given pawn key, replacing the previous content of the entry.
+     *
+     * @param pawnKey          the pawn-only Zobrist key of a Position
+     * @param middlegameScore  the middlegame pawn structure score from the view of white
+     * @param endgameScore     the endgame pawn structure score from the view of white
+     * @param passedPawns      a bit mask of the squares of all passed Pawns
+     * @param pawnFiles        a bit mask of the files with white Pawns (bits 0-7) and black Pawns (bits 8-15)
+     * @return the index of the entry
+     */
+    public int store(long pawnKey, int middlegameScore, int endgameScore, long passedPawns, int pawnFiles) {
+        int index = (int) pawnKey & mask;
+        this.keys[index] = pawnKey;
+        this.middlegameScores[index] = middlegameScore;
+        this.endgameScores[index] = endgameScore;
+        this.passedPawns[index] = passedPawns;
+        this.pawnFiles[index] = pawnFiles;
+        return index;
+    }
+
+    /**
+     * Returns the cached middlegame pawn structure score.
+     *
+     * @param index the index returned by {@link #probe(long)} or {@link #store(long, int, int, long, int)}
+     * @return the middlegame score from the view of white
+     */
+    public int getMiddlegameScore(int index) {
+        return middlegameScores[index];
+    }
+
+    /**
+     * Returns the cached endgame pawn structure score.
+     *
+     * @param index the index returned by {@link #probe(long)} or {@link #store(long, int, int, long, int)}
+     * @return the endgame score from the view of white
+     */
+    public int getEndgameScore(int index) {
+        return endgameScores[index];
+    }
+
+    /**
+     * Returns the squares of all passed Pawns as a bit mask. Bit n is set if a passed Pawn is located on square n.
+     *
+     * @param index the index returned by {@link #probe(long)} or {@link #store(long, int, int, long, int)}
+     * @return the passed Pawn mask
+     */
+    public long getPassedPawns(int index) {
+        return passedPawns[index];
+    }
+
+    /**
+     * Returns the files that contain Pawns as a bit mask. Bits 0-7 stand for files with white Pawns, bits 8-15 for
+     * files with black Pawns.
+     *
+     * @param index the index returned by {@link #probe(long)} or {@link #store(long, int, int, long, int)}
+     * @return the pawn file mask
+     */
+    public int getPawnFiles(int index) {
+        return pawnFiles[index];
+    }
+
+    /**
+     * Returns the number of lookups since the table was created or the statistics were reset.
+     *
+     * @return the number of probes
+     */
+    public long getProbes() {
+        return probes;
+    }
+
+    /**
+     * Returns the number of successful lookups since the table was created or the statistics were reset.
+     *
+     * @return the number of hits
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * Returns the share of successful lookups.
+     *
+     * @return the hit rate between 0 and 1
+     */
+    public double getHitRate() {
+        return probes == 0 ? 0 : (double) hits / probes;
+    }
+
+    /**
+     * Resets the number of probes and hits to 0. The cached entries are kept.
+     */
+    public void resetStatistics() {
+        probes = 0;
+        hits = 0;
+    }
+}
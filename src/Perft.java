@@ -0,0 +1,105 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Counts the leaf nodes of the game tree of a {@link Position} up to a fixed depth ('performance test'). The numbers
+ * are well known for many positions, so comparing them verifies the move generation, and the time needed measures
+ * its speed. The counts of the individual first moves ('divide') help to find the move that is handled incorrectly.
+ * <p>
+ * A Perft object reuses its move lists and must only be used by one thread at a time. {@link #divide(Position, int,
+ * int[], int, int)} distributes the first moves over several threads.
+ */
+public class Perft {
+
+    private int[][] moveLists;
+
+    /**
+     * Creates a new Perft.
+     */
+    public Perft() {
+        this.moveLists = new int[0][];
+    }
+
+    /**
+     * Counts the positions that are reached after exactly the given number of legal half moves. The Position is used
+     * as working copy and is unchanged when this method returns.
+     *
+     * @param position the start Position
+     * @param depth    the number of half moves
+     * @return the number of leaf nodes
+     */
+    public long count(Position position, int depth) {
+        if (depth < 0) {
+            throw new IllegalArgumentException("Error: The depth of a perft can not be negative.");
+        }
+        if (moveLists.length < depth) {
+            moveLists = new int[depth][Position.MAX_MOVES];
+        }
+        return depth == 0 ? 1 : countMoves(position, depth);
+    }
+
+    private long countMoves(Position position, int depth) {
+        int[] moves = moveLists[depth - 1];
+        int count = position.generateLegalMoves(moves);
+        if (depth == 1) {
+            return count; // The legal moves of the last half move lead to the leaf nodes
+        }
+        long nodes = 0;
+        for (int i = 0; i < count; i++) {
+            position.makeMove(moves[i]);
+            nodes += countMoves(position, depth - 1);
+            position.unmakeMove(moves[i]);
+        }
+        return nodes;
+    }
+
+    /**
+     * Counts the leaf nodes separately for every given first move. The first moves are distributed over the given
+     * number of threads, each of them working on its own copy of the Position.
+     *
+     * @param position   the start Position
+     * @param depth      the number of half moves, including the first move
+     * @param firstMoves the legal first moves
+     * @param moveCount  the number of first moves
+     * @param threads    the number of threads
+     * @return the number of leaf nodes for every first move, in the order of the given moves
+     */
+    public static long[] divide(final Position position, final int depth, int[] firstMoves, int moveCount,
+                                int threads) {
+        if (depth < 1 || threads < 1) {
+            throw new IllegalArgumentException("Error: The depth and the number of threads have to be positive.");
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Long>> results = new ArrayList<>();
+            for (int i = 0; i < moveCount; i++) {
+                final int move = firstMoves[i];
+                final Position copy = new Position(position);
+                results.add(executor.submit(new Callable<Long>() {
+                    @Override
+                    public Long call() {
+                        copy.makeMove(move);
+                        return new Perft().count(copy, depth - 1);
+                    }
+                }));
+            }
+            long[] counts = new long[moveCount];
+            for (int i = 0; i < moveCount; i++) {
+                counts[i] = results.get(i).get();
+            }
+            return counts;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Error: Perft was interrupted.", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Error: Perft failed.", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
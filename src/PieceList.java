@@ -0,0 +1,136 @@
+import java.util.Arrays;
+
+/**
+ * List of the {@link ChessPiece}s of one {@link Player} that are located on a {@link Board}. Every entry packs the
+ * type of a ChessPiece (as defined by {@link Position}) and the index of its square (row * 8 + col) into one int, so
+ * iterating the pieces of a Player touches at most {@link #CAPACITY} entries instead of all 64 Tiles.
+ * <p>
+ * A second table maps every square to the index of its entry. This makes adding and removing a ChessPiece O(1): A
+ * removed entry is replaced by the last entry of the list, all other entries keep their index.
+ * <p>
+ * The list is maintained by the Tiles: {@link Tile#setChessPiece(ChessPiece)} adds an entry to the list of the owner
+ * and {@link Tile#removeChessPiece()} removes it.
+ */
+public final class PieceList {
+
+    /**
+     * Maximum number of ChessPieces of one Player.
+     */
+    public static final int CAPACITY = 16;
+
+    private static final int NONE = -1;
+
+    private final int[] entries;
+    private final int[] indices;
+    private int size;
+    private int kingSquare;
+
+    /**
+     * Creates a new, empty PieceList.
+     */
+    public PieceList() {
+        this.entries = new int[CAPACITY];
+        this.indices = new int[64];
+        Arrays.fill(indices, NONE);
+        this.kingSquare = NONE;
+    }
+
+    /**
+     * Adds a ChessPiece to the list.
+     *
+     * @param square the index of the square of the ChessPiece (row * 8 + col)
+     * @param type   the type of the ChessPiece, e.g. {@link Position#PAWN}
+     */
+    public void add(int square, int type) {
+        if (indices[square] != NONE) {
+            throw new IllegalStateException("Error: The square " + square + " is already in the piece list.");
+        } else if (size == CAPACITY) {
+            throw new IllegalStateException("Error: A player can not have more than " + CAPACITY + " pieces.");
+        }
+        entries[size] = type << 6 | square;
+        indices[square] = size++;
+        if (type == Position.KING) {
+            kingSquare = square;
+        }
+    }
+
+    /**
+     * Removes the ChessPiece on the given square from the list. The last entry of the list takes its index.
+     *
+     * @param square the index of the square of the ChessPiece
+     */
+    public void remove(int square) {
+        int index = indices[square];
+        if (index == NONE) {
+            throw new IllegalStateException("Error: The square " + square + " is not in the piece list.");
+        }
+        if (square == kingSquare) {
+            kingSquare = NONE;
+        }
+        indices[square] = NONE;
+        int last = entries[--size];
+        if (index != size) {
+            entries[index] = last;
+            indices[last & 63] = index;
+        }
+    }
+
+    /**
+     * Removes all entries.
+     */
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            indices[entries[i] & 63] = NONE;
+        }
+        size = 0;
+        kingSquare = NONE;
+    }
+
+    /**
+     * Returns the number of ChessPieces in the list.
+     *
+     * @return the number of entries
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the square of the ChessPiece with the given index.
+     *
+     * @param index the index between 0 and {@link #size()} - 1
+     * @return the index of the square (row * 8 + col)
+     */
+    public int getSquare(int index) {
+        return entries[index] & 63;
+    }
+
+    /**
+     * Returns the type of the ChessPiece with the given index.
+     *
+     * @param index the index between 0 and {@link #size()} - 1
+     * @return the type as defined by {@link Position}
+     */
+    public int getType(int index) {
+        return entries[index] >>> 6;
+    }
+
+    /**
+     * Returns the index of the entry of the given square.
+     *
+     * @param square the index of the square
+     * @return the index of the entry or -1, if the square is not in the list
+     */
+    public int indexOf(int square) {
+        return indices[square];
+    }
+
+    /**
+     * Returns the square of the King in this list.
+     *
+     * @return the index of the square or -1, if the list contains no King
+     */
+    public int getKingSquare() {
+        return kingSquare;
+    }
+}
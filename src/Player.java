@@ -1,37 +1,26 @@
-import java.util.ArrayList;
-
 public class Player {
 
     private final ChessColor color;
-    private ArrayList<ChessPiece> chessPieces;
+    private final PieceList pieceList;
     private King king;
 
     public Player(ChessColor color) {
         this.color = color;
-        chessPieces = new ArrayList<>();
-
-        this.king = new King(this);
-        this.chessPieces.add(this.king);
+        this.pieceList = new PieceList();
     }
 
     public ChessColor getColor() {
         return color;
     }
 
-    public ArrayList<ChessPiece> getChessPieces() {
-        return chessPieces;
-    }
-
-    public void setChessPieces(ArrayList<ChessPiece> chessPieces) {
-        this.chessPieces = chessPieces;
-    }
-
-    public void addChessPiece(ChessPiece chessPiece) {
-        this.chessPieces.add(chessPiece);
-    }
-
-    public void removeChessPiece(ChessPiece chessPiece) {
-        this.chessPieces.remove(chessPiece);
+    /**
+     * Returns the list of the ChessPieces of this Player that are located on the Board. It is updated by the Tiles
+     * whenever a ChessPiece of this Player is placed or removed.
+     *
+     * @return the piece list of this Player
+     */
+    public PieceList getPieceList() {
+        return pieceList;
     }
 
     public King getKing() {
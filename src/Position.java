@@ -0,0 +1,1289 @@
+import java.util.Arrays;
+
+/**
+ * Compact representation of a chess position, which is independent of the Swing components of a {@link Board}. A
+ * Position only consists of primitive values: the content of the 64 squares, the color to move, the castling rights
+ * and the en passant square. Moves are encoded as integers by the {@link Move} class.
+ * <p>
+ * Positions are used to evaluate moves without altering the displayed {@link Game}, e.g. by a {@link Search} that runs
+ * in a background thread. Moves can be carried out with {@link #makeMove(int)} and taken back with
+ * {@link #unmakeMove(int)}, so no copies are needed to look ahead. A Position must only be used by one thread at a
+ * time.
+ * <p>
+ * Squares are numbered like the {@link Tile}s of a Board: row * 8 + col, starting with A8 in the upper left corner.
+ * White pawns move towards row 0, black pawns towards row 7.
+ */
+public class Position {
+
+    public static final int WHITE = 0;
+    public static final int BLACK = 1;
+
+    public static final int EMPTY = 0;
+    public static final int PAWN = 1;
+    public static final int KNIGHT = 2;
+    public static final int BISHOP = 3;
+    public static final int ROOK = 4;
+    public static final int QUEEN = 5;
+    public static final int KING = 6;
+
+    public static final int WHITE_KINGSIDE = 1;
+    public static final int WHITE_QUEENSIDE = 2;
+    public static final int BLACK_KINGSIDE = 4;
+    public static final int BLACK_QUEENSIDE = 8;
+
+    /**
+     * Upper bound for the number of pseudo legal moves in any position.
+     */
+    public static final int MAX_MOVES = 256;
+
+    private static final int MAX_HISTORY = 2048;
+
+    // Piece values used for the static exchange evaluation. The King can never be captured.
+    private static final int[] EXCHANGE_VALUES = {0, 100, 320, 330, 500, 900, 20000};
+
+    // King and Rook squares that each castling right (in the order of the flags) needs
+    private static final int[][] CASTLING_SQUARES = {{60, 63}, {60, 56}, {4, 7}, {4, 0}};
+
+    // Kinds of moves produced by generateMoves(int[], int, int)
+    private static final int CAPTURES = 1;
+    private static final int QUIET_MOVES = 2;
+
+    // Squares of row 0 and row 7, on which no Pawn can stand
+    private static final long BACK_ROWS = 0xFF000000000000FFL;
+
+    // Squares with the same color as A8, also used by PositionSnapshot
+    static final long LIGHT_SQUARES = 0xAA55AA55AA55AA55L;
+
+    // Castling rights that remain after a piece moved from or to a square
+    private static final int[] CASTLING_MASKS = new int[64];
+
+    static {
+        for (int square = 0; square < 64; square++) {
+            CASTLING_MASKS[square] = WHITE_KINGSIDE | WHITE_QUEENSIDE | BLACK_KINGSIDE | BLACK_QUEENSIDE;
+        }
+        CASTLING_MASKS[60] &= ~(WHITE_KINGSIDE | WHITE_QUEENSIDE); // E1
+        CASTLING_MASKS[63] &= ~WHITE_KINGSIDE; // H1
+        CASTLING_MASKS[56] &= ~WHITE_QUEENSIDE; // A1
+        CASTLING_MASKS[4] &= ~(BLACK_KINGSIDE | BLACK_QUEENSIDE); // E8
+        CASTLING_MASKS[7] &= ~BLACK_KINGSIDE; // H8
+        CASTLING_MASKS[0] &= ~BLACK_QUEENSIDE; // A8
+    }
+
+    private final int[] squares;
+    private final long[] pieceBitboards;
+    private final long[] colorBitboards;
+    private final int[] kingSquares;
+    private final int[] middlegameScores;
+    private final int[] endgameScores;
+    private int phase;
+    private long hashKey;
+    private long pawnKey;
+    private int sideToMove;
+    private int castlingRights;
+    private int enPassantSquare;
+    private int halfmoveClock;
+    private int fullmoveNumber;
+
+    // State that can not be restored from a move alone is saved on these stacks
+    private final int[] undoCaptured;
+    private final int[] undoCastlingRights;
+    private final int[] undoEnPassantSquare;
+    private final int[] undoHalfmoveClock;
+    private final long[] undoHashKey;
+    private final long[] undoPawnKey;
+    private int historySize;
+
+    // Optional first layer of a neural network evaluation, updated together with the squares
+    private NnueAccumulator accumulator;
+
+    // Material balance after every capture of an exchange, used by staticExchange(int)
+    private final int[] exchangeGains = new int[32];
+
+    // Moves of a single piece, used by isPseudoLegal(int)
+    private final int[] pieceMoves = new int[32];
+
+    /**
+     * Creates an empty Position without any pieces. White is the color to move. Pieces are placed with
+     * {@link #setPiece(int, int)}.
+     */
+    public Position() {
+        this.squares = new int[64];
+        this.pieceBitboards = new long[16];
+        this.colorBitboards = new long[2];
+        this.kingSquares = new int[]{-1, -1};
+        this.middlegameScores = new int[2];
+        this.endgameScores = new int[2];
+        this.phase = 0;
+        this.hashKey = 0;
+        this.pawnKey = 0;
+        this.sideToMove = WHITE;
+        this.castlingRights = 0;
+        this.enPassantSquare = -1;
+        this.halfmoveClock = 0;
+        this.fullmoveNumber = 1;
+        this.undoCaptured = new int[MAX_HISTORY];
+        this.undoCastlingRights = new int[MAX_HISTORY];
+        this.undoEnPassantSquare = new int[MAX_HISTORY];
+        this.undoHalfmoveClock = new int[MAX_HISTORY];
+        this.undoHashKey = new long[MAX_HISTORY];
+        this.undoPawnKey = new long[MAX_HISTORY];
+        this.historySize = 0;
+    }
+
+    /**
+     * Creates a copy of the given Position. The copy does not share any state with the original, so both can be used
+     * by different threads. The move history of the original is not copied.
+     *
+     * @param other the Position that will be copied
+     */
+    public Position(Position other) {
+        this();
+        System.arraycopy(other.squares, 0, this.squares, 0, 64);
+        System.arraycopy(other.pieceBitboards, 0, this.pieceBitboards, 0, 16);
+        System.arraycopy(other.colorBitboards, 0, this.colorBitboards, 0, 2);
+        this.kingSquares[WHITE] = other.kingSquares[WHITE];
+        this.kingSquares[BLACK] = other.kingSquares[BLACK];
+        this.middlegameScores[WHITE] = other.middlegameScores[WHITE];
+        this.middlegameScores[BLACK] = other.middlegameScores[BLACK];
+        this.endgameScores[WHITE] = other.endgameScores[WHITE];
+        this.endgameScores[BLACK] = other.endgameScores[BLACK];
+        this.phase = other.phase;
+        this.hashKey = other.hashKey;
+        this.pawnKey = other.pawnKey;
+        this.sideToMove = other.sideToMove;
+        this.castlingRights = other.castlingRights;
+        this.enPassantSquare = other.enPassantSquare;
+        this.halfmoveClock = other.halfmoveClock;
+        this.fullmoveNumber = other.fullmoveNumber;
+    }
+
+    /**
+     * Creates a Position with the starting setup of a chess match. White has the first move and all castling moves
+     * are still possible.
+     *
+     * @return the starting Position
+     */
+    public static Position createStartPosition() {
+        Position position = new Position();
+        int[] backRow = {ROOK, KNIGHT, BISHOP, QUEEN, KING, BISHOP, KNIGHT, ROOK};
+        for (int col = 0; col < 8; col++) {
+            position.setPiece(col, makePiece(BLACK, backRow[col]));
+            position.setPiece(8 + col, makePiece(BLACK, PAWN));
+            position.setPiece(48 + col, makePiece(WHITE, PAWN));
+            position.setPiece(56 + col, makePiece(WHITE, backRow[col]));
+        }
+        position.setCastlingRights(WHITE_KINGSIDE | WHITE_QUEENSIDE | BLACK_KINGSIDE | BLACK_QUEENSIDE);
+        return position;
+    }
+
+    /**
+     * Creates a Position from a description in Forsyth-Edwards Notation (FEN), e.g.
+     * 'rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1'. The half move clock and the full move number
+     * are optional. Castling rights whose King or Rook is not on its original square are dropped, as is an en passant
+     * square that can not follow a double step of a Pawn. A description is not valid, if a color has no King or more
+     * than one, if a Pawn stands on the first or last row or if the color not to move is in check.
+     *
+     * @param fen the FEN description of the Position
+     * @return the described Position
+     * @throws IllegalArgumentException if the description is not valid
+     */
+    public static Position fromFen(String fen) {
+        if (fen == null) {
+            throw new NullPointerException("Arguments for the fromFen() method must not be null.");
+        }
+        Position position = new Position();
+        position.loadFen(fen);
+        return position;
+    }
+
+    /**
+     * Replaces the content of this Position with a description in Forsyth-Edwards Notation (see
+     * {@link #fromFen(String)}). Unlike fromFen, no memory is allocated for the Position, so a single Position can be
+     * reused for many descriptions. If the description is not valid, the content of the Position is undefined.
+     *
+     * @param fen the FEN description of the Position
+     * @throws IllegalArgumentException if the description is not valid
+     */
+    public void loadFen(String fen) {
+        if (fen == null) {
+            throw new NullPointerException("Arguments for the loadFen() method must not be null.");
+        }
+        String[] fields = fen.trim().split("\\s+");
+        if (fields.length < 4) {
+            throw new IllegalArgumentException("Error: FEN needs at least 4 fields: " + fen);
+        }
+        clear();
+
+        // Piece placement, starting with A8
+        String[] rows = fields[0].split("/");
+        if (rows.length != 8) {
+            throw new IllegalArgumentException("Error: FEN needs 8 rows: " + fen);
+        }
+        for (int row = 0; row < 8; row++) {
+            int col = 0;
+            for (char symbol : rows[row].toCharArray()) {
+                if (symbol >= '1' && symbol <= '8') {
+                    col += symbol - '0';
+                    continue;
+                }
+                int type = "pnbrqk".indexOf(Character.toLowerCase(symbol)) + 1;
+                if (type == 0 || col > 7) {
+                    throw new IllegalArgumentException("Error: Invalid row '" + rows[row] + "' in FEN: " + fen);
+                }
+                int color = Character.isUpperCase(symbol) ? WHITE : BLACK;
+                setPiece(row * 8 + col, makePiece(color, type));
+                col++;
+            }
+            if (col != 8) {
+                throw new IllegalArgumentException("Error: Invalid row '" + rows[row] + "' in FEN: " + fen);
+            }
+        }
+        if (Long.bitCount(pieceBitboards[makePiece(WHITE, KING)]) != 1
+                || Long.bitCount(pieceBitboards[makePiece(BLACK, KING)]) != 1) {
+            throw new IllegalArgumentException("Error: Each color needs exactly one King in FEN: " + fen);
+        }
+        if (((pieceBitboards[makePiece(WHITE, PAWN)] | pieceBitboards[makePiece(BLACK, PAWN)])
+                & BACK_ROWS) != 0) {
+            throw new IllegalArgumentException("Error: Pawns must not stand on the first or last row in FEN: " + fen);
+        }
+
+        if (fields[1].equals("w")) {
+            setSideToMove(WHITE);
+        } else if (fields[1].equals("b")) {
+            setSideToMove(BLACK);
+        } else {
+            throw new IllegalArgumentException("Error: Invalid color to move in FEN: " + fen);
+        }
+        // Otherwise the color to move could capture the King
+        if (isKingAttacked(sideToMove ^ 1)) {
+            throw new IllegalArgumentException("Error: The color not to move must not be in check in FEN: " + fen);
+        }
+
+        int castlingRights = 0;
+        if (!fields[2].equals("-")) {
+            for (char symbol : fields[2].toCharArray()) {
+                int index = "KQkq".indexOf(symbol);
+                if (index < 0) {
+                    throw new IllegalArgumentException("Error: Invalid castling rights in FEN: " + fen);
+                }
+                // A right is only kept, if King and Rook are still on their original squares
+                int color = index < 2 ? WHITE : BLACK;
+                if (squares[CASTLING_SQUARES[index][0]] == makePiece(color, KING)
+                        && squares[CASTLING_SQUARES[index][1]] == makePiece(color, ROOK)) {
+                    castlingRights |= 1 << index;
+                }
+            }
+        }
+        setCastlingRights(castlingRights);
+
+        if (!fields[3].equals("-")) {
+            // The square has to be empty and lie behind a Pawn of the opponent that just made a double step
+            int square = Move.parseSquare(fields[3]);
+            int pawnSquare = sideToMove == WHITE ? square + 8 : square - 8;
+            if ((square >>> 3) == (sideToMove == WHITE ? 2 : 5) && squares[square] == EMPTY
+                    && squares[pawnSquare] == makePiece(sideToMove ^ 1, PAWN)) {
+                setEnPassantSquare(square);
+            }
+        }
+
+        try {
+            if (fields.length > 4) {
+                setHalfmoveClock(Integer.parseInt(fields[4]));
+            }
+            if (fields.length > 5) {
+                setFullmoveNumber(Integer.parseInt(fields[5]));
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Error: Invalid move counters in FEN: " + fen, e);
+        }
+    }
+
+    /**
+     * Returns the description of this Position in Forsyth-Edwards Notation (FEN).
+     *
+     * @return the FEN description, e.g. 'rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1'
+     */
+    public String toFen() {
+        StringBuilder builder = new StringBuilder();
+        for (int row = 0; row < 8; row++) {
+            int emptySquares = 0;
+            for (int col = 0; col < 8; col++) {
+                int piece = squares[row * 8 + col];
+                if (piece == EMPTY) {
+                    emptySquares++;
+                    continue;
+                }
+                if (emptySquares > 0) {
+                    builder.append(emptySquares);
+                    emptySquares = 0;
+                }
+                char symbol = "?pnbrqk".charAt(pieceType(piece));
+                builder.append(pieceColor(piece) == WHITE ? Character.toUpperCase(symbol) : symbol);
+            }
+            if (emptySquares > 0) {
+                builder.append(emptySquares);
+            }
+            if (row < 7) {
+                builder.append('/');
+            }
+        }
+        builder.append(sideToMove == WHITE ? " w " : " b ");
+        if (castlingRights == 0) {
+            builder.append('-');
+        }
+        for (int index = 0; index < 4; index++) {
+            if ((castlingRights & (1 << index)) != 0) {
+                builder.append("KQkq".charAt(index));
+            }
+        }
+        builder.append(' ').append(enPassantSquare >= 0 ? Move.squareName(enPassantSquare) : "-");
+        builder.append(' ').append(halfmoveClock).append(' ').append(fullmoveNumber);
+        return builder.toString();
+    }
+
+    /**
+     * Combines a color and a piece type into a piece code, as it is stored on the squares of a Position.
+     *
+     * @param color the color of the piece: {@link #WHITE} or {@link #BLACK}
+     * @param type  the piece type, e.g. {@link #PAWN}
+     * @return the piece code
+     */
+    public static int makePiece(int color, int type) {
+        return (color << 3) | type;
+    }
+
+    /**
+     * Returns the piece type of a piece code.
+     *
+     * @param piece the piece code
+     * @return the piece type, e.g. {@link #PAWN} or {@link #EMPTY}
+     */
+    public static int pieceType(int piece) {
+        return piece & 7;
+    }
+
+    /**
+     * Returns the color of a piece code. The result is undefined for empty squares.
+     *
+     * @param piece the piece code
+     * @return the color of the piece
+     */
+    public static int pieceColor(int piece) {
+        return piece >>> 3;
+    }
+
+    /**
+     * Returns the piece code of the piece on the given square.
+     *
+     * @param square the square index between 0 and 63
+     * @return the piece code or {@link #EMPTY}
+     */
+    public int getPiece(int square) {
+        return squares[square];
+    }
+
+    /**
+     * Removes all pieces and resets the state and the move history, so this Position equals a new, empty Position.
+     */
+    public void clear() {
+        Arrays.fill(squares, EMPTY);
+        Arrays.fill(pieceBitboards, 0);
+        Arrays.fill(colorBitboards, 0);
+        Arrays.fill(kingSquares, -1);
+        Arrays.fill(middlegameScores, 0);
+        Arrays.fill(endgameScores, 0);
+        phase = 0;
+        hashKey = 0;
+        pawnKey = 0;
+        sideToMove = WHITE;
+        castlingRights = 0;
+        enPassantSquare = -1;
+        halfmoveClock = 0;
+        fullmoveNumber = 1;
+        historySize = 0;
+        if (accumulator != null) {
+            accumulator.reset();
+        }
+    }
+
+    /**
+     * Returns the accumulator of a {@link Nnue} network that is updated by this Position.
+     *
+     * @return the accumulator or null, if there is none
+     */
+    public NnueAccumulator getAccumulator() {
+        return accumulator;
+    }
+
+    /**
+     * Attaches the accumulator of a {@link Nnue} network to this Position. The accumulator is initialized with the
+     * current pieces and updated whenever a piece is placed or removed, including the moves carried out and taken
+     * back during a {@link Search}. Copies of this Position do not share the accumulator.
+     *
+     * @param accumulator the accumulator or null to stop the updates
+     */
+    public void setAccumulator(NnueAccumulator accumulator) {
+        this.accumulator = accumulator;
+        if (accumulator != null) {
+            accumulator.reset();
+            long occupancy = getOccupancy();
+            while (occupancy != 0) {
+                int square = Long.numberOfTrailingZeros(occupancy);
+                occupancy &= occupancy - 1;
+                accumulator.add(squares[square], square);
+            }
+        }
+    }
+
+    /**
+     * Places a piece on the given square, replacing whatever was placed there before. Passing {@link #EMPTY} clears
+     * the square.
+     *
+     * @param square the square index between 0 and 63
+     * @param piece  the piece code created by {@link #makePiece(int, int)} or {@link #EMPTY}
+     */
+    public void setPiece(int square, int piece) {
+        clearSquare(square);
+        if (piece != EMPTY) {
+            putPiece(square, piece);
+        }
+    }
+
+    /**
+     * Places a piece on an empty square and updates the incrementally maintained evaluation terms and hash keys.
+     *
+     * @param square the empty square
+     * @param piece  the piece code
+     */
+    private void putPiece(int square, int piece) {
+        squares[square] = piece;
+        int color = pieceColor(piece);
+        pieceBitboards[piece] |= 1L << square;
+        colorBitboards[color] |= 1L << square;
+        middlegameScores[color] += Evaluation.middlegameScore(piece, square);
+        endgameScores[color] += Evaluation.endgameScore(piece, square);
+        phase += Evaluation.phaseWeight(piece);
+        hashKey ^= Zobrist.piece(piece, square);
+        if (pieceType(piece) == PAWN) {
+            pawnKey ^= Zobrist.piece(piece, square);
+        }
+        if (pieceType(piece) == KING) {
+            kingSquares[color] = square;
+        }
+        if (accumulator != null) {
+            accumulator.add(piece, square);
+        }
+    }
+
+    /**
+     * Removes the piece from the given square, if there is one, and updates the incrementally maintained evaluation
+     * terms and hash keys.
+     *
+     * @param square the square that will be emptied
+     */
+    private void clearSquare(int square) {
+        int piece = squares[square];
+        if (piece == EMPTY) {
+            return;
+        }
+        int color = pieceColor(piece);
+        pieceBitboards[piece] &= ~(1L << square);
+        colorBitboards[color] &= ~(1L << square);
+        middlegameScores[color] -= Evaluation.middlegameScore(piece, square);
+        endgameScores[color] -= Evaluation.endgameScore(piece, square);
+        phase -= Evaluation.phaseWeight(piece);
+        hashKey ^= Zobrist.piece(piece, square);
+        if (pieceType(piece) == PAWN) {
+            pawnKey ^= Zobrist.piece(piece, square);
+        }
+        squares[square] = EMPTY;
+        if (accumulator != null) {
+            accumulator.remove(piece, square);
+        }
+    }
+
+    /**
+     * Returns a bitboard of all squares that are occupied by the given piece. Bit n is set if the piece is placed on
+     * square n.
+     *
+     * @param piece the piece code created by {@link #makePiece(int, int)}
+     * @return the squares of the piece as bitboard
+     */
+    public long getPieceBitboard(int piece) {
+        return pieceBitboards[piece];
+    }
+
+    /**
+     * Returns a bitboard of all squares that are occupied by pieces of the given color.
+     *
+     * @param color {@link #WHITE} or {@link #BLACK}
+     * @return the squares of the pieces of the color as bitboard
+     */
+    public long getColorBitboard(int color) {
+        return colorBitboards[color];
+    }
+
+    /**
+     * Returns a bitboard of all occupied squares.
+     *
+     * @return the occupied squares as bitboard
+     */
+    public long getOccupancy() {
+        return colorBitboards[WHITE] | colorBitboards[BLACK];
+    }
+
+    /**
+     * Returns the sum of the material and piece-square values of all pieces of the given color in the middlegame.
+     * The value is updated incrementally with every move.
+     *
+     * @param color {@link #WHITE} or {@link #BLACK}
+     * @return the middlegame score of the color
+     */
+    public int getMiddlegameScore(int color) {
+        return middlegameScores[color];
+    }
+
+    /**
+     * Returns the sum of the material and piece-square values of all pieces of the given color in the endgame. The
+     * value is updated incrementally with every move.
+     *
+     * @param color {@link #WHITE} or {@link #BLACK}
+     * @return the endgame score of the color
+     */
+    public int getEndgameScore(int color) {
+        return endgameScores[color];
+    }
+
+    /**
+     * Returns the game phase, which is derived from the Knights, Bishops, Rooks and Queens left on the board. It is
+     * {@link Evaluation#MAX_PHASE} for the starting position and 0 if only Kings and Pawns are left.
+     *
+     * @return the game phase
+     */
+    public int getPhase() {
+        return phase;
+    }
+
+    /**
+     * Returns the Zobrist hash key of this Position. Positions with the same pieces on the same squares, the same
+     * color to move, castling rights and en passant file have the same key. It is updated incrementally with every
+     * move.
+     *
+     * @return the hash key
+     */
+    public long getHashKey() {
+        return hashKey;
+    }
+
+    /**
+     * Returns a Zobrist hash key that only considers the Pawns of this Position. It is used to cache evaluation terms
+     * that only depend on the pawn structure.
+     *
+     * @return the pawn hash key
+     */
+    public long getPawnKey() {
+        return pawnKey;
+    }
+
+    /**
+     * Returns the color that has to move next.
+     *
+     * @return {@link #WHITE} or {@link #BLACK}
+     */
+    public int getSideToMove() {
+        return sideToMove;
+    }
+
+    /**
+     * Sets the color that has to move next.
+     *
+     * @param sideToMove {@link #WHITE} or {@link #BLACK}
+     */
+    public void setSideToMove(int sideToMove) {
+        if (this.sideToMove != sideToMove) {
+            hashKey ^= Zobrist.side();
+        }
+        this.sideToMove = sideToMove;
+    }
+
+    /**
+     * Returns the remaining castling rights as a combination of {@link #WHITE_KINGSIDE}, {@link #WHITE_QUEENSIDE},
+     * {@link #BLACK_KINGSIDE} and {@link #BLACK_QUEENSIDE}.
+     *
+     * @return the castling rights
+     */
+    public int getCastlingRights() {
+        return castlingRights;
+    }
+
+    /**
+     * Sets the castling rights.
+     *
+     * @param castlingRights a combination of the castling flags of this class
+     */
+    public void setCastlingRights(int castlingRights) {
+        hashKey ^= Zobrist.castling(this.castlingRights) ^ Zobrist.castling(castlingRights);
+        this.castlingRights = castlingRights;
+    }
+
+    /**
+     * Returns the square a Pawn skipped with its last move, which can be targeted by an en passant capture.
+     *
+     * @return the en passant square or -1
+     */
+    public int getEnPassantSquare() {
+        return enPassantSquare;
+    }
+
+    /**
+     * Sets the square that can be targeted by an en passant capture.
+     *
+     * @param enPassantSquare the en passant square or -1
+     */
+    public void setEnPassantSquare(int enPassantSquare) {
+        hashKey ^= Zobrist.enPassant(this.enPassantSquare) ^ Zobrist.enPassant(enPassantSquare);
+        this.enPassantSquare = enPassantSquare;
+    }
+
+    /**
+     * Returns the number of half moves since the last capture or Pawn move.
+     *
+     * @return the half move clock
+     */
+    public int getHalfmoveClock() {
+        return halfmoveClock;
+    }
+
+    /**
+     * Sets the number of half moves since the last capture or Pawn move.
+     *
+     * @param halfmoveClock the half move clock
+     */
+    public void setHalfmoveClock(int halfmoveClock) {
+        this.halfmoveClock = halfmoveClock;
+    }
+
+    /**
+     * Returns the number of the current full move. It starts at 1 and is incremented after every move of black.
+     *
+     * @return the full move number
+     */
+    public int getFullmoveNumber() {
+        return fullmoveNumber;
+    }
+
+    /**
+     * Sets the number of the current full move.
+     *
+     * @param fullmoveNumber the full move number
+     */
+    public void setFullmoveNumber(int fullmoveNumber) {
+        this.fullmoveNumber = fullmoveNumber;
+    }
+
+    /**
+     * Returns the square of the King of the given color.
+     *
+     * @param color {@link #WHITE} or {@link #BLACK}
+     * @return the square of the King or -1, if there is none
+     */
+    public int getKingSquare(int color) {
+        return kingSquares[color];
+    }
+
+    /**
+     * Tests if the given square is attacked by any piece of the given color.
+     *
+     * @param square the investigated square
+     * @param color  the color of the attacking pieces
+     * @return true if at least one piece of the given color attacks the square
+     */
+    public boolean isSquareAttacked(int square, int color) {
+        int row = square >>> 3;
+        int col = square & 7;
+
+        // Pawns attack diagonally forward -> look one row 'behind' the square from the attackers point of view
+        int pawnRow = color == WHITE ? row + 1 : row - 1;
+        int pawn = makePiece(color, PAWN);
+        if (pawnRow >= 0 && pawnRow < 8) {
+            if (col > 0 && squares[pawnRow * 8 + col - 1] == pawn) {
+                return true;
+            }
+            if (col < 7 && squares[pawnRow * 8 + col + 1] == pawn) {
+                return true;
+            }
+        }
+
+        if ((AttackTables.knightAttacks(square) & pieceBitboards[makePiece(color, KNIGHT)]) != 0
+                || (AttackTables.kingAttacks(square) & pieceBitboards[makePiece(color, KING)]) != 0) {
+            return true;
+        }
+
+        // A slider attacks the square if the square attacks the slider with the same move set
+        long occupancy = getOccupancy();
+        long queens = pieceBitboards[makePiece(color, QUEEN)];
+        return (AttackTables.rookAttacks(square, occupancy) & (pieceBitboards[makePiece(color, ROOK)] | queens)) != 0
+                || (AttackTables.bishopAttacks(square, occupancy)
+                & (pieceBitboards[makePiece(color, BISHOP)] | queens)) != 0;
+    }
+
+    /**
+     * Tests if the King of the given color is attacked by the opponent.
+     *
+     * @param color the color of the investigated King
+     * @return true if the King is attacked
+     */
+    public boolean isKingAttacked(int color) {
+        return kingSquares[color] >= 0 && isSquareAttacked(kingSquares[color], color ^ 1);
+    }
+
+    /**
+     * Tests if the color to move is currently checked.
+     *
+     * @return true if the King of the color to move is attacked
+     */
+    public boolean isInCheck() {
+        return isKingAttacked(sideToMove);
+    }
+
+    /**
+     * Writes all pseudo legal moves of the color to move into the given array. Pseudo legal moves follow the move set
+     * of the pieces, but may leave the own King checked. Castling moves are only generated if the King is not checked
+     * and does not pass an attacked square.
+     *
+     * @param moves the array receiving the moves, it needs a capacity of at least {@link #MAX_MOVES}
+     * @return the number of generated moves
+     */
+    public int generateMoves(int[] moves) {
+        return generateMoves(moves, 0, CAPTURES | QUIET_MOVES);
+    }
+
+    /**
+     * Writes the pseudo legal captures and promotions of the color to move into the given array. Together with
+     * {@link #generateQuietMoves(int[], int)}, it generates the same moves as {@link #generateMoves(int[])}, so a
+     * {@link Search} can try the captures before it spends time on the quiet moves.
+     *
+     * @param moves the array receiving the moves, it needs a capacity of at least {@link #MAX_MOVES}
+     * @return the number of generated moves
+     */
+    public int generateCaptures(int[] moves) {
+        return generateMoves(moves, 0, CAPTURES);
+    }
+
+    /**
+     * Writes the pseudo legal moves of the color to move that neither capture a piece nor promote a Pawn into the
+     * given array, including castling moves.
+     *
+     * @param moves the array receiving the moves, it needs a capacity of at least {@link #MAX_MOVES}
+     * @param start the index of the first generated move, so quiet moves can be appended to the captures
+     * @return the index after the last generated move
+     */
+    public int generateQuietMoves(int[] moves, int start) {
+        return generateMoves(moves, start, QUIET_MOVES);
+    }
+
+    /**
+     * Tests if a move, e.g. one that was found in another position, is pseudo legal in this Position.
+     *
+     * @param move the encoded move
+     * @return true if {@link #generateMoves(int[])} would generate the move
+     */
+    public boolean isPseudoLegal(int move) {
+        int from = Move.from(move);
+        int piece = squares[from];
+        if (move == Move.NONE || piece == EMPTY || pieceColor(piece) != sideToMove) {
+            return false;
+        }
+        int count = generatePieceMoves(from, piece, CAPTURES | QUIET_MOVES, pieceMoves, 0);
+        for (int i = 0; i < count; i++) {
+            if (pieceMoves[i] == move) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int generateMoves(int[] moves, int start, int kinds) {
+        int count = start;
+        long pieces = colorBitboards[sideToMove];
+        while (pieces != 0) {
+            int square = Long.numberOfTrailingZeros(pieces);
+            count = generatePieceMoves(square, squares[square], kinds, moves, count);
+            pieces &= pieces - 1;
+        }
+        return count;
+    }
+
+    /**
+     * Adds the pseudo legal moves of the piece on the given square, restricted to captures and promotions and/or to
+     * quiet moves.
+     */
+    private int generatePieceMoves(int square, int piece, int kinds, int[] moves, int count) {
+        long targets = 0;
+        if ((kinds & CAPTURES) != 0) {
+            targets |= colorBitboards[sideToMove ^ 1];
+        }
+        if ((kinds & QUIET_MOVES) != 0) {
+            targets |= ~getOccupancy();
+        }
+        switch (pieceType(piece)) {
+            case PAWN:
+                return generatePawnMoves(square, kinds, moves, count);
+            case KNIGHT:
+                return addMoves(square, AttackTables.knightAttacks(square) & targets, moves, count);
+            case BISHOP:
+                return addMoves(square, AttackTables.bishopAttacks(square, getOccupancy()) & targets, moves, count);
+            case ROOK:
+                return addMoves(square, AttackTables.rookAttacks(square, getOccupancy()) & targets, moves, count);
+            case QUEEN:
+                return addMoves(square, AttackTables.queenAttacks(square, getOccupancy()) & targets, moves, count);
+            case KING:
+                count = addMoves(square, AttackTables.kingAttacks(square) & targets, moves, count);
+                return (kinds & QUIET_MOVES) != 0 ? generateCastlingMoves(square, moves, count) : count;
+            default:
+                throw new IllegalStateException("Error: Unknown piece type on square " + square);
+        }
+    }
+
+    /**
+     * Writes all legal moves of the color to move into the given array.
+     *
+     * @param moves the array receiving the moves, it needs a capacity of at least {@link #MAX_MOVES}
+     * @return the number of legal moves
+     */
+    public int generateLegalMoves(int[] moves) {
+        int count = generateMoves(moves);
+        int legal = 0;
+        for (int i = 0; i < count; i++) {
+            if (isLegal(moves[i])) {
+                moves[legal++] = moves[i];
+            }
+        }
+        return legal;
+    }
+
+    /**
+     * Tests if the given pseudo legal move leaves the own King unchecked.
+     *
+     * @param move the pseudo legal move
+     * @return true if the move is legal
+     */
+    public boolean isLegal(int move) {
+        int color = sideToMove;
+        makeMove(move);
+        boolean legal = !isKingAttacked(color);
+        unmakeMove(move);
+        return legal;
+    }
+
+    private int generatePawnMoves(int square, int kinds, int[] moves, int count) {
+        int row = square >>> 3;
+        int col = square & 7;
+        int direction = sideToMove == WHITE ? -8 : 8;
+        int startRow = sideToMove == WHITE ? 6 : 1;
+        int promotionRow = sideToMove == WHITE ? 0 : 7;
+        int forward = square + direction;
+
+        // Moves straight forward need empty squares. Promotions count as captures.
+        if (squares[forward] == EMPTY) {
+            if (forward >>> 3 == promotionRow) {
+                if ((kinds & CAPTURES) != 0) {
+                    count = addPromotions(square, forward, moves, count);
+                }
+            } else if ((kinds & QUIET_MOVES) != 0) {
+                moves[count++] = Move.create(square, forward);
+                if (row == startRow && squares[forward + direction] == EMPTY) {
+                    moves[count++] = Move.create(square, forward + direction, 0, Move.DOUBLE_PUSH);
+                }
+            }
+        }
+
+        // Diagonal moves have to capture a piece or use the en passant square
+        if ((kinds & CAPTURES) == 0) {
+            return count;
+        }
+        for (int side = -1; side <= 1; side += 2) {
+            if (col + side < 0 || col + side > 7) {
+                continue;
+            }
+            int target = forward + side;
+            int piece = squares[target];
+            if (piece != EMPTY && pieceColor(piece) != sideToMove) {
+                if (target >>> 3 == promotionRow) {
+                    count = addPromotions(square, target, moves, count);
+                } else {
+                    moves[count++] = Move.create(square, target);
+                }
+            } else if (target == enPassantSquare) {
+                moves[count++] = Move.create(square, target, 0, Move.EN_PASSANT);
+            }
+        }
+        return count;
+    }
+
+    private int addPromotions(int from, int to, int[] moves, int count) {
+        moves[count++] = Move.create(from, to, QUEEN, 0);
+        moves[count++] = Move.create(from, to, ROOK, 0);
+        moves[count++] = Move.create(from, to, BISHOP, 0);
+        moves[count++] = Move.create(from, to, KNIGHT, 0);
+        return count;
+    }
+
+    /**
+     * Adds a move to every target square.
+     */
+    private int addMoves(int square, long targets, int[] moves, int count) {
+        while (targets != 0) {
+            moves[count++] = Move.create(square, Long.numberOfTrailingZeros(targets));
+            targets &= targets - 1;
+        }
+        return count;
+    }
+
+    private int generateCastlingMoves(int square, int[] moves, int count) {
+        int opponent = sideToMove ^ 1;
+        if (sideToMove == WHITE && square == 60) {
+            if ((castlingRights & WHITE_KINGSIDE) != 0 && squares[61] == EMPTY && squares[62] == EMPTY
+                    && !isSquareAttacked(60, opponent) && !isSquareAttacked(61, opponent)) {
+                moves[count++] = Move.create(60, 62, 0, Move.CASTLING);
+            }
+            if ((castlingRights & WHITE_QUEENSIDE) != 0 && squares[59] == EMPTY && squares[58] == EMPTY
+                    && squares[57] == EMPTY && !isSquareAttacked(60, opponent) && !isSquareAttacked(59, opponent)) {
+                moves[count++] = Move.create(60, 58, 0, Move.CASTLING);
+            }
+        } else if (sideToMove == BLACK && square == 4) {
+            if ((castlingRights & BLACK_KINGSIDE) != 0 && squares[5] == EMPTY && squares[6] == EMPTY
+                    && !isSquareAttacked(4, opponent) && !isSquareAttacked(5, opponent)) {
+                moves[count++] = Move.create(4, 6, 0, Move.CASTLING);
+            }
+            if ((castlingRights & BLACK_QUEENSIDE) != 0 && squares[3] == EMPTY && squares[2] == EMPTY
+                    && squares[1] == EMPTY && !isSquareAttacked(4, opponent) && !isSquareAttacked(3, opponent)) {
+                moves[count++] = Move.create(4, 2, 0, Move.CASTLING);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Carries out the given move. The move has to be pseudo legal in this Position, otherwise the Position will be
+     * corrupted. The move can be taken back with {@link #unmakeMove(int)}.
+     *
+     * @param move the encoded move
+     */
+    public void makeMove(int move) {
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int piece = squares[from];
+        int captured = squares[to];
+
+        // Save the state that can not be restored from the move itself
+        undoCastlingRights[historySize] = castlingRights;
+        undoEnPassantSquare[historySize] = enPassantSquare;
+        undoHalfmoveClock[historySize] = halfmoveClock;
+        undoHashKey[historySize] = hashKey;
+        undoPawnKey[historySize] = pawnKey;
+
+        if (Move.isEnPassant(move)) {
+            int capturedSquare = sideToMove == WHITE ? to + 8 : to - 8;
+            captured = squares[capturedSquare];
+            clearSquare(capturedSquare);
+        } else {
+            clearSquare(to);
+        }
+        undoCaptured[historySize] = captured;
+        historySize++;
+
+        clearSquare(from);
+        putPiece(to, Move.promotion(move) != 0 ? makePiece(sideToMove, Move.promotion(move)) : piece);
+
+        if (Move.isCastling(move)) {
+            moveCastlingRook(to, false);
+        }
+
+        halfmoveClock = (pieceType(piece) == PAWN || captured != EMPTY) ? 0 : halfmoveClock + 1;
+        hashKey ^= Zobrist.enPassant(enPassantSquare) ^ Zobrist.castling(castlingRights) ^ Zobrist.side();
+        enPassantSquare = Move.isDoublePush(move) ? (from + to) / 2 : -1;
+        castlingRights &= CASTLING_MASKS[from] & CASTLING_MASKS[to];
+        hashKey ^= Zobrist.enPassant(enPassantSquare) ^ Zobrist.castling(castlingRights);
+        if (sideToMove == BLACK) {
+            fullmoveNumber++;
+        }
+        sideToMove ^= 1;
+    }
+
+    /**
+     * Takes back the given move. It has to be the last move that was carried out with {@link #makeMove(int)}.
+     *
+     * @param move the encoded move
+     */
+    public void unmakeMove(int move) {
+        sideToMove ^= 1;
+        if (sideToMove == BLACK) {
+            fullmoveNumber--;
+        }
+        historySize--;
+        castlingRights = undoCastlingRights[historySize];
+        enPassantSquare = undoEnPassantSquare[historySize];
+        halfmoveClock = undoHalfmoveClock[historySize];
+        int captured = undoCaptured[historySize];
+
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int piece = Move.promotion(move) != 0 ? makePiece(sideToMove, PAWN) : squares[to];
+        clearSquare(to);
+        putPiece(from, piece);
+
+        if (captured != EMPTY) {
+            putPiece(Move.isEnPassant(move) ? (sideToMove == WHITE ? to + 8 : to - 8) : to, captured);
+        }
+
+        if (Move.isCastling(move)) {
+            moveCastlingRook(to, true);
+        }
+        hashKey = undoHashKey[historySize];
+        pawnKey = undoPawnKey[historySize];
+    }
+
+    /**
+     * Passes the right to move to the opponent without moving a piece ('null move'). The {@link Search} uses it to
+     * test whether a position is so strong that even a free move of the opponent does not help. The color to move
+     * must not be in check. The null move can be taken back with {@link #unmakeNullMove()}.
+     */
+    public void makeNullMove() {
+        undoCastlingRights[historySize] = castlingRights;
+        undoEnPassantSquare[historySize] = enPassantSquare;
+        undoHalfmoveClock[historySize] = halfmoveClock;
+        undoHashKey[historySize] = hashKey;
+        undoPawnKey[historySize] = pawnKey;
+        undoCaptured[historySize] = EMPTY;
+        historySize++;
+
+        hashKey ^= Zobrist.enPassant(enPassantSquare) ^ Zobrist.side();
+        enPassantSquare = -1;
+        halfmoveClock = 0; // Positions before the null move do not count as repetitions
+        sideToMove ^= 1;
+    }
+
+    /**
+     * Takes back a null move. It has to be the last move that was carried out, see {@link #makeNullMove()}.
+     */
+    public void unmakeNullMove() {
+        sideToMove ^= 1;
+        historySize--;
+        enPassantSquare = undoEnPassantSquare[historySize];
+        halfmoveClock = undoHalfmoveClock[historySize];
+        hashKey = undoHashKey[historySize];
+    }
+
+    /**
+     * Moves the Rook that is involved in a castling move of the King.
+     *
+     * @param kingTarget the target square of the King
+     * @param undo       whether the Rook is moved back to its original square
+     */
+    private void moveCastlingRook(int kingTarget, boolean undo) {
+        int rookFrom;
+        int rookTo;
+        switch (kingTarget) {
+            case 62: // short castle for white
+                rookFrom = 63;
+                rookTo = 61;
+                break;
+            case 58: // long castle for white
+                rookFrom = 56;
+                rookTo = 59;
+                break;
+            case 6: // short castle for black
+                rookFrom = 7;
+                rookTo = 5;
+                break;
+            case 2: // long castle for black
+                rookFrom = 0;
+                rookTo = 3;
+                break;
+            default:
+                throw new IllegalStateException("Error: Invalid castling target " + kingTarget);
+        }
+        if (undo) {
+            int rook = squares[rookTo];
+            clearSquare(rookTo);
+            putPiece(rookFrom, rook);
+        } else {
+            int rook = squares[rookFrom];
+            clearSquare(rookFrom);
+            putPiece(rookTo, rook);
+        }
+    }
+
+    /**
+     * Returns the legal move that is described in long algebraic notation, e.g. 'e2e4' or 'e7e8q'.
+     *
+     * @param text the move in long algebraic notation
+     * @return the encoded move
+     * @throws IllegalArgumentException if there is no such legal move
+     */
+    public int parseMove(String text) {
+        int[] moves = new int[MAX_MOVES];
+        int count = generateLegalMoves(moves);
+        for (int i = 0; i < count; i++) {
+            if (Move.toString(moves[i]).equals(text)) {
+                return moves[i];
+            }
+        }
+        throw new IllegalArgumentException("Error: Illegal move " + text);
+    }
+
+    /**
+     * Counts how often this Position occurred before, since the last capture or Pawn move. Only Positions reached
+     * with {@link #makeMove(int)} are considered, the history of copied Positions starts with the copy.
+     *
+     * @return the number of earlier occurrences, e.g. 2 for a threefold repetition
+     */
+    public int getRepetitionCount() {
+        int count = 0;
+        int oldest = Math.max(0, historySize - halfmoveClock);
+        for (int index = historySize - 2; index >= oldest; index -= 2) { // The same color has to be on the move
+            if (undoHashKey[index] == hashKey) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Tests if neither color has enough material left to checkmate the other: Only Kings are left, or a single
+     * Knight or Bishop, or only Bishops that all stand on squares of the same color.
+     *
+     * @return true if no checkmate is possible anymore
+     */
+    public boolean isInsufficientMaterial() {
+        long heavyPieces = 0;
+        for (int color = WHITE; color <= BLACK; color++) {
+            heavyPieces |= pieceBitboards[makePiece(color, PAWN)] | pieceBitboards[makePiece(color, ROOK)]
+                    | pieceBitboards[makePiece(color, QUEEN)];
+        }
+        if (heavyPieces != 0) {
+            return false;
+        }
+        long knights = pieceBitboards[makePiece(WHITE, KNIGHT)] | pieceBitboards[makePiece(BLACK, KNIGHT)];
+        long bishops = pieceBitboards[makePiece(WHITE, BISHOP)] | pieceBitboards[makePiece(BLACK, BISHOP)];
+        if (Long.bitCount(knights | bishops) <= 1) {
+            return true;
+        }
+        return knights == 0 && ((bishops & LIGHT_SQUARES) == 0 || (bishops & ~LIGHT_SQUARES) == 0);
+    }
+
+    /**
+     * Returns whether the given move captures a piece, including en passant captures.
+     *
+     * @param move the encoded move
+     * @return true if the move captures a piece
+     */
+    public boolean isCapture(int move) {
+        return squares[Move.to(move)] != EMPTY || Move.isEnPassant(move);
+    }
+
+    /**
+     * Returns all pieces of both colors that attack the given square, if only the given squares are occupied. Passing
+     * a different occupancy than {@link #getOccupancy()} allows to find pieces that attack 'through' other pieces,
+     * once these have been removed.
+     *
+     * @param square    the attacked square
+     * @param occupancy bitboard of the squares that are considered as occupied
+     * @return bitboard of the squares of the attacking pieces
+     */
+    public long attackersTo(int square, long occupancy) {
+        long queens = pieceBitboards[makePiece(WHITE, QUEEN)] | pieceBitboards[makePiece(BLACK, QUEEN)];
+        long rooks = pieceBitboards[makePiece(WHITE, ROOK)] | pieceBitboards[makePiece(BLACK, ROOK)] | queens;
+        long bishops = pieceBitboards[makePiece(WHITE, BISHOP)] | pieceBitboards[makePiece(BLACK, BISHOP)] | queens;
+        long knights = pieceBitboards[makePiece(WHITE, KNIGHT)] | pieceBitboards[makePiece(BLACK, KNIGHT)];
+        long kings = pieceBitboards[makePiece(WHITE, KING)] | pieceBitboards[makePiece(BLACK, KING)];
+
+        // A white Pawn attacks the square if a black Pawn on the square would attack the Pawn and vice versa
+        return (AttackTables.pawnAttacks(BLACK, square) & pieceBitboards[makePiece(WHITE, PAWN)])
+                | (AttackTables.pawnAttacks(WHITE, square) & pieceBitboards[makePiece(BLACK, PAWN)])
+                | (AttackTables.knightAttacks(square) & knights)
+                | (AttackTables.kingAttacks(square) & kings)
+                | (AttackTables.rookAttacks(square, occupancy) & rooks)
+                | (AttackTables.bishopAttacks(square, occupancy) & bishops);
+    }
+
+    /**
+     * Calculates the material the color to move wins or loses with the given move, if both colors keep capturing on
+     * the target square with their least valuable piece as long as this is profitable (static exchange evaluation).
+     * Pieces that attack the square through other pieces join the exchange once these have captured. Pinned pieces
+     * and checks are not considered.
+     *
+     * @param move the pseudo legal move
+     * @return the material balance of the exchange from the view of the color to move, e.g. 220 if a Knight is
+     * captured by a Pawn and the Pawn is recaptured
+     */
+    public int staticExchange(int move) {
+        if (Move.isCastling(move)) {
+            return 0;
+        }
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int attackerValue = EXCHANGE_VALUES[pieceType(squares[from])];
+        int[] gains = exchangeGains;
+        gains[0] = EXCHANGE_VALUES[pieceType(squares[to])];
+
+        long occupancy = getOccupancy() & ~(1L << from);
+        if (Move.isEnPassant(move)) {
+            gains[0] = EXCHANGE_VALUES[PAWN];
+            occupancy &= ~(1L << (sideToMove == WHITE ? to + 8 : to - 8));
+        }
+        if (Move.promotion(move) != 0) {
+            attackerValue = EXCHANGE_VALUES[Move.promotion(move)];
+            gains[0] += attackerValue - EXCHANGE_VALUES[PAWN];
+        }
+
+        long queens = pieceBitboards[makePiece(WHITE, QUEEN)] | pieceBitboards[makePiece(BLACK, QUEEN)];
+        long rooks = pieceBitboards[makePiece(WHITE, ROOK)] | pieceBitboards[makePiece(BLACK, ROOK)] | queens;
+        long bishops = pieceBitboards[makePiece(WHITE, BISHOP)] | pieceBitboards[makePiece(BLACK, BISHOP)] | queens;
+        long attackers = attackersTo(to, occupancy) & occupancy;
+        int color = sideToMove;
+        int depth = 0;
+        while (true) {
+            color ^= 1;
+            long ownAttackers = attackers & colorBitboards[color];
+            if (ownAttackers == 0) {
+                break;
+            }
+
+            // The least valuable attacker captures next
+            int type = PAWN;
+            long candidates = ownAttackers & pieceBitboards[makePiece(color, PAWN)];
+            while (candidates == 0) {
+                type++;
+                candidates = ownAttackers & pieceBitboards[makePiece(color, type)];
+            }
+            if (type == KING && (attackers & colorBitboards[color ^ 1]) != 0) {
+                break; // The King can not capture a defended piece
+            }
+            depth++;
+            gains[depth] = attackerValue - gains[depth - 1];
+            attackerValue = EXCHANGE_VALUES[type];
+            if (depth == gains.length - 1) {
+                break;
+            }
+
+            // Removing the attacker may uncover a slider behind it
+            occupancy &= ~(candidates & -candidates);
+            if (type == PAWN || type == BISHOP || type == QUEEN) {
+                attackers |= AttackTables.bishopAttacks(to, occupancy) & bishops;
+            }
+            if (type == ROOK || type == QUEEN) {
+                attackers |= AttackTables.rookAttacks(to, occupancy) & rooks;
+            }
+            attackers &= occupancy;
+        }
+
+        // Every color may stop capturing, if continuing the exchange would lose material
+        while (depth > 0) {
+            gains[depth - 1] = -Math.max(-gains[depth - 1], gains[depth]);
+            depth--;
+        }
+        return gains[0];
+    }
+}
@@ -0,0 +1,171 @@
+import java.util.Arrays;
+
+/**
+ * Map from the 64 bit key of a position to the number of its occurrences, used by the {@link PositionCounter}. Keys
+ * and counts are stored in two primitive arrays with open addressing and linear probing, so an entry takes 12 bytes
+ * and no objects are created per position.
+ * <p>
+ * The map has a fixed capacity and does not grow: {@link #isFull()} reports when the load factor of 3/4 is reached,
+ * so the owner can write the entries to disk with {@link #sortKeys(long[])} and {@link #clear()} the map. The key 0
+ * marks an empty slot, its count is kept in a separate field. A PositionCountMap is not thread-safe.
+ */
+public final class PositionCountMap {
+
+    /**
+     * Memory needed per slot of the map in bytes.
+     */
+    public static final int BYTES_PER_SLOT = 12;
+
+    private final long[] keys;
+    private final int[] counts;
+    private final int mask;
+    private final int maxSize;
+    private int size;
+    private int zeroCount;
+
+    /**
+     * Creates a new, empty PositionCountMap.
+     *
+     * @param slots the number of slots, it is rounded down to a power of two. At most 3/4 of them are used.
+     */
+    public PositionCountMap(int slots) {
+        if (slots < 2) {
+            throw new IllegalArgumentException("Error: A PositionCountMap needs at least 2 slots.");
+        }
+        int capacity = Integer.highestOneBit(slots);
+        this.keys = new long[capacity];
+        this.counts = new int[capacity];
+        this.mask = capacity - 1;
+        this.maxSize = capacity / 4 * 3;
+    }
+
+    /**
+     * Adds the given number to the count of a key. Counts stop at {@link Integer#MAX_VALUE}.
+     *
+     * @param key   the key of the position
+     * @param count the number of new occurrences
+     * @throws IllegalStateException if the key is new and the map is full
+     */
+    public void add(long key, int count) {
+        if (key == 0) {
+            if (zeroCount == 0) {
+                checkCapacity();
+                size++;
+            }
+            zeroCount = saturatedAdd(zeroCount, count);
+            return;
+        }
+        int index = slot(key);
+        while (keys[index] != 0) {
+            if (keys[index] == key) {
+                counts[index] = saturatedAdd(counts[index], count);
+                return;
+            }
+            index = (index + 1) & mask;
+        }
+        checkCapacity();
+        keys[index] = key;
+        counts[index] = count;
+        size++;
+    }
+
+    /**
+     * Returns the count of a key.
+     *
+     * @param key the key of the position
+     * @return the number of occurrences or 0, if the key is not in the map
+     */
+    public int get(long key) {
+        if (key == 0) {
+            return zeroCount;
+        }
+        int index = slot(key);
+        while (keys[index] != 0) {
+            if (keys[index] == key) {
+                return counts[index];
+            }
+            index = (index + 1) & mask;
+        }
+        return 0;
+    }
+
+    /**
+     * Returns the number of keys in the map.
+     *
+     * @return the number of distinct keys
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the maximum number of keys.
+     *
+     * @return the number of keys at which the map is full
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Tests if the map has reached its maximum number of keys, so adding a new key would fail.
+     *
+     * @return true if the map is full
+     */
+    public boolean isFull() {
+        return size >= maxSize;
+    }
+
+    /**
+     * Copies all keys into the given array and sorts them in ascending (signed) order.
+     *
+     * @param target the array receiving the keys, it needs a length of at least {@link #size()}
+     * @return the number of keys
+     */
+    public int sortKeys(long[] target) {
+        int count = 0;
+        for (long key : keys) {
+            if (key != 0) {
+                target[count++] = key;
+            }
+        }
+        if (zeroCount != 0) {
+            target[count++] = 0;
+        }
+        Arrays.sort(target, 0, count);
+        return count;
+    }
+
+    /**
+     * Removes all keys.
+     */
+    public void clear() {
+        Arrays.fill(keys, 0);
+        Arrays.fill(counts, 0);
+        size = 0;
+        zeroCount = 0;
+    }
+
+    /**
+     * Adds two non-negative counts. The sum stops at {@link Integer#MAX_VALUE} instead of overflowing.
+     *
+     * @param a the first count
+     * @param b the second count
+     * @return the sum
+     */
+    static int saturatedAdd(int a, int b) {
+        int sum = a + b;
+        return sum < 0 ? Integer.MAX_VALUE : sum;
+    }
+
+    private void checkCapacity() {
+        if (size >= maxSize) {
+            throw new IllegalStateException("Error: The PositionCountMap is full.");
+        }
+    }
+
+    private int slot(long key) {
+        // Zobrist keys are random, but the high bits are mixed in for keys of other origins
+        return (int) (key ^ (key >>> 32)) & mask;
+    }
+}
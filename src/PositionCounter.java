@@ -0,0 +1,514 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Streaming tool that counts the distinct positions of a large game corpus and how often each of them occurs. Every
+ * game is replayed move by move through the legal move generation of {@link Position}, and every reached position
+ * (including the start position) is reduced to a canonical 64 bit key (see {@link #canonicalKey(Position)}).
+ * <p>
+ * The keys are counted in a {@link PositionCountMap} of fixed size, so the heap stays bounded no matter how many
+ * positions are read. When the map is full, its keys are sorted and written to a temporary file ('run') together
+ * with their counts, and the map starts empty again. At the end, all runs are merged: a k-way merge reads the sorted
+ * runs in parallel and adds up the counts of equal keys. If there are more than {@link #MAX_FAN_IN} runs, groups of
+ * runs are merged into larger runs first, so the number of open files stays bounded as well.
+ * <p>
+ * Usage: java PositionCounter [-memory mb] [-tmp directory] [-out file] files...
+ * <p>
+ * Every line of an input file contains one game: the moves in long algebraic notation (e.g. 'e2e4 e7e5 g1f3') from
+ * the start position, optionally preceded by 'startpos moves' or by 'fen FEN moves' like in the {@link Uci} position
+ * command. Empty lines and lines starting with '#' are skipped. With '-out', the merged keys and counts are written
+ * to a file as pairs of a long and an int, in ascending order of the keys.
+ */
+public class PositionCounter implements Closeable {
+
+    /**
+     * Maximum number of runs that are merged at the same time.
+     */
+    public static final int MAX_FAN_IN = 64;
+
+    /**
+     * Default memory for the map and the sort buffer in megabytes.
+     */
+    public static final int DEFAULT_MEMORY_MB = 256;
+
+    private static final int IO_BUFFER_SIZE = 1 << 16;
+
+    // The undo stacks of a Position are limited, long games continue on a Position without history after this
+    private static final int PLIES_PER_HISTORY = 1024;
+
+    private static final PositionSnapshot START_POSITION = PositionSnapshot.of(Position.createStartPosition());
+
+    private final PositionCountMap map;
+    private final long[] sortBuffer;
+    private final Path directory;
+    private final List<Path> runs;
+    private final Position position;
+    private final int[] moves;
+    private long positionCount;
+    private long gameCount;
+
+    /**
+     * Creates a new PositionCounter.
+     *
+     * @param memoryBytes the memory used for counting; the map needs 12 bytes per slot and sorting a full map needs
+     *                    another 6 bytes per slot
+     * @param directory   the directory for the temporary runs
+     */
+    public PositionCounter(long memoryBytes, Path directory) {
+        if (directory == null) {
+            throw new NullPointerException("Arguments for the PositionCounter() constructor must not be null.");
+        }
+        long slots = memoryBytes / (PositionCountMap.BYTES_PER_SLOT + 6);
+        if (slots < 2) {
+            throw new IllegalArgumentException("Error: The memory of a PositionCounter is too small.");
+        }
+        this.map = new PositionCountMap((int) Math.min(slots, 1 << 30));
+        this.sortBuffer = new long[map.getMaxSize()];
+        this.directory = directory;
+        this.runs = new ArrayList<>();
+        this.position = new Position();
+        this.moves = new int[Position.MAX_MOVES];
+    }
+
+    public static void main(String[] args) throws IOException {
+        long memoryMegabytes = DEFAULT_MEMORY_MB;
+        Path directory = Paths.get(System.getProperty("java.io.tmpdir"));
+        Path output = null;
+        List<Path> inputs = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            String value = i + 1 < args.length ? args[i + 1] : "";
+            switch (args[i]) {
+                case "-memory":
+                    memoryMegabytes = Long.parseLong(value);
+                    i++;
+                    break;
+                case "-tmp":
+                    directory = Paths.get(value);
+                    i++;
+                    break;
+                case "-out":
+                    output = Paths.get(value);
+                    i++;
+                    break;
+                default:
+                    inputs.add(Paths.get(args[i]));
+                    break;
+            }
+        }
+        if (inputs.isEmpty()) {
+            System.err.println("Usage: java PositionCounter [-memory mb] [-tmp directory] [-out file] files...");
+            return;
+        }
+
+        long start = System.nanoTime();
+        long rejected = 0;
+        try (PositionCounter counter = new PositionCounter(memoryMegabytes * 1024 * 1024, directory)) {
+            for (Path input : inputs) {
+                try (BufferedReader reader = Files.newBufferedReader(input, StandardCharsets.UTF_8)) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        try {
+                            counter.addGame(line);
+                        } catch (IllegalArgumentException e) {
+                            rejected++;
+                        }
+                    }
+                }
+            }
+            Summary summary = counter.finish(output);
+            long millis = (System.nanoTime() - start) / 1000000;
+            System.out.printf("%,d games (%,d rejected), %,d positions in %,d ms = %,.0f positions/s%n",
+                    counter.getGameCount(), rejected, summary.getPositionCount(), millis,
+                    summary.getPositionCount() * 1000.0 / Math.max(1, millis));
+            System.out.printf("%,d unique positions, %,d seen once, most frequent seen %,d times, %d runs%n",
+                    summary.getUniqueCount(), summary.getSingletonCount(), summary.getMaxCount(),
+                    summary.getRunCount());
+        }
+    }
+
+    /**
+     * Computes a key that is equal for positions that are the same by the rules of repetition: the same pieces on the
+     * same squares, the same color to move, the same castling rights and the same possible en passant captures. The
+     * Zobrist key of a Position contains the en passant square after every double push of a Pawn, it is only kept if
+     * an en passant capture is legal. The move counters are ignored.
+     *
+     * @param position the Position
+     * @return the canonical key
+     */
+    public static long canonicalKey(Position position) {
+        long key = position.getHashKey();
+        int square = position.getEnPassantSquare();
+        if (square >= 0 && !canCaptureEnPassant(position, square)) {
+            key ^= Zobrist.enPassant(square);
+        }
+        return key;
+    }
+
+    private static boolean canCaptureEnPassant(Position position, int square) {
+        int color = position.getSideToMove();
+        // The capturing Pawns stand where a Pawn of the opponent on the en passant square would attack
+        long pawns = AttackTables.pawnAttacks(color ^ 1, square)
+                & position.getPieceBitboard(Position.makePiece(color, Position.PAWN));
+        while (pawns != 0) {
+            int from = Long.numberOfTrailingZeros(pawns);
+            pawns &= pawns - 1;
+            if (position.isLegal(Move.create(from, square, 0, Move.EN_PASSANT))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Replays a game and counts all of its positions. The format is described in the documentation of this class.
+     *
+     * @param line the game
+     * @throws IllegalArgumentException if the start position or a move is not valid
+     * @throws IOException              if a run can not be written
+     */
+    public void addGame(String line) throws IOException {
+        if (line == null) {
+            throw new NullPointerException("Arguments for the addGame() method must not be null.");
+        }
+        String[] tokens = line.trim().split("\\s+");
+        if (tokens[0].isEmpty() || tokens[0].startsWith("#")) {
+            return;
+        }
+        int index = 0;
+        if (tokens[0].equals("fen")) {
+            StringBuilder fen = new StringBuilder();
+            for (index = 1; index < tokens.length && !tokens[index].equals("moves"); index++) {
+                fen.append(tokens[index]).append(' ');
+            }
+            position.loadFen(fen.toString());
+            index++;
+        } else {
+            START_POSITION.copyTo(position);
+            if (tokens[0].equals("startpos")) {
+                index = tokens.length > 1 && tokens[1].equals("moves") ? 2 : 1;
+            }
+        }
+
+        // All moves are validated before the positions of the game are counted
+        long[] keys = new long[tokens.length - Math.min(index, tokens.length) + 1];
+        keys[0] = canonicalKey(position);
+        int count = 1;
+        for (; index < tokens.length; index++) {
+            position.makeMove(findMove(tokens[index]));
+            keys[count++] = canonicalKey(position);
+            if (count % PLIES_PER_HISTORY == 0) {
+                PositionSnapshot.of(position).copyTo(position);
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            add(keys[i]);
+        }
+        gameCount++;
+    }
+
+    private int findMove(String text) {
+        if (text.length() < 4 || text.length() > 5) {
+            throw new IllegalArgumentException("Error: Illegal move " + text);
+        }
+        int from = Move.parseSquare(text.substring(0, 2));
+        int to = Move.parseSquare(text.substring(2, 4));
+        int promotion = text.length() == 5 ? "nbrq".indexOf(text.charAt(4)) + Position.KNIGHT : 0;
+        int count = position.generateLegalMoves(moves);
+        for (int i = 0; i < count; i++) {
+            if (Move.from(moves[i]) == from && Move.to(moves[i]) == to && Move.promotion(moves[i]) == promotion) {
+                return moves[i];
+            }
+        }
+        throw new IllegalArgumentException("Error: Illegal move " + text);
+    }
+
+    /**
+     * Counts a single position.
+     *
+     * @param key the canonical key of the position
+     * @throws IOException if a run can not be written
+     */
+    public void add(long key) throws IOException {
+        if (map.isFull() && map.get(key) == 0) {
+            spill();
+        }
+        map.add(key, 1);
+        positionCount++;
+    }
+
+    /**
+     * Returns the number of games that have been added.
+     *
+     * @return the number of games
+     */
+    public long getGameCount() {
+        return gameCount;
+    }
+
+    /**
+     * Merges the counts of all positions that have been added and computes the summary. Afterwards the
+     * PositionCounter is empty.
+     *
+     * @param output the file receiving the keys and counts in ascending order of the keys or null
+     * @return the summary
+     * @throws IOException if a run or the output can not be read or written
+     */
+    public Summary finish(Path output) throws IOException {
+        int runCount = runs.size();
+        RunWriter result;
+        if (runs.isEmpty()) {
+            // Everything fits into the map, no run has to be written
+            result = new RunWriter(output);
+            try {
+                int count = map.sortKeys(sortBuffer);
+                for (int i = 0; i < count; i++) {
+                    result.write(sortBuffer[i], map.get(sortBuffer[i]));
+                }
+            } finally {
+                result.close();
+            }
+            map.clear();
+        } else {
+            if (map.size() > 0) {
+                spill();
+                runCount++;
+            }
+            while (runs.size() > MAX_FAN_IN) {
+                List<Path> group = new ArrayList<>(runs.subList(0, MAX_FAN_IN));
+                runs.removeAll(group);
+                Path run = Files.createTempFile(directory, "positions", ".run");
+                runs.add(run);
+                merge(group, new RunWriter(run));
+            }
+            result = new RunWriter(output);
+            merge(new ArrayList<>(runs), result);
+            runs.clear();
+        }
+        Summary summary = new Summary(positionCount, result.uniqueCount, result.singletonCount, result.maxCount,
+                runCount);
+        positionCount = 0;
+        return summary;
+    }
+
+    /**
+     * Deletes the temporary runs that have not been merged yet.
+     *
+     * @throws IOException if a run can not be deleted
+     */
+    @Override
+    public void close() throws IOException {
+        for (Path run : runs) {
+            Files.deleteIfExists(run);
+        }
+        runs.clear();
+    }
+
+    /**
+     * Writes the sorted content of the map to a new run and clears the map.
+     */
+    private void spill() throws IOException {
+        Path run = Files.createTempFile(directory, "positions", ".run");
+        runs.add(run);
+        int count = map.sortKeys(sortBuffer);
+        try (RunWriter writer = new RunWriter(run)) {
+            for (int i = 0; i < count; i++) {
+                writer.write(sortBuffer[i], map.get(sortBuffer[i]));
+            }
+        }
+        map.clear();
+    }
+
+    /**
+     * Merges sorted runs into the given writer and deletes them.
+     */
+    private static void merge(List<Path> group, RunWriter writer) throws IOException {
+        PriorityQueue<RunReader> queue = new PriorityQueue<>(group.size(), new Comparator<RunReader>() {
+            @Override
+            public int compare(RunReader a, RunReader b) {
+                return Long.compare(a.key, b.key);
+            }
+        });
+        try {
+            for (Path run : group) {
+                RunReader reader = new RunReader(run);
+                if (reader.next()) {
+                    queue.add(reader);
+                } else {
+                    reader.close();
+                }
+            }
+            while (!queue.isEmpty()) {
+                RunReader reader = queue.poll();
+                long key = reader.key;
+                int count = reader.count;
+                // Every run contains a key at most once, so equal keys are at the head of different runs
+                while (true) {
+                    if (reader.next()) {
+                        queue.add(reader);
+                    } else {
+                        reader.close();
+                    }
+                    if (queue.isEmpty() || queue.peek().key != key) {
+                        break;
+                    }
+                    reader = queue.poll();
+                    count = PositionCountMap.saturatedAdd(count, reader.count);
+                }
+                writer.write(key, count);
+            }
+        } finally {
+            for (RunReader reader : queue) {
+                reader.close();
+            }
+            writer.close();
+        }
+        for (Path run : group) {
+            Files.delete(run);
+        }
+    }
+
+    /**
+     * Writes keys and counts to a file, if there is one, and computes the statistics of the written records.
+     */
+    private static final class RunWriter implements Closeable {
+
+        private final DataOutputStream stream;
+        private long uniqueCount;
+        private long singletonCount;
+        private int maxCount;
+
+        private RunWriter(Path file) throws IOException {
+            this.stream = file == null ? null
+                    : new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), IO_BUFFER_SIZE));
+        }
+
+        private void write(long key, int count) throws IOException {
+            if (stream != null) {
+                stream.writeLong(key);
+                stream.writeInt(count);
+            }
+            uniqueCount++;
+            if (count == 1) {
+                singletonCount++;
+            }
+            maxCount = Math.max(maxCount, count);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (stream != null) {
+                stream.close();
+            }
+        }
+    }
+
+    /**
+     * Reads the records of a run one after the other.
+     */
+    private static final class RunReader implements Closeable {
+
+        private final DataInputStream stream;
+        private long remaining;
+        private long key;
+        private int count;
+
+        private RunReader(Path file) throws IOException {
+            this.remaining = Files.size(file) / 12;
+            this.stream = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), IO_BUFFER_SIZE));
+        }
+
+        private boolean next() throws IOException {
+            if (remaining == 0) {
+                return false;
+            }
+            remaining--;
+            key = stream.readLong();
+            count = stream.readInt();
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            stream.close();
+        }
+    }
+
+    /**
+     * Result of counting the positions of a corpus.
+     */
+    public static final class Summary {
+
+        private final long positionCount;
+        private final long uniqueCount;
+        private final long singletonCount;
+        private final int maxCount;
+        private final int runCount;
+
+        private Summary(long positionCount, long uniqueCount, long singletonCount, int maxCount, int runCount) {
+            this.positionCount = positionCount;
+            this.uniqueCount = uniqueCount;
+            this.singletonCount = singletonCount;
+            this.maxCount = maxCount;
+            this.runCount = runCount;
+        }
+
+        /**
+         * Returns the number of counted positions, including repeated ones.
+         *
+         * @return the number of positions
+         */
+        public long getPositionCount() {
+            return positionCount;
+        }
+
+        /**
+         * Returns the number of distinct positions.
+         *
+         * @return the number of distinct keys
+         */
+        public long getUniqueCount() {
+            return uniqueCount;
+        }
+
+        /**
+         * Returns the number of positions that occurred exactly once.
+         *
+         * @return the number of keys with a count of 1
+         */
+        public long getSingletonCount() {
+            return singletonCount;
+        }
+
+        /**
+         * Returns the number of occurrences of the most frequent position.
+         *
+         * @return the highest count, at most {@link Integer#MAX_VALUE}
+         */
+        public int getMaxCount() {
+            return maxCount;
+        }
+
+        /**
+         * Returns the number of sorted runs the positions were split into. Runs created by merging other runs are not
+         * included.
+         *
+         * @return the number of runs, 0 if all positions fit into memory
+         */
+        public int getRunCount() {
+            return runCount;
+        }
+    }
+}
@@ -0,0 +1,345 @@
+/**
+ * Immutable snapshot of a chess position. A snapshot consists of eight bitboards (one per piece type and one per
+ * color) and the state needed to continue the game: the color to move, the castling rights, the en passant square and
+ * the move counters. Squares are numbered like in a {@link Position}: row * 8 + col, starting with A8.
+ * <p>
+ * Since a snapshot can never change, it can be handed to any number of threads without locking. A {@link Game}
+ * publishes a new snapshot after every move (see {@link Game#getSnapshot()}), so analysis, spectators or persistence
+ * can read the current position while the next move is applied to the Tiles. Creating a snapshot allocates a single
+ * object; {@link #toPosition()} creates a mutable Position for a {@link Search} and {@link #copyTo(Position)} reuses
+ * an existing one.
+ */
+public final class PositionSnapshot {
+
+    private final long pawns;
+    private final long knights;
+    private final long bishops;
+    private final long rooks;
+    private final long queens;
+    private final long kings;
+    private final long whitePieces;
+    private final long blackPieces;
+    private final int sideToMove;
+    private final int castlingRights;
+    private final int enPassantSquare;
+    private final int halfmoveClock;
+    private final int fullmoveNumber;
+
+    private PositionSnapshot(long pawns, long knights, long bishops, long rooks, long queens, long kings,
+                             long whitePieces, long blackPieces, int sideToMove, int castlingRights,
+                             int enPassantSquare, int halfmoveClock, int fullmoveNumber) {
+        this.pawns = pawns;
+        this.knights = knights;
+        this.bishops = bishops;
+        this.rooks = rooks;
+        this.queens = queens;
+        this.kings = kings;
+        this.whitePieces = whitePieces;
+        this.blackPieces = blackPieces;
+        this.sideToMove = sideToMove;
+        this.castlingRights = castlingRights;
+        this.enPassantSquare = enPassantSquare;
+        this.halfmoveClock = halfmoveClock;
+        this.fullmoveNumber = fullmoveNumber;
+    }
+
+    /**
+     * Creates a snapshot of the given Position.
+     *
+     * @param position the Position
+     * @return the snapshot
+     */
+    public static PositionSnapshot of(Position position) {
+        long[] types = new long[Position.KING + 1];
+        for (int type = Position.PAWN; type <= Position.KING; type++) {
+            types[type] = position.getPieceBitboard(Position.makePiece(Position.WHITE, type))
+                    | position.getPieceBitboard(Position.makePiece(Position.BLACK, type));
+        }
+        return new PositionSnapshot(types[Position.PAWN], types[Position.KNIGHT], types[Position.BISHOP],
+                types[Position.ROOK], types[Position.QUEEN], types[Position.KING],
+                position.getColorBitboard(Position.WHITE), position.getColorBitboard(Position.BLACK),
+                position.getSideToMove(), position.getCastlingRights(), position.getEnPassantSquare(),
+                position.getHalfmoveClock(), position.getFullmoveNumber());
+    }
+
+    /**
+     * Creates a snapshot from the {@link PieceList}s of both players. Besides the snapshot itself, nothing is
+     * allocated.
+     *
+     * @param white           the pieces of the white player
+     * @param black           the pieces of the black player
+     * @param sideToMove      the color to move, {@link Position#WHITE} or {@link Position#BLACK}
+     * @param castlingRights  the castling rights as defined by Position
+     * @param enPassantSquare the square a Pawn skipped with the last move or -1
+     * @param halfmoveClock   the number of half moves since the last capture or Pawn move
+     * @param fullmoveNumber  the number of the current move, starting at 1
+     * @return the snapshot
+     */
+    public static PositionSnapshot of(PieceList white, PieceList black, int sideToMove, int castlingRights,
+                                      int enPassantSquare, int halfmoveClock, int fullmoveNumber) {
+        long pawns = 0;
+        long knights = 0;
+        long bishops = 0;
+        long rooks = 0;
+        long queens = 0;
+        long kings = 0;
+        long whitePieces = 0;
+        long blackPieces = 0;
+        for (int color = Position.WHITE; color <= Position.BLACK; color++) {
+            PieceList pieces = color == Position.WHITE ? white : black;
+            for (int i = 0; i < pieces.size(); i++) {
+                long bit = 1L << pieces.getSquare(i);
+                switch (pieces.getType(i)) {
+                    case Position.PAWN:
+                        pawns |= bit;
+                        break;
+                    case Position.KNIGHT:
+                        knights |= bit;
+                        break;
+                    case Position.BISHOP:
+                        bishops |= bit;
+                        break;
+                    case Position.ROOK:
+                        rooks |= bit;
+                        break;
+                    case Position.QUEEN:
+                        queens |= bit;
+                        break;
+                    default:
+                        kings |= bit;
+                        break;
+                }
+                if (color == Position.WHITE) {
+                    whitePieces |= bit;
+                } else {
+                    blackPieces |= bit;
+                }
+            }
+        }
+        return new PositionSnapshot(pawns, knights, bishops, rooks, queens, kings, whitePieces, blackPieces,
+                sideToMove, castlingRights, enPassantSquare, halfmoveClock, fullmoveNumber);
+    }
+
+    /**
+     * Creates a mutable {@link Position} with the content of this snapshot.
+     *
+     * @return a new Position
+     */
+    public Position toPosition() {
+        Position position = new Position();
+        copyTo(position);
+        return position;
+    }
+
+    /**
+     * Replaces the content of the given Position with the content of this snapshot. Nothing is allocated, so a single
+     * Position can be reused for many snapshots.
+     *
+     * @param position the Position that will be overwritten
+     */
+    public void copyTo(Position position) {
+        if (position == null) {
+            throw new NullPointerException("Arguments for the copyTo() method must not be null.");
+        }
+        position.clear();
+        long occupied = getOccupancy();
+        while (occupied != 0) {
+            int square = Long.numberOfTrailingZeros(occupied);
+            occupied &= occupied - 1;
+            position.setPiece(square, getPiece(square));
+        }
+        position.setSideToMove(sideToMove);
+        position.setCastlingRights(castlingRights);
+        position.setEnPassantSquare(enPassantSquare);
+        position.setHalfmoveClock(halfmoveClock);
+        position.setFullmoveNumber(fullmoveNumber);
+    }
+
+    /**
+     * Returns the content of a square.
+     *
+     * @param square the index of the square
+     * @return the piece as encoded by {@link Position#makePiece(int, int)} or {@link Position#EMPTY}
+     */
+    public int getPiece(int square) {
+        long bit = 1L << square;
+        if ((getOccupancy() & bit) == 0) {
+            return Position.EMPTY;
+        }
+        int color = (whitePieces & bit) != 0 ? Position.WHITE : Position.BLACK;
+        int type;
+        if ((pawns & bit) != 0) {
+            type = Position.PAWN;
+        } else if ((knights & bit) != 0) {
+            type = Position.KNIGHT;
+        } else if ((bishops & bit) != 0) {
+            type = Position.BISHOP;
+        } else if ((rooks & bit) != 0) {
+            type = Position.ROOK;
+        } else if ((queens & bit) != 0) {
+            type = Position.QUEEN;
+        } else {
+            type = Position.KING;
+        }
+        return Position.makePiece(color, type);
+    }
+
+    /**
+     * Returns the squares of all pieces of the given type and color.
+     *
+     * @param piece the piece as encoded by {@link Position#makePiece(int, int)}
+     * @return the squares as bitboard
+     */
+    public long getPieceBitboard(int piece) {
+        long types;
+        switch (Position.pieceType(piece)) {
+            case Position.PAWN:
+                types = pawns;
+                break;
+            case Position.KNIGHT:
+                types = knights;
+                break;
+            case Position.BISHOP:
+                types = bishops;
+                break;
+            case Position.ROOK:
+                types = rooks;
+                break;
+            case Position.QUEEN:
+                types = queens;
+                break;
+            case Position.KING:
+                types = kings;
+                break;
+            default:
+                return 0;
+        }
+        return types & getColorBitboard(Position.pieceColor(piece));
+    }
+
+    /**
+     * Returns the squares of all pieces of the given color.
+     *
+     * @param color {@link Position#WHITE} or {@link Position#BLACK}
+     * @return the squares as bitboard
+     */
+    public long getColorBitboard(int color) {
+        return color == Position.WHITE ? whitePieces : blackPieces;
+    }
+
+    /**
+     * Returns the squares of all pieces.
+     *
+     * @return the occupied squares as bitboard
+     */
+    public long getOccupancy() {
+        return whitePieces | blackPieces;
+    }
+
+    /**
+     * Returns the color to move.
+     *
+     * @return {@link Position#WHITE} or {@link Position#BLACK}
+     */
+    public int getSideToMove() {
+        return sideToMove;
+    }
+
+    /**
+     * Returns the castling rights.
+     *
+     * @return a combination of the castling flags defined by {@link Position}
+     */
+    public int getCastlingRights() {
+        return castlingRights;
+    }
+
+    /**
+     * Returns the square a Pawn skipped with the last move.
+     *
+     * @return the en passant square or -1
+     */
+    public int getEnPassantSquare() {
+        return enPassantSquare;
+    }
+
+    /**
+     * Returns the number of half moves since the last capture or Pawn move.
+     *
+     * @return the halfmove clock
+     */
+    public int getHalfmoveClock() {
+        return halfmoveClock;
+    }
+
+    /**
+     * Returns the number of the current move, starting at 1 and increased after every move of black.
+     *
+     * @return the fullmove number
+     */
+    public int getFullmoveNumber() {
+        return fullmoveNumber;
+    }
+
+    /**
+     * Tests if neither color has enough material left to checkmate the other, by the same rules as
+     * {@link Position#isInsufficientMaterial()}. Only the bitboards are used, so no Position is created.
+     *
+     * @return true if no checkmate is possible anymore
+     */
+    public boolean isInsufficientMaterial() {
+        if ((pawns | rooks | queens) != 0) {
+            return false;
+        }
+        if (Long.bitCount(knights | bishops) <= 1) {
+            return true;
+        }
+        return knights == 0
+                && ((bishops & Position.LIGHT_SQUARES) == 0 || (bishops & ~Position.LIGHT_SQUARES) == 0);
+    }
+
+    /**
+     * Describes this snapshot in Forsyth-Edwards Notation.
+     *
+     * @return the FEN
+     */
+    public String toFen() {
+        return toPosition().toFen();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof PositionSnapshot)) {
+            return false;
+        }
+        PositionSnapshot other = (PositionSnapshot) o;
+        return pawns == other.pawns && knights == other.knights && bishops == other.bishops && rooks == other.rooks
+                && queens == other.queens && kings == other.kings && whitePieces == other.whitePieces
+                && blackPieces == other.blackPieces && sideToMove == other.sideToMove
+                && castlingRights == other.castlingRights && enPassantSquare == other.enPassantSquare
+                && halfmoveClock == other.halfmoveClock && fullmoveNumber == other.fullmoveNumber;
+    }
+
+    @Override
+    public int hashCode() {
+        long hash = pawns;
+        hash = hash * 31 + knights;
+        hash = hash * 31 + bishops;
+        hash = hash * 31 + rooks;
+        hash = hash * 31 + queens;
+        hash = hash * 31 + kings;
+        hash = hash * 31 + whitePieces;
+        hash = hash * 31 + sideToMove;
+        hash = hash * 31 + castlingRights;
+        hash = hash * 31 + enPassantSquare;
+        return Long.hashCode(hash);
+    }
+
+    @Override
+    public String toString() {
+        return toFen();
+    }
+}
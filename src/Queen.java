@@ -34,15 +34,10 @@ public class Queen extends ChessPiece {
      */
     @Override
     public boolean isValidMove(Tile target, Board board) {
-        Rook temporaryRook = new Rook(this.getOwner());
-        temporaryRook.setTile(this.getTile());
-        boolean validRookMove = temporaryRook.isValidMove(target,board);
-
-        Bishop temporaryBishop = new Bishop(this.getOwner());
-        temporaryBishop.setTile(this.getTile());
-        boolean validBishopMove = temporaryBishop.isValidMove(target, board);
-
-        return validRookMove || validBishopMove;
+        // The target has to be attacked along a line or a diagonal without pieces in between
+        int square = this.getTile().getRow() * 8 + this.getTile().getCol();
+        long attacks = AttackTables.queenAttacks(square, board.getOccupancy());
+        return (attacks & (1L << (target.getRow() * 8 + target.getCol()))) != 0;
     }
 
     /**
@@ -55,6 +50,16 @@ public class Queen extends ChessPiece {
         return "Queen";
     }
 
+    /**
+     * Returns the type of the chess piece as defined by {@link Position}. In this case {@link Position#QUEEN}.
+     *
+     * @return the type of the chess piece
+     */
+    @Override
+    public int getType() {
+        return Position.QUEEN;
+    }
+
     /**
      * Creates a copy of this chess piece.
      *
@@ -63,7 +68,6 @@ public class Queen extends ChessPiece {
     @Override
     public ChessPiece clone() {
         ChessPiece copy = new Queen(this.owner);
-        this.owner.removeChessPiece(copy);
         copy.canCastle = this.canCastle;
         copy.icon = this.icon;
 
@@ -36,39 +36,10 @@ public class Rook extends ChessPiece {
      */
     @Override
     public boolean isValidMove(Tile target, Board board) {
-        // current and target tiles have to be on the same axis
-        int currentCol = this.getTile().getCol();
-        int currentRow = this.getTile().getRow();
-        int targetCol = target.getCol();
-        int targetRow = target.getRow();
-        boolean sameCol = currentCol == targetCol;
-        boolean sameRow = currentRow == targetRow;
-        boolean sameAxis = sameCol || sameRow;
-
-        // check if there are pieces between the tiles
-        boolean noPiecesBetween = true;
-
-        if (sameCol) {
-            int greaterIndex = Math.max(currentRow, targetRow);
-            int smallerIndex = Math.min(currentRow, targetRow);
-            for (int row = smallerIndex + 1; row < greaterIndex; row++) {
-                Tile tileInBetween = board.getTile(row, currentCol);
-                if (tileInBetween.hasChessPiece()) {
-                    noPiecesBetween = false;
-                }
-            }
-        } else if (sameRow) {
-            int greaterIndex = Math.max(currentCol, targetCol);
-            int smallerIndex = Math.min(currentCol, targetCol);
-            for (int col = smallerIndex + 1; col < greaterIndex; col++) {
-                Tile tileInBetween = board.getTile(currentRow, col);
-                if (tileInBetween.hasChessPiece()) {
-                    noPiecesBetween = false;
-                }
-            }
-        }
-
-        return sameAxis && noPiecesBetween;
+        // The target has to be attacked: on the same axis and without pieces in between
+        int square = this.getTile().getRow() * 8 + this.getTile().getCol();
+        long attacks = AttackTables.rookAttacks(square, board.getOccupancy());
+        return (attacks & (1L << (target.getRow() * 8 + target.getCol()))) != 0;
     }
 
     /**
@@ -81,6 +52,16 @@ public class Rook extends ChessPiece {
         return "Rook";
     }
 
+    /**
+     * Returns the type of the chess piece as defined by {@link Position}. In this case {@link Position#ROOK}.
+     *
+     * @return the type of the chess piece
+     */
+    @Override
+    public int getType() {
+        return Position.ROOK;
+    }
+
     /**
      * Creates a copy of this chess piece.
      *
@@ -89,7 +70,6 @@ public class Rook extends ChessPiece {
     @Override
     public ChessPiece clone() {
         ChessPiece copy = new Rook(this.owner);
-        this.owner.removeChessPiece(copy);
         copy.canCastle = this.canCastle;
         copy.icon = this.icon;
 
@@ -0,0 +1,940 @@
+import java.util.Arrays;
+
+/**
+ * Searches for the best move in a {@link Position}. The Search uses an iterative deepening alpha-beta algorithm: It
+ * first looks one half move ahead, then two half moves and so on, until the maximum depth or the time limit is
+ * reached or the Search is stopped from another thread. After every completed iteration a {@link SearchListener} is
+ * notified with the current score and principal variation.
+ * <p>
+ * At the end of the regular search, a quiescence search follows all captures, so that positions are not evaluated in
+ * the middle of an exchange of pieces. Captures that lose material according to the static exchange evaluation of the
+ * {@link Position} are searched last and skipped in the quiescence search.
+ * <p>
+ * Moves are generated in stages: First the best move stored for the position in the transposition table (hash move),
+ * then the captures that do not lose material, then quiet moves that caused a cutoff in a sibling position (killer
+ * moves) or in reply to the same opponent move (counter move), then the remaining quiet moves ordered by how often
+ * they caused cutoffs anywhere in the search (history heuristic) and finally the losing captures. A cutoff by an early
+ * move saves the generation of the later stages. The tables of the heuristics are primitive arrays owned by the
+ * Search, so parallel Searches do not share them. Positions are scored by an
+ * {@link Evaluation}. Results of searched positions are kept in a {@link TranspositionTable}, which is reused by later
+ * iterations and searches.
+ * <p>
+ * Moves after the first one are searched with a null window around alpha and only searched again with the full
+ * window, if they turn out to be better ('principal variation search'). The Search is selective: The following
+ * techniques spend fewer nodes on moves that are unlikely to matter. They are enabled by default and can be switched
+ * off individually with {@link #setFeatures(int)}, e.g. to compare the node counts at a fixed depth:
+ * <p>
+ * - {@link #NULL_MOVE}: If the color to move still scores above beta after passing the move to the opponent in a
+ * reduced search, the position is not searched any further.
+ * <p>
+ * - {@link #LATE_MOVE_REDUCTIONS}: Quiet moves late in the move ordering are first searched with a reduced depth and
+ * only searched again with the full depth, if they beat alpha.
+ * <p>
+ * - {@link #FUTILITY_PRUNING}: Close to the horizon, positions whose static evaluation is far above beta are cut off,
+ * and quiet moves are skipped, if the static evaluation plus a margin can not reach alpha.
+ * <p>
+ * - {@link #RAZORING}: Close to the horizon, positions whose static evaluation is far below alpha are only searched
+ * with the quiescence search.
+ * <p>
+ * - {@link #ASPIRATION_WINDOWS}: Deeper iterations start with a narrow window around the score of the previous
+ * iteration, which is widened, if the score falls outside.
+ * <p>
+ * - {@link #CHECK_EXTENSIONS}: Positions in which the color to move is in check are searched one half move deeper.
+ * <p>
+ * - {@link #KILLER_MOVES}, {@link #COUNTER_MOVES}, {@link #HISTORY_HEURISTIC}: The move ordering heuristics above.
+ * <p>
+ * Besides the best move, the Search can look for several alternative lines (multi principal variation). The first
+ * line is searched with all moves, every further line excludes the first moves of the lines found before.
+ * <p>
+ * A Search object reuses its internal buffers and must therefore only run one search at a time. Only
+ * {@link #stop()} may be called from other threads.
+ */
+public class Search {
+
+    /**
+     * Score that is larger than any reachable score.
+     */
+    public static final int INFINITE = 32000;
+
+    /**
+     * Score of a checkmate at the root. Mate scores are reduced by the number of half moves until mate.
+     */
+    public static final int MATE = 31000;
+
+    /**
+     * Maximum number of half moves the Search looks ahead.
+     */
+    public static final int MAX_PLY = 64;
+
+    /**
+     * Feature flag for null move pruning.
+     */
+    public static final int NULL_MOVE = 1;
+
+    /**
+     * Feature flag for late move reductions.
+     */
+    public static final int LATE_MOVE_REDUCTIONS = 2;
+
+    /**
+     * Feature flag for futility pruning and reverse futility pruning.
+     */
+    public static final int FUTILITY_PRUNING = 4;
+
+    /**
+     * Feature flag for razoring.
+     */
+    public static final int RAZORING = 8;
+
+    /**
+     * Feature flag for aspiration windows.
+     */
+    public static final int ASPIRATION_WINDOWS = 16;
+
+    /**
+     * Feature flag for check extensions.
+     */
+    public static final int CHECK_EXTENSIONS = 32;
+
+    /**
+     * Feature flag for trying killer moves before the other quiet moves.
+     */
+    public static final int KILLER_MOVES = 64;
+
+    /**
+     * Feature flag for trying the counter move before the other quiet moves.
+     */
+    public static final int COUNTER_MOVES = 128;
+
+    /**
+     * Feature flag for ordering quiet moves by the history heuristic.
+     */
+    public static final int HISTORY_HEURISTIC = 256;
+
+    /**
+     * All feature flags, the default of a new Search.
+     */
+    public static final int ALL_FEATURES = 511;
+
+    /**
+     * Names of the features, the name at index i belongs to the flag 1 << i. They are used for the UCI options and
+     * the engine settings of a {@link Tournament}.
+     */
+    public static final String[] FEATURE_NAMES = {"NullMove", "LateMoveReductions", "FutilityPruning", "Razoring",
+            "AspirationWindows", "CheckExtensions", "KillerMoves", "CounterMoves", "HistoryHeuristic"};
+
+    private static final int[] PIECE_VALUES = {0, 100, 320, 330, 500, 900, 0};
+
+    // Parameters of the selective search
+    private static final int NULL_MOVE_MIN_DEPTH = 3;
+    private static final int LMR_MIN_DEPTH = 3;
+    private static final int LMR_MIN_MOVES = 3;
+    private static final int FUTILITY_MAX_DEPTH = 3;
+    private static final int FUTILITY_MARGIN = 120;
+    private static final int RAZORING_MAX_DEPTH = 2;
+    private static final int RAZORING_MARGIN = 300;
+    private static final int ASPIRATION_MIN_DEPTH = 4;
+    private static final int ASPIRATION_WINDOW = 25;
+
+    // History values are halved when one of them exceeds this limit, so recent cutoffs weigh more
+    private static final int HISTORY_LIMIT = 1 << 20;
+
+    // Stages of the MovePicker
+    private static final int STAGE_HASH_MOVE = 0;
+    private static final int STAGE_GENERATE_CAPTURES = 1;
+    private static final int STAGE_GOOD_CAPTURES = 2;
+    private static final int STAGE_REFUTATIONS = 3;
+    private static final int STAGE_GENERATE_QUIET_MOVES = 4;
+    private static final int STAGE_QUIET_MOVES = 5;
+    private static final int STAGE_BAD_CAPTURES = 6;
+    private static final int STAGE_DONE = 7;
+
+    private final int[][] moveLists;
+    private final int[][] moveScores;
+    private final int[][] pvTable;
+    private final int[] pvLength;
+    private final MovePicker[] movePickers;
+    private final int[] playedMoves;
+    private final int[][] killerMoves;
+    private final int[] counterMoves;
+    private final int[] history;
+    private final Evaluation evaluation;
+    private final TranspositionTable transpositionTable;
+    private final int[] excludedMoves;
+    private int excludedCount;
+    private volatile boolean stopped;
+    private Position position;
+    private int features = ALL_FEATURES;
+    private long nodes;
+    private long startTime;
+    private volatile long deadline;
+
+    /**
+     * Creates a new Search with a {@link TranspositionTable} of the default size.
+     */
+    public Search() {
+        this(new TranspositionTable(TranspositionTable.DEFAULT_SIZE_MB));
+    }
+
+    /**
+     * Creates a new Search, which uses the given {@link TranspositionTable}. The table may be shared with other
+     * Searches, which run in parallel on the same Position and profit from each others results.
+     *
+     * @param transpositionTable the table for the results of searched positions
+     */
+    public Search(TranspositionTable transpositionTable) {
+        this(transpositionTable, new Evaluation());
+    }
+
+    /**
+     * Creates a new Search, which uses the given {@link TranspositionTable} and scores positions with the given
+     * {@link Evaluation}, e.g. an {@link NnueEvaluation}. The Evaluation must not be used by other Searches.
+     *
+     * @param transpositionTable the table for the results of searched positions
+     * @param evaluation         the evaluation of the leaf positions
+     */
+    public Search(TranspositionTable transpositionTable, Evaluation evaluation) {
+        if (transpositionTable == null || evaluation == null) {
+            throw new NullPointerException("Arguments for the Search constructor must not be null.");
+        }
+        this.transpositionTable = transpositionTable;
+        this.excludedMoves = new int[Position.MAX_MOVES];
+        this.moveLists = new int[MAX_PLY + 1][Position.MAX_MOVES];
+        this.moveScores = new int[MAX_PLY + 1][Position.MAX_MOVES];
+        this.pvTable = new int[MAX_PLY + 1][MAX_PLY + 1];
+        this.pvLength = new int[MAX_PLY + 1];
+        this.movePickers = new MovePicker[MAX_PLY + 1];
+        for (int ply = 0; ply <= MAX_PLY; ply++) {
+            movePickers[ply] = new MovePicker(ply);
+        }
+        this.playedMoves = new int[MAX_PLY + 1];
+        this.killerMoves = new int[MAX_PLY + 1][2];
+        this.counterMoves = new int[2 * 64 * 64];
+        this.history = new int[2 * 64 * 64];
+        this.evaluation = evaluation;
+    }
+
+    /**
+     * Searches the best move for the color to move in the given Position. The Position is used as working copy and is
+     * unchanged when this method returns.
+     *
+     * @param position        the investigated Position
+     * @param maxDepth        the maximum search depth in half moves
+     * @param timeLimitMillis the maximum search time in milliseconds or 0 for no time limit
+     * @param listener        the listener that is notified after every iteration or null
+     * @return the best move found or {@link Move#NONE}, if the color to move has no legal moves
+     */
+    public int think(Position position, int maxDepth, long timeLimitMillis, SearchListener listener) {
+        AnalysisInfo[] lines = analyze(position, 1, maxDepth, timeLimitMillis, listener);
+        return lines.length > 0 ? lines[0].getBestMove() : Move.NONE;
+    }
+
+    /**
+     * Searches the given number of best lines for the color to move in the given Position. The lines are sorted from
+     * best to worst and all of them belong to the deepest completed iteration. Fewer lines are returned, if the color
+     * to move has fewer legal moves. The Position is used as working copy and is unchanged when this method returns.
+     *
+     * @param position        the investigated Position
+     * @param lineCount       the number of requested lines
+     * @param maxDepth        the maximum search depth in half moves
+     * @param timeLimitMillis the maximum search time in milliseconds or 0 for no time limit
+     * @param listener        the listener that is notified about every line of every iteration or null
+     * @return the best lines. If the color to move has no legal moves, a single result with an empty principal
+     * variation is returned.
+     */
+    public AnalysisInfo[] analyze(Position position, int lineCount, int maxDepth, long timeLimitMillis,
+                                  SearchListener listener) {
+        if (lineCount < 1) {
+            throw new IllegalArgumentException("Error: At least one line has to be searched.");
+        }
+        this.position = position;
+        this.stopped = false;
+        this.nodes = 0;
+        this.startTime = System.currentTimeMillis();
+        this.deadline = timeLimitMillis > 0 ? startTime + timeLimitMillis : 0;
+
+        // Killer moves belong to the positions of the last search, the history only loses weight
+        for (int[] killers : killerMoves) {
+            Arrays.fill(killers, Move.NONE);
+        }
+        ageHistory();
+
+        // Checkmate or remis -> there is nothing to search
+        int legalMoves = position.generateLegalMoves(moveLists[0]);
+        if (legalMoves == 0) {
+            int score = position.isInCheck() ? -MATE : 0;
+            AnalysisInfo info = new AnalysisInfo(0, score, position.getSideToMove(), new int[0], 0, 0);
+            if (listener != null) {
+                listener.iterationCompleted(info);
+            }
+            return new AnalysisInfo[]{info};
+        }
+
+        AnalysisInfo[] lines = new AnalysisInfo[Math.min(lineCount, legalMoves)];
+        for (int depth = 1; depth <= Math.min(maxDepth, MAX_PLY); depth++) {
+            SearchIterationEvent event = new SearchIterationEvent();
+            event.begin();
+            AnalysisInfo[] iterationLines = new AnalysisInfo[lines.length];
+            excludedCount = 0;
+            boolean allMates = true;
+            for (int line = 0; line < lines.length; line++) {
+                int pvMove = lines[line] != null ? lines[line].getBestMove() : Move.NONE;
+                int score = searchRoot(depth, lines[line], pvMove);
+
+                // Results of an interrupted iteration are incomplete
+                if (stopped && (depth > 1 || pvLength[0] == 0)) {
+                    break;
+                }
+
+                int[] principalVariation = new int[pvLength[0]];
+                System.arraycopy(pvTable[0], 0, principalVariation, 0, pvLength[0]);
+                iterationLines[line] = new AnalysisInfo(depth, score, position.getSideToMove(), principalVariation,
+                        nodes, System.currentTimeMillis() - startTime, line + 1);
+                excludedMoves[excludedCount++] = principalVariation[0];
+                allMates &= Math.abs(score) >= MATE - depth;
+                if (stopped) {
+                    break;
+                }
+            }
+
+            // Only complete iterations replace the lines of the previous iteration. A partial first iteration is
+            // better than no result at all.
+            if (iterationLines[lines.length - 1] != null || depth == 1) {
+                sortByScore(iterationLines);
+                for (int line = 0; line < lines.length; line++) {
+                    if (iterationLines[line] != null) {
+                        lines[line] = iterationLines[line];
+                        if (listener != null) {
+                            listener.iterationCompleted(lines[line]);
+                        }
+                    }
+                }
+                event.end();
+                if (event.shouldCommit()) {
+                    event.depth = depth;
+                    event.lines = lines.length;
+                    event.score = lines[0].getScore();
+                    event.bestMove = Move.toString(lines[0].getBestMove());
+                    event.nodes = nodes;
+                    event.commit();
+                }
+            }
+
+            // A forced mate within the searched depth can not be improved by searching deeper
+            if (stopped || allMates) {
+                break;
+            }
+        }
+        excludedCount = 0;
+        recordCacheStatistics();
+
+        // Lines that were not reached by an interrupted first iteration are dropped
+        int completed = 0;
+        while (completed < lines.length && lines[completed] != null) {
+            completed++;
+        }
+        AnalysisInfo[] result = new AnalysisInfo[completed];
+        System.arraycopy(lines, 0, result, 0, completed);
+        return result;
+    }
+
+    /**
+     * Reports the statistics of the {@link TranspositionTable} and the {@link PawnHashTable} to the Java Flight
+     * Recorder.
+     */
+    private void recordCacheStatistics() {
+        CacheStatisticsEvent event = new CacheStatisticsEvent();
+        if (event.isEnabled()) {
+            PawnHashTable pawnHashTable = evaluation.getPawnHashTable();
+            event.transpositionTableSize = transpositionTable.getSize();
+            event.transpositionTableProbes = transpositionTable.getProbes();
+            event.transpositionTableHitRate = transpositionTable.getHitRate();
+            event.pawnHashProbes = pawnHashTable.getProbes();
+            event.pawnHashHitRate = pawnHashTable.getHitRate();
+            event.commit();
+        }
+    }
+
+    /**
+     * Stops the running search as soon as possible. The best move of the last completed iteration is returned by
+     * {@link #think(Position, int, long, SearchListener)}. This method can be called from any thread.
+     */
+    public void stop() {
+        this.stopped = true;
+    }
+
+    /**
+     * Sets a new time limit for the running search, e.g. when the position a Search has been pondering on is reached
+     * in the game and the search has to finish in time. This method can be called from any thread, but a deadline set
+     * before the search has started is replaced by the time limit of the search.
+     *
+     * @param deadlineMillis the time in milliseconds (see {@link System#currentTimeMillis()}) at which the search
+     *                       stops, or 0 for no time limit
+     */
+    public void setDeadline(long deadlineMillis) {
+        this.deadline = deadlineMillis;
+    }
+
+    /**
+     * Returns the cache for the results of searched positions used by this Search.
+     *
+     * @return the transposition table
+     */
+    public TranspositionTable getTranspositionTable() {
+        return transpositionTable;
+    }
+
+    /**
+     * Selects the techniques of the selective search, which are all enabled by default. The setting takes effect at
+     * the next search.
+     *
+     * @param features the combination of feature flags, e.g. {@link #NULL_MOVE} | {@link #CHECK_EXTENSIONS}, or 0
+     *                 for a full width search
+     */
+    public void setFeatures(int features) {
+        if ((features & ~ALL_FEATURES) != 0) {
+            throw new IllegalArgumentException("Error: Unknown search features " + features);
+        }
+        this.features = features;
+    }
+
+    /**
+     * Returns the enabled techniques of the selective search.
+     *
+     * @return the combination of feature flags
+     */
+    public int getFeatures() {
+        return features;
+    }
+
+    /**
+     * Returns the flag of the feature with the given name, see {@link #FEATURE_NAMES}. Case is ignored.
+     *
+     * @param name the name of the feature
+     * @return the feature flag or 0, if there is no feature with this name
+     */
+    public static int getFeatureFlag(String name) {
+        for (int i = 0; i < FEATURE_NAMES.length; i++) {
+            if (FEATURE_NAMES[i].equalsIgnoreCase(name)) {
+                return 1 << i;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Returns the number of positions visited by the current or last search.
+     *
+     * @return the node count
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Searches the root position. With aspiration windows, the search starts with a narrow window around the score
+     * of the line in the previous iteration and widens the window on the side the score falls out of.
+     */
+    private int searchRoot(int depth, AnalysisInfo previous, int pvMove) {
+        if (!isEnabled(ASPIRATION_WINDOWS) || depth < ASPIRATION_MIN_DEPTH || previous == null
+                || Math.abs(previous.getScore()) >= MATE - MAX_PLY) {
+            return alphaBeta(depth, -INFINITE, INFINITE, 0, pvMove, true);
+        }
+        int window = ASPIRATION_WINDOW;
+        int alpha = previous.getScore() - window;
+        int beta = previous.getScore() + window;
+        while (true) {
+            int score = alphaBeta(depth, alpha, beta, 0, pvMove, true);
+            if (stopped || (score > alpha && score < beta)) {
+                return score;
+            }
+            window *= 4;
+            if (score <= alpha) {
+                alpha = Math.max(score - window, -INFINITE);
+            } else {
+                beta = Math.min(score + window, INFINITE);
+            }
+        }
+    }
+
+    private int alphaBeta(int depth, int alpha, int beta, int ply, int pvMove, boolean nullMoveAllowed) {
+        pvLength[ply] = ply;
+        boolean inCheck = position.isInCheck();
+        if (inCheck && isEnabled(CHECK_EXTENSIONS) && ply < MAX_PLY / 2) {
+            depth++; // The consequences of a check should not disappear behind the horizon
+        }
+        if (depth <= 0 || ply >= MAX_PLY) {
+            return quiescence(alpha, beta, ply);
+        }
+        nodes++;
+        checkLimits();
+
+        // A sufficiently deep result of an earlier search may make searching this position unnecessary. The root
+        // is always searched, so it yields a best move and respects the excluded moves.
+        long key = position.getHashKey();
+        int hashMove = Move.NONE;
+        if (ply > 0) {
+            long entry = transpositionTable.probe(key);
+            if (entry != TranspositionTable.NO_ENTRY) {
+                hashMove = TranspositionTable.getMove(entry);
+                if (TranspositionTable.getDepth(entry) >= depth) {
+                    int score = TranspositionTable.getScore(entry, ply);
+                    int bound = TranspositionTable.getBound(entry);
+                    if (bound == TranspositionTable.EXACT
+                            || (bound == TranspositionTable.LOWER_BOUND && score >= beta)
+                            || (bound == TranspositionTable.UPPER_BOUND && score <= alpha)) {
+                        return score;
+                    }
+                }
+            }
+        }
+
+        // Positions outside the principal variation are searched with a null window and may be pruned based on
+        // their static evaluation. Mate scores are never pruned.
+        int color = position.getSideToMove();
+        boolean pruning = ply > 0 && beta - alpha == 1 && !inCheck && Math.abs(beta) < MATE - MAX_PLY;
+        int staticEval = pruning ? evaluation.evaluate(position) : 0;
+        if (pruning) {
+            if (isEnabled(FUTILITY_PRUNING) && depth <= FUTILITY_MAX_DEPTH
+                    && staticEval - FUTILITY_MARGIN * depth >= beta) {
+                return staticEval - FUTILITY_MARGIN * depth; // Even a bad move will not lose this much
+            }
+            if (isEnabled(RAZORING) && depth <= RAZORING_MAX_DEPTH && staticEval + RAZORING_MARGIN * depth <= alpha) {
+                int score = quiescence(alpha, beta, ply);
+                if (score <= alpha) {
+                    return score; // Only a capture could have saved the position, and none does
+                }
+            }
+            // Without other pieces than pawns, passing may be the only losing option (zugzwang)
+            if (isEnabled(NULL_MOVE) && nullMoveAllowed && depth >= NULL_MOVE_MIN_DEPTH && staticEval >= beta
+                    && hasPieces(color)) {
+                int reduction = depth >= 6 ? 3 : 2;
+                playedMoves[ply] = Move.NONE;
+                position.makeNullMove();
+                int score = -alphaBeta(depth - 1 - reduction, -beta, -beta + 1, ply + 1, Move.NONE, false);
+                position.unmakeNullMove();
+                if (stopped) {
+                    return 0;
+                }
+                if (score >= beta) {
+                    return score >= MATE - MAX_PLY ? beta : score;
+                }
+            }
+        }
+        boolean futile = pruning && isEnabled(FUTILITY_PRUNING) && depth <= FUTILITY_MAX_DEPTH
+                && staticEval + FUTILITY_MARGIN * depth <= alpha;
+
+        MovePicker picker = movePickers[ply];
+        picker.init(pvMove != Move.NONE ? pvMove : hashMove);
+
+        int originalAlpha = alpha;
+        int bestScore = -INFINITE;
+        int bestMove = Move.NONE;
+        int legalMoves = 0;
+        int move;
+        while ((move = picker.next()) != Move.NONE) {
+            if (ply == 0 && isExcluded(move)) {
+                continue; // Already part of a better line
+            }
+            boolean quiet = !position.isCapture(move) && Move.promotion(move) == 0;
+            position.makeMove(move);
+            if (position.isKingAttacked(color)) { // Pseudo legal move leaves the own King checked
+                position.unmakeMove(move);
+                continue;
+            }
+            legalMoves++;
+            boolean givesCheck = position.isInCheck();
+            if (futile && quiet && !givesCheck && legalMoves > 1) {
+                position.unmakeMove(move);
+                continue; // A quiet move can not raise the score up to alpha
+            }
+
+            playedMoves[ply] = move;
+            int score;
+            if (legalMoves == 1) {
+                score = -alphaBeta(depth - 1, -beta, -alpha, ply + 1, Move.NONE, true);
+            } else {
+                int reduction = 0;
+                if (isEnabled(LATE_MOVE_REDUCTIONS) && depth >= LMR_MIN_DEPTH && legalMoves > LMR_MIN_MOVES
+                        && quiet && !inCheck && !givesCheck && picker.stage != STAGE_REFUTATIONS) {
+                    reduction = legalMoves > 2 * LMR_MIN_MOVES + 2 && depth >= 5 ? 2 : 1;
+                }
+                score = -alphaBeta(depth - 1 - reduction, -alpha - 1, -alpha, ply + 1, Move.NONE, true);
+                if (score > alpha && reduction > 0) {
+                    score = -alphaBeta(depth - 1, -alpha - 1, -alpha, ply + 1, Move.NONE, true);
+                }
+                if (score > alpha && score < beta) {
+                    score = -alphaBeta(depth - 1, -beta, -alpha, ply + 1, Move.NONE, true);
+                }
+            }
+            position.unmakeMove(move);
+            if (stopped) {
+                return 0;
+            }
+
+            if (score > bestScore) {
+                bestScore = score;
+                bestMove = move;
+                if (score > alpha) {
+                    alpha = score;
+                    updatePrincipalVariation(ply, move);
+                    if (score >= beta) {
+                        if (quiet) {
+                            updateQuietMoveTables(ply, depth, color, move);
+                        }
+                        break; // The opponent will avoid this position
+                    }
+                }
+            }
+        }
+
+        if (legalMoves == 0) { // Checkmate or remis
+            return inCheck ? -MATE + ply : 0;
+        }
+
+        if (ply > 0) {
+            int bound = bestScore >= beta ? TranspositionTable.LOWER_BOUND
+                    : bestScore > originalAlpha ? TranspositionTable.EXACT : TranspositionTable.UPPER_BOUND;
+            transpositionTable.store(key, depth, bestScore, bound, bestMove, ply);
+        }
+        return bestScore;
+    }
+
+    private int quiescence(int alpha, int beta, int ply) {
+        nodes++;
+        checkLimits();
+
+        int standPat = evaluation.evaluate(position);
+        if (standPat >= beta || ply >= MAX_PLY) {
+            return standPat;
+        }
+        if (standPat > alpha) {
+            alpha = standPat;
+        }
+
+        // Only captures and promotions are followed
+        int count = position.generateCaptures(moveLists[ply]);
+        scoreCaptures(ply, 0, count);
+
+        int color = position.getSideToMove();
+        int bestScore = standPat;
+        for (int i = 0; i < count; i++) {
+            int move = pickMove(ply, count, i);
+            if (moveScores[ply][i] < 0) {
+                break; // Only captures that lose material are left
+            }
+            position.makeMove(move);
+            if (position.isKingAttacked(color)) {
+                position.unmakeMove(move);
+                continue;
+            }
+            int score = -quiescence(-beta, -alpha, ply + 1);
+            position.unmakeMove(move);
+            if (stopped) {
+                return 0;
+            }
+
+            if (score > bestScore) {
+                bestScore = score;
+                if (score > alpha) {
+                    alpha = score;
+                    if (score >= beta) {
+                        break;
+                    }
+                }
+            }
+        }
+        return bestScore;
+    }
+
+    /**
+     * Assigns an ordering score to the generated captures and promotions between start and end. Captures are ordered
+     * by 'most valuable victim, least valuable attacker'. Captures that lose material in the static exchange
+     * evaluation get a negative score and are tried after all other moves.
+     */
+    private void scoreCaptures(int ply, int start, int end) {
+        int[] moves = moveLists[ply];
+        int[] scores = moveScores[ply];
+        for (int i = start; i < end; i++) {
+            int move = moves[i];
+            if (position.isCapture(move)) {
+                int victim = Move.isEnPassant(move) ? Position.PAWN
+                        : Position.pieceType(position.getPiece(Move.to(move)));
+                int attacker = Position.pieceType(position.getPiece(Move.from(move)));
+                int exchange = 0;
+                if (PIECE_VALUES[victim] < PIECE_VALUES[attacker]) { // Capturing a more valuable piece never loses
+                    exchange = position.staticExchange(move);
+                }
+                if (exchange < 0) {
+                    scores[i] = -10000 + exchange;
+                } else {
+                    scores[i] = 10000 + PIECE_VALUES[victim] * 10 - PIECE_VALUES[attacker] / 10;
+                }
+            } else {
+                scores[i] = PIECE_VALUES[Move.promotion(move)];
+            }
+        }
+    }
+
+    /**
+     * Assigns the history values as ordering score to the generated quiet moves between start and end. Without the
+     * history heuristic, all scores are equal and the moves keep the order of the generation.
+     */
+    private void scoreQuietMoves(int ply, int start, int end) {
+        int[] moves = moveLists[ply];
+        int[] scores = moveScores[ply];
+        int offset = position.getSideToMove() << 12;
+        boolean useHistory = isEnabled(HISTORY_HEURISTIC);
+        for (int i = start; i < end; i++) {
+            scores[i] = useHistory ? history[offset | Move.from(moves[i]) << 6 | Move.to(moves[i])] : 0;
+        }
+    }
+
+    /**
+     * Remembers a quiet move that caused a cutoff as killer move of its ply, as counter move to the previous move of
+     * the opponent and in the history, weighted by the remaining depth.
+     */
+    private void updateQuietMoveTables(int ply, int depth, int color, int move) {
+        int[] killers = killerMoves[ply];
+        if (killers[0] != move) {
+            killers[1] = killers[0];
+            killers[0] = move;
+        }
+        if (ply > 0 && playedMoves[ply - 1] != Move.NONE) {
+            counterMoves[counterMoveIndex(color, playedMoves[ply - 1])] = move;
+        }
+        int index = color << 12 | Move.from(move) << 6 | Move.to(move);
+        history[index] += depth * depth;
+        if (history[index] > HISTORY_LIMIT) {
+            ageHistory();
+        }
+    }
+
+    private void ageHistory() {
+        for (int i = 0; i < history.length; i++) {
+            history[i] >>= 1;
+        }
+    }
+
+    private static int counterMoveIndex(int color, int previousMove) {
+        return color << 12 | Move.from(previousMove) << 6 | Move.to(previousMove);
+    }
+
+    /**
+     * Moves the remaining move with the highest ordering score to the given index and returns it.
+     */
+    private int pickMove(int ply, int count, int index) {
+        int[] moves = moveLists[ply];
+        int[] scores = moveScores[ply];
+        int best = index;
+        for (int i = index + 1; i < count; i++) {
+            if (scores[i] > scores[best]) {
+                best = i;
+            }
+        }
+        int move = moves[best];
+        moves[best] = moves[index];
+        moves[index] = move;
+        int score = scores[best];
+        scores[best] = scores[index];
+        scores[index] = score;
+        return move;
+    }
+
+    private boolean isEnabled(int feature) {
+        return (features & feature) != 0;
+    }
+
+    /**
+     * Tests if the given color has other pieces than pawns and the King.
+     */
+    private boolean hasPieces(int color) {
+        return (position.getColorBitboard(color) & ~position.getPieceBitboard(Position.makePiece(color, Position.PAWN))
+                & ~position.getPieceBitboard(Position.makePiece(color, Position.KING))) != 0;
+    }
+
+    private boolean isExcluded(int move) {
+        for (int i = 0; i < excludedCount; i++) {
+            if (excludedMoves[i] == move) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Sorts the lines of an iteration from the highest to the lowest score and renumbers them accordingly.
+     */
+    private static void sortByScore(AnalysisInfo[] lines) {
+        for (int i = 1; i < lines.length && lines[i] != null; i++) {
+            AnalysisInfo line = lines[i];
+            int j = i - 1;
+            while (j >= 0 && lines[j].getScore() < line.getScore()) {
+                lines[j + 1] = lines[j];
+                j--;
+            }
+            lines[j + 1] = line;
+        }
+        for (int i = 0; i < lines.length && lines[i] != null; i++) {
+            AnalysisInfo line = lines[i];
+            if (line.getLine() != i + 1) {
+                lines[i] = new AnalysisInfo(line.getDepth(), line.getScore(), line.getSideToMove(),
+                        line.getPrincipalVariation(), line.getNodes(), line.getElapsedMillis(), i + 1);
+            }
+        }
+    }
+
+    private void updatePrincipalVariation(int ply, int move) {
+        pvTable[ply][ply] = move;
+        for (int i = ply + 1; i < pvLength[ply + 1]; i++) {
+            pvTable[ply][i] = pvTable[ply + 1][i];
+        }
+        pvLength[ply] = Math.max(pvLength[ply + 1], ply + 1);
+    }
+
+    private void checkLimits() {
+        if ((nodes & 1023) == 0 && deadline > 0 && System.currentTimeMillis() >= deadline) {
+            stopped = true;
+        }
+    }
+
+    /**
+     * Delivers the pseudo legal moves of one position of the alpha-beta search in stages, see the description of the
+     * Search. Every ply has its own MovePicker, which uses the move list and scores of its ply.
+     */
+    private final class MovePicker {
+
+        private final int ply;
+        private final int[] refutations = new int[3];
+        private int refutationCount;
+        private int hashMove;
+        private int stage;
+        private int index;
+        private int captureEnd;
+        private int quietEnd;
+        private int badCaptureIndex;
+
+        MovePicker(int ply) {
+            this.ply = ply;
+        }
+
+        /**
+         * Starts the move generation for the current position of the Search.
+         *
+         * @param hashMove the move that is tried first, if it is pseudo legal, or {@link Move#NONE}
+         */
+        void init(int hashMove) {
+            this.hashMove = hashMove;
+            this.stage = STAGE_HASH_MOVE;
+        }
+
+        /**
+         * Returns the next move.
+         *
+         * @return the next pseudo legal move or {@link Move#NONE}, if all moves have been returned
+         */
+        int next() {
+            int[] moves = moveLists[ply];
+            while (true) {
+                switch (stage) {
+                    case STAGE_HASH_MOVE:
+                        if (hashMove != Move.NONE && position.isPseudoLegal(hashMove)) {
+                            stage = STAGE_GENERATE_CAPTURES;
+                            return hashMove;
+                        }
+                        hashMove = Move.NONE;
+                        stage = STAGE_GENERATE_CAPTURES;
+                        break;
+                    case STAGE_GENERATE_CAPTURES:
+                        captureEnd = position.generateCaptures(moves);
+                        scoreCaptures(ply, 0, captureEnd);
+                        index = 0;
+                        stage = STAGE_GOOD_CAPTURES;
+                        break;
+                    case STAGE_GOOD_CAPTURES:
+                        if (index < captureEnd) {
+                            int move = pickMove(ply, captureEnd, index);
+                            if (moveScores[ply][index] >= 0) {
+                                index++;
+                                if (move != hashMove) {
+                                    return move;
+                                }
+                                break;
+                            }
+                        }
+                        badCaptureIndex = index;
+                        collectRefutations();
+                        index = 0;
+                        stage = STAGE_REFUTATIONS;
+                        break;
+                    case STAGE_REFUTATIONS:
+                        if (index < refutationCount) {
+                            return refutations[index++];
+                        }
+                        stage = STAGE_GENERATE_QUIET_MOVES;
+                        break;
+                    case STAGE_GENERATE_QUIET_MOVES:
+                        quietEnd = position.generateQuietMoves(moves, captureEnd);
+                        scoreQuietMoves(ply, captureEnd, quietEnd);
+                        index = captureEnd;
+                        stage = STAGE_QUIET_MOVES;
+                        break;
+                    case STAGE_QUIET_MOVES:
+                        if (index < quietEnd) {
+                            int move = pickMove(ply, quietEnd, index++);
+                            if (move != hashMove && !isRefutation(move)) {
+                                return move;
+                            }
+                            break;
+                        }
+                        index = badCaptureIndex;
+                        stage = STAGE_BAD_CAPTURES;
+                        break;
+                    case STAGE_BAD_CAPTURES:
+                        if (index < captureEnd) {
+                            int move = pickMove(ply, captureEnd, index++);
+                            if (move != hashMove) {
+                                return move;
+                            }
+                            break;
+                        }
+                        stage = STAGE_DONE;
+                        break;
+                    default:
+                        return Move.NONE;
+                }
+            }
+        }
+
+        /**
+         * Collects the killer moves and the counter move that are pseudo legal quiet moves in the current position.
+         */
+        private void collectRefutations() {
+            refutationCount = 0;
+            if (isEnabled(KILLER_MOVES)) {
+                addRefutation(killerMoves[ply][0]);
+                addRefutation(killerMoves[ply][1]);
+            }
+            if (isEnabled(COUNTER_MOVES) && ply > 0 && playedMoves[ply - 1] != Move.NONE) {
+                addRefutation(counterMoves[counterMoveIndex(position.getSideToMove(), playedMoves[ply - 1])]);
+            }
+        }
+
+        private void addRefutation(int move) {
+            if (move == Move.NONE || move == hashMove || isRefutation(move) || !position.isPseudoLegal(move)
+                    || position.isCapture(move) || Move.promotion(move) != 0) {
+                return;
+            }
+            refutations[refutationCount++] = move;
+        }
+
+        private boolean isRefutation(int move) {
+            for (int i = 0; i < refutationCount; i++) {
+                if (refutations[i] == move) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Java Flight Recorder event for a completed iteration of the iterative deepening of a {@link Search}. The duration
+ * covers the search of all lines of the iteration. By default only iterations that take longer than the threshold
+ * are recorded.
+ */
+@Name("chess.SearchIteration")
+@Label("Search Iteration")
+@Category({"Chess", "Search"})
+@Description("An iteration of the iterative deepening has been completed")
+@Threshold("10 ms")
+@StackTrace(false)
+public class SearchIterationEvent extends jdk.jfr.Event {
+
+    @Label("Depth")
+    int depth;
+
+    @Label("Lines")
+    @Description("The number of searched lines (multi-PV)")
+    int lines;
+
+    @Label("Score")
+    @Description("The score of the best line in centipawns from the view of the color to move")
+    int score;
+
+    @Label("Best Move")
+    String bestMove;
+
+    @Label("Nodes")
+    @Description("The number of nodes searched since the start of the search")
+    long nodes;
+}
@@ -0,0 +1,13 @@
+/**
+ * Receives the results of a running {@link Search}. Listeners are called from the thread that runs the Search, so they
+ * must not touch Swing components directly.
+ */
+public interface SearchListener {
+
+    /**
+     * Called every time the Search has completed an iteration of its iterative deepening loop.
+     *
+     * @param info the depth, score and principal variation of the completed iteration
+     */
+    void iterationCompleted(AnalysisInfo info);
+}
@@ -90,7 +90,9 @@ public class Tile extends JButton {
     }
 
     /**
-     * Places a {@link ChessPiece} on the Tile. The Icon of the ChessPiece will be displayed on the Tile.
+     * Places a {@link ChessPiece} on the Tile. The Icon of the ChessPiece will be displayed on the Tile and the
+     * ChessPiece is added to the {@link PieceList} of its owner. A ChessPiece that was placed on the Tile before is
+     * replaced.
      *
      * @param chessPiece the ChessPiece that will be placed on the Tile
      */
@@ -98,19 +100,27 @@ public class Tile extends JButton {
         if (chessPiece == null) {
             throw new NullPointerException("Arguments for the setChessPiece() method must not ne null.");
         }
+        if (hasChessPiece()) {
+            this.chessPiece.getOwner().getPieceList().remove(row * 8 + col);
+        }
         this.chessPiece = chessPiece;
         this.chessPiece.setTile(this);
+        this.chessPiece.getOwner().getPieceList().add(row * 8 + col, chessPiece.getType());
+        this.board.setOccupied(row, col, true);
         this.setIcon(chessPiece.getIcon());
     }
 
     /**
-     * Removes the {@link ChessPiece} from this Tile. This will also remove the image of the ChessPiece from the Tile.
+     * Removes the {@link ChessPiece} from this Tile. This will also remove the image of the ChessPiece from the Tile
+     * and the ChessPiece from the {@link PieceList} of its owner.
      */
     public void removeChessPiece() {
         if (hasChessPiece()) {
             this.chessPiece.setTile(null);
+            this.chessPiece.getOwner().getPieceList().remove(row * 8 + col);
         }
         this.chessPiece = null;
+        this.board.setOccupied(row, col, false);
         ImageIcon empty_icon = new ImageIcon(new BufferedImage(this.size, this.size, BufferedImage.TYPE_INT_ARGB));
         this.setIcon(empty_icon);
     }
@@ -173,7 +183,10 @@ public class Tile extends JButton {
         if (board == null) {
             throw new NullPointerException("Arguments for the setBoard() method must not be null.");
         }
+        // The occupancy of the Tile moves to the new board
+        this.board.setOccupied(row, col, false);
         this.board = board;
+        this.board.setOccupied(row, col, hasChessPiece());
     }
 
     /**
@@ -184,6 +197,15 @@ public class Tile extends JButton {
         this.setBorderPainted(true);
     }
 
+    /**
+     * Marks the Tile as a possible target of the currently chosen {@link ChessPiece} by adding a thin green border on
+     * each side.
+     */
+    public void markAsTarget() {
+        this.setBorder(BorderFactory.createLineBorder(Color.green, this.size / 15));
+        this.setBorderPainted(true);
+    }
+
     /**
      * Marks the Tile as inactive by removing its border.
      */
@@ -0,0 +1,238 @@
+import java.util.Arrays;
+
+/**
+ * Describes how much thinking time the players of a game get. A TimeControl consists of one or more periods and an
+ * optional bonus per move, which is either a Fischer increment or a Bronstein delay:
+ * <p>
+ * - Periods: Each period gives both players a fixed amount of time for a fixed number of moves. When a player has
+ * made the moves of a period, the time of the next period is added to the remaining time. The last period is valid
+ * for the rest of the game ('sudden death').
+ * <p>
+ * - Fischer increment: After every move the increment is added to the remaining time of the player, even if the move
+ * took less time.
+ * <p>
+ * - Bronstein delay: After every move the time the player needed is given back, but at most the delay. A player can
+ * therefore never gain time.
+ * <p>
+ * TimeControls are immutable and can be shared by any number of {@link ChessClock}s.
+ */
+public final class TimeControl {
+
+    private static final long NANOS_PER_MILLI = 1000000L;
+
+    private final long[] periodNanos;
+    private final int[] periodMoves;
+    private final long incrementNanos;
+    private final long delayNanos;
+
+    /**
+     * Creates a new TimeControl.
+     *
+     * @param periodMillis    the time of every period in milliseconds
+     * @param periodMoves     the number of moves of every period except the last one
+     * @param incrementMillis the Fischer increment per move in milliseconds
+     * @param delayMillis     the Bronstein delay per move in milliseconds
+     */
+    private TimeControl(long[] periodMillis, int[] periodMoves, long incrementMillis, long delayMillis) {
+        if (periodMillis.length == 0 || periodMoves.length != periodMillis.length - 1) {
+            throw new IllegalArgumentException("Error: Every period except the last one needs a number of moves.");
+        }
+        if (incrementMillis < 0 || delayMillis < 0) {
+            throw new IllegalArgumentException("Error: The increment and the delay can not be negative.");
+        }
+        this.periodNanos = new long[periodMillis.length];
+        for (int i = 0; i < periodMillis.length; i++) {
+            if (periodMillis[i] <= 0) {
+                throw new IllegalArgumentException("Error: The time of a period has to be positive.");
+            }
+            this.periodNanos[i] = periodMillis[i] * NANOS_PER_MILLI;
+        }
+        for (int moves : periodMoves) {
+            if (moves <= 0) {
+                throw new IllegalArgumentException("Error: The number of moves of a period has to be positive.");
+            }
+        }
+        this.periodMoves = periodMoves.clone();
+        this.incrementNanos = incrementMillis * NANOS_PER_MILLI;
+        this.delayNanos = delayMillis * NANOS_PER_MILLI;
+    }
+
+    /**
+     * Creates a TimeControl with a single period and a Fischer increment, e.g. 3 minutes plus 2 seconds per move.
+     *
+     * @param baseMillis      the time for the whole game in milliseconds
+     * @param incrementMillis the time added after every move in milliseconds
+     * @return the TimeControl
+     */
+    public static TimeControl fischer(long baseMillis, long incrementMillis) {
+        return new TimeControl(new long[]{baseMillis}, new int[0], incrementMillis, 0);
+    }
+
+    /**
+     * Creates a TimeControl with a single period and a Bronstein delay.
+     *
+     * @param baseMillis  the time for the whole game in milliseconds
+     * @param delayMillis the maximum time given back after every move in milliseconds
+     * @return the TimeControl
+     */
+    public static TimeControl bronstein(long baseMillis, long delayMillis) {
+        return new TimeControl(new long[]{baseMillis}, new int[0], 0, delayMillis);
+    }
+
+    /**
+     * Creates a classical TimeControl with several periods, e.g. 40 moves in 120 minutes, 20 moves in 60 minutes and
+     * 30 minutes for the rest of the game.
+     *
+     * @param periodMillis    the time of every period in milliseconds
+     * @param periodMoves     the number of moves of every period except the last one
+     * @param incrementMillis the Fischer increment per move in milliseconds, 0 for none
+     * @return the TimeControl
+     */
+    public static TimeControl classical(long[] periodMillis, int[] periodMoves, long incrementMillis) {
+        if (periodMillis == null || periodMoves == null) {
+            throw new NullPointerException("Arguments for the classical() method must not be null.");
+        }
+        return new TimeControl(periodMillis, periodMoves, incrementMillis, 0);
+    }
+
+    /**
+     * Creates a TimeControl with any combination of periods, increment and delay. Used to restore the TimeControl of
+     * a {@link GameSnapshot}.
+     *
+     * @param periodMillis    the time of every period in milliseconds
+     * @param periodMoves     the number of moves of every period except the last one
+     * @param incrementMillis the Fischer increment per move in milliseconds
+     * @param delayMillis     the Bronstein delay per move in milliseconds
+     * @return the TimeControl
+     */
+    static TimeControl create(long[] periodMillis, int[] periodMoves, long incrementMillis, long delayMillis) {
+        return new TimeControl(periodMillis, periodMoves, incrementMillis, delayMillis);
+    }
+
+    /**
+     * Returns the time of every period.
+     *
+     * @return a new array with the times in milliseconds
+     */
+    long[] getPeriodMillis() {
+        long[] periodMillis = new long[periodNanos.length];
+        for (int i = 0; i < periodNanos.length; i++) {
+            periodMillis[i] = periodNanos[i] / NANOS_PER_MILLI;
+        }
+        return periodMillis;
+    }
+
+    /**
+     * Returns the number of moves of every period except the last one.
+     *
+     * @return a new array with the numbers of moves
+     */
+    int[] getPeriodMoves() {
+        return periodMoves.clone();
+    }
+
+    /**
+     * Returns the time of the first period, which is the time on the clocks at the start of a game.
+     *
+     * @return the initial time in nanoseconds
+     */
+    public long getInitialNanos() {
+        return periodNanos[0];
+    }
+
+    /**
+     * Returns the time that is added to the clock of a player who has made the given number of moves. This is the
+     * time of the next period, if a period has been completed with the move.
+     *
+     * @param movesMade the number of moves made by the player, including the last one
+     * @return the added time in nanoseconds, 0 if no period ends with the move
+     */
+    long getPeriodBonusNanos(int movesMade) {
+        int moves = 0;
+        for (int i = 0; i < periodMoves.length; i++) {
+            moves += periodMoves[i];
+            if (movesMade == moves) {
+                return periodNanos[i + 1];
+            } else if (movesMade < moves) {
+                return 0;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Returns the Fischer increment of this TimeControl.
+     *
+     * @return the increment in nanoseconds
+     */
+    long getIncrementNanos() {
+        return incrementNanos;
+    }
+
+    /**
+     * Returns the Bronstein delay of this TimeControl.
+     *
+     * @return the delay in nanoseconds
+     */
+    long getDelayNanos() {
+        return delayNanos;
+    }
+
+    /**
+     * Returns the Fischer increment of this TimeControl.
+     *
+     * @return the increment in milliseconds
+     */
+    public long getIncrementMillis() {
+        return incrementNanos / NANOS_PER_MILLI;
+    }
+
+    /**
+     * Returns the Bronstein delay of this TimeControl.
+     *
+     * @return the delay in milliseconds
+     */
+    public long getDelayMillis() {
+        return delayNanos / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder description = new StringBuilder();
+        for (int i = 0; i < periodNanos.length; i++) {
+            if (i > 0) {
+                description.append(", ");
+            }
+            if (i < periodMoves.length) {
+                description.append(periodMoves[i]).append('/');
+            }
+            description.append(periodNanos[i] / NANOS_PER_MILLI / 1000.0).append('s');
+        }
+        if (incrementNanos > 0) {
+            description.append(" +").append(incrementNanos / NANOS_PER_MILLI / 1000.0).append('s');
+        }
+        if (delayNanos > 0) {
+            description.append(" delay ").append(delayNanos / NANOS_PER_MILLI / 1000.0).append('s');
+        }
+        return description.toString();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof TimeControl)) {
+            return false;
+        }
+        TimeControl other = (TimeControl) o;
+        return incrementNanos == other.incrementNanos && delayNanos == other.delayNanos
+                && Arrays.equals(periodNanos, other.periodNanos) && Arrays.equals(periodMoves, other.periodMoves);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * Arrays.hashCode(periodNanos) + Arrays.hashCode(periodMoves))
+                + Long.hashCode(incrementNanos + 7 * delayNanos);
+    }
+}
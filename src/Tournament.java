@@ -0,0 +1,405 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Command line runner for engine-vs-engine matches, which are used to measure whether a change of the {@link Search}
+ * or the {@link Evaluation} makes the engine stronger. Two engine configurations play games from a list of opening
+ * positions. Every opening is played twice with swapped colors, so neither engine profits from a favourable opening.
+ * The games run in parallel on a thread pool, every game with its own {@link ChessClock}.
+ * <p>
+ * Games are adjudicated by the rules of chess: checkmate, stalemate, the 50 move rule, threefold repetition,
+ * insufficient material and loss on time. Games that exceed {@link #MAX_PLIES} half moves are adjudicated as draw.
+ * At the end, the score of the first engine is converted into an Elo difference with a 95% confidence interval.
+ * <p>
+ * Usage: java Tournament [-games n] [-threads n] [-tc seconds+increment] [-openings file] [-engine1 spec]
+ * [-engine2 spec] [-quiet]
+ * <p>
+ * An engine spec consists of a name and optional settings, e.g. 'new:depth=8,hash=32'. The features of the selective
+ * search can be switched on and off by their names, e.g. 'old:nullmove=0,latemovereductions=0' (see
+ * {@link Search#FEATURE_NAMES}). The openings file contains one FEN per line.
+ */
+public class Tournament {
+
+    /**
+     * Maximum length of a game in half moves. Longer games are adjudicated as draw.
+     */
+    public static final int MAX_PLIES = 400;
+
+    // Well known openings after a few moves, given in long algebraic notation
+    private static final String[] DEFAULT_OPENINGS = {
+            "e2e4 e7e5 g1f3 b8c6 f1b5 a7a6",
+            "e2e4 e7e5 g1f3 b8c6 f1c4 f8c5",
+            "e2e4 c7c5 g1f3 d7d6 d2d4 c5d4",
+            "e2e4 c7c5 b1c3 b8c6 g2g3 g7g6",
+            "e2e4 e7e6 d2d4 d7d5 b1c3 g8f6",
+            "e2e4 c7c6 d2d4 d7d5 e4e5 c8f5",
+            "d2d4 d7d5 c2c4 e7e6 b1c3 g8f6",
+            "d2d4 d7d5 c2c4 c7c6 g1f3 g8f6",
+            "d2d4 g8f6 c2c4 g7g6 b1c3 f8g7",
+            "d2d4 g8f6 c2c4 e7e6 b1c3 f8b4",
+            "c2c4 e7e5 b1c3 g8f6 g2g3 d7d5",
+            "g1f3 d7d5 g2g3 g8f6 f1g2 c7c6"
+    };
+
+    private static final int DEFAULT_MOVES_TO_GO = 30;
+
+    private final Engine[] engines;
+    private final List<Position> openings;
+    private final TimeControl timeControl;
+    private final boolean quiet;
+    private final ThreadLocal<Search[]> searches;
+    private int wins;
+    private int draws;
+    private int losses;
+    private int finishedGames;
+
+    /**
+     * Settings of one engine of a Tournament.
+     */
+    static final class Engine {
+
+        private final String name;
+        private final int maxDepth;
+        private final int hashSizeMegabytes;
+        private final int searchFeatures;
+
+        /**
+         * Creates a new Engine.
+         *
+         * @param name              the name of the engine in the results
+         * @param maxDepth          the maximum search depth in half moves
+         * @param hashSizeMegabytes the size of the TranspositionTable in megabytes
+         * @param searchFeatures    the enabled features of the Search, see {@link Search#setFeatures(int)}
+         */
+        Engine(String name, int maxDepth, int hashSizeMegabytes, int searchFeatures) {
+            this.name = name;
+            this.maxDepth = maxDepth;
+            this.hashSizeMegabytes = hashSizeMegabytes;
+            this.searchFeatures = searchFeatures;
+        }
+
+        /**
+         * Creates a Search with the settings of this Engine.
+         *
+         * @return the new Search
+         */
+        Search createSearch() {
+            Search search = new Search(new TranspositionTable(hashSizeMegabytes));
+            search.setFeatures(searchFeatures);
+            return search;
+        }
+
+        /**
+         * Creates an Engine from a description like 'name:depth=8,hash=32,nullmove=0'.
+         *
+         * @param spec the description of the engine
+         * @return the described Engine
+         */
+        static Engine parse(String spec) {
+            String[] parts = spec.split(":", 2);
+            int maxDepth = Search.MAX_PLY;
+            int hashSizeMegabytes = TranspositionTable.DEFAULT_SIZE_MB;
+            int searchFeatures = Search.ALL_FEATURES;
+            if (parts.length > 1) {
+                for (String setting : parts[1].split(",")) {
+                    String[] keyValue = setting.split("=", 2);
+                    if (keyValue.length != 2) {
+                        throw new IllegalArgumentException("Error: Invalid engine setting " + setting);
+                    }
+                    int value = Integer.parseInt(keyValue[1]);
+                    switch (keyValue[0]) {
+                        case "depth":
+                            maxDepth = value;
+                            break;
+                        case "hash":
+                            hashSizeMegabytes = value;
+                            break;
+                        default:
+                            int feature = Search.getFeatureFlag(keyValue[0]);
+                            if (feature == 0) {
+                                throw new IllegalArgumentException("Error: Unknown engine setting " + keyValue[0]);
+                            }
+                            searchFeatures = value != 0 ? searchFeatures | feature : searchFeatures & ~feature;
+                    }
+                }
+            }
+            return new Engine(parts[0], maxDepth, hashSizeMegabytes, searchFeatures);
+        }
+    }
+
+    /**
+     * Creates a new Tournament between two engines.
+     *
+     * @param first           the engine whose result is reported
+     * @param second          the opponent
+     * @param openings        the start Positions of the games
+     * @param baseTimeMillis  the time of every engine for the whole game
+     * @param incrementMillis the time added to the clock of an engine after each of its moves
+     * @param quiet           whether the results of the individual games are omitted
+     */
+    public Tournament(Engine first, Engine second, List<Position> openings, long baseTimeMillis,
+                      long incrementMillis, boolean quiet) {
+        if (openings.isEmpty()) {
+            throw new IllegalArgumentException("Error: A Tournament needs at least one opening.");
+        }
+        this.engines = new Engine[]{first, second};
+        this.openings = openings;
+        this.timeControl = TimeControl.fischer(baseTimeMillis, incrementMillis);
+        this.quiet = quiet;
+
+        // Every worker thread reuses its Searches for all of its games
+        this.searches = new ThreadLocal<Search[]>() {
+            @Override
+            protected Search[] initialValue() {
+                return new Search[]{engines[0].createSearch(), engines[1].createSearch()};
+            }
+        };
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int games = 0;
+        int threads = Runtime.getRuntime().availableProcessors();
+        double baseSeconds = 10;
+        double incrementSeconds = 0.1;
+        String openingsFile = null;
+        Engine first = Engine.parse("engine1");
+        Engine second = Engine.parse("engine2");
+        boolean quiet = false;
+        for (int i = 0; i < args.length; i++) {
+            String value = i + 1 < args.length ? args[i + 1] : "";
+            switch (args[i]) {
+                case "-games":
+                    games = Integer.parseInt(value);
+                    i++;
+                    break;
+                case "-threads":
+                    threads = Integer.parseInt(value);
+                    i++;
+                    break;
+                case "-tc":
+                    String[] timeControl = value.split("\\+");
+                    baseSeconds = Double.parseDouble(timeControl[0]);
+                    incrementSeconds = timeControl.length > 1 ? Double.parseDouble(timeControl[1]) : 0;
+                    i++;
+                    break;
+                case "-openings":
+                    openingsFile = value;
+                    i++;
+                    break;
+                case "-engine1":
+                    first = Engine.parse(value);
+                    i++;
+                    break;
+                case "-engine2":
+                    second = Engine.parse(value);
+                    i++;
+                    break;
+                case "-quiet":
+                    quiet = true;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Error: Unknown argument " + args[i]);
+            }
+        }
+
+        List<Position> openings = openingsFile != null ? readOpenings(openingsFile) : createDefaultOpenings();
+        if (games <= 0) {
+            games = 2 * openings.size();
+        }
+        Tournament tournament = new Tournament(first, second, openings, Math.round(baseSeconds * 1000),
+                Math.round(incrementSeconds * 1000), quiet);
+        tournament.run(games, threads);
+    }
+
+    /**
+     * Reads the start Positions of the games from a file with one FEN per line. Empty lines and lines starting with
+     * '#' are skipped.
+     *
+     * @param file the path of the file
+     * @return the start Positions
+     * @throws IOException if the file can not be read
+     */
+    static List<Position> readOpenings(String file) throws IOException {
+        List<Position> openings = new ArrayList<>();
+        for (String line : Files.readAllLines(Paths.get(file), StandardCharsets.UTF_8)) {
+            line = line.trim();
+            if (!line.isEmpty() && !line.startsWith("#")) {
+                openings.add(Position.fromFen(line));
+            }
+        }
+        return openings;
+    }
+
+    /**
+     * Creates the start Positions of the built-in openings.
+     *
+     * @return the start Positions
+     */
+    static List<Position> createDefaultOpenings() {
+        List<Position> openings = new ArrayList<>();
+        for (String line : DEFAULT_OPENINGS) {
+            Position position = Position.createStartPosition();
+            for (String move : line.split(" ")) {
+                position.makeMove(position.parseMove(move));
+            }
+            openings.add(new Position(position));
+        }
+        return openings;
+    }
+
+    /**
+     * Plays the given number of games on the given number of threads and prints the results.
+     *
+     * @param games   the number of games
+     * @param threads the number of games played at the same time
+     * @throws InterruptedException if the thread is interrupted while waiting for the games
+     */
+    public void run(int games, int threads) throws InterruptedException {
+        System.out.printf("%s vs %s: %d games, %d threads, time control %s%n", engines[0].name,
+                engines[1].name, games, threads, timeControl);
+        long start = System.nanoTime();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int game = 0; game < games; game++) {
+            final int number = game;
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    // Every opening is played twice, the second time with swapped colors
+                    Position opening = openings.get((number / 2) % openings.size());
+                    int white = number % 2;
+                    playGame(number + 1, opening, white);
+                }
+            });
+        }
+        executor.shutdown();
+        executor.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+        printSummary(System.nanoTime() - start, threads);
+    }
+
+    /**
+     * Plays a single game and records its result.
+     *
+     * @param number  the number of the game
+     * @param opening the start Position
+     * @param white   the index of the engine playing white
+     */
+    private void playGame(int number, Position opening, int white) {
+        Search[] threadSearches = searches.get();
+        for (Search search : threadSearches) {
+            search.getTranspositionTable().clear();
+        }
+        Position position = new Position(opening);
+        ChessClock clock = new ChessClock(timeControl);
+        clock.start(ChessColor.values()[position.getSideToMove()]);
+        int[] moves = new int[Position.MAX_MOVES];
+
+        // Result from the view of white: 1 win, 0 draw, -1 loss
+        int result;
+        String reason;
+        int plies = 0;
+        while (true) {
+            if (position.generateLegalMoves(moves) == 0) {
+                result = position.isInCheck() ? (position.getSideToMove() == Position.WHITE ? -1 : 1) : 0;
+                reason = result != 0 ? "checkmate" : "stalemate";
+                break;
+            } else if (position.getHalfmoveClock() >= 100) {
+                result = 0;
+                reason = "50 move rule";
+                break;
+            } else if (position.getRepetitionCount() >= 2) {
+                result = 0;
+                reason = "threefold repetition";
+                break;
+            } else if (position.isInsufficientMaterial()) {
+                result = 0;
+                reason = "insufficient material";
+                break;
+            } else if (plies >= MAX_PLIES) {
+                result = 0;
+                reason = "maximum length";
+                break;
+            }
+
+            int color = position.getSideToMove();
+            int engine = color == Position.WHITE ? white : 1 - white;
+            long remainingMillis = clock.getRemainingMillis(ChessColor.values()[color]);
+            long timeLimit = Math.max(1, Math.min(remainingMillis / DEFAULT_MOVES_TO_GO
+                    + timeControl.getIncrementMillis() * 3 / 4, remainingMillis / 2));
+            int move = threadSearches[engine].think(new Position(position), engines[engine].maxDepth, timeLimit,
+                    null);
+            if (!clock.press()) {
+                result = color == Position.WHITE ? -1 : 1;
+                reason = "time forfeit";
+                break;
+            }
+            position.makeMove(move);
+            plies++;
+        }
+        clock.stop();
+        recordResult(number, white, result, reason, plies);
+    }
+
+    private synchronized void recordResult(int number, int white, int result, String reason, int plies) {
+        // Results are counted from the view of the first engine
+        int firstEngineResult = white == 0 ? result : -result;
+        if (firstEngineResult > 0) {
+            wins++;
+        } else if (firstEngineResult < 0) {
+            losses++;
+        } else {
+            draws++;
+        }
+        finishedGames++;
+        if (!quiet) {
+            String score = result > 0 ? "1-0" : result < 0 ? "0-1" : "1/2-1/2";
+            System.out.printf("Game %d: %s vs %s %s (%s, %d plies)  [%d-%d-%d]%n", number, engines[white].name,
+                    engines[1 - white].name, score, reason, plies, wins, losses, draws);
+        }
+    }
+
+    private synchronized void printSummary(long nanos, int threads) {
+        int games = wins + draws + losses;
+        double score = (wins + draws / 2.0) / games;
+        System.out.printf("%n%s vs %s: +%d -%d =%d, score %.1f%%%n", engines[0].name, engines[1].name, wins,
+                losses, draws, score * 100);
+
+        // Standard error of the mean game result, converted into Elo at the bounds of the 95% confidence interval
+        double variance = (wins * Math.pow(1 - score, 2) + draws * Math.pow(0.5 - score, 2)
+                + losses * Math.pow(score, 2)) / games;
+        double margin = 1.96 * Math.sqrt(variance / games);
+        double elo = eloDifference(score);
+        double lower = eloDifference(score - margin);
+        double upper = eloDifference(score + margin);
+        System.out.println(String.format(Locale.ROOT, "Elo difference: %+.1f (95%% confidence: %+.1f to %+.1f)",
+                elo, lower, upper));
+
+        // More threads than cores do not make the games faster, fewer threads leave cores unused
+        double hours = nanos / 3.6e12;
+        int cores = Math.min(threads, Runtime.getRuntime().availableProcessors());
+        System.out.printf("%d games in %.1f s = %.0f games/hour, %.0f games/hour per core (cores used: %d)%n",
+                finishedGames, nanos / 1e9, games / hours, games / hours / cores, cores);
+    }
+
+    /**
+     * Converts an expected score into the Elo difference of the players.
+     *
+     * @param score the expected score between 0 and 1
+     * @return the Elo difference, infinite for a score of 0 or 1
+     */
+    static double eloDifference(double score) {
+        if (score <= 0) {
+            return Double.NEGATIVE_INFINITY;
+        } else if (score >= 1) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return 400 * Math.log10(score / (1 - score));
+    }
+}
@@ -0,0 +1,204 @@
+/**
+ * Cache for the results of a {@link Search}. The same {@link Position} is often reached by different move orders and
+ * is searched again in every iteration of the iterative deepening. The table stores the score, the search depth and
+ * the best move of a Position under its Zobrist key, so a later search of the same Position can reuse the score or at
+ * least try the best move first.
+ * <p>
+ * Alpha-beta search does not always find the exact score of a Position. A stored score is therefore marked as
+ * {@link #EXACT}, as {@link #LOWER_BOUND} (the real score is at least as high) or as {@link #UPPER_BOUND} (the real
+ * score is at most as high).
+ * <p>
+ * Every key maps to exactly one entry. A new result replaces the entry, unless the entry holds a deeper result for
+ * the same Position.
+ * <p>
+ * Several Searches running in parallel may share one table without locking. Every entry is stored as two long
+ * values and the key is saved XORed with the packed data. If two threads write the same entry at the same time, the
+ * key check of a later lookup fails for the mixed up entry, so it is treated as missing instead of being used with a
+ * wrong score. The lookup statistics are only approximate in this case.
+ */
+public class TranspositionTable {
+
+    /**
+     * Result of {@link #probe(long)}, if the table contains no entry for a key.
+     */
+    public static final long NO_ENTRY = 0;
+
+    /**
+     * Default size of the table in megabytes.
+     */
+    public static final int DEFAULT_SIZE_MB = 16;
+
+    /**
+     * The stored score is the exact score of the Position.
+     */
+    public static final int EXACT = 0;
+
+    /**
+     * The exact score of the Position is at least as high as the stored score.
+     */
+    public static final int LOWER_BOUND = 1;
+
+    /**
+     * The exact score of the Position is at most as high as the stored score.
+     */
+    public static final int UPPER_BOUND = 2;
+
+    // Every entry consists of the key and the packed data: move (bits 0-31), score (32-47), depth (48-55), bound
+    // (56-57)
+    private static final int BYTES_PER_ENTRY = 16;
+
+    private final long[] keys;
+    private final long[] data;
+    private final int mask;
+    private long probes;
+    private long hits;
+
+    /**
+     * Creates a new TranspositionTable with the given size.
+     *
+     * @param megabytes the memory used by the table, it is rounded down to a power of two entries
+     */
+    public TranspositionTable(int megabytes) {
+        if (megabytes < 1) {
+            throw new IllegalArgumentException("Error: The size of a TranspositionTable has to be positive.");
+        }
+        int entries = Integer.highestOneBit((int) Math.min((long) megabytes * 1024 * 1024 / BYTES_PER_ENTRY,
+                1 << 30));
+        this.keys = new long[entries];
+        this.data = new long[entries];
+        this.mask = entries - 1;
+        clear();
+    }
+
+    /**
+     * Removes all entries from the table.
+     */
+    public void clear() {
+        // Empty entries are recognized by their data
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = 0;
+            data[i] = NO_ENTRY;
+        }
+        probes = 0;
+        hits = 0;
+    }
+
+    /**
+     * Looks up the entry for the given key. The returned value contains all stored data of the entry and can be
+     * decoded with the static getters of this class, so it is not affected by later changes of the table.
+     *
+     * @param key the Zobrist key of a Position
+     * @return the packed entry or {@link #NO_ENTRY}, if the table contains no entry for the key
+     */
+    public long probe(long key) {
+        probes++;
+        int index = (int) key & mask;
+        long entry = data[index];
+        if ((keys[index] ^ entry) == key && entry != NO_ENTRY) {
+            hits++;
+            return entry;
+        }
+        return NO_ENTRY;
+    }
+
+    /**
+     * Stores a search result for the given key. Mate scores are stored relative to the Position, so they stay valid
+     * if the Position is reached at a different distance from the root.
+     *
+     * @param key   the Zobrist key of the Position
+     * @param depth the remaining search depth of the result
+     * @param score the score from the view of the color to move
+     * @param bound {@link #EXACT}, {@link #LOWER_BOUND} or {@link #UPPER_BOUND}
+     * @param move  the best move or {@link Move#NONE}
+     * @param ply   the distance of the Position from the root of the search
+     */
+    public void store(long key, int depth, int score, int bound, int move, int ply) {
+        int index = (int) key & mask;
+        long entry = data[index];
+        if ((keys[index] ^ entry) == key && getDepth(entry) > depth && bound != EXACT) {
+            return; // Keep the deeper result
+        }
+        if (score >= Search.MATE - Search.MAX_PLY) {
+            score += ply;
+        } else if (score <= -Search.MATE + Search.MAX_PLY) {
+            score -= ply;
+        }
+        entry = (move & 0xFFFFFFFFL) | ((long) (score & 0xFFFF) << 32) | ((long) depth << 48) | ((long) bound << 56);
+        keys[index] = key ^ entry;
+        data[index] = entry;
+    }
+
+    /**
+     * Returns the best move of an entry.
+     *
+     * @param entry the packed entry returned by {@link #probe(long)}
+     * @return the best move or {@link Move#NONE}
+     */
+    public static int getMove(long entry) {
+        return (int) entry;
+    }
+
+    /**
+     * Returns the score of an entry. Mate scores are converted to the distance from the current root.
+     *
+     * @param entry the packed entry returned by {@link #probe(long)}
+     * @param ply   the distance of the Position from the root of the search
+     * @return the score from the view of the color to move
+     */
+    public static int getScore(long entry, int ply) {
+        int score = (short) (entry >>> 32);
+        if (score >= Search.MATE - Search.MAX_PLY) {
+            score -= ply;
+        } else if (score <= -Search.MATE + Search.MAX_PLY) {
+            score += ply;
+        }
+        return score;
+    }
+
+    /**
+     * Returns the remaining search depth of an entry.
+     *
+     * @param entry the packed entry returned by {@link #probe(long)}
+     * @return the depth in half moves
+     */
+    public static int getDepth(long entry) {
+        return (int) (entry >>> 48) & 0xFF;
+    }
+
+    /**
+     * Returns whether the score of an entry is exact or a bound.
+     *
+     * @param entry the packed entry returned by {@link #probe(long)}
+     * @return {@link #EXACT}, {@link #LOWER_BOUND} or {@link #UPPER_BOUND}
+     */
+    public static int getBound(long entry) {
+        return (int) (entry >>> 56) & 3;
+    }
+
+    /**
+     * Returns the number of entries of the table.
+     *
+     * @return the number of entries
+     */
+    public int getSize() {
+        return keys.length;
+    }
+
+    /**
+     * Returns the number of lookups since the table was created or cleared.
+     *
+     * @return the number of probes
+     */
+    public long getProbes() {
+        return probes;
+    }
+
+    /**
+     * Returns the fraction of lookups that found an entry.
+     *
+     * @return the hit rate between 0 and 1
+     */
+    public double getHitRate() {
+        return probes == 0 ? 0 : (double) hits / probes;
+    }
+}
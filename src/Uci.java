@@ -0,0 +1,527 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+/**
+ * Command line entry point that speaks the Universal Chess Interface (UCI) protocol over standard input and output.
+ * It allows to use the {@link Search} of this application with chess GUIs and tournament managers, also on machines
+ * without a display. Supported commands:
+ * <p>
+ * - uci, isready, ucinewgame, quit
+ * <p>
+ * - setoption name [Hash | Threads | MultiPV] value [number]
+ * <p>
+ * - setoption name UseNNUE value [true | false], setoption name EvalFile value [file]: evaluate with a {@link Nnue}
+ * network instead of the handcrafted {@link Evaluation}. '&lt;default&gt;' stands for the network of the application.
+ * <p>
+ * - setoption name [NullMove | LateMoveReductions | FutilityPruning | Razoring | AspirationWindows | CheckExtensions
+ * | KillerMoves | CounterMoves | HistoryHeuristic] value [true | false]: switches a technique of the {@link Search} on
+ * or off
+ * <p>
+ * - position [startpos | fen (fen)] moves (moves)
+ * <p>
+ * - go [depth (n)] [movetime (ms)] [wtime (ms)] [btime (ms)] [winc (ms)] [binc (ms)] [movestogo (n)] [infinite]
+ * [ponder]
+ * <p>
+ * - ponderhit: the opponent played the expected move, see below
+ * <p>
+ * - go perft (depth): counts the leaf nodes for every legal move, see {@link Perft}
+ * <p>
+ * - stop
+ * <p>
+ * Searches run in a separate thread, so the engine stays responsive while it is thinking. With more than one thread,
+ * helper Searches analyse the same position in parallel and share the {@link TranspositionTable} with the main
+ * Search, whose result is reported.
+ * <p>
+ * With 'go ponder', the engine searches the position after the move it expects from the opponent (the 'ponder' move
+ * of its last 'bestmove') while the opponent is thinking. The search runs without time limit until 'ponderhit'
+ * arrives, from then on the time control of the 'go ponder' command applies. If the search has already finished, the
+ * best move is reported immediately. If the opponent plays another move, the GUI sends 'stop' and the new position;
+ * the {@link TranspositionTable} keeps the results of the pondering search for the next one.
+ */
+public class Uci implements SearchListener {
+
+    private static final String NAME = "Chess";
+    private static final String AUTHOR = "JannisGz";
+    private static final int MAX_HASH_MB = 4096;
+    private static final int MAX_THREADS = 64;
+    private static final int MAX_LINES = 16;
+    private static final String DEFAULT_EVAL_FILE = "<default>";
+
+    // Estimated number of remaining moves, if the time control does not specify it
+    private static final int DEFAULT_MOVES_TO_GO = 30;
+    private static final long TIME_RESERVE_MILLIS = 50;
+
+    private final BufferedReader input;
+    private final PrintStream output;
+    private Position position;
+    private int hashSizeMegabytes;
+    private int threadCount;
+    private int lineCount;
+    private String evalFile;
+    private Nnue network;
+    private int searchFeatures;
+    private TranspositionTable transpositionTable;
+    private Search[] searches;
+    private Thread searchThread;
+    private volatile boolean stopRequested;
+    private volatile boolean infinite;
+    private volatile boolean pondering;
+    private volatile long ponderDeadline;
+    private long ponderTimeLimit;
+    private boolean ponderInfinite;
+
+    /**
+     * Creates a new Uci adapter that reads commands from the given stream and writes its responses to the given
+     * stream.
+     *
+     * @param input  the stream providing the commands
+     * @param output the stream receiving the responses
+     */
+    public Uci(InputStream input, PrintStream output) {
+        if (input == null || output == null) {
+            throw new NullPointerException("Arguments for the Uci constructor must not be null.");
+        }
+        this.input = new BufferedReader(new InputStreamReader(input));
+        this.output = output;
+        this.position = Position.createStartPosition();
+        this.hashSizeMegabytes = TranspositionTable.DEFAULT_SIZE_MB;
+        this.threadCount = 1;
+        this.lineCount = 1;
+        this.evalFile = DEFAULT_EVAL_FILE;
+        this.searchFeatures = Search.ALL_FEATURES;
+        createSearches();
+    }
+
+    /**
+     * Starts the engine on standard input and output.
+     *
+     * @param args not used
+     */
+    public static void main(String[] args) {
+        new Uci(System.in, System.out).run();
+    }
+
+    /**
+     * Processes commands until 'quit' is received or the input ends.
+     */
+    public void run() {
+        try {
+            String line;
+            while ((line = input.readLine()) != null) {
+                if (!processCommand(line.trim())) {
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            output.println("info string Error: " + e.getMessage());
+        }
+        stopSearch();
+    }
+
+    /**
+     * Processes a single command.
+     *
+     * @param command the command line without leading and trailing whitespace
+     * @return false if the engine has to quit
+     */
+    public boolean processCommand(String command) {
+        String[] tokens = command.split("\\s+");
+        try {
+            switch (tokens[0]) {
+                case "uci":
+                    output.println("id name " + NAME);
+                    output.println("id author " + AUTHOR);
+                    output.println("option name Hash type spin default " + TranspositionTable.DEFAULT_SIZE_MB
+                            + " min 1 max " + MAX_HASH_MB);
+                    output.println("option name Threads type spin default 1 min 1 max " + MAX_THREADS);
+                    output.println("option name MultiPV type spin default 1 min 1 max " + MAX_LINES);
+                    output.println("option name UseNNUE type check default false");
+                    output.println("option name EvalFile type string default " + DEFAULT_EVAL_FILE);
+                    output.println("option name Ponder type check default false");
+                    for (String feature : Search.FEATURE_NAMES) {
+                        output.println("option name " + feature + " type check default true");
+                    }
+                    output.println("uciok");
+                    break;
+                case "isready":
+                    output.println("readyok");
+                    break;
+                case "ucinewgame":
+                    stopSearch();
+                    transpositionTable.clear();
+                    position = Position.createStartPosition();
+                    break;
+                case "setoption":
+                    stopSearch();
+                    setOption(tokens);
+                    break;
+                case "position":
+                    stopSearch();
+                    setPosition(tokens);
+                    break;
+                case "go":
+                    stopSearch();
+                    go(tokens);
+                    break;
+                case "stop":
+                    stopSearch();
+                    break;
+                case "ponderhit":
+                    ponderHit();
+                    break;
+                case "quit":
+                    return false;
+                case "":
+                    break;
+                default:
+                    output.println("info string Unknown command: " + command);
+            }
+        } catch (IllegalArgumentException e) {
+            output.println("info string " + e.getMessage());
+        }
+        return true;
+    }
+
+    /**
+     * Prints the result of a completed iteration of the main Search.
+     *
+     * @param info the depth, score and principal variation of the completed iteration
+     */
+    @Override
+    public void iterationCompleted(AnalysisInfo info) {
+        if (stopRequested) {
+            searches[0].stop(); // The stop request may have arrived before the Search started
+        }
+        if (ponderDeadline > 0) {
+            searches[0].setDeadline(ponderDeadline); // The same applies to the 'ponderhit'
+        }
+        StringBuilder builder = new StringBuilder("info depth ").append(info.getDepth());
+        if (lineCount > 1) {
+            builder.append(" multipv ").append(info.getLine());
+        }
+        if (info.isMate()) {
+            builder.append(" score mate ").append(info.getMateDistance());
+        } else {
+            builder.append(" score cp ").append(info.getScore());
+        }
+        long millis = info.getElapsedMillis();
+        builder.append(" nodes ").append(info.getNodes()).append(" time ").append(millis);
+        builder.append(" nps ").append(info.getNodes() * 1000 / Math.max(1, millis));
+        if (info.getPrincipalVariation().length > 0) {
+            builder.append(" pv ").append(info.getPrincipalVariationString());
+        }
+        output.println(builder);
+    }
+
+    private void setOption(String[] tokens) {
+        // The name of an option may consist of several words
+        StringBuilder name = new StringBuilder();
+        String value = null;
+        for (int i = 1; i < tokens.length; i++) {
+            if (tokens[i].equals("name")) {
+                continue;
+            } else if (tokens[i].equals("value")) {
+                // File names may contain spaces as well
+                value = i + 1 < tokens.length
+                        ? String.join(" ", Arrays.copyOfRange(tokens, i + 1, tokens.length)) : null;
+                break;
+            }
+            name.append(name.length() > 0 ? " " : "").append(tokens[i]);
+        }
+        if (value == null) {
+            throw new IllegalArgumentException("Error: Missing value for option " + name);
+        }
+
+        switch (name.toString().toLowerCase()) {
+            case "hash":
+                hashSizeMegabytes = parseNumber(value, 1, MAX_HASH_MB);
+                createSearches();
+                break;
+            case "threads":
+                threadCount = parseNumber(value, 1, MAX_THREADS);
+                createSearches();
+                break;
+            case "multipv":
+                lineCount = parseNumber(value, 1, MAX_LINES);
+                break;
+            case "usennue":
+                network = Boolean.parseBoolean(value) ? loadNetwork(evalFile) : null;
+                createSearches();
+                break;
+            case "ponder":
+                break; // The GUI decides when the engine ponders
+            case "evalfile":
+                Nnue loaded = loadNetwork(value);
+                evalFile = value;
+                if (network != null) {
+                    network = loaded;
+                    createSearches();
+                }
+                break;
+            default:
+                int feature = Search.getFeatureFlag(name.toString());
+                if (feature == 0) {
+                    throw new IllegalArgumentException("Error: Unknown option " + name);
+                }
+                searchFeatures = Boolean.parseBoolean(value) ? searchFeatures | feature : searchFeatures & ~feature;
+                for (Search search : searches) {
+                    search.setFeatures(searchFeatures);
+                }
+        }
+    }
+
+    private void createSearches() {
+        transpositionTable = new TranspositionTable(hashSizeMegabytes);
+        searches = new Search[threadCount];
+        for (int i = 0; i < threadCount; i++) {
+            searches[i] = network == null ? new Search(transpositionTable)
+                    : new Search(transpositionTable, new NnueEvaluation(network));
+            searches[i].setFeatures(searchFeatures);
+        }
+    }
+
+    private static Nnue loadNetwork(String file) {
+        if (file.equals(DEFAULT_EVAL_FILE)) {
+            return Nnue.loadDefault();
+        }
+        try {
+            return Nnue.load(Paths.get(file));
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Error: The network " + file + " can not be read: " + e.getMessage());
+        }
+    }
+
+    private void setPosition(String[] tokens) {
+        int index = 1;
+        Position newPosition;
+        if (tokens.length > 1 && tokens[1].equals("startpos")) {
+            newPosition = Position.createStartPosition();
+            index = 2;
+        } else if (tokens.length > 1 && tokens[1].equals("fen")) {
+            StringBuilder fen = new StringBuilder();
+            index = 2;
+            while (index < tokens.length && !tokens[index].equals("moves")) {
+                fen.append(tokens[index++]).append(' ');
+            }
+            newPosition = Position.fromFen(fen.toString());
+        } else {
+            throw new IllegalArgumentException("Error: Expected 'startpos' or 'fen' after 'position'");
+        }
+
+        if (index < tokens.length && tokens[index].equals("moves")) {
+            for (index++; index < tokens.length; index++) {
+                newPosition.makeMove(newPosition.parseMove(tokens[index]));
+            }
+        }
+        position = new Position(newPosition); // The move history is not needed anymore
+    }
+
+    private void go(String[] tokens) {
+        int depth = Search.MAX_PLY;
+        long moveTime = 0;
+        long[] remainingTime = new long[2];
+        long[] increment = new long[2];
+        int movesToGo = 0;
+        boolean searchInfinite = false;
+        boolean ponder = false;
+        for (int i = 1; i < tokens.length; i++) {
+            String value = i + 1 < tokens.length ? tokens[i + 1] : "";
+            switch (tokens[i]) {
+                case "perft":
+                    perft(parseNumber(value, 1, Search.MAX_PLY));
+                    return;
+                case "depth":
+                    depth = parseNumber(value, 1, Search.MAX_PLY);
+                    break;
+                case "movetime":
+                    moveTime = parseNumber(value, 1, Integer.MAX_VALUE);
+                    break;
+                case "wtime":
+                    remainingTime[Position.WHITE] = parseNumber(value, Integer.MIN_VALUE, Integer.MAX_VALUE);
+                    break;
+                case "btime":
+                    remainingTime[Position.BLACK] = parseNumber(value, Integer.MIN_VALUE, Integer.MAX_VALUE);
+                    break;
+                case "winc":
+                    increment[Position.WHITE] = parseNumber(value, 0, Integer.MAX_VALUE);
+                    break;
+                case "binc":
+                    increment[Position.BLACK] = parseNumber(value, 0, Integer.MAX_VALUE);
+                    break;
+                case "movestogo":
+                    movesToGo = parseNumber(value, 1, Integer.MAX_VALUE);
+                    break;
+                case "infinite":
+                    searchInfinite = true;
+                    break;
+                case "ponder":
+                    ponder = true;
+                    break;
+                default:
+                    break; // Values of the arguments above and unsupported arguments are skipped
+            }
+        }
+
+        // Use an equal share of the remaining time for every remaining move, plus most of the increment
+        long timeLimit = moveTime;
+        int color = position.getSideToMove();
+        if (timeLimit == 0 && remainingTime[color] != 0 && !searchInfinite) {
+            long share = remainingTime[color] / (movesToGo > 0 ? movesToGo : DEFAULT_MOVES_TO_GO)
+                    + increment[color] * 3 / 4;
+            timeLimit = Math.max(1, Math.min(share, remainingTime[color] - TIME_RESERVE_MILLIS));
+        }
+        if (ponder) {
+            // Until 'ponderhit', the search runs like an infinite one
+            ponderTimeLimit = timeLimit;
+            ponderInfinite = searchInfinite;
+            startSearch(depth, 0, true, true);
+        } else {
+            startSearch(depth, timeLimit, searchInfinite, false);
+        }
+    }
+
+    private void perft(int depth) {
+        long start = System.currentTimeMillis();
+        int[] moves = new int[Position.MAX_MOVES];
+        int count = position.generateLegalMoves(moves);
+        long[] counts = Perft.divide(position, depth, moves, count, threadCount);
+        long total = 0;
+        for (int i = 0; i < count; i++) {
+            output.println(Move.toString(moves[i]) + ": " + counts[i]);
+            total += counts[i];
+        }
+        long millis = System.currentTimeMillis() - start;
+        output.println();
+        output.println("Nodes searched: " + total);
+        output.println("info string perft " + depth + " took " + millis + " ms, "
+                + total * 1000 / Math.max(1, millis) + " nodes/s");
+    }
+
+    private void startSearch(final int depth, final long timeLimit, boolean searchInfinite, boolean ponder) {
+        final Position root = new Position(position);
+        stopRequested = false;
+        infinite = searchInfinite;
+        pondering = ponder;
+        ponderDeadline = 0;
+        searchThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                // Helper Searches fill the shared TranspositionTable, only the main Search is reported
+                Thread[] helpers = new Thread[searches.length - 1];
+                for (int i = 1; i < searches.length; i++) {
+                    final Search helper = searches[i];
+                    helpers[i - 1] = new Thread(new Runnable() {
+                        @Override
+                        public void run() {
+                            helper.think(new Position(root), depth, timeLimit, null);
+                        }
+                    }, "Search helper " + i);
+                    helpers[i - 1].start();
+                }
+
+                AnalysisInfo[] lines = searches[0].analyze(new Position(root), lineCount, depth, timeLimit, Uci.this);
+                waitWhileInfinite();
+                for (int i = 1; i < searches.length; i++) {
+                    stopHelper(searches[i], helpers[i - 1]);
+                }
+                reportBestMove(lines);
+            }
+        }, "Search");
+        searchThread.start();
+    }
+
+    /**
+     * The opponent played the expected move, so the pondering search becomes a regular one: It gets the time limit of
+     * the 'go ponder' command, counted from now, and reports its best move as soon as it is finished.
+     */
+    private synchronized void ponderHit() {
+        if (searchThread == null || !pondering) {
+            return;
+        }
+        pondering = false;
+        if (ponderTimeLimit > 0) {
+            ponderDeadline = System.currentTimeMillis() + ponderTimeLimit;
+            for (Search search : searches) {
+                search.setDeadline(ponderDeadline);
+            }
+        }
+        infinite = ponderInfinite;
+        notifyAll();
+    }
+
+    /**
+     * The best move of an infinite search must not be reported before 'stop' is received.
+     */
+    private synchronized void waitWhileInfinite() {
+        while (infinite && !stopRequested) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private static void stopHelper(Search helper, Thread thread) {
+        // Stopping repeatedly covers a helper that has not started searching yet
+        while (thread.isAlive()) {
+            helper.stop();
+            try {
+                thread.join(10);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private void reportBestMove(AnalysisInfo[] lines) {
+        int[] principalVariation = lines.length > 0 ? lines[0].getPrincipalVariation() : new int[0];
+        if (principalVariation.length == 0) {
+            output.println("bestmove 0000"); // No legal moves
+        } else if (principalVariation.length == 1) {
+            output.println("bestmove " + Move.toString(principalVariation[0]));
+        } else {
+            output.println("bestmove " + Move.toString(principalVariation[0]) + " ponder "
+                    + Move.toString(principalVariation[1]));
+        }
+    }
+
+    /**
+     * Stops a running search and waits until its best move has been reported.
+     */
+    private void stopSearch() {
+        if (searchThread == null) {
+            return;
+        }
+        synchronized (this) {
+            stopRequested = true;
+            notifyAll();
+        }
+        for (Search search : searches) {
+            search.stop();
+        }
+        try {
+            searchThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        searchThread = null;
+    }
+
+    private static int parseNumber(String value, int min, int max) {
+        try {
+            int number = Integer.parseInt(value);
+            if (number < min || number > max) {
+                throw new IllegalArgumentException("Error: " + number + " is not between " + min + " and " + max);
+            }
+            return number;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Error: '" + value + "' is not a number");
+        }
+    }
+}
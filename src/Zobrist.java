@@ -0,0 +1,76 @@
+import java.util.Random;
+
+/**
+ * Random keys for Zobrist hashing of {@link Position}s. The hash key of a Position is the XOR of the keys of all
+ * pieces on their squares, the color to move, the castling rights and the en passant file. Since XOR is its own
+ * inverse, the key can be updated incrementally with every move instead of being recomputed from all 64 squares.
+ * <p>
+ * The keys are generated with a fixed seed, so the hash key of a Position is the same in every run of the
+ * application.
+ */
+public final class Zobrist {
+
+    private static final long[][] PIECE_KEYS = new long[16][64];
+    private static final long[] CASTLING_KEYS = new long[16];
+    private static final long[] EN_PASSANT_KEYS = new long[8];
+    private static final long SIDE_KEY;
+
+    static {
+        Random random = new Random(0x5EED_C0DEL);
+        for (int piece = 0; piece < 16; piece++) {
+            for (int square = 0; square < 64; square++) {
+                PIECE_KEYS[piece][square] = random.nextLong();
+            }
+        }
+        for (int rights = 1; rights < 16; rights++) { // No castling rights -> no key
+            CASTLING_KEYS[rights] = random.nextLong();
+        }
+        for (int file = 0; file < 8; file++) {
+            EN_PASSANT_KEYS[file] = random.nextLong();
+        }
+        SIDE_KEY = random.nextLong();
+    }
+
+    private Zobrist() {
+    }
+
+    /**
+     * Returns the key of a piece on a square.
+     *
+     * @param piece  the piece code
+     * @param square the square of the piece
+     * @return the key of the piece on the square
+     */
+    public static long piece(int piece, int square) {
+        return PIECE_KEYS[piece][square];
+    }
+
+    /**
+     * Returns the key of a combination of castling rights.
+     *
+     * @param castlingRights the castling rights as stored by a Position
+     * @return the key of the castling rights
+     */
+    public static long castling(int castlingRights) {
+        return CASTLING_KEYS[castlingRights];
+    }
+
+    /**
+     * Returns the key of an en passant square. Only the file of the square is relevant.
+     *
+     * @param square the en passant square or -1
+     * @return the key of the en passant square or 0, if there is none
+     */
+    public static long enPassant(int square) {
+        return square < 0 ? 0 : EN_PASSANT_KEYS[square & 7];
+    }
+
+    /**
+     * Returns the key that is added when black is to move.
+     *
+     * @return the key of the color to move
+     */
+    public static long side() {
+        return SIDE_KEY;
+    }
+}